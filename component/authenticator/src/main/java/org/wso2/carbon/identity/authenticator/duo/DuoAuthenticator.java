@@ -19,12 +19,12 @@
 package org.wso2.carbon.identity.authenticator.duo;
 
 import com.duosecurity.Client;
-import com.duosecurity.client.Admin;
+import com.duosecurity.TokenValidator;
+import com.duosecurity.client.Auth;
 import com.duosecurity.client.Http;
 import com.duosecurity.exception.DuoException;
+import com.duosecurity.model.AuthContext;
 import com.duosecurity.model.Token;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,16 +35,53 @@ import org.wso2.carbon.extension.identity.helper.FederatedAuthenticatorUtil;
 import org.wso2.carbon.extension.identity.helper.IdentityHelperConstants;
 import org.wso2.carbon.extension.identity.helper.util.IdentityHelperUtil;
 import org.wso2.carbon.identity.application.authentication.framework.AbstractApplicationAuthenticator;
+import org.wso2.carbon.identity.application.authentication.framework.AuthenticatorFlowStatus;
 import org.wso2.carbon.identity.application.authentication.framework.FederatedApplicationAuthenticator;
+import org.wso2.carbon.identity.application.authentication.framework.config.model.AuthenticatorConfig;
 import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
 import org.wso2.carbon.identity.application.authentication.framework.exception.AuthenticationFailedException;
-import org.wso2.carbon.identity.application.authentication.framework.exception.UserIdNotFoundException;
+import org.wso2.carbon.identity.application.authentication.framework.exception.LogoutFailedException;
 import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
 import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkConstants;
 import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
 import org.wso2.carbon.identity.application.common.model.ClaimMapping;
 import org.wso2.carbon.identity.application.common.model.Property;
+import org.wso2.carbon.identity.authenticator.duo.bulkhead.DuoBulkhead;
+import org.wso2.carbon.identity.authenticator.duo.bulkhead.DuoBulkheadRegistry;
+import org.wso2.carbon.identity.authenticator.duo.cache.DuoCache;
+import org.wso2.carbon.identity.authenticator.duo.cache.DuoCacheManager;
+import org.wso2.carbon.identity.authenticator.duo.cache.DuoCacheWarmer;
+import org.wso2.carbon.identity.authenticator.duo.claim.DuoClaimResolver;
+import org.wso2.carbon.identity.authenticator.duo.claim.DuoClaimResolverRegistry;
+import org.wso2.carbon.identity.authenticator.duo.claim.DuoUserClaims;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+import org.wso2.carbon.identity.authenticator.duo.crypto.DuoCryptoCache;
+import org.wso2.carbon.identity.authenticator.duo.event.DuoAuditEventPublisher;
+import org.wso2.carbon.identity.authenticator.duo.event.DuoAuthEvent;
+import org.wso2.carbon.identity.authenticator.duo.event.DuoEventPipeline;
+import org.wso2.carbon.identity.authenticator.duo.failure.DuoErrorPageTemplate;
+import org.wso2.carbon.identity.authenticator.duo.failure.DuoErrorPageTemplates;
+import org.wso2.carbon.identity.authenticator.duo.failure.DuoFailureState;
 import org.wso2.carbon.identity.authenticator.duo.internal.DuoServiceHolder;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoFairQueueFullException;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoFairScheduler;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiterRegistry;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostPool;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostRouter;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoProbeClientRegistry;
+import org.wso2.carbon.identity.authenticator.duo.session.DuoVerifiedSession;
+import org.wso2.carbon.identity.authenticator.duo.session.DuoVerifiedSessionStore;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoSlowLoginSampler;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoSpan;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoTracer;
+import org.wso2.carbon.identity.authenticator.duo.sync.AdminApiUserLookup;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserIndex;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserLookupBatcherRegistry;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserSyncEngine;
+import org.wso2.carbon.identity.authenticator.duo.util.DuoPhoneNumberUtil;
+import org.wso2.carbon.identity.authenticator.duo.util.DuoUserIdentifierUtil;
 import org.wso2.carbon.identity.core.ServiceURLBuilder;
 import org.wso2.carbon.identity.core.URLBuilderException;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
@@ -52,17 +89,16 @@ import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.user.api.UserRealm;
 import org.wso2.carbon.user.api.UserStoreException;
 import org.wso2.carbon.user.core.UserStoreManager;
-import org.wso2.carbon.user.core.util.UserCoreUtil;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -73,8 +109,6 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
 
     private static final long serialVersionUID = 4438354156955223654L;
     private static final Log log = LogFactory.getLog(DuoAuthenticator.class);
-    private static final String[] NON_USER_ATTRIBUTES
-            = new String[]{ "iss", "aud", "exp", "iat", "auth_time", "auth_result" };
 
     @Override
     public boolean canHandle(HttpServletRequest request) {
@@ -83,43 +117,158 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
                 request.getParameter(DuoAuthenticatorConstants.DUO_CODE) != null;
     }
 
+    @Override
+    public AuthenticatorFlowStatus process(HttpServletRequest request, HttpServletResponse response,
+                                          AuthenticationContext context)
+            throws AuthenticationFailedException, LogoutFailedException {
+
+        // Every step of the login reads the same configuration snapshot, even if the configuration is reloaded
+        // while the step runs.
+        bindConfig();
+        try {
+            AuthenticatorFlowStatus status;
+            try (DuoSpan span = startTrace(request, context)) {
+                try {
+                    status = super.process(request, response, context);
+                } catch (AuthenticationFailedException e) {
+                    span.setError(e);
+                    publishAuthEvent(context, DuoAuthEvent.Outcome.ERROR, e.getMessage(), null);
+                    throw e;
+                }
+                span.setAttribute("duo.flow_status", status.name());
+            }
+            if (status == AuthenticatorFlowStatus.INCOMPLETE && Boolean.parseBoolean(String.valueOf(
+                    context.getProperty(DuoAuthenticatorConstants.AUTHENTICATED_WITHOUT_REDIRECT)))) {
+                // The login was completed by a recent Duo verification or by the Duo pre-authentication, without
+                // redirecting the user to Duo.
+                context.setProperty(DuoAuthenticatorConstants.AUTHENTICATED_WITHOUT_REDIRECT, false);
+                request.setAttribute(FrameworkConstants.REQ_ATTR_HANDLED, true);
+                return AuthenticatorFlowStatus.SUCCESS_COMPLETED;
+            }
+            return status;
+        } finally {
+            DuoConfigManager.getInstance().unbind();
+        }
+    }
+
+    /**
+     * Start the root span of the initiate or callback leg of a login. Both legs share the trace derived from the
+     * context identifier, and the callback leg is linked to the root span of the initiate leg. The leg is recorded
+     * by the slow login sampler as well, when it is enabled.
+     *
+     * @param request the HttpServletRequest
+     * @param context the authentication context
+     * @return the span, or {@link DuoSpan#NOOP} if the login is neither traced nor sampled
+     */
+    private DuoSpan startTrace(HttpServletRequest request, AuthenticationContext context) {
+
+        DuoConfig duoConfig = getConfig();
+        boolean samplerEnabled = duoConfig.isEnabled(DuoAuthenticatorConstants.SlowLogins.ENABLE_SAMPLER);
+        DuoSlowLoginSampler.getInstance().configure(samplerEnabled,
+                duoConfig.getLong(DuoAuthenticatorConstants.SlowLogins.THRESHOLD,
+                        DuoAuthenticatorConstants.SlowLogins.DEFAULT_THRESHOLD_MILLIS),
+                (int) duoConfig.getLong(DuoAuthenticatorConstants.SlowLogins.CAPACITY,
+                        DuoAuthenticatorConstants.SlowLogins.DEFAULT_CAPACITY));
+        DuoTracer tracer = DuoTracer.getInstance();
+        if (duoConfig.isEnabled(DuoAuthenticatorConstants.Tracing.ENABLE_TRACING)) {
+            double sampleRatio = duoConfig.getDouble(DuoAuthenticatorConstants.Tracing.SAMPLE_RATIO,
+                    DuoAuthenticatorConstants.Tracing.DEFAULT_SAMPLE_RATIO);
+            tracer.configure(true, sampleRatio, duoConfig.get(DuoAuthenticatorConstants.Tracing.EXPORTER),
+                    duoConfig.get(DuoAuthenticatorConstants.Tracing.OTLP_ENDPOINT));
+        } else if (samplerEnabled) {
+            tracer.configure(false, 0, null, null);
+        } else {
+            return DuoSpan.NOOP;
+        }
+        String contextIdentifier = context.getContextIdentifier();
+        if (contextIdentifier == null) {
+            contextIdentifier = getContextIdentifier(request);
+        }
+        DuoSpan span;
+        if (canHandle(request)) {
+            Object parentSpanId = context.getProperty(DuoAuthenticatorConstants.Tracing.TRACE_PARENT);
+            span = tracer.startTrace(DuoAuthenticatorConstants.Tracing.SPAN_CALLBACK, contextIdentifier,
+                    parentSpanId != null ? parentSpanId.toString() : null);
+        } else {
+            span = tracer.startTrace(DuoAuthenticatorConstants.Tracing.SPAN_INITIATE, contextIdentifier, null);
+            if (span.isRecording()) {
+                context.setProperty(DuoAuthenticatorConstants.Tracing.TRACE_PARENT, span.getSpanId());
+            }
+        }
+        return span.setAttribute(DuoAuthenticatorConstants.Tracing.ATTRIBUTE_TENANT, context.getTenantDomain())
+                .setAttribute(DuoAuthenticatorConstants.Tracing.ATTRIBUTE_SERVICE_PROVIDER,
+                        context.getServiceProviderName());
+    }
+
     @Override
     protected void initiateAuthenticationRequest(HttpServletRequest request, HttpServletResponse response,
                                                  AuthenticationContext context)
             throws AuthenticationFailedException {
 
-        Map<String, String> authenticatorProperties = context.getAuthenticatorProperties();
         context.setProperty(DuoAuthenticatorConstants.AUTHENTICATION, DuoAuthenticatorConstants.AUTHENTICATOR_NAME);
-        String tenantDomain = context.getTenantDomain();
-        if (!tenantDomain.equals(IdentityHelperConstants.SUPER_TENANT_DOMAIN)) {
-            IdentityHelperUtil.loadApplicationAuthenticationXMLFromRegistry(context, context.getProperty(
-                    IdentityHelperConstants.AUTHENTICATION).toString(), tenantDomain);
-        }
         FederatedAuthenticatorUtil.setUsernameFromFirstStep(context);
+        String subject = getFirstStepSubject(context);
+        Object resolvedDuoUserId = context.getProperty(DuoAuthenticatorConstants.RESOLVED_DUO_USER_ID);
+        if (context.isRetrying() && resolvedDuoUserId != null && subject != null
+                && subject.equals(context.getProperty(DuoAuthenticatorConstants.RESOLVED_DUO_SUBJECT))) {
+            // An earlier attempt of the login already resolved the Duo user of the same user, and a retry only
+            // reports its failure. The tenant configuration is still loaded, as the error page depends on it.
+            DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.RETRY_FAST_PATH);
+            bindTenantConfig(context);
+            checkStatusCode(response, context);
+            return;
+        }
         Client duoClient;
-
+        bindTenantConfig(context);
         // Resolving claim needed for authentication process
         String duoUserId = getDuoUserId(context);
+        if (StringUtils.isNotEmpty(duoUserId)) {
+            context.setProperty(DuoAuthenticatorConstants.RESOLVED_DUO_USER_ID, duoUserId);
+            context.setProperty(DuoAuthenticatorConstants.RESOLVED_DUO_SUBJECT, subject);
+        }
 
         if (context.isRetrying()) {
             checkStatusCode(response, context);
+        } else if (StringUtils.isNotEmpty(duoUserId) && isSatisfiedByTrustedSession(request, context, duoUserId)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Skipping the Duo redirect as the user was verified by Duo within the trusted-session "
+                        + "window");
+            }
+        } else if (StringUtils.isNotEmpty(duoUserId) && isHandledByPreauth(response, context, duoUserId)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Skipping the Duo redirect as the login was resolved by the Duo pre-authentication");
+            }
         } else if (StringUtils.isNotEmpty(duoUserId)) {
             try {
-                String redirectUri = getCallbackUrl() + "?" +
+                String callbackUrl = getCallbackUrl();
+                String redirectUri = callbackUrl + "?" +
                         FrameworkConstants.SESSION_DATA_KEY + "=" + context.getContextIdentifier();
 
-                // Step 1: Create Duo Client
-                duoClient = new Client.Builder(authenticatorProperties.get
-                        (DuoAuthenticatorConstants.CLIENT_ID), authenticatorProperties.get
-                        (DuoAuthenticatorConstants.CLIENT_SECRET), authenticatorProperties.get
-                        (DuoAuthenticatorConstants.HOST), redirectUri).build();
-                // Step 2: Call Duo health check
-                duoClient.healthCheck();
+                // Step 1 and 2: Create Duo Client against a healthy Duo host
+                DuoBulkhead bulkhead = getBulkhead(context);
+                if (!acquireBulkhead(bulkhead, context)) {
+                    checkStatusCode(response, context);
+                    return;
+                }
+                try {
+                    duoClient = createHealthyDuoClient(context, callbackUrl, redirectUri);
+                } finally {
+                    bulkhead.release();
+                }
                 String state = duoClient.generateState();
                 context.setProperty(DuoAuthenticatorConstants.DUO_STATE, state);
 
                 // Step 3: Generate and save a state variable for validation purposes
-                String duoUrl = duoClient.createAuthUrl(duoUserId, state);
+                String duoUrl;
+                try (DuoSpan span = DuoTracer.getInstance().startSpan(
+                        DuoAuthenticatorConstants.Tracing.SPAN_CREATE_AUTH_URL)) {
+                    try {
+                        duoUrl = duoClient.createAuthUrl(duoUserId, state);
+                    } catch (DuoException e) {
+                        span.setError(e);
+                        throw e;
+                    }
+                }
 
                 // Step 4: Create the authUrl and redirect to it
                 response.sendRedirect(duoUrl);
@@ -136,41 +285,586 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
         }
     }
 
+    /**
+     * Create a Duo client against the preferred Duo API host that passes the Duo health check, failing over to the
+     * other configured hosts. The selected host is kept in the context, as the callback has to be completed against
+     * the same host. The health checks go through the client shared by the logins against a host, and the client of
+     * the login is only created for the selected host. A retried login skips the health check when an earlier attempt
+     * checked its host within the reuse window.
+     *
+     * @param context     the authentication context
+     * @param callbackUrl the callback URL shared by the logins
+     * @param redirectUri the callback URL of the login
+     * @return the Duo client
+     * @throws DuoException if no host passed the health check
+     */
+    private Client createHealthyDuoClient(AuthenticationContext context, String callbackUrl, String redirectUri)
+            throws DuoException {
+
+        Map<String, String> authenticatorProperties = context.getAuthenticatorProperties();
+        String clientId = authenticatorProperties.get(DuoAuthenticatorConstants.CLIENT_ID);
+        String clientSecret = authenticatorProperties.get(DuoAuthenticatorConstants.CLIENT_SECRET);
+        String host = getRecentlyCheckedHost(context);
+        if (host != null) {
+            // A retried login goes back to the host its previous attempt checked.
+            DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.HEALTH_CHECKS_REUSED);
+            return createDuoClient(clientId, clientSecret, host, redirectUri);
+        }
+        try (DuoSpan span = DuoTracer.getInstance().startSpan(DuoAuthenticatorConstants.Tracing.SPAN_HEALTH_CHECK)) {
+            try {
+                // The health check is idempotent, so a slow one is hedged. The host is only kept in the context once
+                // the winning copy is known.
+                host = getHostPool(context).executeHedged(duoHost -> {
+                    DuoProbeClientRegistry.getInstance().getClient(duoHost, clientId, clientSecret,
+                            probeHost -> createDuoClient(clientId, clientSecret, probeHost, callbackUrl))
+                            .healthCheck();
+                    return duoHost;
+                }, null);
+            } catch (Exception e) {
+                span.setError(e);
+                throw e;
+            }
+            span.setAttribute(DuoAuthenticatorConstants.Tracing.ATTRIBUTE_HOST, host);
+        } catch (DuoException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DuoException(e.getMessage(), e);
+        }
+        context.setProperty(DuoAuthenticatorConstants.Routing.SELECTED_HOST, host);
+        context.setProperty(DuoAuthenticatorConstants.Routing.HEALTH_CHECKED_AT, System.currentTimeMillis());
+        return createDuoClient(clientId, clientSecret, host, redirectUri);
+    }
+
+    /**
+     * Create a Duo Universal Prompt client for a Duo API host.
+     *
+     * @param clientId     the client ID of the Duo application
+     * @param clientSecret the client secret of the Duo application
+     * @param host         the Duo API host
+     * @param redirectUri  the callback URL
+     * @return the Duo client
+     * @throws DuoException if the client could not be created
+     */
+    protected Client createDuoClient(String clientId, String clientSecret, String host, String redirectUri)
+            throws DuoException {
+
+        return new Client.Builder(clientId, clientSecret, host, redirectUri).build();
+    }
+
+    /**
+     * Get the pool of the Duo API hosts configured for the identity provider.
+     *
+     * @param context the authentication context
+     * @return the host pool
+     */
+    private DuoHostPool getHostPool(AuthenticationContext context) {
+
+        DuoConfig duoConfig = getConfig();
+        DuoHostRouter router = DuoHostRouter.getInstance();
+        router.configure((int) duoConfig.getLong(DuoAuthenticatorConstants.Routing.FAILURE_THRESHOLD,
+                DuoAuthenticatorConstants.Routing.DEFAULT_FAILURE_THRESHOLD),
+                duoConfig.getLong(DuoAuthenticatorConstants.Routing.COOLDOWN,
+                        DuoAuthenticatorConstants.Routing.DEFAULT_COOLDOWN_SECONDS) * 1000,
+                duoConfig.getLong(DuoAuthenticatorConstants.Routing.LATENCY_DECAY,
+                        DuoAuthenticatorConstants.Routing.DEFAULT_LATENCY_DECAY_SECONDS) * 1000);
+        router.configureHedging(duoConfig.isEnabled(DuoAuthenticatorConstants.Hedging.ENABLE_HEDGING),
+                duoConfig.getDouble(DuoAuthenticatorConstants.Hedging.PERCENTILE,
+                        DuoAuthenticatorConstants.Hedging.DEFAULT_PERCENTILE),
+                (int) duoConfig.getLong(DuoAuthenticatorConstants.Hedging.MAX_IN_FLIGHT,
+                        DuoAuthenticatorConstants.Hedging.DEFAULT_MAX_IN_FLIGHT),
+                duoConfig.getLong(DuoAuthenticatorConstants.Hedging.MIN_DELAY,
+                        DuoAuthenticatorConstants.Hedging.DEFAULT_MIN_DELAY_MILLIS));
+        return router.getPool(context.getAuthenticatorProperties().get(DuoAuthenticatorConstants.HOST));
+    }
+
+    /**
+     * Get the host pool of the Duo API hosts of an identity provider, outside of a login.
+     *
+     * @param hosts the configured Duo API hosts
+     * @return the host pool
+     */
+    private DuoHostPool getHostPool(String hosts) {
+
+        return DuoHostRouter.getInstance().getPool(hosts);
+    }
+
+    /**
+     * Bind the configuration of the tenant of the login. The configuration of a tenant other than the super tenant
+     * is loaded from the registry on every attempt of a login, and replaces the parameters of the authenticator.
+     *
+     * @param context the authentication context
+     * @throws AuthenticationFailedException if the configuration could not be loaded
+     */
+    private void bindTenantConfig(AuthenticationContext context) throws AuthenticationFailedException {
+
+        String tenantDomain = context.getTenantDomain();
+        if (tenantDomain.equals(IdentityHelperConstants.SUPER_TENANT_DOMAIN)) {
+            return;
+        }
+        IdentityHelperUtil.loadApplicationAuthenticationXMLFromRegistry(context, context.getProperty(
+                IdentityHelperConstants.AUTHENTICATION).toString(), tenantDomain);
+        // The parameters are updated in place, which the snapshot is only checked for here.
+        AuthenticatorConfig authenticatorConfig = getAuthenticatorConfig();
+        if (authenticatorConfig != null) {
+            DuoConfigManager.getInstance().refresh(tenantDomain, authenticatorConfig.getParameterMap());
+        }
+        bindConfig();
+    }
+
+    /**
+     * Get the identifier of the user authenticated by the first step, qualified by its user store domain and tenant,
+     * which the Duo identifier resolved for the login is bound to.
+     *
+     * @param context the authentication context
+     * @return the subject identifier, or null if no user was authenticated by the first step
+     */
+    private String getFirstStepSubject(AuthenticationContext context) {
+
+        Object user = context.getProperty(DuoAuthenticatorConstants.AUTHENTICATED_USER);
+        if (!(user instanceof AuthenticatedUser)) {
+            return null;
+        }
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) user;
+        return authenticatedUser.getUserStoreDomain() + "/" + authenticatedUser.getUserName() + "@"
+                + authenticatedUser.getTenantDomain();
+    }
+
+    /**
+     * Get the Duo API host which passed the health check of an earlier attempt of the login, if it is recent enough
+     * to be trusted and the host is still in rotation.
+     *
+     * @param context the authentication context
+     * @return the host, or null if the health check has to be made
+     */
+    private String getRecentlyCheckedHost(AuthenticationContext context) {
+
+        Object selectedHost = context.getProperty(DuoAuthenticatorConstants.Routing.SELECTED_HOST);
+        Object checkedAt = context.getProperty(DuoAuthenticatorConstants.Routing.HEALTH_CHECKED_AT);
+        if (selectedHost == null || !(checkedAt instanceof Long)) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        long reuseMillis = getConfig().getLong(DuoAuthenticatorConstants.Routing.HEALTH_CHECK_REUSE,
+                DuoAuthenticatorConstants.Routing.DEFAULT_HEALTH_CHECK_REUSE_SECONDS) * 1000;
+        if (now - (Long) checkedAt > reuseMillis
+                || !DuoHostRouter.getInstance().getHost(selectedHost.toString()).isAvailable(now)) {
+            return null;
+        }
+        return selectedHost.toString();
+    }
+
+    /**
+     * Get the Duo API host the login was initiated against.
+     *
+     * @param context  the authentication context
+     * @param hostPool the host pool of the identity provider
+     * @return the host
+     */
+    private String getSelectedHost(AuthenticationContext context, DuoHostPool hostPool) {
+
+        Object selectedHost = context.getProperty(DuoAuthenticatorConstants.Routing.SELECTED_HOST);
+        if (selectedHost != null) {
+            return selectedHost.toString();
+        }
+        return hostPool.getHosts().get(0).getName();
+    }
+
+    /**
+     * Check whether the user was verified by Duo, in the same browser session, within the trusted-session window of
+     * the service provider. If so, the subject is set from the recorded verification.
+     *
+     * @param request   the HttpServletRequest
+     * @param context   the authentication context
+     * @param duoUserId the Duo user identifier
+     * @return true if the login is satisfied by a recorded verification
+     */
+    private boolean isSatisfiedByTrustedSession(HttpServletRequest request, AuthenticationContext context,
+                                                String duoUserId) {
+
+        DuoConfig duoConfig = getConfig();
+        if (!duoConfig.isEnabled(DuoAuthenticatorConstants.TrustedSession.ENABLE_TRUSTED_SESSION)) {
+            return false;
+        }
+        try (DuoSpan span = DuoTracer.getInstance().startSpan(DuoAuthenticatorConstants.Tracing.SPAN_TRUSTED_SESSION)) {
+            boolean satisfied = isSatisfiedByVerifiedSession(request, context, duoConfig, duoUserId);
+            span.setAttribute("duo.trusted_session.hit", String.valueOf(satisfied));
+            return satisfied;
+        }
+    }
+
+    private boolean isSatisfiedByVerifiedSession(HttpServletRequest request, AuthenticationContext context,
+                                                 DuoConfig duoConfig, String duoUserId) {
+
+        long windowMillis = getTrustedSessionWindowMillis(context, duoConfig);
+        Cookie cookie = FrameworkUtils.getCookie(request, DuoAuthenticatorConstants.TrustedSession.COOKIE_NAME);
+        if (windowMillis <= 0 || cookie == null || StringUtils.isBlank(cookie.getValue())) {
+            return false;
+        }
+        String sessionKey = getTrustedSessionKey(context, duoUserId, cookie.getValue());
+        if (sessionKey == null) {
+            return false;
+        }
+        DuoVerifiedSession verifiedSession = getVerifiedSessionStore(duoConfig)
+                .get(context.getTenantDomain(), sessionKey, windowMillis);
+        if (verifiedSession == null) {
+            return false;
+        }
+        Map<ClaimMapping, String> userAttributes = new HashMap<>();
+        for (Map.Entry<String, String> attribute : verifiedSession.getUserAttributes().entrySet()) {
+            userAttributes.put(ClaimMapping.build(attribute.getKey(), attribute.getKey(), null, false),
+                    attribute.getValue());
+        }
+        AuthenticatedUser authenticatedUser = AuthenticatedUser
+                .createFederateAuthenticatedUserFromSubjectIdentifier(duoUserId);
+        authenticatedUser.setUserAttributes(userAttributes);
+        context.setSubject(authenticatedUser);
+        context.setProperty(DuoAuthenticatorConstants.AUTHENTICATED_WITHOUT_REDIRECT, true);
+        DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.TRUSTED_SESSION_HITS);
+        publishAuthEvent(context, DuoAuthEvent.Outcome.TRUSTED_SESSION, null, getFactor(userAttributes));
+        return true;
+    }
+
+    /**
+     * Resolve the login through the Duo Auth API pre-authentication when it is enabled. Users Duo allows without a
+     * second factor are authenticated, and users Duo denies or asks to enroll are sent to the error page. Users who
+     * have to authenticate with Duo, and logins for which the pre-authentication fails, are left to the redirect.
+     *
+     * @param response  the HttpServletResponse
+     * @param context   the authentication context
+     * @param duoUserId the Duo user identifier
+     * @return true if the login was handled without redirecting the user to Duo
+     * @throws AuthenticationFailedException
+     */
+    private boolean isHandledByPreauth(HttpServletResponse response, AuthenticationContext context,
+                                       String duoUserId) throws AuthenticationFailedException {
+
+        DuoConfig duoConfig = getConfig();
+        Map<String, String> authenticatorProperties = context.getAuthenticatorProperties();
+        if (!duoConfig.isEnabled(DuoAuthenticatorConstants.Preauth.ENABLE_PREAUTH)
+                || StringUtils.isEmpty(authenticatorProperties.get(DuoAuthenticatorConstants.AUTH_IKEY))
+                || StringUtils.isEmpty(authenticatorProperties.get(DuoAuthenticatorConstants.AUTH_SKEY))) {
+            DuoFailureState.clear(context);
+            return false;
+        }
+        String result = getPreauthResult(context, duoConfig, duoUserId);
+        if (DuoAuthenticatorConstants.Preauth.REJECTED.equals(result)) {
+            checkStatusCode(response, context);
+            return true;
+        }
+        if (DuoAuthenticatorConstants.Preauth.ALLOW.equals(result)) {
+            if (duoConfig.isMobileVerificationEnabled()) {
+                // The mobile number is verified after the Duo redirect.
+                DuoFailureState.clear(context);
+                return false;
+            }
+            context.setSubject(AuthenticatedUser.createFederateAuthenticatedUserFromSubjectIdentifier(duoUserId));
+            context.setProperty(DuoAuthenticatorConstants.AUTHENTICATED_WITHOUT_REDIRECT, true);
+            publishAuthEvent(context, DuoAuthEvent.Outcome.PREAUTH_ALLOW, null, null);
+            return true;
+        }
+        if (DuoAuthenticatorConstants.Preauth.DENY.equals(result)) {
+            DuoFailureState.ACCESS_DENIED.set(context);
+            checkStatusCode(response, context);
+            return true;
+        }
+        if (DuoAuthenticatorConstants.Preauth.ENROLL.equals(result)) {
+            DuoFailureState.USER_NOT_REGISTERED.set(context);
+            checkStatusCode(response, context);
+            return true;
+        }
+        DuoFailureState.clear(context);
+        return false;
+    }
+
+    /**
+     * Call the Duo Auth API pre-authentication endpoint for a user. Results are cached for a short time.
+     *
+     * @param context       the authentication context
+     * @param duoConfig     the authenticator configuration
+     * @param duoUserId     the Duo user identifier
+     * @return the pre-authentication result, {@link DuoAuthenticatorConstants.Preauth#REJECTED} if the bulkhead
+     * rejected the call, or null if it could not be obtained
+     */
+    private String getPreauthResult(AuthenticationContext context, DuoConfig duoConfig,
+                                    String duoUserId) {
+
+        Map<String, String> authenticatorProperties = context.getAuthenticatorProperties();
+        String host = authenticatorProperties.get(DuoAuthenticatorConstants.HOST);
+        DuoCache<String> preauthCache = DuoCacheManager.getInstance().getCache(
+                DuoAuthenticatorConstants.Preauth.PREAUTH_CACHE, false,
+                duoConfig.getLong(DuoAuthenticatorConstants.Preauth.PREAUTH_CACHE_EXPIRY,
+                        DuoAuthenticatorConstants.Preauth.DEFAULT_PREAUTH_CACHE_EXPIRY_SECONDS) * 1000,
+                (int) duoConfig.getLong(DuoAuthenticatorConstants.Cache.CACHE_MAX_ENTRIES,
+                        DuoAuthenticatorConstants.Cache.DEFAULT_CACHE_MAX_ENTRIES));
+        String cacheKey = host + "/" + duoUserId;
+        String result = getCachedValue(preauthCache, context.getTenantDomain(), cacheKey);
+        if (result != null) {
+            return result;
+        }
+        DuoBulkhead bulkhead = getBulkhead(context);
+        if (!acquireBulkhead(bulkhead, context)) {
+            return DuoAuthenticatorConstants.Preauth.REJECTED;
+        }
+        try (DuoSpan span = DuoTracer.getInstance().startSpan(DuoAuthenticatorConstants.Tracing.SPAN_PREAUTH)) {
+            try {
+                Object response = getHostPool(context).execute(duoHost -> {
+                    Http duoAuthRequest = new Auth.AuthBuilder(DuoAuthenticatorConstants.HTTP_POST, duoHost,
+                            DuoAuthenticatorConstants.Preauth.API_PREAUTH).build();
+                    duoAuthRequest.addParam(DuoAuthenticatorConstants.DUO_USERNAME, duoUserId);
+                    duoAuthRequest.signRequest(authenticatorProperties.get(DuoAuthenticatorConstants.AUTH_IKEY),
+                            authenticatorProperties.get(DuoAuthenticatorConstants.AUTH_SKEY));
+                    return duoAuthRequest.executeRequest();
+                });
+                result = new JSONObject(response.toString()).getString(DuoAuthenticatorConstants.Preauth.RESULT);
+            } catch (Exception e) {
+                span.setError(e);
+                throw e;
+            }
+            span.setAttribute("duo.preauth.result", result);
+        } catch (Exception e) {
+            log.warn("Duo pre-authentication failed for the user. Redirecting the user to Duo.", e);
+            DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.PREAUTH_FAILURES);
+            return null;
+        } finally {
+            bulkhead.release();
+        }
+        DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.PREAUTH_PREFIX + result);
+        preauthCache.put(context.getTenantDomain(), cacheKey, result);
+        return result;
+    }
+
+    /**
+     * Record a successful Duo verification so that it can satisfy the logins of the same browser session to other
+     * service providers within their trusted-session window.
+     *
+     * @param request        the HttpServletRequest
+     * @param response       the HttpServletResponse
+     * @param context        the authentication context
+     * @param duoUserId      the Duo user identifier
+     * @param userAttributes the user attributes returned by Duo
+     */
+    private void recordTrustedSession(HttpServletRequest request, HttpServletResponse response,
+                                      AuthenticationContext context, String duoUserId,
+                                      Map<ClaimMapping, String> userAttributes) {
+
+        DuoConfig duoConfig = getConfig();
+        if (!duoConfig.isEnabled(DuoAuthenticatorConstants.TrustedSession.ENABLE_TRUSTED_SESSION)) {
+            return;
+        }
+        DuoVerifiedSessionStore sessionStore = getVerifiedSessionStore(duoConfig);
+        Cookie cookie = FrameworkUtils.getCookie(request, DuoAuthenticatorConstants.TrustedSession.COOKIE_NAME);
+        String browserSessionId;
+        if (cookie != null && StringUtils.isNotBlank(cookie.getValue())) {
+            browserSessionId = cookie.getValue();
+        } else {
+            // A session cookie, so that the browser session ends with the browser.
+            browserSessionId = sessionStore.generateBrowserSessionId();
+            FrameworkUtils.setCookie(request, response, DuoAuthenticatorConstants.TrustedSession.COOKIE_NAME,
+                    browserSessionId, null);
+        }
+        String sessionKey = getTrustedSessionKey(context, duoUserId, browserSessionId);
+        if (sessionKey == null) {
+            return;
+        }
+        Map<String, String> attributes = new HashMap<>();
+        for (Map.Entry<ClaimMapping, String> attribute : userAttributes.entrySet()) {
+            attributes.put(attribute.getKey().getRemoteClaim().getClaimUri(), attribute.getValue());
+        }
+        sessionStore.record(context.getTenantDomain(), sessionKey,
+                new DuoVerifiedSession(System.currentTimeMillis(), attributes));
+        DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.TRUSTED_SESSION_RECORDS);
+    }
+
+    /**
+     * Get the key of the recorded verification of the user in a browser session.
+     *
+     * @param context          the authentication context
+     * @param duoUserId        the Duo user identifier
+     * @param browserSessionId identifier of the browser session
+     * @return the key, or null if the authenticated subject is unknown
+     */
+    private String getTrustedSessionKey(AuthenticationContext context, String duoUserId, String browserSessionId) {
+
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) context
+                .getProperty(DuoAuthenticatorConstants.AUTHENTICATED_USER);
+        if (authenticatedUser == null || StringUtils.isBlank(authenticatedUser.getAuthenticatedSubjectIdentifier())) {
+            return null;
+        }
+        return DuoVerifiedSessionStore.getSessionKey(browserSessionId,
+                authenticatedUser.getAuthenticatedSubjectIdentifier(), duoUserId,
+                context.getAuthenticatorProperties().get(DuoAuthenticatorConstants.HOST));
+    }
+
+    private DuoVerifiedSessionStore getVerifiedSessionStore(DuoConfig duoConfig) {
+
+        DuoVerifiedSessionStore sessionStore = DuoVerifiedSessionStore.getInstance();
+        sessionStore.configure(duoConfig.getLong(DuoAuthenticatorConstants.TrustedSession.MAX_TRUSTED_SESSION_WINDOW,
+                DuoAuthenticatorConstants.TrustedSession.DEFAULT_MAX_TRUSTED_SESSION_WINDOW_SECONDS) * 1000,
+                (int) duoConfig.getLong(DuoAuthenticatorConstants.TrustedSession.MAX_TRUSTED_SESSIONS,
+                        DuoAuthenticatorConstants.TrustedSession.DEFAULT_MAX_TRUSTED_SESSIONS));
+        return sessionStore;
+    }
+
+    /**
+     * Get the trusted-session window of the service provider. The window configured through the authenticator
+     * parameters of the service provider's adaptive script takes precedence over the global window.
+     *
+     * @param context       the authentication context
+     * @param duoConfig     the authenticator configuration
+     * @return the window in milliseconds, or 0 if verifications are not trusted for the service provider
+     */
+    private long getTrustedSessionWindowMillis(AuthenticationContext context, DuoConfig duoConfig) {
+
+        long windowSeconds = duoConfig.getLong(DuoAuthenticatorConstants.TrustedSession.TRUSTED_SESSION_WINDOW, 0);
+        Map<String, String> runtimeParams = getRuntimeParams(context);
+        if (runtimeParams != null && StringUtils.isNotBlank(
+                runtimeParams.get(DuoAuthenticatorConstants.TrustedSession.RUNTIME_TRUSTED_SESSION_WINDOW))) {
+            String window = runtimeParams.get(DuoAuthenticatorConstants.TrustedSession.RUNTIME_TRUSTED_SESSION_WINDOW);
+            try {
+                windowSeconds = Long.parseLong(window.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid trusted-session window " + window + " configured for the service provider "
+                        + context.getServiceProviderName());
+            }
+        }
+        long maxWindowSeconds = duoConfig.getLong(DuoAuthenticatorConstants.TrustedSession.MAX_TRUSTED_SESSION_WINDOW,
+                DuoAuthenticatorConstants.TrustedSession.DEFAULT_MAX_TRUSTED_SESSION_WINDOW_SECONDS);
+        return Math.max(0, Math.min(windowSeconds, maxWindowSeconds)) * 1000;
+    }
+
+    /**
+     * Publish the outcome of a Duo authentication to the audit log, without waiting for it to be written.
+     *
+     * @param context       the authentication context
+     * @param outcome       the outcome
+     * @param statusMessage the status message returned by Duo or the error message, if any
+     * @param factor        the factor the user authenticated with, if known
+     */
+    private void publishAuthEvent(AuthenticationContext context, DuoAuthEvent.Outcome outcome, String statusMessage,
+                                  String factor) {
+
+        DuoConfig duoConfig = getConfig();
+        if (!duoConfig.isEnabled(DuoAuthenticatorConstants.AuditEvents.ENABLE_AUDIT_EVENTS)) {
+            return;
+        }
+        DuoEventPipeline.OverflowPolicy overflowPolicy = DuoEventPipeline.OverflowPolicy.DROP;
+        if (DuoEventPipeline.OverflowPolicy.BLOCK.name().equalsIgnoreCase(
+                duoConfig.get(DuoAuthenticatorConstants.AuditEvents.OVERFLOW_POLICY))) {
+            overflowPolicy = DuoEventPipeline.OverflowPolicy.BLOCK;
+        }
+        DuoAuditEventPublisher publisher = DuoAuditEventPublisher.getInstance();
+        publisher.configure(
+                (int) duoConfig.getLong(DuoAuthenticatorConstants.AuditEvents.BUFFER_SIZE,
+                        DuoAuthenticatorConstants.AuditEvents.DEFAULT_BUFFER_SIZE),
+                (int) duoConfig.getLong(DuoAuthenticatorConstants.AuditEvents.BATCH_SIZE,
+                        DuoAuthenticatorConstants.AuditEvents.DEFAULT_BATCH_SIZE),
+                duoConfig.getLong(DuoAuthenticatorConstants.AuditEvents.FLUSH_INTERVAL,
+                        DuoAuthenticatorConstants.AuditEvents.DEFAULT_FLUSH_INTERVAL_MILLIS),
+                overflowPolicy,
+                duoConfig.getLong(DuoAuthenticatorConstants.AuditEvents.MAX_BLOCK_TIME,
+                        DuoAuthenticatorConstants.AuditEvents.DEFAULT_MAX_BLOCK_TIME_MILLIS));
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) context
+                .getProperty(DuoAuthenticatorConstants.AUTHENTICATED_USER);
+        String duoUserId = context.getSubject() != null
+                ? context.getSubject().getAuthenticatedSubjectIdentifier() : null;
+        publisher.publish(new DuoAuthEvent.Builder(outcome)
+                .tenantDomain(context.getTenantDomain())
+                .serviceProvider(context.getServiceProviderName())
+                .username(authenticatedUser != null ? authenticatedUser.getAuthenticatedSubjectIdentifier() : null)
+                .duoUserId(duoUserId)
+                .statusMessage(statusMessage)
+                .factor(factor)
+                .build());
+    }
+
+    private String getFactor(Map<ClaimMapping, String> userAttributes) {
+
+        for (Map.Entry<ClaimMapping, String> attribute : userAttributes.entrySet()) {
+            if (DuoAuthenticatorConstants.AMR.equals(attribute.getKey().getRemoteClaim().getClaimUri())) {
+                return attribute.getValue();
+            }
+        }
+        return null;
+    }
+
     private String getCallbackUrl() throws URLBuilderException {
 
         return ServiceURLBuilder.create().addPath(FrameworkConstants.COMMONAUTH).build().getAbsolutePublicURL();
     }
+
     /**
-     * Check if the tenant domain should be appended or not.
+     * Get the bulkhead which isolates the outbound Duo calls of the tenant, and optionally of the identity
+     * provider, of the current login.
      *
-     * @param authenticatorProperties the authenticator properties
-     * @return True if the tenant domain should not be appended.
+     * @param context the authentication context
+     * @return the bulkhead, or {@link DuoBulkhead#UNBOUNDED} if bulkheads are disabled
      */
-    private boolean isDisableTenantDomainInUserName(Map<String, String> authenticatorProperties) {
+    private DuoBulkhead getBulkhead(AuthenticationContext context) {
 
-        return Boolean.parseBoolean(authenticatorProperties.get(DuoAuthenticatorConstants.TENANT_DOMAIN));
+        DuoConfig duoConfig = getConfig();
+        if (!duoConfig.isEnabled(DuoAuthenticatorConstants.Bulkhead.ENABLE_BULKHEAD)) {
+            return DuoBulkhead.UNBOUNDED;
+        }
+        String idpName = null;
+        if (duoConfig.isEnabled(DuoAuthenticatorConstants.Bulkhead.PER_IDENTITY_PROVIDER)
+                && context.getExternalIdP() != null) {
+            idpName = context.getExternalIdP().getIdPName();
+        }
+        return DuoBulkheadRegistry.getInstance().getBulkhead(context.getTenantDomain(), idpName,
+                (int) duoConfig.getLong(DuoAuthenticatorConstants.Bulkhead.MAX_CONCURRENT_CALLS,
+                        DuoAuthenticatorConstants.Bulkhead.DEFAULT_MAX_CONCURRENT_CALLS),
+                (int) duoConfig.getLong(DuoAuthenticatorConstants.Bulkhead.MAX_WAITING_CALLS,
+                        DuoAuthenticatorConstants.Bulkhead.DEFAULT_MAX_WAITING_CALLS),
+                duoConfig.getLong(DuoAuthenticatorConstants.Bulkhead.MAX_WAIT_TIME,
+                        DuoAuthenticatorConstants.Bulkhead.DEFAULT_MAX_WAIT_TIME_MILLIS));
     }
 
     /**
-     * Check if the user store domain should be appended or not.
+     * Obtain a permit of the bulkhead before an outbound Duo call. A rejected call is flagged in the context so
+     * that the user is sent to the error page.
      *
-     * @param authenticatorProperties the authenticator properties
-     * @return True if the user store domain should not be appended.
+     * @param bulkhead the bulkhead of the login
+     * @param context  the authentication context
+     * @return true if the call may proceed
      */
-    private boolean isDisableUserStoreDomainInUserName(Map<String, String> authenticatorProperties) {
+    private boolean acquireBulkhead(DuoBulkhead bulkhead, AuthenticationContext context) {
 
-        return Boolean.parseBoolean(authenticatorProperties.get(DuoAuthenticatorConstants.USER_STORE_DOMAIN));
+        if (bulkhead.tryAcquire()) {
+            return true;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Rejecting the Duo call as the bulkhead " + bulkhead.getName() + " is full");
+        }
+        DuoBulkheadRegistry.getInstance().recordRejection(bulkhead);
+        DuoFailureState.SERVICE_BUSY.set(context);
+        return false;
     }
 
     /**
-     * Check if the username is used as the identifier.
+     * Get the configuration snapshot of the current login. A login reads its settings from the snapshot bound when
+     * it started, falling back to the current snapshot outside of a login.
      *
-     * @return True if the config is enabled.
+     * @return the configuration snapshot
+     */
+    private DuoConfig getConfig() {
+
+        DuoConfigManager configManager = DuoConfigManager.getInstance();
+        DuoConfig duoConfig = configManager.getBoundConfig();
+        if (duoConfig != null) {
+            return duoConfig;
+        }
+        AuthenticatorConfig authenticatorConfig = getAuthenticatorConfig();
+        return configManager.getConfig(authenticatorConfig != null ? authenticatorConfig.getParameterMap() : null);
+    }
+
+    /**
+     * Bind the current configuration snapshot to the login request.
      */
-    private boolean isUsernameAsDuoIdentifier() {
+    private void bindConfig() {
 
-        Map<String, String> duoParameters = getAuthenticatorConfig().getParameterMap();
-        return Boolean.parseBoolean(duoParameters.get(DuoAuthenticatorConstants.USERNAME_AS_DUO_IDENTIFIER));
+        DuoConfigManager configManager = DuoConfigManager.getInstance();
+        configManager.unbind();
+        configManager.bind(getConfig());
     }
 
     /**
@@ -185,21 +879,59 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
             throws AuthenticationFailedException {
 
         Map<String, String> authenticatorProperties = context.getAuthenticatorProperties();
-        Http duoAdminRequest = new Admin.AdminBuilder(DuoAuthenticatorConstants.HTTP_GET,
-                        authenticatorProperties.get(DuoAuthenticatorConstants.HOST),
-                        DuoAuthenticatorConstants.API_USER).build();
-        duoAdminRequest.addParam(DuoAuthenticatorConstants.DUO_USERNAME, duoUserId);
+        DuoBulkhead bulkhead = getBulkhead(context);
+        if (!acquireBulkhead(bulkhead, context)) {
+            throw new AuthenticationFailedException(DuoAuthenticatorConstants.DuoErrors.ERROR_BULKHEAD_FULL);
+        }
         try {
-            duoAdminRequest.signRequest(authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_IKEY),
-                    authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_SKEY));
             //Execute Duo API request
-            Object result = duoAdminRequest.executeRequest();
-            JSONArray userInfo = new JSONArray(result.toString());
+            JSONArray userInfo;
+            try (DuoSpan span = DuoTracer.getInstance().startSpan(DuoAuthenticatorConstants.Tracing.SPAN_USER_LOOKUP)) {
+                try {
+                    DuoConfig duoConfig = getConfig();
+                    String host = authenticatorProperties.get(DuoAuthenticatorConstants.HOST);
+                    String adminIntegrationKey = authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_IKEY);
+                    // Hedged lookups share the rate limit of the batch jobs calling the same Admin integration.
+                    AdminApiUserLookup userLookup = new AdminApiUserLookup(getHostPool(context), adminIntegrationKey,
+                            authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_SKEY),
+                            DuoRateLimiterRegistry.getInstance().getRateLimiter(host, adminIntegrationKey, duoConfig));
+                    DuoFairScheduler scheduler = duoConfig.isEnabled(
+                            DuoAuthenticatorConstants.RateLimit.ENABLE_FAIR_QUEUE) ? DuoRateLimiterRegistry
+                            .getInstance().getFairScheduler(host, adminIntegrationKey, duoConfig) : null;
+                    String tenantDomain = context.getTenantDomain();
+                    if (duoConfig.isEnabled(DuoAuthenticatorConstants.LookupBatching.ENABLE_LOOKUP_BATCHING)) {
+                        userInfo = DuoUserLookupBatcherRegistry.getInstance().getBatcher(host, adminIntegrationKey,
+                                duoConfig).lookupUser(duoUserId, usernames -> {
+                                    // The batch waits in the queue of the tenant of the login making its request,
+                                    // for no longer than a lookup of its own would, as that login holds a permit of
+                                    // the bulkhead.
+                                    if (scheduler != null && !scheduler.acquire(tenantDomain)) {
+                                        throw new DuoFairQueueFullException(
+                                                DuoAuthenticatorConstants.DuoErrors.ERROR_FAIR_QUEUE_FULL);
+                                    }
+                                    return userLookup.lookupUsers(usernames);
+                                });
+                    } else {
+                        if (scheduler != null && !scheduler.acquire(tenantDomain)) {
+                            throw new DuoFairQueueFullException(
+                                    DuoAuthenticatorConstants.DuoErrors.ERROR_FAIR_QUEUE_FULL);
+                        }
+                        userInfo = userLookup.lookupUser(duoUserId);
+                    }
+                } catch (Exception e) {
+                    if (e instanceof DuoFairQueueFullException) {
+                        // Every login of a rejected batch is sent to the busy page, like a rejected lookup.
+                        DuoFailureState.SERVICE_BUSY.set(context);
+                    }
+                    span.setError(e);
+                    throw e;
+                }
+            }
             if (userInfo.length() == 0) {
                 if (log.isDebugEnabled()) {
                     log.debug("Couldn't get the Duo user information");
                 }
-                context.setProperty(DuoAuthenticatorConstants.USER_NOT_REGISTERED_IN_DUO, true);
+                DuoFailureState.USER_NOT_REGISTERED.set(context);
                 throw new AuthenticationFailedException("Couldn't find the user information ");
             }
             return userInfo;
@@ -212,42 +944,296 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
         } catch (Exception e) {
             log.error(DuoAuthenticatorConstants.DuoErrors.ERROR_EXECUTE_REQUEST, e);
             throw new AuthenticationFailedException(DuoAuthenticatorConstants.DuoErrors.ERROR_EXECUTE_REQUEST, e);
+        } finally {
+            bulkhead.release();
         }
     }
 
     /**
      * Check the validation of phone numbers.
      *
-     * @param context  the authentication context
-     * @param username the user name
+     * @param context    the authentication context
+     * @param username   the user name
+     * @param userClaims the resolved claims of the user
      * @throws AuthenticationFailedException
      * @throws JSONException
      */
-    private void checkPhoneNumberValidation(AuthenticationContext context, String username, String duoUserId)
+    private void checkPhoneNumberValidation(AuthenticationContext context, String username, DuoUserClaims userClaims)
             throws AuthenticationFailedException, JSONException {
 
-        String mobile = getMobileClaimValue(context);
+        String duoUserId = userClaims.getDuoUserId();
+        String mobile = userClaims.isMobileFromUserStore() ? getMobileClaimValue(context) : userClaims.getMobile();
         if (StringUtils.isNotEmpty(mobile)) {
-            JSONArray userInfo = getUserInfo(context, duoUserId);
-            context.setProperty(DuoAuthenticatorConstants.USER_INFO, userInfo);
-            JSONObject object = userInfo.getJSONObject(0);
-            JSONArray phoneArray = (JSONArray) object.get(DuoAuthenticatorConstants.DUO_PHONES);
-            if (isValidPhoneNumber(context, phoneArray, mobile)) {
+            if (verifyDuoPhoneNumber(context, duoUserId, mobile)) {
                 context.setSubject(AuthenticatedUser.createLocalAuthenticatedUserFromSubjectIdentifier(username));
+                recordLoginForCacheWarming(context, duoUserId, userClaims.isMobileFromUserStore());
             } else {
                 if (log.isDebugEnabled()) {
-                    log.debug("The mobile claim value and registered Duo mobile number should be in same format");
+                    log.debug("The mobile claim value does not match any of the phone numbers registered in Duo. "
+                            + (getConfig().isEnabled(DuoAuthenticatorConstants.ENABLE_PHONE_NUMBER_NORMALIZATION)
+                            ? "The numbers were compared without their formatting characters."
+                            : "The numbers should be in the same format."));
                 }
-                context.setProperty(DuoAuthenticatorConstants.NUMBER_MISMATCH, true);
+                DuoFailureState.NUMBER_MISMATCH.set(context);
+                invalidateCachedVerificationData(context, duoUserId);
                 throw new AuthenticationFailedException("Authentication failed due to mismatch in mobile numbers");
             }
         } else {
-            context.setProperty(DuoAuthenticatorConstants.MOBILE_CLAIM_NOT_FOUND, true);
+            DuoFailureState.MOBILE_CLAIM_NOT_FOUND.set(context);
             throw new AuthenticationFailedException("Error while getting the mobile number from user's profile " +
                     "for username " + username);
         }
     }
 
+    /**
+     * Verify the Duo phone numbers of a user against the mobile claim value. The synchronized user index is used
+     * when available, and the Admin API is called when the user is not indexed or the index has no matching number.
+     *
+     * @param context   the authentication context
+     * @param duoUserId the Duo user identifier
+     * @param mobile    the mobile claim value
+     * @return true if one of the Duo phone numbers matches the mobile claim value
+     * @throws AuthenticationFailedException
+     * @throws JSONException
+     */
+    private boolean verifyDuoPhoneNumber(AuthenticationContext context, String duoUserId, String mobile)
+            throws AuthenticationFailedException, JSONException {
+
+        boolean normalized = getConfig().isEnabled(DuoAuthenticatorConstants.ENABLE_PHONE_NUMBER_NORMALIZATION);
+        DuoUserIndex userIndex = getSyncedUserIndex(context);
+        if (userIndex != null) {
+            int position = userIndex.indexOf(duoUserId);
+            if (position >= 0 && userIndex.hasPhoneNumber(position, mobile, normalized)) {
+                DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.USER_INDEX_HITS);
+                return true;
+            }
+            DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.USER_INDEX_MISSES);
+            if (log.isDebugEnabled()) {
+                log.debug("No matching phone number in the synchronized Duo user index. Looking up the user " +
+                        "through the Duo Admin API.");
+            }
+        }
+        JSONArray userInfo;
+        DuoCache<String> userCache = getCache(getConfig(),
+                DuoAuthenticatorConstants.Cache.DUO_USER_CACHE);
+        String userCacheKey = getDuoUserCacheKey(context, duoUserId);
+        String cachedUserInfo = getCachedValue(userCache, context.getTenantDomain(), userCacheKey);
+        if (cachedUserInfo != null) {
+            userInfo = new JSONArray(cachedUserInfo);
+        } else {
+            userInfo = getUserInfo(context, duoUserId);
+            if (userCache != null) {
+                userCache.put(context.getTenantDomain(), userCacheKey, userInfo.toString());
+            }
+        }
+        context.setProperty(DuoAuthenticatorConstants.USER_INFO, userInfo);
+        JSONObject object = userInfo.getJSONObject(0);
+        JSONArray phoneArray = (JSONArray) object.get(DuoAuthenticatorConstants.DUO_PHONES);
+        if (phoneArray.length() == 0) {
+            invalidateCachedVerificationData(context, duoUserId);
+        }
+        return isValidPhoneNumber(context, phoneArray, mobile);
+    }
+
+    /**
+     * Get a cache of Duo verification data.
+     *
+     * @param duoConfig     the authenticator configuration
+     * @param name          the cache name
+     * @return the cache, or null if caching is disabled
+     */
+    private DuoCache<String> getCache(DuoConfig duoConfig, String name) {
+
+        if (!duoConfig.isEnabled(DuoAuthenticatorConstants.Cache.ENABLE_CACHE)) {
+            return null;
+        }
+        boolean clustered = !DuoAuthenticatorConstants.Cache.LOCAL.equalsIgnoreCase(
+                duoConfig.get(DuoAuthenticatorConstants.Cache.CACHE_TYPE));
+        return DuoCacheManager.getInstance().getCache(name, clustered,
+                duoConfig.getLong(DuoAuthenticatorConstants.Cache.CACHE_EXPIRY,
+                        DuoAuthenticatorConstants.Cache.DEFAULT_CACHE_EXPIRY_SECONDS) * 1000,
+                (int) duoConfig.getLong(DuoAuthenticatorConstants.Cache.CACHE_MAX_ENTRIES,
+                        DuoAuthenticatorConstants.Cache.DEFAULT_CACHE_MAX_ENTRIES));
+    }
+
+    /**
+     * Get a value from a cache of Duo verification data, recording the hit or miss.
+     *
+     * @param cache        the cache, or null if caching is disabled
+     * @param tenantDomain the tenant domain of the login
+     * @param key          the key
+     * @return the cached value, or null if it is not cached
+     */
+    private String getCachedValue(DuoCache<String> cache, String tenantDomain, String key) {
+
+        if (cache == null) {
+            return null;
+        }
+        String value = cache.get(tenantDomain, key);
+        DuoSlowLoginSampler.getInstance().recordCacheLookup(value != null);
+        DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.CACHE_PREFIX + cache.getName()
+                + (value != null ? DuoAuthenticatorConstants.Metrics.CACHE_HITS
+                : DuoAuthenticatorConstants.Metrics.CACHE_MISSES));
+        return value;
+    }
+
+    /**
+     * Invalidate the cached mobile claim value and Duo user details of a login which failed the mobile
+     * verification, on every node of the cluster.
+     *
+     * @param context   the authentication context
+     * @param duoUserId the Duo user identifier
+     */
+    private void invalidateCachedVerificationData(AuthenticationContext context, String duoUserId) {
+
+        DuoConfig duoConfig = getConfig();
+        DuoCache<String> mobileClaimCache = getCache(duoConfig,
+                DuoAuthenticatorConstants.Cache.MOBILE_CLAIM_CACHE);
+        if (mobileClaimCache == null) {
+            return;
+        }
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) context
+                .getProperty(DuoAuthenticatorConstants.AUTHENTICATED_USER);
+        if (authenticatedUser != null) {
+            mobileClaimCache.invalidate(context.getTenantDomain(),
+                    authenticatedUser.getAuthenticatedSubjectIdentifier());
+        }
+        DuoCache<String> userCache = getCache(duoConfig, DuoAuthenticatorConstants.Cache.DUO_USER_CACHE);
+        userCache.invalidate(context.getTenantDomain(), getDuoUserCacheKey(context, duoUserId));
+    }
+
+    private String getDuoUserCacheKey(AuthenticationContext context, String duoUserId) {
+
+        return getDuoUserCacheKey(context.getAuthenticatorProperties(), duoUserId);
+    }
+
+    private String getDuoUserCacheKey(Map<String, String> authenticatorProperties, String duoUserId) {
+
+        return authenticatorProperties.get(DuoAuthenticatorConstants.HOST) + "/" + duoUserId;
+    }
+
+    /**
+     * Record a verified login in the history of its Admin integration, registering the integration for cache
+     * warming on first use.
+     *
+     * @param context             the authentication context
+     * @param duoUserId           the Duo user identifier
+     * @param mobileFromUserStore whether the mobile claim of the user is read from the user store
+     */
+    private void recordLoginForCacheWarming(AuthenticationContext context, String duoUserId,
+                                            boolean mobileFromUserStore) {
+
+        DuoConfig duoConfig = getConfig();
+        DuoCacheWarmer cacheWarmer = DuoCacheWarmer.getInstance();
+        if (!duoConfig.isEnabled(DuoAuthenticatorConstants.CacheWarming.ENABLE_CACHE_WARMING)
+                || !duoConfig.isEnabled(DuoAuthenticatorConstants.Cache.ENABLE_CACHE)) {
+            if (cacheWarmer.isEnabled()) {
+                cacheWarmer.configure(false, null, 0, 0, 0, 0);
+            }
+            return;
+        }
+        Map<String, String> authenticatorProperties = context.getAuthenticatorProperties();
+        String host = authenticatorProperties.get(DuoAuthenticatorConstants.HOST);
+        String adminIntegrationKey = authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_IKEY);
+        String adminSecretKey = authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_SKEY);
+        if (StringUtils.isEmpty(host) || StringUtils.isEmpty(adminIntegrationKey)
+                || StringUtils.isEmpty(adminSecretKey)) {
+            return;
+        }
+        cacheWarmer.configure(true, duoConfig.get(DuoAuthenticatorConstants.CacheWarming.PEAK_TIMES),
+                duoConfig.getLong(DuoAuthenticatorConstants.CacheWarming.LEAD_TIME,
+                        DuoAuthenticatorConstants.CacheWarming.DEFAULT_LEAD_TIME_MINUTES),
+                duoConfig.getDouble(DuoAuthenticatorConstants.CacheWarming.RATE,
+                        DuoAuthenticatorConstants.CacheWarming.DEFAULT_RATE),
+                (int) duoConfig.getLong(DuoAuthenticatorConstants.CacheWarming.HISTORY_SIZE,
+                        DuoAuthenticatorConstants.CacheWarming.DEFAULT_HISTORY_SIZE),
+                duoConfig.getLong(DuoAuthenticatorConstants.CacheWarming.HISTORY_MAX_AGE,
+                        DuoAuthenticatorConstants.CacheWarming.DEFAULT_HISTORY_MAX_AGE_HOURS));
+        cacheWarmer.register(host, adminIntegrationKey, adminSecretKey, (tenantDomain, userId, username) ->
+                warmVerificationData(authenticatorProperties, tenantDomain, userId, username));
+        AuthenticatedUser authenticatedUser = (AuthenticatedUser) context
+                .getProperty(DuoAuthenticatorConstants.AUTHENTICATED_USER);
+        cacheWarmer.recordLogin(host, adminIntegrationKey, context.getTenantDomain(), duoUserId,
+                mobileFromUserStore && authenticatedUser != null
+                        ? authenticatedUser.getAuthenticatedSubjectIdentifier() : null);
+    }
+
+    /**
+     * Load the Duo user details and the mobile claim value of a user into the caches, outside of a login. The
+     * Admin API lookup shares the rate limit of the Admin integration with the logins and the batch jobs.
+     *
+     * @param authenticatorProperties the authenticator properties of the Duo identity provider
+     * @param tenantDomain            the tenant domain of the user
+     * @param duoUserId               the Duo user identifier
+     * @param username                the username of the user in the user store, or null if the mobile claim is
+     *                                not read from it
+     * @return the number of cache entries loaded
+     * @throws Exception if the data could not be loaded
+     */
+    private int warmVerificationData(Map<String, String> authenticatorProperties, String tenantDomain,
+                                     String duoUserId, String username) throws Exception {
+
+        DuoConfig duoConfig = getConfig();
+        int loaded = 0;
+        DuoCache<String> userCache = getCache(duoConfig, DuoAuthenticatorConstants.Cache.DUO_USER_CACHE);
+        if (userCache != null) {
+            String host = authenticatorProperties.get(DuoAuthenticatorConstants.HOST);
+            String adminIntegrationKey = authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_IKEY);
+            AdminApiUserLookup userLookup = new AdminApiUserLookup(getHostPool(host), adminIntegrationKey,
+                    authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_SKEY),
+                    DuoRateLimiterRegistry.getInstance().getRateLimiter(host, adminIntegrationKey, duoConfig));
+            JSONArray userInfo = userLookup.lookupUser(duoUserId);
+            if (userInfo.length() > 0) {
+                userCache.put(tenantDomain, getDuoUserCacheKey(authenticatorProperties, duoUserId),
+                        userInfo.toString());
+                loaded++;
+            }
+        }
+        DuoCache<String> mobileClaimCache = getCache(duoConfig, DuoAuthenticatorConstants.Cache.MOBILE_CLAIM_CACHE);
+        if (mobileClaimCache != null && username != null && !duoConfig.isFederatedMobileAttributeEnabled()) {
+            String mobileNumber = getUserStoreMobileClaim(username);
+            if (StringUtils.isNotEmpty(mobileNumber)) {
+                mobileClaimCache.put(tenantDomain, username, mobileNumber);
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Get the synchronized user index of the Admin integration of the login, registering the integration for
+     * synchronization on first use.
+     *
+     * @param context the authentication context
+     * @return the index, or null if synchronization is disabled or has not completed yet
+     */
+    private DuoUserIndex getSyncedUserIndex(AuthenticationContext context) {
+
+        DuoConfig duoConfig = getConfig();
+        if (!duoConfig.isEnabled(DuoAuthenticatorConstants.UserSync.ENABLE_USER_SYNC)) {
+            return null;
+        }
+        Map<String, String> authenticatorProperties = context.getAuthenticatorProperties();
+        String host = authenticatorProperties.get(DuoAuthenticatorConstants.HOST);
+        String adminIntegrationKey = authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_IKEY);
+        String adminSecretKey = authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_SKEY);
+        if (StringUtils.isEmpty(host) || StringUtils.isEmpty(adminIntegrationKey)
+                || StringUtils.isEmpty(adminSecretKey)) {
+            return null;
+        }
+        DuoUserSyncEngine syncEngine = DuoUserSyncEngine.getInstance();
+        syncEngine.configureSnapshots(
+                duoConfig.isEnabled(DuoAuthenticatorConstants.UserSync.ENABLE_SNAPSHOT),
+                duoConfig.getLong(DuoAuthenticatorConstants.UserSync.SNAPSHOT_MAX_AGE,
+                        DuoAuthenticatorConstants.UserSync.DEFAULT_SNAPSHOT_MAX_AGE_SECONDS));
+        syncEngine.register(host, adminIntegrationKey, adminSecretKey,
+                duoConfig.getLong(DuoAuthenticatorConstants.UserSync.SYNC_INTERVAL,
+                        DuoAuthenticatorConstants.UserSync.DEFAULT_SYNC_INTERVAL_SECONDS),
+                (int) duoConfig.getLong(DuoAuthenticatorConstants.UserSync.SYNC_PAGE_SIZE,
+                        DuoAuthenticatorConstants.UserSync.DEFAULT_SYNC_PAGE_SIZE));
+        return syncEngine.getIndex(host, adminIntegrationKey);
+    }
+
     /**
      * Verify the duo phone number with user's mobile claim value.
      *
@@ -265,16 +1251,11 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
             if (log.isDebugEnabled()) {
                 log.debug("Couldn't get the phone number of Duo user");
             }
-            context.setProperty(DuoAuthenticatorConstants.MOBILE_NUMBER_NOT_FOUND, true);
+            DuoFailureState.MOBILE_NUMBER_NOT_FOUND.set(context);
             throw new AuthenticationFailedException("User doesn't have a mobile number in Duo for Authentication ");
-        } else {
-            for (int i = 0; i < phoneArray.length(); i++) {
-                if (((JSONObject) phoneArray.get(i)).getString(DuoAuthenticatorConstants.DUO_NUMBER).equals(mobile)) {
-                    return true;
-                }
-            }
         }
-        return false;
+        return DuoPhoneNumberUtil.matchesAny(phoneArray, mobile,
+                getConfig().isEnabled(DuoAuthenticatorConstants.ENABLE_PHONE_NUMBER_NORMALIZATION));
     }
 
     /**
@@ -287,22 +1268,14 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
     private void checkStatusCode(HttpServletResponse response, AuthenticationContext context)
             throws AuthenticationFailedException {
 
-        String redirectUrl = getErrorPage(context);
+        DuoFailureState failureState = DuoFailureState.get(context);
         try {
-            if (Boolean.parseBoolean(String.valueOf(context.getProperty(DuoAuthenticatorConstants.NUMBER_MISMATCH)))) {
-                response.sendRedirect(redirectUrl + DuoAuthenticatorConstants.DuoErrors.ERROR_NUMBER_MISMATCH);
-            } else if (Boolean.parseBoolean(String.valueOf(context.getProperty
-                    (DuoAuthenticatorConstants.USER_NOT_REGISTERED_IN_DUO)))) {
-                response.sendRedirect(redirectUrl + DuoAuthenticatorConstants.DuoErrors.ERROR_USER_NOT_REGISTERED);
-            } else if (Boolean.parseBoolean(String.valueOf(context.getProperty
-                    (DuoAuthenticatorConstants.MOBILE_NUMBER_NOT_FOUND)))) {
-                response.sendRedirect(redirectUrl + DuoAuthenticatorConstants.DuoErrors.ERROR_GETTING_NUMBER_FROM_DUO);
-            } else if (Boolean.parseBoolean(String.valueOf(context.getProperty
-                    (DuoAuthenticatorConstants.MOBILE_CLAIM_NOT_FOUND)))) {
-                response.sendRedirect(redirectUrl + DuoAuthenticatorConstants.DuoErrors.ERROR_NUMBER_NOT_FOUND);
-            } else if (Boolean.parseBoolean(String.valueOf(context.getProperty
-                    (DuoAuthenticatorConstants.UNABLE_TO_FIND_VERIFIED_USER)))) {
-                response.sendRedirect(redirectUrl + DuoAuthenticatorConstants.DuoErrors.ERROR_GETTING_VERIFIED_USER);
+            if (failureState != null) {
+                publishAuthEvent(context, failureState.getOutcome(), null, null);
+                response.sendRedirect(getErrorPage(context, failureState));
+            } else {
+                publishAuthEvent(context, DuoAuthEvent.Outcome.ERROR,
+                        (String) context.getProperty(DuoAuthenticatorConstants.DUO_ERROR_MESSAGE), null);
             }
         } catch (IOException e) {
             String msg = "Authentication Failed: An IOException was caught.";
@@ -319,17 +1292,33 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
      */
     private String getErrorPage(AuthenticationContext context) {
 
-        String queryParams = FrameworkUtils.getQueryStringWithFrameworkContextId(context.getQueryParams(),
+        DuoErrorPageTemplate template = getErrorPageTemplate(context);
+        return template == null ? null : template.getUrl(getErrorPageQueryParams(context));
+    }
+
+    /**
+     * Get the error page URL of a failed login, with the error of its failure state.
+     *
+     * @param context      the authentication context
+     * @param failureState the failure state of the login
+     * @return the error page URL
+     */
+    private String getErrorPage(AuthenticationContext context, DuoFailureState failureState) {
+
+        DuoErrorPageTemplate template = getErrorPageTemplate(context);
+        return template == null ? null : template.getUrl(getErrorPageQueryParams(context), failureState);
+    }
+
+    private DuoErrorPageTemplate getErrorPageTemplate(AuthenticationContext context) {
+
+        return DuoErrorPageTemplates.getInstance().getTemplate(context.getTenantDomain(), getConfig().getErrorPage(),
+                getName());
+    }
+
+    private String getErrorPageQueryParams(AuthenticationContext context) {
+
+        return FrameworkUtils.getQueryStringWithFrameworkContextId(context.getQueryParams(),
                 context.getCallerSessionKey(), context.getContextIdentifier());
-        Map<String, String> duoParameters = getAuthenticatorConfig().getParameterMap();
-        String duoErrorPageEndpoint = duoParameters.get(
-                DuoAuthenticatorConstants.DUO_AUTHENTICATION_ENDPOINT_ERROR_PAGE);
-        if (duoErrorPageEndpoint == null) {
-            duoErrorPageEndpoint = DuoAuthenticatorConstants.DUO_DEFAULT_ERROR_PAGE;
-        }
-        String duoErrorPageUrl = duoErrorPageEndpoint + "?" + queryParams + "&" +
-                DuoAuthenticatorConstants.AUTHENTICATION + "=" + getName();
-        return IdentityUtil.getServerURL(duoErrorPageUrl, false, false);
     }
 
     /**
@@ -344,10 +1333,8 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
 
         String mobileNumber;
         String username;
-        String federatedMobileNumberAttributeKey;
         AuthenticatedUser authenticatedUser;
-        Map<ClaimMapping, String> userAttributes;
-        Map<String, String> duoParameters;
+        DuoConfig duoConfig;
 
         authenticatedUser = (AuthenticatedUser) authenticationContext
                 .getProperty(DuoAuthenticatorConstants.AUTHENTICATED_USER);
@@ -360,66 +1347,57 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
                     ("Authentication failed: Cannot proceed further without identifying the user. ");
         }
         username = authenticatedUser.getAuthenticatedSubjectIdentifier();
-        duoParameters = FederatedAuthenticatorUtil.getAuthenticatorConfig(DuoAuthenticatorConstants.AUTHENTICATOR_NAME);
-        if (duoParameters != null
-                && duoParameters.get(DuoAuthenticatorConstants.SEND_DUO_TO_FEDERATED_MOBILE_ATTRIBUTE) != null
-                && Boolean.parseBoolean(
-                duoParameters.get(DuoAuthenticatorConstants.SEND_DUO_TO_FEDERATED_MOBILE_ATTRIBUTE))) {
-
-            userAttributes = authenticatedUser.getUserAttributes();
-            federatedMobileNumberAttributeKey = duoParameters
-                    .get(DuoAuthenticatorConstants.FEDERATED_MOBILE_ATTRIBUTE_KEY);
-
-            if (federatedMobileNumberAttributeKey == null) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Authentication failed: 'federatedMobileNumberAttributeKey' property is undefined");
-                }
-                throw new AuthenticationFailedException
-                        ("Authentication failed: 'federatedMobileNumberAttributeKey' property is undefined");
-            }
-            mobileNumber = getMobileNumberForFederatedUser(userAttributes, federatedMobileNumberAttributeKey);
+        duoConfig = getConfig();
+        if (duoConfig.isFederatedMobileAttributeEnabled()) {
+            mobileNumber = getClaimResolver(authenticationContext).resolveFederatedMobile(
+                    authenticatedUser.getUserAttributes());
         } else {
+            DuoCache<String> mobileClaimCache = getCache(duoConfig,
+                    DuoAuthenticatorConstants.Cache.MOBILE_CLAIM_CACHE);
+            String cachedMobileNumber = getCachedValue(mobileClaimCache, authenticationContext.getTenantDomain(),
+                    username);
+            if (cachedMobileNumber != null) {
+                return cachedMobileNumber;
+            }
             try {
-                int tenantId = IdentityTenantUtil.getTenantIdOfUser(username);
-                UserRealm userRealm = DuoServiceHolder.getInstance().getRealmService().getTenantUserRealm(tenantId);
-                String tenantAwareUsername = MultitenantUtils.getTenantAwareUsername(username);
-                if (userRealm != null) {
-                    UserStoreManager userStoreManager = (UserStoreManager) userRealm.getUserStoreManager();
-                    mobileNumber = userStoreManager.getUserClaimValue(tenantAwareUsername,
-                            DuoAuthenticatorConstants.MOBILE_CLAIM, null);
-                } else {
-                    throw new AuthenticationFailedException(
-                            "Cannot find the user realm for the given tenant: " + tenantId);
-                }
+                mobileNumber = getUserStoreMobileClaim(username);
             } catch (UserStoreException e) {
                 log.error(DuoAuthenticatorConstants.DuoErrors.ERROR_USER_STORE, e);
                 throw new AuthenticationFailedException(DuoAuthenticatorConstants.DuoErrors.ERROR_USER_STORE, e);
             }
+            if (mobileClaimCache != null && StringUtils.isNotEmpty(mobileNumber)) {
+                mobileClaimCache.put(authenticationContext.getTenantDomain(), username, mobileNumber);
+            }
         }
 
         return mobileNumber;
     }
 
     /**
-     * Extract the mobile number value from federated user attributes.
+     * Read the mobile claim value of a user from the user store.
      *
-     * @param userAttributes                    {@link Map} with federated user attributes
-     * @param federatedMobileNumberAttributeKey used to identify the mobile number value of federated authenticator
-     * @return the mobile number attribute
+     * @param username the username, including the tenant domain
+     * @return the mobile claim value
+     * @throws UserStoreException            if the user store could not be read
+     * @throws AuthenticationFailedException if the user realm of the tenant is not found
      */
-    private String getMobileNumberForFederatedUser(Map<ClaimMapping, String> userAttributes,
-                                                   String federatedMobileNumberAttributeKey) {
+    private String getUserStoreMobileClaim(String username) throws UserStoreException, AuthenticationFailedException {
 
-        String mobileNumber = null;
-        for (Map.Entry<ClaimMapping, String> entry : userAttributes.entrySet()) {
-            String key = String.valueOf(entry.getKey().getLocalClaim().getClaimUri());
-            String value = entry.getValue();
-            if (key.equals(federatedMobileNumberAttributeKey)) {
-                mobileNumber = String.valueOf(value);
-                break;
+        int tenantId = IdentityTenantUtil.getTenantIdOfUser(username);
+        UserRealm userRealm = DuoServiceHolder.getInstance().getRealmService().getTenantUserRealm(tenantId);
+        if (userRealm == null) {
+            throw new AuthenticationFailedException("Cannot find the user realm for the given tenant: " + tenantId);
+        }
+        UserStoreManager userStoreManager = (UserStoreManager) userRealm.getUserStoreManager();
+        try (DuoSpan span = DuoTracer.getInstance().startSpan(DuoAuthenticatorConstants.Tracing.SPAN_MOBILE_CLAIM)) {
+            try {
+                return userStoreManager.getUserClaimValue(MultitenantUtils.getTenantAwareUsername(username),
+                        DuoAuthenticatorConstants.MOBILE_CLAIM, null);
+            } catch (UserStoreException e) {
+                span.setError(e);
+                throw e;
             }
         }
-        return mobileNumber;
     }
 
     /**
@@ -442,85 +1420,39 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
     }
 
     /**
-     * Extract the mobile number value from federated user attributes.
+     * Get the claim resolver of the identity provider of a login.
      *
-     * @param context         the AuthenticationContext
+     * @param context the authentication context
+     * @return the resolver
      */
-    private String getDuoUserId(AuthenticationContext context) throws AuthenticationFailedException {
+    private DuoClaimResolver getClaimResolver(AuthenticationContext context) {
 
-        if (log.isDebugEnabled()) {
-            log.debug("Read the Claim value which will be passed to duo.");
-        }
-        Map<String, String> runtimeParams = getRuntimeParams(context);
-
-        if (runtimeParams != null) {
-            String duoUserId = runtimeParams.get(DuoAuthenticatorConstants.DUO_USER_IDENTIFIER);
-            if (StringUtils.isNotBlank(duoUserId)) {
-                if (log.isDebugEnabled()) {
-                    log.debug("The claim obtained from the runtime parameters was passed to Duo.");
-                }
-                return duoUserId;
-            }
-        }
-        if (isUsernameAsDuoIdentifier()) {
-            return getUsername(context);
-        }
-        return getUserId(context);
+        return DuoClaimResolverRegistry.getInstance().getResolver(getConfig(), context.getAuthenticatorProperties());
     }
 
     /**
-     * Extract the username of the authenticating user.
+     * Resolve the identifier passed to Duo for the authenticating user.
      *
-     * @param context         {@link AuthenticationContext}
+     * @param context the AuthenticationContext
      */
-    private String getUsername(AuthenticationContext context) throws AuthenticationFailedException {
-
-        String username = String.valueOf(context.getProperty(DuoAuthenticatorConstants.DUO_USERNAME));
-        Map<String, String> authenticatorProperties = context.getAuthenticatorProperties();
-        AuthenticatedUser authenticatedUser = (AuthenticatedUser) context
-                .getProperty(DuoAuthenticatorConstants.AUTHENTICATED_USER);
-
-        if (authenticatedUser != null) {
-            username = authenticatedUser.getUserName();
-        }
+    private String getDuoUserId(AuthenticationContext context) throws AuthenticationFailedException {
 
-        if (username == null) {
-            throw new AuthenticationFailedException("Authentication failed!. Cannot proceed further without " +
-                    "identifying the user");
-        }
-        if (!isDisableTenantDomainInUserName(authenticatorProperties)) {
-            username = UserCoreUtil.addTenantDomainToEntry(username, authenticatedUser.getTenantDomain());
-        }
-        if (!isDisableUserStoreDomainInUserName(authenticatorProperties)) {
-            username = IdentityUtil.addDomainToName(username, authenticatedUser.getUserStoreDomain());
+        if (log.isDebugEnabled()) {
+            log.debug("Read the Claim value which will be passed to duo.");
         }
-
-        return username;
+        return getClaimResolver(context).resolveDuoUserId((AuthenticatedUser) context.getProperty(
+                DuoAuthenticatorConstants.AUTHENTICATED_USER), getRuntimeParams(context));
     }
 
     /**
-     * Extract the user ID of the authenticating user.
+     * Resolve the identifier passed to Duo and the federated mobile number of the authenticating user at once.
      *
-     * @param context         {@link AuthenticationContext}
+     * @param context the AuthenticationContext
      */
-    private String getUserId(AuthenticationContext context) throws AuthenticationFailedException {
-
-        String userId = null;
-        AuthenticatedUser authenticatedUser = (AuthenticatedUser) context
-                .getProperty(DuoAuthenticatorConstants.AUTHENTICATED_USER);
+    private DuoUserClaims getUserClaims(AuthenticationContext context) throws AuthenticationFailedException {
 
-        try {
-            if (authenticatedUser != null) {
-                userId = authenticatedUser.getUserId();
-            }
-            if (userId == null) {
-                throw new UserIdNotFoundException("User id not found for the authenticated user");
-            }
-        } catch (UserIdNotFoundException e) {
-            throw new AuthenticationFailedException("Authentication failed!. Cannot proceed further without " +
-                    "identifying the user");
-        }
-        return userId;
+        return getClaimResolver(context).resolve((AuthenticatedUser) context.getProperty(
+                DuoAuthenticatorConstants.AUTHENTICATED_USER), getRuntimeParams(context));
     }
 
     /**
@@ -534,7 +1466,8 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
         Property duoHost = new Property();
         duoHost.setDisplayName("API hostname");
         duoHost.setName(DuoAuthenticatorConstants.HOST);
-        duoHost.setDescription("Enter host name of Duo Account");
+        duoHost.setDescription("Enter host name of Duo Account. Multiple hosts can be given as a comma separated " +
+                "list in order of preference, with optional weights such as api-a.duosecurity.com|2");
         duoHost.setRequired(true);
         duoHost.setDisplayOrder(1);
         configProperties.add(duoHost);
@@ -593,6 +1526,23 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
         disableTenantDomain.setType("boolean");
         configProperties.add(disableTenantDomain);
 
+        Property authIntegrationKey = new Property();
+        authIntegrationKey.setDisplayName("Auth API Integration Key");
+        authIntegrationKey.setName(DuoAuthenticatorConstants.AUTH_IKEY);
+        authIntegrationKey.setDescription("Enter Auth API Integration Key (Necessary for pre-authentication)");
+        authIntegrationKey.setRequired(false);
+        authIntegrationKey.setDisplayOrder(8);
+        configProperties.add(authIntegrationKey);
+
+        Property authSecretKey = new Property();
+        authSecretKey.setName(DuoAuthenticatorConstants.AUTH_SKEY);
+        authSecretKey.setDisplayName("Auth API Secret Key");
+        authSecretKey.setRequired(false);
+        authSecretKey.setDescription("Enter Auth API Secret Key (Necessary for pre-authentication)");
+        authSecretKey.setConfidential(true);
+        authSecretKey.setDisplayOrder(9);
+        configProperties.add(authSecretKey);
+
         return configProperties;
     }
 
@@ -600,11 +1550,13 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
     protected void processAuthenticationResponse(HttpServletRequest request, HttpServletResponse response,
                                                  AuthenticationContext context) throws AuthenticationFailedException {
 
-        Map<String, String> duoParameters = getAuthenticatorConfig().getParameterMap();
+        DuoConfig duoConfig = getConfig();
         Map<String, String> authenticatorProperties = context.getAuthenticatorProperties();
         String requestState = request.getParameter(DuoAuthenticatorConstants.DUO_STATE);
         String requestDuoCode = request.getParameter(DuoAuthenticatorConstants.DUO_CODE);
         Client duoClient;
+        DuoHostPool hostPool;
+        String host;
         String username;
 
         try {
@@ -634,10 +1586,10 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
             String redirectUri = getCallbackUrl() + "?" +
                     FrameworkConstants.SESSION_DATA_KEY + "=" + getContextIdentifier(request);
 
-            duoClient = new Client.Builder(authenticatorProperties.get
-                    (DuoAuthenticatorConstants.CLIENT_ID), authenticatorProperties.get
-                    (DuoAuthenticatorConstants.CLIENT_SECRET), authenticatorProperties.get
-                    (DuoAuthenticatorConstants.HOST), redirectUri).build();
+            hostPool = getHostPool(context);
+            host = getSelectedHost(context, hostPool);
+            duoClient = createDuoClient(authenticatorProperties.get(DuoAuthenticatorConstants.CLIENT_ID),
+                    authenticatorProperties.get(DuoAuthenticatorConstants.CLIENT_SECRET), host, redirectUri);
         } catch (DuoException e) {
             log.error(DuoAuthenticatorConstants.DuoErrors.ERROR_CLIENT_CREATION, e);
             throw new AuthenticationFailedException(DuoAuthenticatorConstants.DuoErrors.ERROR_CLIENT_CREATION, e);
@@ -647,26 +1599,56 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
 
         try {
             // Step 6: Exchange the auth duoCode for a Token object which contains metadata about authentication.
-            String duoUserId = getDuoUserId(context);
-            Token duoToken = duoClient.exchangeAuthorizationCodeFor2FAResult(requestDuoCode, duoUserId);
+            DuoUserClaims userClaims = getUserClaims(context);
+            String duoUserId = userClaims.getDuoUserId();
+            DuoBulkhead bulkhead = getBulkhead(context);
+            if (!acquireBulkhead(bulkhead, context)) {
+                throw new AuthenticationFailedException(DuoAuthenticatorConstants.DuoErrors.ERROR_BULKHEAD_FULL);
+            }
+            Token duoToken;
+            try (DuoSpan span = DuoTracer.getInstance().startSpan(
+                    DuoAuthenticatorConstants.Tracing.SPAN_TOKEN_EXCHANGE)) {
+                try {
+                    // The authorization code can only be redeemed at the host the login was initiated against.
+                    duoToken = exchangeAuthorizationCode(context, hostPool, host, duoClient,
+                            requestDuoCode, duoUserId);
+                } catch (DuoException e) {
+                    span.setError(e);
+                    throw e;
+                }
+            } finally {
+                bulkhead.release();
+            }
 
             if (log.isDebugEnabled()) {
                 log.debug("Duo Authentication status: " + duoToken.getAuth_result().getStatus_msg());
             }
             if (StringUtils.isNotEmpty(username)) {
-                if (Boolean.parseBoolean(duoParameters.get(DuoAuthenticatorConstants.ENABLE_MOBILE_VERIFICATION))) {
-                    checkPhoneNumberValidation(context, username, duoUserId);
+                if (duoConfig.isMobileVerificationEnabled()) {
+                    try (DuoSpan span = DuoTracer.getInstance().startSpan(
+                            DuoAuthenticatorConstants.Tracing.SPAN_MOBILE_VERIFICATION)) {
+                        try {
+                            checkPhoneNumberValidation(context, username, userClaims);
+                        } catch (AuthenticationFailedException | JSONException e) {
+                            span.setError(e);
+                            throw e;
+                        }
+                    }
                 }
                 AuthenticatedUser authenticatedUser = AuthenticatedUser
                         .createFederateAuthenticatedUserFromSubjectIdentifier(duoUserId);
                 authenticatedUser.setUserAttributes(getUserAttributesFromDuoToken(duoToken));
                 context.setSubject(authenticatedUser);
+                recordTrustedSession(request, response, context, duoUserId, authenticatedUser.getUserAttributes());
+                publishAuthEvent(context, DuoAuthEvent.Outcome.SUCCESS, duoToken.getAuth_result().getStatus_msg(),
+                        getFactor(authenticatedUser.getUserAttributes()));
             } else {
-                context.setProperty(DuoAuthenticatorConstants.UNABLE_TO_FIND_VERIFIED_USER, true);
+                DuoFailureState.VERIFIED_USER_NOT_FOUND.set(context);
                 throw new AuthenticationFailedException("Unable to find verified user from Duo");
             }
         } catch (DuoException e) {
             log.error(DuoAuthenticatorConstants.DuoErrors.ERROR_TOKEN_CREATION, e);
+            context.setProperty(DuoAuthenticatorConstants.DUO_ERROR_MESSAGE, e.getMessage());
             throw new AuthenticationFailedException(DuoAuthenticatorConstants.DuoErrors.ERROR_TOKEN_CREATION, e);
         } catch (JSONException e) {
             log.error(DuoAuthenticatorConstants.DuoErrors.ERROR_USER_ATTRIBUTES, e);
@@ -674,6 +1656,37 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
         }
     }
 
+    /**
+     * Exchange the authorization code for the Duo token. The id_token is validated with the cached HMAC key of the
+     * client instead of one derived for the login.
+     *
+     * @param context   the authentication context
+     * @param hostPool  the host pool of the identity provider
+     * @param host      the Duo API host the login was initiated against
+     * @param duoClient the Duo client
+     * @param duoCode   the authorization code
+     * @param duoUserId the Duo user identifier
+     * @return the Duo token
+     * @throws DuoException if the exchange or the validation fails
+     */
+    private Token exchangeAuthorizationCode(AuthenticationContext context, DuoHostPool hostPool, String host,
+                                            Client duoClient, String duoCode, String duoUserId)
+            throws DuoException {
+
+        Map<String, String> authenticatorProperties = context.getAuthenticatorProperties();
+        TokenValidator tokenValidator = DuoCryptoCache.getInstance().getTokenValidator(
+                authenticatorProperties.get(DuoAuthenticatorConstants.CLIENT_ID),
+                authenticatorProperties.get(DuoAuthenticatorConstants.CLIENT_SECRET), host, duoUserId);
+        try {
+            return hostPool.execute(host, duoHost -> duoClient.exchangeAuthorizationCodeFor2FAResult(duoCode,
+                    tokenValidator));
+        } catch (DuoException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DuoException(e.getMessage(), e);
+        }
+    }
+
     @Override
     public String getContextIdentifier(HttpServletRequest request) {
 
@@ -700,33 +1713,27 @@ public class DuoAuthenticator extends AbstractApplicationAuthenticator implement
 
     private Map<ClaimMapping, String> getUserAttributesFromDuoToken(Token duoToken) {
 
+        // The user claims are read through the getters of the token, so that the login path does not need an object
+        // mapper of its own.
         Map<ClaimMapping, String> userAttributes = new HashMap<>();
-        ObjectMapper objectMapper = new ObjectMapper();
-        TypeReference<Map<String, Object>> reference = new TokenTypeReference();
-        Map<String, Object> map = objectMapper.convertValue(duoToken, reference);
-
-        for (Map.Entry<String, Object> entry : map.entrySet()) {
-            if (Arrays.stream(NON_USER_ATTRIBUTES).noneMatch(entry.getKey()::equals)) {
-                if (entry.getKey().equals(DuoAuthenticatorConstants.AUTH_CONTEXT) && entry.getValue() instanceof Map) {
-                    Map<String, Object> authContext = (Map<String, Object>) entry.getValue();
-                    // Add amr value
-                    if (authContext.get(DuoAuthenticatorConstants.FACTOR) != null) {
-                        userAttributes.put(
-                                ClaimMapping.build(DuoAuthenticatorConstants.AMR, DuoAuthenticatorConstants.AMR,
-                                        null, false),
-                                authContext.get(DuoAuthenticatorConstants.FACTOR).toString());
-                    } else {
-                        log.debug("Skipping addition of AMR attribute due to factor value being null.");
-                    }
-                } else if (entry.getValue() instanceof String) {
-                    userAttributes.put(
-                            ClaimMapping.build(entry.getKey(), entry.getKey(), null, false),
-                            entry.getValue().toString());
-                }
+        addUserAttribute(userAttributes, DuoAuthenticatorConstants.SUB, duoToken.getSub());
+        addUserAttribute(userAttributes, DuoAuthenticatorConstants.PREFERRED_USERNAME,
+                duoToken.getPreferred_username());
+        AuthContext authContext = duoToken.getAuth_context();
+        if (authContext != null) {
+            if (authContext.getFactor() != null) {
+                addUserAttribute(userAttributes, DuoAuthenticatorConstants.AMR, authContext.getFactor());
+            } else {
+                log.debug("Skipping addition of AMR attribute due to factor value being null.");
             }
         }
         return userAttributes;
     }
 
-    private static final class TokenTypeReference extends TypeReference<Map<String, Object>> { }
+    private static void addUserAttribute(Map<ClaimMapping, String> userAttributes, String claim, String value) {
+
+        if (value != null) {
+            userAttributes.put(ClaimMapping.build(claim, claim, null, false), value);
+        }
+    }
 }
@@ -31,6 +31,8 @@ public abstract class DuoAuthenticatorConstants {
     public static final String CLIENT_SECRET = "ClientSecret";
     public static final String ADMIN_IKEY = "AdminIntegrationKey";
     public static final String ADMIN_SKEY = "AdminSecretKey";
+    public static final String AUTH_IKEY = "AuthIntegrationKey";
+    public static final String AUTH_SKEY = "AuthSecretKey";
     public static final String HOST = "DuoHost";
     public static final String MOBILE_CLAIM = "http://wso2.org/claims/mobile";
     public static final String DUO_NUMBER = "number";
@@ -41,8 +43,10 @@ public abstract class DuoAuthenticatorConstants {
     public static final String DUO_PHONES = "phones";
     public static final String DUO_DEFAULT_ERROR_PAGE = "authenticationendpoint/duo_error.do";
     public static final String ENABLE_MOBILE_VERIFICATION = "EnableMobileVerification";
+    public static final String ENABLE_PHONE_NUMBER_NORMALIZATION = "EnableDuoPhoneNumberNormalization";
     public static final String SESSION_DATA_KEY = "sessionDataKey";
     public static final String HTTP_GET = "GET";
+    public static final String HTTP_POST = "POST";
     public static final String USER_NOT_REGISTERED_IN_DUO = "userNotFound";
     public static final String NUMBER_MISMATCH = "numberMismatch";
     public static final String MOBILE_NUMBER_NOT_FOUND = "unableToFindMobileNumber";
@@ -59,6 +63,383 @@ public abstract class DuoAuthenticatorConstants {
     public static final String AMR = "amr";
     public static final String AUTH_CONTEXT = "auth_context";
     public static final String FACTOR = "factor";
+    public static final String SUB = "sub";
+    public static final String PREFERRED_USERNAME = "preferred_username";
+    public static final String DUO_SERVICE_BUSY = "duoServiceBusy";
+    public static final String ACCESS_DENIED_BY_DUO = "accessDeniedByDuo";
+    public static final String AUTHENTICATED_WITHOUT_REDIRECT = "duoAuthenticatedWithoutRedirect";
+    public static final String RESOLVED_DUO_USER_ID = "duoResolvedUserId";
+    public static final String RESOLVED_DUO_SUBJECT = "duoResolvedSubject";
+    public static final String DUO_ERROR_MESSAGE = "duoErrorMessage";
+    public static final String DUO_FAILURE_STATE = "duoFailureState";
+
+    /**
+     * Configuration parameters and defaults of the per-tenant bulkheads around outbound Duo calls.
+     */
+    public static class Bulkhead {
+        public static final String ENABLE_BULKHEAD = "EnableBulkhead";
+        public static final String MAX_CONCURRENT_CALLS = "BulkheadMaxConcurrentCalls";
+        public static final String MAX_WAITING_CALLS = "BulkheadMaxWaitingCalls";
+        public static final String MAX_WAIT_TIME = "BulkheadMaxWaitTime";
+        public static final String PER_IDENTITY_PROVIDER = "BulkheadPerIdentityProvider";
+        public static final int DEFAULT_MAX_CONCURRENT_CALLS = 20;
+        public static final int DEFAULT_MAX_WAITING_CALLS = 20;
+        public static final long DEFAULT_MAX_WAIT_TIME_MILLIS = 1000;
+    }
+
+    /**
+     * Configuration parameters and defaults of the background Duo user synchronization.
+     */
+    public static class UserSync {
+        public static final String ENABLE_USER_SYNC = "EnableDuoUserSync";
+        public static final String SYNC_INTERVAL = "DuoUserSyncInterval";
+        public static final String SYNC_PAGE_SIZE = "DuoUserSyncPageSize";
+        public static final String ENABLE_SNAPSHOT = "EnableDuoUserSnapshot";
+        public static final String SNAPSHOT_MAX_AGE = "DuoUserSnapshotMaxAge";
+        public static final long DEFAULT_SNAPSHOT_MAX_AGE_SECONDS = 86400;
+        public static final String SNAPSHOT_DIRECTORY = "repository/data/duo";
+        public static final long DEFAULT_SYNC_INTERVAL_SECONDS = 900;
+        public static final int DEFAULT_SYNC_PAGE_SIZE = 300;
+        public static final String LIMIT = "limit";
+        public static final String OFFSET = "offset";
+        public static final String ALIASES = "aliases";
+    }
+
+    /**
+     * Configuration parameters and defaults of batching the Admin API user lookups of concurrent logins.
+     */
+    public static class LookupBatching {
+        public static final String ENABLE_LOOKUP_BATCHING = "EnableDuoLookupBatching";
+        public static final String BATCH_WINDOW = "DuoLookupBatchWindow";
+        public static final String BATCH_SIZE = "DuoLookupBatchSize";
+        public static final long DEFAULT_BATCH_WINDOW_MILLIS = 5;
+        public static final int DEFAULT_BATCH_SIZE = 50;
+        public static final int MAX_BATCH_SIZE = 100;
+        public static final String USERNAME_LIST = "username_list";
+    }
+
+    /**
+     * Configuration parameters and defaults of the bulk Duo enrollment check.
+     */
+    public static class EnrollmentCheck {
+        public static final String PARALLELISM = "DuoEnrollmentCheckParallelism";
+        public static final String CHECK_MODE = "DuoEnrollmentCheckMode";
+        public static final String DIRECTORY_MODE = "directory";
+        public static final String LOOKUP_MODE = "lookup";
+        public static final int DEFAULT_PARALLELISM = 4;
+        public static final String THREAD_NAME = "duo-enrollment-check";
+    }
+
+    /**
+     * Configuration parameters and defaults of the job synchronizing mobile numbers to Duo phones.
+     */
+    public static class PhoneSync {
+        public static final String BATCH_SIZE = "DuoPhoneSyncBatchSize";
+        public static final String CONCURRENCY = "DuoPhoneSyncConcurrency";
+        public static final String USER_FILTER = "DuoPhoneSyncUserFilter";
+        public static final String DRY_RUN = "DuoPhoneSyncDryRun";
+        public static final int DEFAULT_BATCH_SIZE = 50;
+        public static final int DEFAULT_CONCURRENCY = 4;
+        public static final String DEFAULT_USER_FILTER = "*";
+        public static final String CHECKPOINT_FILE_EXTENSION = ".checkpoint";
+        public static final String DRY_RUN_CHECKPOINT_SUFFIX = ":dryRun";
+        public static final String API_PHONES = "/admin/v1/phones";
+        public static final String API_USER_PHONES = "/admin/v1/users/%s/phones";
+        public static final String API_PHONE = "/admin/v1/phones/%s";
+        public static final String PHONE_ID = "phone_id";
+        public static final String USER_ID = "user_id";
+        public static final String TYPE = "type";
+        public static final String MOBILE = "mobile";
+        public static final String USER_ID_CLAIM = "http://wso2.org/claims/userid";
+        public static final String THREAD_NAME = "duo-phone-sync";
+    }
+
+    /**
+     * Configuration parameters and defaults of the rate limit of the Admin API calls made by batch jobs.
+     */
+    public static class RateLimit {
+        public static final String ADMIN_RATE_LIMIT = "DuoAdminApiRateLimit";
+        public static final double DEFAULT_ADMIN_RATE_LIMIT = 5;
+        public static final int MAX_RETRIES = 5;
+        public static final long INITIAL_BACKOFF_MILLIS = 1000;
+        public static final String RATE_LIMITED_ERROR = "Duo error code (429";
+        public static final String ENABLE_FAIR_QUEUE = "EnableDuoAdminFairQueue";
+        public static final String TENANT_WEIGHTS = "DuoAdminTenantWeights";
+        public static final String TENANT_MINIMUM_RATES = "DuoAdminTenantMinimumRates";
+        public static final String FAIR_QUEUE_MAX_WAIT = "DuoAdminFairQueueMaxWait";
+        public static final long DEFAULT_FAIR_QUEUE_MAX_WAIT_MILLIS = 1000;
+        public static final String TENANT_SEPARATOR = ",";
+        public static final String VALUE_SEPARATOR = "|";
+    }
+
+    /**
+     * Configuration parameters and defaults of the caches holding Duo verification data.
+     */
+    public static class Cache {
+        public static final String ENABLE_CACHE = "EnableDuoCache";
+        public static final String CACHE_TYPE = "DuoCacheType";
+        public static final String CACHE_EXPIRY = "DuoCacheExpiry";
+        public static final String CACHE_MAX_ENTRIES = "DuoCacheMaxEntries";
+        public static final String LOCAL = "local";
+        public static final String CLUSTER = "cluster";
+        public static final long DEFAULT_CACHE_EXPIRY_SECONDS = 300;
+        public static final int DEFAULT_CACHE_MAX_ENTRIES = 10000;
+        public static final int MAX_SEGMENTS = 16;
+        public static final int MIN_SEGMENT_ENTRIES = 64;
+        public static final String MOBILE_CLAIM_CACHE = "DuoMobileClaimCache";
+        public static final String DUO_USER_CACHE = "DuoUserCache";
+        public static final String VERSION_CACHE = "DuoCacheVersionCache";
+    }
+
+    /**
+     * Configuration parameters and defaults of warming the verification data caches from the recent logins.
+     */
+    public static class CacheWarming {
+        public static final String ENABLE_CACHE_WARMING = "EnableDuoCacheWarming";
+        public static final String PEAK_TIMES = "DuoCacheWarmingPeakTimes";
+        public static final String LEAD_TIME = "DuoCacheWarmingLeadTime";
+        public static final String RATE = "DuoCacheWarmingRate";
+        public static final String HISTORY_SIZE = "DuoCacheWarmingHistorySize";
+        public static final String HISTORY_MAX_AGE = "DuoCacheWarmingHistoryMaxAge";
+        public static final long DEFAULT_LEAD_TIME_MINUTES = 15;
+        public static final double DEFAULT_RATE = 2;
+        public static final int DEFAULT_HISTORY_SIZE = 10000;
+        public static final long DEFAULT_HISTORY_MAX_AGE_HOURS = 24;
+    }
+
+    /**
+     * Configuration parameters and defaults of the trusted-session window.
+     */
+    public static class TrustedSession {
+        public static final String ENABLE_TRUSTED_SESSION = "EnableDuoTrustedSession";
+        public static final String TRUSTED_SESSION_WINDOW = "DuoTrustedSessionWindow";
+        public static final String MAX_TRUSTED_SESSION_WINDOW = "DuoTrustedSessionMaxWindow";
+        public static final String MAX_TRUSTED_SESSIONS = "DuoTrustedSessionMaxEntries";
+        public static final long DEFAULT_MAX_TRUSTED_SESSION_WINDOW_SECONDS = 3600;
+        public static final int DEFAULT_MAX_TRUSTED_SESSIONS = 10000;
+        public static final String RUNTIME_TRUSTED_SESSION_WINDOW = "trustedSessionWindow";
+        public static final String COOKIE_NAME = "duoVerifiedSession";
+    }
+
+    /**
+     * Configuration parameters and values of the Duo Auth API pre-authentication.
+     */
+    public static class Preauth {
+        public static final String ENABLE_PREAUTH = "EnableDuoPreauth";
+        public static final String PREAUTH_CACHE_EXPIRY = "DuoPreauthCacheExpiry";
+        public static final long DEFAULT_PREAUTH_CACHE_EXPIRY_SECONDS = 30;
+        public static final String PREAUTH_CACHE = "DuoPreauthCache";
+        public static final String API_PREAUTH = "/auth/v2/preauth";
+        public static final String RESULT = "result";
+        public static final String ALLOW = "allow";
+        public static final String DENY = "deny";
+        public static final String ENROLL = "enroll";
+        public static final String AUTH = "auth";
+        public static final String REJECTED = "rejected";
+    }
+
+    /**
+     * Configuration parameters and defaults of the audit events of Duo authentication outcomes.
+     */
+    public static class AuditEvents {
+        public static final String ENABLE_AUDIT_EVENTS = "EnableDuoAuditEvents";
+        public static final String BUFFER_SIZE = "DuoAuditEventBufferSize";
+        public static final String BATCH_SIZE = "DuoAuditEventBatchSize";
+        public static final String FLUSH_INTERVAL = "DuoAuditEventFlushInterval";
+        public static final String OVERFLOW_POLICY = "DuoAuditEventOverflowPolicy";
+        public static final String MAX_BLOCK_TIME = "DuoAuditEventMaxBlockTime";
+        public static final int DEFAULT_BUFFER_SIZE = 8192;
+        public static final int DEFAULT_BATCH_SIZE = 256;
+        public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+        public static final long DEFAULT_MAX_BLOCK_TIME_MILLIS = 5;
+        public static final String PIPELINE_NAME = "audit";
+        public static final String LOG_DIRECTORY = "repository/logs";
+        public static final String LOG_FILE = "duo-audit.log";
+        public static final long LOG_FILE_MAX_BYTES = 10L * 1024 * 1024;
+        public static final int LOG_FILE_BACKUPS = 5;
+    }
+
+    /**
+     * Configuration parameters, defaults and span names of the tracing of Duo logins.
+     */
+    public static class Tracing {
+        public static final String ENABLE_TRACING = "EnableDuoTracing";
+        public static final String SAMPLE_RATIO = "DuoTracingSampleRatio";
+        public static final String EXPORTER = "DuoTracingExporter";
+        public static final String OTLP_ENDPOINT = "DuoTracingOtlpEndpoint";
+        public static final double DEFAULT_SAMPLE_RATIO = 0.01;
+        public static final String FILE_EXPORTER = "file";
+        public static final String OTLP_EXPORTER = "otlp";
+        public static final String DEFAULT_OTLP_ENDPOINT = "http://localhost:4318/v1/traces";
+        public static final String LOG_FILE = "duo-traces.log";
+        public static final long LOG_FILE_MAX_BYTES = 10L * 1024 * 1024;
+        public static final int LOG_FILE_BACKUPS = 5;
+        public static final String PIPELINE_NAME = "traces";
+        public static final int BUFFER_SIZE = 4096;
+        public static final int BATCH_SIZE = 512;
+        public static final long FLUSH_INTERVAL_MILLIS = 1000;
+        public static final String SERVICE_NAME = "wso2-duo-authenticator";
+        public static final String TRACE_PARENT = "duoTraceParent";
+        public static final String SPAN_INITIATE = "duo.initiate";
+        public static final String SPAN_CALLBACK = "duo.callback";
+        public static final String SPAN_TRUSTED_SESSION = "duo.trusted_session";
+        public static final String SPAN_PREAUTH = "duo.preauth";
+        public static final String SPAN_HEALTH_CHECK = "duo.health_check";
+        public static final String SPAN_CREATE_AUTH_URL = "duo.create_auth_url";
+        public static final String SPAN_TOKEN_EXCHANGE = "duo.token_exchange";
+        public static final String SPAN_MOBILE_VERIFICATION = "duo.mobile_verification";
+        public static final String SPAN_USER_LOOKUP = "duo.admin.user_lookup";
+        public static final String SPAN_MOBILE_CLAIM = "userstore.mobile_claim";
+        public static final String ATTRIBUTE_HOST = "duo.host";
+        public static final String ATTRIBUTE_TENANT = "tenant.domain";
+        public static final String ATTRIBUTE_SERVICE_PROVIDER = "service.provider";
+    }
+
+    /**
+     * Configuration parameters and defaults of the tail-based sampling of slow Duo logins.
+     */
+    public static class SlowLogins {
+        public static final String ENABLE_SAMPLER = "EnableDuoSlowLoginSampler";
+        public static final String THRESHOLD = "DuoSlowLoginThreshold";
+        public static final String CAPACITY = "DuoSlowLoginCapacity";
+        public static final long DEFAULT_THRESHOLD_MILLIS = 2000;
+        public static final int DEFAULT_CAPACITY = 100;
+        public static final int MAX_PHASES = 32;
+        public static final String MBEAN_NAME = "org.wso2.carbon.identity.authenticator.duo:type=SlowLogins";
+    }
+
+    /**
+     * Names used when exposing the authenticator metrics.
+     */
+    public static class Metrics {
+        public static final String METRICS_MBEAN_NAME = "org.wso2.carbon.identity.authenticator.duo:type=Metrics";
+        public static final String BULKHEAD_PREFIX = "bulkhead.";
+        public static final String ACTIVE_CALLS = ".active";
+        public static final String WAITING_CALLS = ".waiting";
+        public static final String REJECTED_CALLS = ".rejected";
+        public static final String USER_SYNC_PREFIX = "usersync.";
+        public static final String INDEXED_USERS = ".users";
+        public static final String USER_SYNC_RUNS = "usersync.runs";
+        public static final String USER_SYNC_CHANGES = "usersync.changes";
+        public static final String USER_SYNC_FAILURES = "usersync.failures";
+        public static final String USER_SNAPSHOT_LOADS = "usersync.snapshot.loads";
+        public static final String USER_SNAPSHOT_DISCARDS = "usersync.snapshot.discards";
+        public static final String CACHE_WARMING_RUNS = "cachewarming.runs";
+        public static final String CACHE_WARMING_PREFETCHES = "cachewarming.prefetches";
+        public static final String CACHE_WARMING_FAILURES = "cachewarming.failures";
+        public static final String CACHE_WARMING_WARMED_LOGINS = "cachewarming.warmedlogins";
+        public static final String CACHE_WARMING_HISTORY = "cachewarming.history";
+        public static final String USER_INDEX_HITS = "usersync.index.hits";
+        public static final String USER_INDEX_MISSES = "usersync.index.misses";
+        public static final String ENROLLMENT_CHECK_PREFIX = "enrollment.";
+        public static final String ENROLLMENT_LOOKUPS = "enrollment.lookups";
+        public static final String RATE_LIMITED_RETRIES = "ratelimit.retries";
+        public static final String FAIR_QUEUE_PREFIX = "fairqueue.";
+        public static final String GRANTED_CALLS = ".granted";
+        public static final String WAIT_TIME = ".waittime";
+        public static final String LOOKUP_BATCHES = "lookupbatch.batches";
+        public static final String LOOKUP_BATCHED_USERS = "lookupbatch.users";
+        public static final String PHONE_SYNC_PREFIX = "phonesync.";
+        public static final String TRUSTED_SESSION_RECORDS = "trustedsession.records";
+        public static final String TRUSTED_SESSION_HITS = "trustedsession.hits";
+        public static final String PREAUTH_PREFIX = "preauth.";
+        public static final String PREAUTH_FAILURES = "preauth.failures";
+        public static final String EVENTS_PREFIX = "events.";
+        public static final String QUEUE_DEPTH = ".depth";
+        public static final String PUBLISHED_EVENTS = ".published";
+        public static final String DROPPED_EVENTS = ".dropped";
+        public static final String FLUSHES = ".flushes";
+        public static final String FLUSH_FAILURES = ".failures";
+        public static final String CACHE_PREFIX = "cache.";
+        public static final String CACHE_HITS = ".hits";
+        public static final String CACHE_MISSES = ".misses";
+        public static final String ROUTING_PREFIX = "routing.";
+        public static final String HOST_SELECTED = ".selected";
+        public static final String HOST_FAILURES = ".failures";
+        public static final String HOST_LATENCY = ".latency";
+        public static final String HOST_AVAILABLE = ".available";
+        public static final String ROUTING_FAILOVERS = "routing.failovers";
+        public static final String HEALTH_CHECKS_REUSED = "routing.healthchecks.reused";
+        public static final String RETRY_FAST_PATH = "retry.fastpath";
+        public static final String HOST_TAIL_LATENCY = ".latency.tail";
+        public static final String HEDGES_SENT = "routing.hedges.sent";
+        public static final String HEDGES_WON = "routing.hedges.won";
+        public static final String HEDGES_REJECTED = "routing.hedges.rejected";
+        public static final String PROBE_CLIENTS = "routing.probeclients";
+        public static final String SLOW_LOGINS_RETAINED = "slowlogins.retained";
+    }
+
+    /**
+     * Reusable cryptographic primitives.
+     */
+    public static class Crypto {
+        public static final String HMAC_SHA512 = "HmacSHA512";
+        public static final String SHA256 = "SHA-256";
+        public static final String JWT_ALGORITHM = "HS512";
+        public static final String ISSUER_FORMAT = "https://%s/oauth/v1/token";
+        public static final String USERNAME_CLAIM = "preferred_username";
+        public static final long TOKEN_LEEWAY_SECONDS = 60;
+        public static final int MAX_CACHED_KEYS = 256;
+    }
+
+    /**
+     * Resolution of the Duo identifier and the mobile number of a user.
+     */
+    public static class ClaimResolution {
+        public static final int MAX_CACHED_CONFIGS = 64;
+    }
+
+    /**
+     * Routing of Duo API calls across hosts.
+     */
+    public static class Routing {
+        public static final String FAILURE_THRESHOLD = "DuoHostFailureThreshold";
+        public static final String COOLDOWN = "DuoHostCooldown";
+        public static final String LATENCY_DECAY = "DuoHostLatencyDecay";
+        public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+        public static final long DEFAULT_COOLDOWN_SECONDS = 30;
+        public static final long DEFAULT_LATENCY_DECAY_SECONDS = 60;
+        public static final double EWMA_ALPHA = 0.3;
+        public static final String HOST_SEPARATOR = ",";
+        public static final String WEIGHT_SEPARATOR = "|";
+        public static final String SELECTED_HOST = "duoSelectedHost";
+        public static final String HEALTH_CHECKED_AT = "duoHealthCheckedAt";
+        public static final String HEALTH_CHECK_REUSE = "DuoHealthCheckReuseWindow";
+        public static final long DEFAULT_HEALTH_CHECK_REUSE_SECONDS = 30;
+        public static final int LATENCY_SAMPLES = 128;
+        public static final int PERCENTILE_REFRESH_SAMPLES = 16;
+    }
+
+    /**
+     * Hedging of idempotent Duo calls which are slower than usual.
+     */
+    public static class Hedging {
+        public static final String ENABLE_HEDGING = "EnableDuoHedging";
+        public static final String PERCENTILE = "DuoHedgingPercentile";
+        public static final String MAX_IN_FLIGHT = "DuoHedgingMaxInFlight";
+        public static final String MIN_DELAY = "DuoHedgingMinDelay";
+        public static final double DEFAULT_PERCENTILE = 95;
+        public static final int DEFAULT_MAX_IN_FLIGHT = 10;
+        public static final long DEFAULT_MIN_DELAY_MILLIS = 50;
+        public static final int MIN_SAMPLES = 20;
+        public static final String THREAD_NAME = "duo-hedging";
+        public static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+    }
+
+    /**
+     * Bounds of the configuration snapshots kept per tenant.
+     */
+    public static class ConfigSnapshots {
+        public static final int MAX_TENANTS = 1024;
+    }
+
+    /**
+     * Precomputed error page redirects.
+     */
+    public static class ErrorPage {
+        public static final String AUTHENTICATION_PARAMETER = "&" + AUTHENTICATION + "=";
+        public static final int MAX_CACHED_TENANTS = 1024;
+    }
 
     /**
      * Duo errors.
@@ -70,6 +451,8 @@ public abstract class DuoAuthenticatorConstants {
                 ".duo.mobileNumber";
         public static final String ERROR_NUMBER_NOT_FOUND = "&authFailure=true&authFailureMsg=unable.to.find.number";
         public static final String ERROR_NUMBER_MISMATCH = "&authFailure=true&authFailureMsg=number.mismatch";
+        public static final String ERROR_DUO_SERVICE_BUSY = "&authFailure=true&authFailureMsg=duo.service.busy";
+        public static final String ERROR_ACCESS_DENIED = "&authFailure=true&authFailureMsg=duo.access.denied";
 
         public static final String ERROR_JSON = "Error while handling JSON object";
         public static final String ERROR_USER_ATTRIBUTES = "Error while getting user attributes from Duo";
@@ -80,5 +463,8 @@ public abstract class DuoAuthenticatorConstants {
         public static final String ERROR_REDIRECTING = "Error while redirecting to Duo authentication page";
         public static final String ERROR_CLIENT_CREATION = "Error while initiating Duo client";
         public static final String ERROR_TOKEN_CREATION = "Error while creating exchange token after 2FA";
+        public static final String ERROR_BULKHEAD_FULL = "Too many concurrent Duo requests for the tenant";
+        public static final String ERROR_FAIR_QUEUE_FULL = "Duo Admin API capacity of the tenant exhausted";
+        public static final String ERROR_NO_DUO_HOST = "No Duo API host to call";
     }
 }
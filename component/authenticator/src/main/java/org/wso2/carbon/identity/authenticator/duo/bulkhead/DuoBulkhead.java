@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.bulkhead;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of concurrent outbound Duo calls made on behalf of a single tenant (or identity provider).
+ * Callers that cannot get a permit immediately wait in a bounded queue for at most the configured time, and are
+ * rejected straight away when the queue is already full.
+ */
+public class DuoBulkhead {
+
+    /**
+     * Bulkhead used when isolation is disabled. It never blocks or rejects a call.
+     */
+    public static final DuoBulkhead UNBOUNDED = new DuoBulkhead("unbounded", Integer.MAX_VALUE, 0, 0);
+
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final int maxWaitingCalls;
+    private final long maxWaitMillis;
+    private final Semaphore permits;
+    private final AtomicInteger waitingCalls = new AtomicInteger();
+
+    public DuoBulkhead(String name, int maxConcurrentCalls, int maxWaitingCalls, long maxWaitMillis) {
+
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWaitingCalls = maxWaitingCalls;
+        this.maxWaitMillis = maxWaitMillis;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    /**
+     * Try to obtain a permit for an outbound call, waiting in the queue if all permits are in use.
+     *
+     * @return true if a permit was obtained and must later be returned with {@link #release()}
+     */
+    public boolean tryAcquire() {
+
+        if (this == UNBOUNDED) {
+            return true;
+        }
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (waitingCalls.incrementAndGet() > maxWaitingCalls) {
+            waitingCalls.decrementAndGet();
+            return false;
+        }
+        try {
+            return permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waitingCalls.decrementAndGet();
+        }
+    }
+
+    /**
+     * Return a permit obtained through {@link #tryAcquire()}.
+     */
+    public void release() {
+
+        if (this != UNBOUNDED) {
+            permits.release();
+        }
+    }
+
+    public String getName() {
+
+        return name;
+    }
+
+    public int getMaxConcurrentCalls() {
+
+        return maxConcurrentCalls;
+    }
+
+    public int getMaxWaitingCalls() {
+
+        return maxWaitingCalls;
+    }
+
+    public long getMaxWaitMillis() {
+
+        return maxWaitMillis;
+    }
+
+    /**
+     * Get the number of calls currently holding a permit.
+     *
+     * @return number of active calls
+     */
+    public int getActiveCalls() {
+
+        return this == UNBOUNDED ? 0 : maxConcurrentCalls - permits.availablePermits();
+    }
+
+    /**
+     * Get the number of calls currently waiting for a permit.
+     *
+     * @return number of waiting calls
+     */
+    public int getWaitingCalls() {
+
+        return waitingCalls.get();
+    }
+
+    /**
+     * Check whether every permit is in use, so that a new call has to wait for one.
+     *
+     * @return true if the bulkhead is saturated
+     */
+    public boolean isSaturated() {
+
+        return this != UNBOUNDED && permits.availablePermits() == 0;
+    }
+
+    /**
+     * Check whether the bulkhead is saturated and its queue is full, so that a new call is rejected straight away.
+     *
+     * @return true if new calls are rejected
+     */
+    public boolean isRejecting() {
+
+        return isSaturated() && waitingCalls.get() >= maxWaitingCalls;
+    }
+}
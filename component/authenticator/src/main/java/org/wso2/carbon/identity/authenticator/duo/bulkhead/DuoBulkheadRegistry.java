@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.bulkhead;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one {@link DuoBulkhead} per tenant, or per tenant and identity provider, and publishes their occupancy
+ * through {@link DuoMetrics}.
+ */
+public class DuoBulkheadRegistry {
+
+    private static final DuoBulkheadRegistry instance = new DuoBulkheadRegistry();
+
+    private final ConcurrentMap<String, DuoBulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    private DuoBulkheadRegistry() {
+
+    }
+
+    public static DuoBulkheadRegistry getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Get the bulkhead isolating the given tenant and identity provider. A new bulkhead replaces the existing one
+     * when the limits have been reconfigured; calls holding a permit of the old bulkhead release it there.
+     *
+     * @param tenantDomain       tenant domain of the login
+     * @param idpName            identity provider name, or null to share a bulkhead across the tenant
+     * @param maxConcurrentCalls maximum number of concurrent calls
+     * @param maxWaitingCalls    maximum number of calls waiting for a permit
+     * @param maxWaitMillis      maximum time a call waits for a permit
+     * @return the bulkhead
+     */
+    public DuoBulkhead getBulkhead(String tenantDomain, String idpName, int maxConcurrentCalls, int maxWaitingCalls,
+                                   long maxWaitMillis) {
+
+        String key = StringUtils.isEmpty(idpName) ? tenantDomain : tenantDomain + "/" + idpName;
+        DuoBulkhead bulkhead = bulkheads.get(key);
+        if (bulkhead != null && bulkhead.getMaxConcurrentCalls() == maxConcurrentCalls
+                && bulkhead.getMaxWaitingCalls() == maxWaitingCalls && bulkhead.getMaxWaitMillis() == maxWaitMillis) {
+            return bulkhead;
+        }
+        return bulkheads.compute(key, (name, existing) -> {
+            if (existing != null && existing.getMaxConcurrentCalls() == maxConcurrentCalls
+                    && existing.getMaxWaitingCalls() == maxWaitingCalls
+                    && existing.getMaxWaitMillis() == maxWaitMillis) {
+                return existing;
+            }
+            DuoBulkhead created = new DuoBulkhead(name, maxConcurrentCalls, maxWaitingCalls, maxWaitMillis);
+            registerGauges(created);
+            return created;
+        });
+    }
+
+    /**
+     * Record a call rejected by the given bulkhead.
+     *
+     * @param bulkhead the bulkhead which rejected the call
+     */
+    public void recordRejection(DuoBulkhead bulkhead) {
+
+        DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.BULKHEAD_PREFIX + bulkhead.getName()
+                + DuoAuthenticatorConstants.Metrics.REJECTED_CALLS);
+    }
+
+    /**
+     * Get the bulkheads currently in use.
+     *
+     * @return an unmodifiable view of the bulkheads
+     */
+    public Collection<DuoBulkhead> getBulkheads() {
+
+        return Collections.unmodifiableCollection(bulkheads.values());
+    }
+
+    /**
+     * Forget all bulkheads. Calls holding a permit of a forgotten bulkhead release it there.
+     */
+    public void clear() {
+
+        for (String name : bulkheads.keySet()) {
+            String prefix = DuoAuthenticatorConstants.Metrics.BULKHEAD_PREFIX + name;
+            DuoMetrics.getInstance().removeGauge(prefix + DuoAuthenticatorConstants.Metrics.ACTIVE_CALLS);
+            DuoMetrics.getInstance().removeGauge(prefix + DuoAuthenticatorConstants.Metrics.WAITING_CALLS);
+        }
+        bulkheads.clear();
+    }
+
+    private void registerGauges(DuoBulkhead bulkhead) {
+
+        String prefix = DuoAuthenticatorConstants.Metrics.BULKHEAD_PREFIX + bulkhead.getName();
+        DuoMetrics.getInstance().registerGauge(prefix + DuoAuthenticatorConstants.Metrics.ACTIVE_CALLS,
+                bulkhead::getActiveCalls);
+        DuoMetrics.getInstance().registerGauge(prefix + DuoAuthenticatorConstants.Metrics.WAITING_CALLS,
+                bulkhead::getWaitingCalls);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.cache;
+
+/**
+ * A {@link DuoCache} for clustered deployments. Values are kept in a {@link LocalDuoCache} on each node, along with
+ * the version the {@link DuoCacheInvalidator} held for the entry when it was cached. Invalidating an entry removes
+ * its version for the whole cluster, so that the copies held by the other nodes are no longer served.
+ *
+ * @param <V> type of the cached values
+ */
+public class ClusterAwareDuoCache<V> implements DuoCache<V> {
+
+    private final LocalDuoCache<VersionedValue<V>> nearCache;
+    private final DuoCacheInvalidator invalidator;
+
+    /**
+     * Create a cluster aware cache.
+     *
+     * @param name         name of the cache
+     * @param expiryMillis time after which an entry expires on a node
+     * @param maxEntries   maximum number of entries held by a node
+     * @param invalidator  the version store shared by the nodes
+     */
+    public ClusterAwareDuoCache(String name, long expiryMillis, int maxEntries, DuoCacheInvalidator invalidator) {
+
+        this.nearCache = new LocalDuoCache<>(name, expiryMillis, maxEntries);
+        this.invalidator = invalidator;
+    }
+
+    @Override
+    public String getName() {
+
+        return nearCache.getName();
+    }
+
+    public long getExpiryMillis() {
+
+        return nearCache.getExpiryMillis();
+    }
+
+    public int getMaxEntries() {
+
+        return nearCache.getMaxEntries();
+    }
+
+    public DuoCacheInvalidator getInvalidator() {
+
+        return invalidator;
+    }
+
+    @Override
+    public V get(String tenantDomain, String key) {
+
+        VersionedValue<V> entry = nearCache.get(tenantDomain, key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.version.equals(invalidator.getVersion(new DuoCacheKey(getName(), tenantDomain, key)))) {
+            nearCache.invalidate(tenantDomain, key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public void put(String tenantDomain, String key, V value) {
+
+        String version = invalidator.getOrCreateVersion(new DuoCacheKey(getName(), tenantDomain, key));
+        nearCache.put(tenantDomain, key, new VersionedValue<>(version, value));
+    }
+
+    @Override
+    public void invalidate(String tenantDomain, String key) {
+
+        nearCache.invalidate(tenantDomain, key);
+        invalidator.invalidate(new DuoCacheKey(getName(), tenantDomain, key));
+    }
+
+    private static final class VersionedValue<V> {
+
+        private final String version;
+        private final V value;
+
+        private VersionedValue(String version, V value) {
+
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.cache;
+
+/**
+ * A tenant aware cache of data used to verify Duo logins, such as mobile claim values and Duo user details.
+ *
+ * @param <V> type of the cached values
+ */
+public interface DuoCache<V> {
+
+    /**
+     * Get the name of the cache.
+     *
+     * @return the cache name
+     */
+    String getName();
+
+    /**
+     * Get a cached value.
+     *
+     * @param tenantDomain tenant domain the value belongs to
+     * @param key          the key
+     * @return the value, or null if it is not cached, has expired or has been invalidated
+     */
+    V get(String tenantDomain, String key);
+
+    /**
+     * Cache a value.
+     *
+     * @param tenantDomain tenant domain the value belongs to
+     * @param key          the key
+     * @param value        the value
+     */
+    void put(String tenantDomain, String key, V value);
+
+    /**
+     * Remove a value, on every node sharing the cache.
+     *
+     * @param tenantDomain tenant domain the value belongs to
+     * @param key          the key
+     */
+    void invalidate(String tenantDomain, String key);
+}
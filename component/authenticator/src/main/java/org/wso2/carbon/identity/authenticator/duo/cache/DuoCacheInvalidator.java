@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.cache;
+
+/**
+ * Keeps the version of the entries of the caches shared across a cluster. A node records the version of an entry
+ * when caching it, and treats the entry as invalid once the version has changed or has been removed.
+ */
+public interface DuoCacheInvalidator {
+
+    /**
+     * Get the current version of an entry.
+     *
+     * @param key the cache key
+     * @return the version, or null if the entry has no version or has been invalidated
+     */
+    String getVersion(DuoCacheKey key);
+
+    /**
+     * Get the current version of an entry, assigning a new version if it has none.
+     *
+     * @param key the cache key
+     * @return the version
+     */
+    String getOrCreateVersion(DuoCacheKey key);
+
+    /**
+     * Invalidate an entry on every node.
+     *
+     * @param key the cache key
+     */
+    void invalidate(DuoCacheKey key);
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.cache;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Key of an entry in a {@link DuoCache}.
+ */
+public class DuoCacheKey implements Serializable {
+
+    private static final long serialVersionUID = -6391523218837306845L;
+
+    private final String cacheName;
+    private final String tenantDomain;
+    private final String key;
+
+    public DuoCacheKey(String cacheName, String tenantDomain, String key) {
+
+        this.cacheName = cacheName;
+        this.tenantDomain = tenantDomain;
+        this.key = key;
+    }
+
+    public String getCacheName() {
+
+        return cacheName;
+    }
+
+    public String getTenantDomain() {
+
+        return tenantDomain;
+    }
+
+    public String getKey() {
+
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DuoCacheKey)) {
+            return false;
+        }
+        DuoCacheKey that = (DuoCacheKey) o;
+        return Objects.equals(cacheName, that.cacheName) && Objects.equals(tenantDomain, that.tenantDomain)
+                && Objects.equals(key, that.key);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(cacheName, tenantDomain, key);
+    }
+}
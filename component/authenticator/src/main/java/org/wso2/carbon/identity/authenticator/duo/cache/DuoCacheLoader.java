@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.cache;
+
+/**
+ * Loads the verification data of a user into the caches ahead of the next login of the user.
+ */
+@FunctionalInterface
+public interface DuoCacheLoader {
+
+    /**
+     * Load the verification data of a user into the caches.
+     *
+     * @param tenantDomain tenant domain of the user
+     * @param duoUserId    Duo user identifier
+     * @param username     username of the user in the user store, or null if the mobile claim is not read from it
+     * @return the number of cache entries loaded
+     * @throws Exception if the data could not be loaded
+     */
+    int load(String tenantDomain, String duoUserId, String username) throws Exception;
+}
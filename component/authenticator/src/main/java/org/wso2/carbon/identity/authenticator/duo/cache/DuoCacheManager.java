@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the {@link DuoCache}s of the authenticator by name, creating them on first use with the configured backend.
+ */
+public class DuoCacheManager {
+
+    private static final DuoCacheManager instance = new DuoCacheManager();
+
+    private final ConcurrentMap<String, DuoCache<String>> caches = new ConcurrentHashMap<>();
+    private volatile DuoCacheInvalidator invalidator;
+
+    private DuoCacheManager() {
+
+    }
+
+    public static DuoCacheManager getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Get a cache, replacing the existing one when its backend or limits have been reconfigured.
+     *
+     * @param name         name of the cache
+     * @param clustered    whether invalidations have to be propagated to the other nodes of the cluster
+     * @param expiryMillis time after which an entry expires
+     * @param maxEntries   maximum number of entries held by a node
+     * @return the cache
+     */
+    public DuoCache<String> getCache(String name, boolean clustered, long expiryMillis, int maxEntries) {
+
+        DuoCache<String> cache = caches.get(name);
+        if (cache != null && isConfiguredAs(cache, clustered, expiryMillis, maxEntries)) {
+            return cache;
+        }
+        return caches.compute(name, (cacheName, existing) -> {
+            if (existing != null && isConfiguredAs(existing, clustered, expiryMillis, maxEntries)) {
+                return existing;
+            }
+            if (clustered) {
+                return new ClusterAwareDuoCache<>(cacheName, expiryMillis, maxEntries, getInvalidator());
+            }
+            return new LocalDuoCache<>(cacheName, expiryMillis, maxEntries);
+        });
+    }
+
+    /**
+     * Set the version store used by clustered caches. Caches created earlier keep their version store.
+     *
+     * @param invalidator the version store, or null to use the Carbon cache
+     */
+    public void setInvalidator(DuoCacheInvalidator invalidator) {
+
+        this.invalidator = invalidator;
+    }
+
+    /**
+     * Drop all caches.
+     */
+    public void clear() {
+
+        caches.clear();
+    }
+
+    private DuoCacheInvalidator getInvalidator() {
+
+        DuoCacheInvalidator configured = invalidator;
+        return configured != null ? configured : DuoCacheVersionCache.getInstance();
+    }
+
+    private boolean isConfiguredAs(DuoCache<String> cache, boolean clustered, long expiryMillis, int maxEntries) {
+
+        if (cache instanceof ClusterAwareDuoCache) {
+            ClusterAwareDuoCache<String> clusterAwareCache = (ClusterAwareDuoCache<String>) cache;
+            return clustered && clusterAwareCache.getExpiryMillis() == expiryMillis
+                    && clusterAwareCache.getMaxEntries() == maxEntries;
+        }
+        LocalDuoCache<String> localCache = (LocalDuoCache<String>) cache;
+        return !clustered && localCache.getExpiryMillis() == expiryMillis && localCache.getMaxEntries() == maxEntries;
+    }
+}
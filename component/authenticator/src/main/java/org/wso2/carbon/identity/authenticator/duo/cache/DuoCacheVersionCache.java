@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.cache;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.core.cache.BaseCache;
+
+import java.util.UUID;
+
+/**
+ * {@link DuoCacheInvalidator} backed by a Carbon cache. Removing an entry from a Carbon cache is propagated to the
+ * other nodes of the cluster, which then no longer find the version their cached copies were recorded with.
+ */
+public class DuoCacheVersionCache extends BaseCache<DuoCacheKey, String> implements DuoCacheInvalidator {
+
+    private static volatile DuoCacheVersionCache instance;
+
+    private DuoCacheVersionCache() {
+
+        super(DuoAuthenticatorConstants.Cache.VERSION_CACHE);
+    }
+
+    public static DuoCacheVersionCache getInstance() {
+
+        if (instance == null) {
+            synchronized (DuoCacheVersionCache.class) {
+                if (instance == null) {
+                    instance = new DuoCacheVersionCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public String getVersion(DuoCacheKey key) {
+
+        return getValueFromCache(key, key.getTenantDomain());
+    }
+
+    @Override
+    public String getOrCreateVersion(DuoCacheKey key) {
+
+        String version = getValueFromCache(key, key.getTenantDomain());
+        if (version == null) {
+            version = UUID.randomUUID().toString();
+            addToCache(key, version, key.getTenantDomain());
+        }
+        return version;
+    }
+
+    @Override
+    public void invalidate(DuoCacheKey key) {
+
+        clearCacheEntry(key, key.getTenantDomain());
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warms the Duo verification data caches ahead of known login peaks, so that the first logins of a peak do not all
+ * fall through to the Admin API and the user store.
+ * <p>
+ * Each registered Admin integration keeps a bounded {@link DuoLoginHistory} of the users who recently logged in
+ * through it. A configured lead time before each peak, the verification data of these users is loaded into the
+ * caches at a limited rate. The history holds the identities of the users, so it is kept in memory only and starts
+ * empty on every node.
+ */
+public class DuoCacheWarmer {
+
+    private static final Log log = LogFactory.getLog(DuoCacheWarmer.class);
+    private static final DuoCacheWarmer instance = new DuoCacheWarmer();
+
+    private final ConcurrentMap<String, Integration> integrations = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> peakWarming;
+    private volatile boolean enabled;
+    private volatile String peakTimes;
+    private volatile long leadMinutes;
+    private volatile double usersPerSecond = DuoAuthenticatorConstants.CacheWarming.DEFAULT_RATE;
+    private volatile int historySize = DuoAuthenticatorConstants.CacheWarming.DEFAULT_HISTORY_SIZE;
+    private volatile long historyMaxAgeMillis =
+            TimeUnit.HOURS.toMillis(DuoAuthenticatorConstants.CacheWarming.DEFAULT_HISTORY_MAX_AGE_HOURS);
+
+    private DuoCacheWarmer() {
+
+    }
+
+    public static DuoCacheWarmer getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Configure the warming, rescheduling it when the peak times changed.
+     *
+     * @param enabled            whether the caches are warmed
+     * @param peakTimes          comma separated local times of the login peaks, as {@code HH:mm}
+     * @param leadMinutes        how long before a peak the caches are warmed
+     * @param usersPerSecond     maximum number of users warmed per second
+     * @param historySize        maximum number of users kept in the history of an integration
+     * @param historyMaxAgeHours users who have not logged in for longer are not warmed
+     */
+    public void configure(boolean enabled, String peakTimes, long leadMinutes, double usersPerSecond,
+                          int historySize, long historyMaxAgeHours) {
+
+        this.usersPerSecond = usersPerSecond > 0 ? usersPerSecond : DuoAuthenticatorConstants.CacheWarming.DEFAULT_RATE;
+        this.historySize = historySize;
+        this.historyMaxAgeMillis = TimeUnit.HOURS.toMillis(historyMaxAgeHours);
+        if (enabled != this.enabled || !Objects.equals(peakTimes, this.peakTimes) || leadMinutes != this.leadMinutes) {
+            reschedule(enabled, peakTimes, leadMinutes);
+        }
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * Register an Admin integration for warming. Registering an integration again with the same secret key has no
+     * effect. An integration registered again with another secret key keeps its history.
+     *
+     * @param host                the Duo API host
+     * @param adminIntegrationKey the Admin integration key
+     * @param adminSecretKey      the Admin secret key, used only to detect reconfiguration
+     * @param loader              loader of the verification data of a user
+     */
+    public synchronized void register(String host, String adminIntegrationKey, String adminSecretKey,
+                                      DuoCacheLoader loader) {
+
+        String key = getKey(host, adminIntegrationKey);
+        Integration existing = integrations.get(key);
+        if (existing != null && Objects.equals(existing.secretKey, adminSecretKey)) {
+            return;
+        }
+        integrations.put(key, new Integration(key, adminSecretKey, loader,
+                existing != null ? existing.history : new DuoLoginHistory()));
+        DuoMetrics.getInstance().registerGauge(DuoAuthenticatorConstants.Metrics.CACHE_WARMING_HISTORY,
+                this::getHistorySize);
+        if (log.isDebugEnabled()) {
+            log.debug("Registered the Duo Admin integration " + adminIntegrationKey + " for cache warming");
+        }
+    }
+
+    /**
+     * Record a login verified through a registered Admin integration.
+     *
+     * @param host                the Duo API host
+     * @param adminIntegrationKey the Admin integration key
+     * @param tenantDomain        tenant domain of the user
+     * @param duoUserId           Duo user identifier
+     * @param username            username of the user in the user store, or null if the mobile claim is not read
+     *                            from it
+     */
+    public void recordLogin(String host, String adminIntegrationKey, String tenantDomain, String duoUserId,
+                            String username) {
+
+        Integration integration = integrations.get(getKey(host, adminIntegrationKey));
+        if (integration == null || tenantDomain == null || duoUserId == null) {
+            return;
+        }
+        if (integration.history.record(tenantDomain, duoUserId, username, historySize)) {
+            DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.CACHE_WARMING_WARMED_LOGINS);
+        }
+    }
+
+    /**
+     * Warm the caches of every registered integration on the calling thread.
+     *
+     * @return the number of users whose verification data was loaded
+     */
+    public int warmNow() {
+
+        int warmed = 0;
+        for (Integration integration : integrations.values()) {
+            warmed += warm(integration);
+        }
+        return warmed;
+    }
+
+    /**
+     * Stop warming and forget every registered integration along with its history.
+     */
+    public synchronized void shutdown() {
+
+        enabled = false;
+        peakTimes = null;
+        leadMinutes = 0;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        peakWarming = null;
+        integrations.clear();
+        DuoMetrics.getInstance().removeGauge(DuoAuthenticatorConstants.Metrics.CACHE_WARMING_HISTORY);
+    }
+
+    /**
+     * Get the delay until the caches are next warmed.
+     *
+     * @param now         the current local time
+     * @param peakTimes   comma separated local times of the login peaks, as {@code HH:mm}
+     * @param leadMinutes how long before a peak the caches are warmed
+     * @return the delay in milliseconds, or -1 if no valid peak time is configured
+     */
+    public static long getWarmingDelayMillis(LocalDateTime now, String peakTimes, long leadMinutes) {
+
+        long delayMillis = -1;
+        if (StringUtils.isBlank(peakTimes)) {
+            return delayMillis;
+        }
+        for (String peakTime : peakTimes.split(",")) {
+            LocalTime peak;
+            try {
+                peak = LocalTime.parse(peakTime.trim());
+            } catch (DateTimeParseException e) {
+                log.warn("Ignoring the invalid Duo login peak time " + peakTime.trim());
+                continue;
+            }
+            LocalDateTime warmingTime = now.toLocalDate().atTime(peak).minusMinutes(leadMinutes);
+            while (!warmingTime.isAfter(now)) {
+                warmingTime = warmingTime.plusDays(1);
+            }
+            long millis = Duration.between(now, warmingTime).toMillis();
+            if (delayMillis < 0 || millis < delayMillis) {
+                delayMillis = millis;
+            }
+        }
+        return delayMillis;
+    }
+
+    private synchronized void reschedule(boolean enabled, String peakTimes, long leadMinutes) {
+
+        if (enabled == this.enabled && Objects.equals(peakTimes, this.peakTimes) && leadMinutes == this.leadMinutes) {
+            return;
+        }
+        this.enabled = enabled;
+        this.peakTimes = peakTimes;
+        this.leadMinutes = leadMinutes;
+        if (peakWarming != null) {
+            peakWarming.cancel(false);
+            peakWarming = null;
+        }
+        if (enabled) {
+            scheduleNextWarming();
+        }
+    }
+
+    private synchronized void scheduleNextWarming() {
+
+        long delayMillis = getWarmingDelayMillis(LocalDateTime.now(), peakTimes, leadMinutes);
+        if (!enabled || delayMillis < 0) {
+            return;
+        }
+        peakWarming = getScheduler().schedule(() -> {
+            warmNow();
+            scheduleNextWarming();
+        }, delayMillis, TimeUnit.MILLISECONDS);
+        if (log.isDebugEnabled()) {
+            log.debug("Warming the Duo caches in " + delayMillis + " ms");
+        }
+    }
+
+    private int warm(Integration integration) {
+
+        synchronized (integration) {
+            List<DuoLoginHistory.Entry> entries = integration.history.getRecent(
+                    System.currentTimeMillis() - historyMaxAgeMillis);
+            DuoRateLimiter pace = new DuoRateLimiter(usersPerSecond);
+            int warmed = 0;
+            int prefetches = 0;
+            int failures = 0;
+            try {
+                for (DuoLoginHistory.Entry entry : entries) {
+                    if (!enabled || Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    pace.acquire();
+                    try {
+                        prefetches += integration.loader.load(entry.getTenantDomain(), entry.getDuoUserId(),
+                                entry.getUsername());
+                        entry.markWarmed();
+                        warmed++;
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        failures++;
+                        if (log.isDebugEnabled()) {
+                            log.debug("Error while warming the Duo caches for a user of the integration "
+                                    + integration.key, e);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.CACHE_WARMING_RUNS);
+            DuoMetrics.getInstance().add(DuoAuthenticatorConstants.Metrics.CACHE_WARMING_PREFETCHES, prefetches);
+            DuoMetrics.getInstance().add(DuoAuthenticatorConstants.Metrics.CACHE_WARMING_FAILURES, failures);
+            if (log.isDebugEnabled()) {
+                log.debug("Warmed the Duo caches for " + warmed + " of " + entries.size() + " users of the "
+                        + "integration " + integration.key + " with " + failures + " failures");
+            }
+            return warmed;
+        }
+    }
+
+    private long getHistorySize() {
+
+        long size = 0;
+        for (Integration integration : integrations.values()) {
+            size += integration.history.size();
+        }
+        return size;
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "duo-cache-warming");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    private static String getKey(String host, String adminIntegrationKey) {
+
+        return host + "/" + adminIntegrationKey;
+    }
+
+    /**
+     * Warming state of one Admin integration.
+     */
+    private static class Integration {
+
+        private final String key;
+        private final String secretKey;
+        private final DuoCacheLoader loader;
+        private final DuoLoginHistory history;
+
+        Integration(String key, String secretKey, DuoCacheLoader loader, DuoLoginHistory history) {
+
+            this.key = key;
+            this.secretKey = secretKey;
+            this.loader = loader;
+            this.history = history;
+        }
+    }
+}
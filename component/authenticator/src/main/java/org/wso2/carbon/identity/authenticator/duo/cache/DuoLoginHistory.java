@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The users who recently logged in through a Duo Admin integration, bounded to a maximum number of users.
+ * <p>
+ * Users are keyed by a 64-bit hash of their tenant domain and Duo user identifier, so that repeated logins of a user
+ * collapse into one entry, and the least recently seen user is evicted first. Each entry only keeps what is needed
+ * to load the verification data of the user into the caches again. The history is only kept in memory, so that the
+ * identities of the users are never written to disk.
+ */
+public class DuoLoginHistory {
+
+    private final Map<Long, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Record the login of a user.
+     *
+     * @param tenantDomain tenant domain of the user
+     * @param duoUserId    Duo user identifier
+     * @param username     username of the user in the user store, or null if the mobile claim is not read from it
+     * @param capacity     maximum number of users kept
+     * @return true if the verification data of the user was warmed since the previous login
+     */
+    public synchronized boolean record(String tenantDomain, String duoUserId, String username, int capacity) {
+
+        long hash = hash(tenantDomain, duoUserId);
+        Entry previous = entries.remove(hash);
+        entries.put(hash, new Entry(hash, tenantDomain, duoUserId, username, System.currentTimeMillis()));
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > capacity && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+        return previous != null && previous.warmed;
+    }
+
+    /**
+     * Get the users seen since a given time.
+     *
+     * @param sinceMillis the earliest login time of the users returned
+     * @return the users, most recently seen first
+     */
+    public synchronized List<Entry> getRecent(long sinceMillis) {
+
+        List<Entry> recent = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.lastLoginMillis >= sinceMillis) {
+                recent.add(entry);
+            }
+        }
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    public synchronized int size() {
+
+        return entries.size();
+    }
+
+    /**
+     * Hash the identity of a user with 64-bit FNV-1a.
+     *
+     * @param tenantDomain tenant domain of the user
+     * @param duoUserId    Duo user identifier
+     * @return the hash
+     */
+    static long hash(String tenantDomain, String duoUserId) {
+
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < tenantDomain.length(); i++) {
+            hash = (hash ^ tenantDomain.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ '/') * 0x100000001b3L;
+        for (int i = 0; i < duoUserId.length(); i++) {
+            hash = (hash ^ duoUserId.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * A user of the history.
+     */
+    public static final class Entry {
+
+        private final long hash;
+        private final String tenantDomain;
+        private final String duoUserId;
+        private final String username;
+        private final long lastLoginMillis;
+        private volatile boolean warmed;
+
+        Entry(long hash, String tenantDomain, String duoUserId, String username, long lastLoginMillis) {
+
+            this.hash = hash;
+            this.tenantDomain = tenantDomain;
+            this.duoUserId = duoUserId;
+            this.username = username;
+            this.lastLoginMillis = lastLoginMillis;
+        }
+
+        public long getHash() {
+
+            return hash;
+        }
+
+        public String getTenantDomain() {
+
+            return tenantDomain;
+        }
+
+        public String getDuoUserId() {
+
+            return duoUserId;
+        }
+
+        public String getUsername() {
+
+            return username;
+        }
+
+        public long getLastLoginMillis() {
+
+            return lastLoginMillis;
+        }
+
+        /**
+         * Mark the verification data of the user as warmed.
+         */
+        public void markWarmed() {
+
+            warmed = true;
+        }
+    }
+}
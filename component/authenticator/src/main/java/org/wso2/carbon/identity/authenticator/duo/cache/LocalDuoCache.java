@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.cache;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link DuoCache} held in the memory of the node, bounded in size with least recently used eviction, whose
+ * entries expire a fixed time after they were written.
+ * <p>
+ * The entries are spread by key over up to {@value DuoAuthenticatorConstants.Cache#MAX_SEGMENTS} segments, each an
+ * access ordered map with its own lock and its share of the maximum size, so that logins reading different keys do
+ * not contend on one lock. Eviction is least recently used within a segment, which approximates it across the cache.
+ * Small caches keep a single segment, and so exact least recently used eviction.
+ *
+ * @param <V> type of the cached values
+ */
+public class LocalDuoCache<V> implements DuoCache<V> {
+
+    private final String name;
+    private final long expiryMillis;
+    private final int maxEntries;
+    private final long expiryNanos;
+    private final Segment<V>[] segments;
+
+    /**
+     * Create a local cache.
+     *
+     * @param name         name of the cache
+     * @param expiryMillis time after which an entry expires
+     * @param maxEntries   maximum number of entries held
+     */
+    public LocalDuoCache(String name, long expiryMillis, int maxEntries) {
+
+        this.name = name;
+        this.expiryMillis = expiryMillis;
+        this.maxEntries = maxEntries;
+        this.expiryNanos = TimeUnit.MILLISECONDS.toNanos(expiryMillis);
+        int segmentCount = 1;
+        while (segmentCount < DuoAuthenticatorConstants.Cache.MAX_SEGMENTS
+                && segmentCount * 2L * DuoAuthenticatorConstants.Cache.MIN_SEGMENT_ENTRIES <= maxEntries) {
+            segmentCount *= 2;
+        }
+        @SuppressWarnings("unchecked")
+        Segment<V>[] newSegments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // The remainder of the maximum size goes to the first segments, so that the shares add up to it.
+            newSegments[i] = new Segment<>(maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0));
+        }
+        this.segments = newSegments;
+    }
+
+    @Override
+    public String getName() {
+
+        return name;
+    }
+
+    public long getExpiryMillis() {
+
+        return expiryMillis;
+    }
+
+    public int getMaxEntries() {
+
+        return maxEntries;
+    }
+
+    @Override
+    public V get(String tenantDomain, String key) {
+
+        DuoCacheKey cacheKey = new DuoCacheKey(name, tenantDomain, key);
+        Segment<V> segment = getSegment(cacheKey);
+        synchronized (segment) {
+            Entry<V> entry = segment.get(cacheKey);
+            if (entry == null) {
+                return null;
+            }
+            if (System.nanoTime() - entry.writtenAt >= expiryNanos) {
+                segment.remove(cacheKey);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    @Override
+    public void put(String tenantDomain, String key, V value) {
+
+        DuoCacheKey cacheKey = new DuoCacheKey(name, tenantDomain, key);
+        Entry<V> entry = new Entry<>(value, System.nanoTime());
+        Segment<V> segment = getSegment(cacheKey);
+        synchronized (segment) {
+            segment.put(cacheKey, entry);
+        }
+    }
+
+    @Override
+    public void invalidate(String tenantDomain, String key) {
+
+        DuoCacheKey cacheKey = new DuoCacheKey(name, tenantDomain, key);
+        Segment<V> segment = getSegment(cacheKey);
+        synchronized (segment) {
+            segment.remove(cacheKey);
+        }
+    }
+
+    /**
+     * Get the number of entries held, including expired entries not yet removed.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get the number of segments the entries are spread over.
+     *
+     * @return the number of segments
+     */
+    public int getSegmentCount() {
+
+        return segments.length;
+    }
+
+    private Segment<V> getSegment(DuoCacheKey cacheKey) {
+
+        int hash = cacheKey.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * An access ordered map holding a share of the entries, evicting its least recently used entry once full.
+     */
+    private static final class Segment<V> extends LinkedHashMap<DuoCacheKey, Entry<V>> {
+
+        private static final long serialVersionUID = 2187360434120981766L;
+
+        private final int maxEntries;
+
+        private Segment(int maxEntries) {
+
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<DuoCacheKey, Entry<V>> eldest) {
+
+            return size() > maxEntries;
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long writtenAt;
+
+        private Entry(V value, long writtenAt) {
+
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.claim;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.application.authentication.framework.exception.AuthenticationFailedException;
+import org.wso2.carbon.identity.application.authentication.framework.exception.UserIdNotFoundException;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.application.common.model.Claim;
+import org.wso2.carbon.identity.application.common.model.ClaimMapping;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+import org.wso2.carbon.identity.authenticator.duo.util.DuoUserIdentifierUtil;
+
+import java.util.Map;
+
+/**
+ * Resolution plan of the Duo identifier and the mobile number of a user, compiled once from a configuration snapshot
+ * and the authenticator properties of a Duo identity provider.
+ * <p>
+ * The Duo identifier is taken from the runtime parameters when a claim is passed there, and otherwise from the
+ * username or the user id, as configured. The mobile number is either read from the user store by the caller, or
+ * taken from the federated user attributes. Federated attributes are keyed by claim mappings whose local and remote
+ * claims are the attribute URI, so the attribute is looked up by a mapping built once for the plan. Attributes
+ * mapped otherwise are matched on their local claim URI.
+ */
+public class DuoClaimResolver {
+
+    private final boolean usernameAsDuoIdentifier;
+    private final boolean appendTenantDomain;
+    private final boolean appendUserStoreDomain;
+    private final boolean mobileVerificationEnabled;
+    private final boolean federatedMobileAttributeEnabled;
+    private final String federatedMobileAttributeKey;
+    private final ClaimMapping federatedMobileAttribute;
+
+    DuoClaimResolver(DuoConfig duoConfig, boolean appendTenantDomain, boolean appendUserStoreDomain) {
+
+        this.usernameAsDuoIdentifier = duoConfig.isUsernameAsDuoIdentifier();
+        this.appendTenantDomain = appendTenantDomain;
+        this.appendUserStoreDomain = appendUserStoreDomain;
+        this.mobileVerificationEnabled = duoConfig.isMobileVerificationEnabled();
+        this.federatedMobileAttributeEnabled = duoConfig.isFederatedMobileAttributeEnabled();
+        this.federatedMobileAttributeKey = duoConfig.getFederatedMobileAttributeKey();
+        this.federatedMobileAttribute = federatedMobileAttributeKey == null ? null
+                : ClaimMapping.build(federatedMobileAttributeKey, federatedMobileAttributeKey, null, false);
+    }
+
+    /**
+     * Resolve the Duo identifier of a user and, when the mobile verification is enabled, the federated mobile
+     * number.
+     *
+     * @param authenticatedUser the user
+     * @param runtimeParams     the runtime parameters of the authenticator, or null
+     * @return the claims of the user
+     * @throws AuthenticationFailedException if the user cannot be identified, or the federated mobile attribute is
+     *                                       enabled without its key
+     */
+    public DuoUserClaims resolve(AuthenticatedUser authenticatedUser, Map<String, String> runtimeParams)
+            throws AuthenticationFailedException {
+
+        String duoUserId = resolveDuoUserId(authenticatedUser, runtimeParams);
+        if (!mobileVerificationEnabled || !federatedMobileAttributeEnabled) {
+            return new DuoUserClaims(duoUserId, null, mobileVerificationEnabled);
+        }
+        if (authenticatedUser == null) {
+            throw new AuthenticationFailedException("Authentication failed!. Cannot proceed further without " +
+                    "identifying the user");
+        }
+        return new DuoUserClaims(duoUserId, resolveFederatedMobile(authenticatedUser.getUserAttributes()), false);
+    }
+
+    /**
+     * Resolve the Duo identifier of a user.
+     *
+     * @param authenticatedUser the user
+     * @param runtimeParams     the runtime parameters of the authenticator, or null
+     * @return the Duo identifier
+     * @throws AuthenticationFailedException if the user cannot be identified
+     */
+    public String resolveDuoUserId(AuthenticatedUser authenticatedUser, Map<String, String> runtimeParams)
+            throws AuthenticationFailedException {
+
+        if (runtimeParams != null) {
+            String duoUserId = runtimeParams.get(DuoAuthenticatorConstants.DUO_USER_IDENTIFIER);
+            if (StringUtils.isNotBlank(duoUserId)) {
+                return duoUserId;
+            }
+        }
+        if (authenticatedUser == null) {
+            throw new AuthenticationFailedException("Authentication failed!. Cannot proceed further without " +
+                    "identifying the user");
+        }
+        if (usernameAsDuoIdentifier) {
+            if (authenticatedUser.getUserName() == null) {
+                throw new AuthenticationFailedException("Authentication failed!. Cannot proceed further without " +
+                        "identifying the user");
+            }
+            return DuoUserIdentifierUtil.getDuoUsername(authenticatedUser.getUserName(),
+                    authenticatedUser.getTenantDomain(), authenticatedUser.getUserStoreDomain(), appendTenantDomain,
+                    appendUserStoreDomain);
+        }
+        try {
+            String userId = authenticatedUser.getUserId();
+            if (userId == null) {
+                throw new UserIdNotFoundException("User id not found for the authenticated user");
+            }
+            return userId;
+        } catch (UserIdNotFoundException e) {
+            throw new AuthenticationFailedException("Authentication failed!. Cannot proceed further without " +
+                    "identifying the user");
+        }
+    }
+
+    /**
+     * Resolve the mobile number of a federated user from its attributes.
+     *
+     * @param userAttributes the federated user attributes
+     * @return the mobile number, or null if it is not among the attributes
+     * @throws AuthenticationFailedException if the federated mobile attribute key is not configured
+     */
+    public String resolveFederatedMobile(Map<ClaimMapping, String> userAttributes)
+            throws AuthenticationFailedException {
+
+        if (federatedMobileAttributeKey == null) {
+            throw new AuthenticationFailedException
+                    ("Authentication failed: 'federatedMobileNumberAttributeKey' property is undefined");
+        }
+        if (userAttributes == null || userAttributes.isEmpty()) {
+            return null;
+        }
+        String mobileNumber = userAttributes.get(federatedMobileAttribute);
+        if (mobileNumber != null) {
+            return mobileNumber;
+        }
+        for (Map.Entry<ClaimMapping, String> entry : userAttributes.entrySet()) {
+            Claim localClaim = entry.getKey().getLocalClaim();
+            if (localClaim != null && federatedMobileAttributeKey.equals(localClaim.getClaimUri())) {
+                return String.valueOf(entry.getValue());
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.claim;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+import org.wso2.carbon.identity.authenticator.duo.util.DuoUserIdentifierUtil;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the compiled {@link DuoClaimResolver} plans for reuse across logins. Plans are kept per configuration
+ * snapshot, one for each combination of the username domain properties of the identity providers.
+ */
+public class DuoClaimResolverRegistry {
+
+    private static final DuoClaimResolverRegistry instance = new DuoClaimResolverRegistry();
+
+    private final ConcurrentMap<DuoConfig, DuoClaimResolver[]> resolvers = new ConcurrentHashMap<>();
+
+    private DuoClaimResolverRegistry() {
+
+    }
+
+    public static DuoClaimResolverRegistry getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Get the resolver of a Duo identity provider.
+     *
+     * @param duoConfig               the configuration snapshot
+     * @param authenticatorProperties the authenticator properties of the Duo identity provider
+     * @return the resolver
+     */
+    public DuoClaimResolver getResolver(DuoConfig duoConfig, Map<String, String> authenticatorProperties) {
+
+        boolean appendTenantDomain = authenticatorProperties == null
+                || !DuoUserIdentifierUtil.isDisableTenantDomainInUserName(authenticatorProperties);
+        boolean appendUserStoreDomain = authenticatorProperties == null
+                || !DuoUserIdentifierUtil.isDisableUserStoreDomainInUserName(authenticatorProperties);
+        int plan = (appendTenantDomain ? 1 : 0) | (appendUserStoreDomain ? 2 : 0);
+        DuoClaimResolver[] plans = resolvers.get(duoConfig);
+        if (plans == null) {
+            if (resolvers.size() >= DuoAuthenticatorConstants.ClaimResolution.MAX_CACHED_CONFIGS) {
+                // Snapshots are only replaced when the configuration changes, so starting over is rare.
+                resolvers.clear();
+            }
+            plans = resolvers.computeIfAbsent(duoConfig, config -> new DuoClaimResolver[4]);
+        }
+        DuoClaimResolver resolver = plans[plan];
+        if (resolver == null) {
+            // Plans are immutable, so a plan compiled twice by racing logins is harmless.
+            resolver = new DuoClaimResolver(duoConfig, appendTenantDomain, appendUserStoreDomain);
+            plans[plan] = resolver;
+        }
+        return resolver;
+    }
+
+    /**
+     * Forget the compiled plans.
+     */
+    public void clear() {
+
+        resolvers.clear();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.claim;
+
+/**
+ * The Duo identifier and the mobile number of a user, as resolved by a {@link DuoClaimResolver}.
+ */
+public class DuoUserClaims {
+
+    private final String duoUserId;
+    private final String mobile;
+    private final boolean mobileFromUserStore;
+
+    DuoUserClaims(String duoUserId, String mobile, boolean mobileFromUserStore) {
+
+        this.duoUserId = duoUserId;
+        this.mobile = mobile;
+        this.mobileFromUserStore = mobileFromUserStore;
+    }
+
+    public String getDuoUserId() {
+
+        return duoUserId;
+    }
+
+    /**
+     * Get the mobile number taken from the federated user attributes.
+     *
+     * @return the mobile number, or null if it is not among the attributes or has to be read from the user store
+     */
+    public String getMobile() {
+
+        return mobile;
+    }
+
+    /**
+     * Check whether the mobile number has to be read from the user store.
+     *
+     * @return true if the mobile number is read from the mobile claim of the user in the user store
+     */
+    public boolean isMobileFromUserStore() {
+
+        return mobileFromUserStore;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.config;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of the authenticator parameters. Values are parsed once, when the snapshot is created, so
+ * that logins read settings without parsing them and all the settings of a login come from the same snapshot.
+ */
+public final class DuoConfig {
+
+    /**
+     * Snapshot of an empty configuration.
+     */
+    public static final DuoConfig EMPTY = new DuoConfig(Collections.emptyMap(), 0);
+
+    private static final Log log = LogFactory.getLog(DuoConfig.class);
+
+    private final Map<String, String> parameters;
+    private final Map<String, Long> numbers;
+    private final Map<String, Double> decimals;
+    private final Set<String> enabledFlags;
+    private final long version;
+    private final boolean mobileVerificationEnabled;
+    private final boolean federatedMobileAttributeEnabled;
+    private final String federatedMobileAttributeKey;
+    private final boolean usernameAsDuoIdentifier;
+    private final String errorPage;
+
+    DuoConfig(Map<String, String> parameters, long version) {
+
+        Map<String, String> copy = new HashMap<>(parameters);
+        Map<String, Long> parsedNumbers = new HashMap<>();
+        Map<String, Double> parsedDecimals = new HashMap<>();
+        Set<String> flags = new HashSet<>();
+        for (Map.Entry<String, String> parameter : copy.entrySet()) {
+            String value = StringUtils.trimToEmpty(parameter.getValue());
+            if (Boolean.parseBoolean(value)) {
+                flags.add(parameter.getKey());
+            }
+            try {
+                parsedNumbers.put(parameter.getKey(), Long.parseLong(value));
+            } catch (NumberFormatException e) {
+                // Not an integer parameter.
+            }
+            try {
+                parsedDecimals.put(parameter.getKey(), Double.parseDouble(value));
+            } catch (NumberFormatException e) {
+                // Not a decimal parameter.
+            }
+        }
+        this.parameters = Collections.unmodifiableMap(copy);
+        this.numbers = parsedNumbers;
+        this.decimals = parsedDecimals;
+        this.enabledFlags = flags;
+        this.version = version;
+        this.mobileVerificationEnabled = flags.contains(DuoAuthenticatorConstants.ENABLE_MOBILE_VERIFICATION);
+        this.federatedMobileAttributeEnabled =
+                flags.contains(DuoAuthenticatorConstants.SEND_DUO_TO_FEDERATED_MOBILE_ATTRIBUTE);
+        this.federatedMobileAttributeKey = copy.get(DuoAuthenticatorConstants.FEDERATED_MOBILE_ATTRIBUTE_KEY);
+        this.usernameAsDuoIdentifier = flags.contains(DuoAuthenticatorConstants.USERNAME_AS_DUO_IDENTIFIER);
+        String configuredErrorPage = copy.get(DuoAuthenticatorConstants.DUO_AUTHENTICATION_ENDPOINT_ERROR_PAGE);
+        this.errorPage = configuredErrorPage != null ? configuredErrorPage
+                : DuoAuthenticatorConstants.DUO_DEFAULT_ERROR_PAGE;
+    }
+
+    /**
+     * Get the raw value of a parameter.
+     *
+     * @param name the parameter name
+     * @return the value, or null if the parameter is not configured
+     */
+    public String get(String name) {
+
+        return parameters.get(name);
+    }
+
+    /**
+     * Check whether a boolean parameter is set to true.
+     *
+     * @param name the parameter name
+     * @return true if the parameter is set to true
+     */
+    public boolean isEnabled(String name) {
+
+        return enabledFlags.contains(name);
+    }
+
+    /**
+     * Get a positive integer parameter.
+     *
+     * @param name         the parameter name
+     * @param defaultValue value used when the parameter is missing, invalid or not positive
+     * @return the parameter value
+     */
+    public long getLong(String name, long defaultValue) {
+
+        Long value = numbers.get(name);
+        if (value != null) {
+            return value > 0 ? value : defaultValue;
+        }
+        warnIfInvalid(name, defaultValue);
+        return defaultValue;
+    }
+
+    /**
+     * Get a decimal parameter.
+     *
+     * @param name         the parameter name
+     * @param defaultValue value used when the parameter is missing or invalid
+     * @return the parameter value
+     */
+    public double getDouble(String name, double defaultValue) {
+
+        Double value = decimals.get(name);
+        if (value != null) {
+            return value;
+        }
+        warnIfInvalid(name, defaultValue);
+        return defaultValue;
+    }
+
+    /**
+     * Get the version of the snapshot. Versions increase with each change of the configuration.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+
+        return version;
+    }
+
+    public boolean isMobileVerificationEnabled() {
+
+        return mobileVerificationEnabled;
+    }
+
+    public boolean isFederatedMobileAttributeEnabled() {
+
+        return federatedMobileAttributeEnabled;
+    }
+
+    public String getFederatedMobileAttributeKey() {
+
+        return federatedMobileAttributeKey;
+    }
+
+    public boolean isUsernameAsDuoIdentifier() {
+
+        return usernameAsDuoIdentifier;
+    }
+
+    /**
+     * Get the error page endpoint, relative to the server URL.
+     *
+     * @return the configured error page, or the default error page
+     */
+    public String getErrorPage() {
+
+        return errorPage;
+    }
+
+    /**
+     * Check whether any of the given parameters differ from another snapshot.
+     *
+     * @param other the other snapshot
+     * @param names the parameter names
+     * @return true if at least one of the parameters differs
+     */
+    public boolean differsIn(DuoConfig other, String... names) {
+
+        for (String name : names) {
+            if (!Objects.equals(get(name), other.get(name))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether a parameter map holds the parameters of this snapshot.
+     *
+     * @param candidate the parameter map
+     * @return true if the map holds the same parameters
+     */
+    boolean matches(Map<String, String> candidate) {
+
+        return candidate.size() == parameters.size() && candidate.equals(parameters);
+    }
+
+    private void warnIfInvalid(String name, Object defaultValue) {
+
+        String value = parameters.get(name);
+        if (StringUtils.isNotBlank(value)) {
+            log.warn("Invalid value " + value + " configured for " + name + ". Using the default value "
+                    + defaultValue);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.authentication.framework.config.builder.FileBasedConfigurationBuilder;
+import org.wso2.carbon.identity.application.authentication.framework.config.model.AuthenticatorConfig;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Publishes immutable {@link DuoConfig} snapshots of the authenticator parameters.
+ * <p>
+ * The parameters are kept by the authentication framework, and may be replaced or updated in place, for instance
+ * when the configuration of a tenant is loaded from the registry. Each access compares the identity of the
+ * parameters with the current snapshot, and parameters updated in place are compared in full once, by whoever
+ * updated them, without parsing them. A changed configuration is published as a new snapshot through a volatile
+ * reference, after which the registered {@link DuoConfigListener}s are notified. The last snapshot of each tenant
+ * is kept as well, so that logins alternating between tenants switch between their snapshots, and only a change of
+ * the configuration of a tenant is published. A login binds the snapshot it started with to its thread, so that it
+ * reads all its settings from one snapshot.
+ */
+public class DuoConfigManager {
+
+    private static final Log log = LogFactory.getLog(DuoConfigManager.class);
+    private static final DuoConfigManager instance = new DuoConfigManager();
+
+    private final List<DuoConfigListener> listeners = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<DuoConfig> boundConfig = new ThreadLocal<>();
+    private final Map<String, DuoConfig> tenantConfigs = new ConcurrentHashMap<>();
+    private volatile Snapshot current = new Snapshot(null, 0, DuoConfig.EMPTY);
+    private long version;
+
+    private DuoConfigManager() {
+
+    }
+
+    public static DuoConfigManager getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Get the snapshot of a parameter map. The parameters are compared with the current snapshot by identity and
+     * size only, so that an access does not go through them; a different map is compared in full, and a new snapshot
+     * is published if its parameters differ.
+     *
+     * @param parameters the authenticator parameters
+     * @return the snapshot
+     */
+    public DuoConfig getConfig(Map<String, String> parameters) {
+
+        if (parameters == null) {
+            return DuoConfig.EMPTY;
+        }
+        Snapshot snapshot = current;
+        if (snapshot.source == parameters && snapshot.sourceSize == parameters.size()) {
+            return snapshot.config;
+        }
+        return refresh(parameters);
+    }
+
+    /**
+     * Compare a parameter map with the current snapshot in full, publishing a new snapshot if the parameters changed.
+     * Used once parameters have been updated in place, which {@link #getConfig(Map)} does not look for.
+     *
+     * @param parameters the authenticator parameters
+     * @return the snapshot
+     */
+    public DuoConfig refresh(Map<String, String> parameters) {
+
+        return refresh(null, parameters);
+    }
+
+    /**
+     * Compare the parameters of a tenant, as loaded from the registry, with the current snapshot in full. Parameters
+     * matching the last snapshot of the tenant switch back to that snapshot, and a new snapshot is only published if
+     * the parameters of the tenant changed.
+     *
+     * @param tenantDomain the tenant domain, or null for the parameters of the deployment
+     * @param parameters   the authenticator parameters
+     * @return the snapshot
+     */
+    public DuoConfig refresh(String tenantDomain, Map<String, String> parameters) {
+
+        if (parameters == null) {
+            return DuoConfig.EMPTY;
+        }
+        Snapshot snapshot = current;
+        try {
+            int hash = parameters.hashCode();
+            if (snapshot.source == parameters && snapshot.sourceHash == hash
+                    && snapshot.sourceSize == parameters.size()) {
+                return snapshot.config;
+            }
+            DuoConfig tenantConfig = tenantDomain != null ? tenantConfigs.get(tenantDomain) : null;
+            if (tenantConfig != null && tenantConfig.matches(parameters)) {
+                current = new Snapshot(parameters, hash, tenantConfig);
+                return tenantConfig;
+            }
+            return publish(tenantDomain, parameters, hash);
+        } catch (ConcurrentModificationException e) {
+            // The parameters are being updated by another thread; the change is picked up by a later refresh.
+            return snapshot.config;
+        }
+    }
+
+    /**
+     * Get the snapshot of the authenticator parameters of the deployment configuration. Used by the services of
+     * the bundle, which run outside of a login.
+     *
+     * @return the snapshot
+     */
+    public DuoConfig getDeploymentConfig() {
+
+        AuthenticatorConfig authenticatorConfig = FileBasedConfigurationBuilder.getInstance()
+                .getAuthenticatorBean(DuoAuthenticatorConstants.AUTHENTICATOR_NAME);
+        return getConfig(authenticatorConfig != null ? authenticatorConfig.getParameterMap() : null);
+    }
+
+    /**
+     * Bind a snapshot to the current thread for the rest of a login request.
+     *
+     * @param config the snapshot
+     */
+    public void bind(DuoConfig config) {
+
+        boundConfig.set(config);
+    }
+
+    /**
+     * Get the snapshot bound to the current thread.
+     *
+     * @return the snapshot, or null if none is bound
+     */
+    public DuoConfig getBoundConfig() {
+
+        return boundConfig.get();
+    }
+
+    /**
+     * Release the snapshot bound to the current thread.
+     */
+    public void unbind() {
+
+        boundConfig.remove();
+    }
+
+    public void addListener(DuoConfigListener listener) {
+
+        listeners.add(listener);
+    }
+
+    public void removeListener(DuoConfigListener listener) {
+
+        listeners.remove(listener);
+    }
+
+    /**
+     * Forget the current snapshot, the snapshots of the tenants and the listeners.
+     */
+    public synchronized void clear() {
+
+        listeners.clear();
+        tenantConfigs.clear();
+        current = new Snapshot(null, 0, DuoConfig.EMPTY);
+        version = 0;
+    }
+
+    private synchronized DuoConfig publish(String tenantDomain, Map<String, String> parameters, int hash) {
+
+        // A tenant is compared with its own last snapshot, and a tenant seen for the first time with the current one.
+        DuoConfig previous = tenantDomain != null ? tenantConfigs.get(tenantDomain) : null;
+        if (previous == null) {
+            previous = current.config;
+        }
+        if (previous.matches(parameters)) {
+            // The same parameters in another map, or of another tenant; only the source changed.
+            current = new Snapshot(parameters, hash, previous);
+            putTenantConfig(tenantDomain, previous);
+            return previous;
+        }
+        DuoConfig config = new DuoConfig(parameters, ++version);
+        current = new Snapshot(parameters, hash, config);
+        putTenantConfig(tenantDomain, config);
+        if (log.isDebugEnabled()) {
+            log.debug("Published version " + config.getVersion() + " of the Duo authenticator configuration"
+                    + (tenantDomain != null ? " of the tenant " + tenantDomain : ""));
+        }
+        for (DuoConfigListener listener : listeners) {
+            try {
+                listener.onConfigChange(previous, config);
+            } catch (RuntimeException e) {
+                log.error("Error while applying a change of the Duo authenticator configuration", e);
+            }
+        }
+        return config;
+    }
+
+    private void putTenantConfig(String tenantDomain, DuoConfig config) {
+
+        if (tenantDomain == null) {
+            return;
+        }
+        if (tenantConfigs.size() >= DuoAuthenticatorConstants.ConfigSnapshots.MAX_TENANTS
+                && !tenantConfigs.containsKey(tenantDomain)) {
+            // A tenant whose snapshot was dropped is compared with the current snapshot on its next load.
+            tenantConfigs.clear();
+        }
+        tenantConfigs.put(tenantDomain, config);
+    }
+
+    private static final class Snapshot {
+
+        private final Map<String, String> source;
+        private final int sourceHash;
+        private final int sourceSize;
+        private final DuoConfig config;
+
+        private Snapshot(Map<String, String> source, int sourceHash, DuoConfig config) {
+
+            this.source = source;
+            this.sourceHash = sourceHash;
+            this.sourceSize = source == null ? -1 : source.size();
+            this.config = config;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.crypto;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the cryptographic primitives of the authenticator for reuse across logins: one {@link DuoHmacAlgorithm}
+ * per client secret, one id_token {@link JWTVerifier} per client and host, and one SHA-256 {@link MessageDigest} per
+ * thread.
+ */
+public class DuoCryptoCache {
+
+    private static final DuoCryptoCache instance = new DuoCryptoCache();
+    private static final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance(DuoAuthenticatorConstants.Crypto.SHA256);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by the JVM", e);
+        }
+    });
+
+    private final ConcurrentMap<String, DuoHmacAlgorithm> hmacAlgorithms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, JWTVerifier> tokenVerifiers = new ConcurrentHashMap<>();
+
+    private DuoCryptoCache() {
+
+    }
+
+    public static DuoCryptoCache getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Get the HMAC SHA-512 algorithm of a client secret.
+     *
+     * @param secret the client secret
+     * @return the algorithm
+     */
+    public DuoHmacAlgorithm getHmacAlgorithm(String secret) {
+
+        DuoHmacAlgorithm algorithm = hmacAlgorithms.get(secret);
+        if (algorithm != null) {
+            return algorithm;
+        }
+        if (hmacAlgorithms.size() >= DuoAuthenticatorConstants.Crypto.MAX_CACHED_KEYS) {
+            // Secrets only change when identity providers are reconfigured, so starting over is rare.
+            hmacAlgorithms.clear();
+        }
+        return hmacAlgorithms.computeIfAbsent(secret, DuoHmacAlgorithm::new);
+    }
+
+    /**
+     * Get a validator of the Duo id_token of a login.
+     *
+     * @param clientId     the client ID
+     * @param clientSecret the client secret
+     * @param host         the Duo API host the login was initiated against
+     * @param username     the Duo username of the login
+     * @return the validator
+     */
+    public DuoTokenValidator getTokenValidator(String clientId, String clientSecret, String host, String username) {
+
+        String key = clientId + '\u0000' + host + '\u0000' + clientSecret;
+        JWTVerifier verifier = tokenVerifiers.get(key);
+        if (verifier == null) {
+            if (tokenVerifiers.size() >= DuoAuthenticatorConstants.Crypto.MAX_CACHED_KEYS) {
+                tokenVerifiers.clear();
+            }
+            verifier = tokenVerifiers.computeIfAbsent(key, k -> JWT.require(getHmacAlgorithm(clientSecret))
+                    .withIssuer(String.format(DuoAuthenticatorConstants.Crypto.ISSUER_FORMAT, host))
+                    .withAudience(clientId)
+                    .acceptLeeway(DuoAuthenticatorConstants.Crypto.TOKEN_LEEWAY_SECONDS)
+                    .build());
+        }
+        return new DuoTokenValidator(verifier, username);
+    }
+
+    /**
+     * Get the SHA-256 digest of the current thread, reset. The digest must not be used after the thread calls this
+     * method again.
+     *
+     * @return the digest
+     */
+    public static MessageDigest getSha256() {
+
+        MessageDigest digest = sha256.get();
+        digest.reset();
+        return digest;
+    }
+
+    /**
+     * Forget the cached keys.
+     */
+    public void clear() {
+
+        hmacAlgorithms.clear();
+        tokenVerifiers.clear();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.crypto;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureGenerationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * HMAC SHA-512 JWT algorithm with a precomputed key and one initialized {@link Mac} per thread.
+ * <p>
+ * The algorithm of the JWT library looks up a new {@link Mac} and derives the key schedule for every token. This
+ * algorithm does both once per thread and client secret, as {@link Mac#doFinal()} leaves the {@link Mac} ready for
+ * the next token with the same key.
+ */
+public class DuoHmacAlgorithm extends Algorithm {
+
+    private static final byte JWT_PART_SEPARATOR = (byte) '.';
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac;
+
+    public DuoHmacAlgorithm(String secret) {
+
+        super(DuoAuthenticatorConstants.Crypto.JWT_ALGORITHM, DuoAuthenticatorConstants.Crypto.HMAC_SHA512);
+        if (secret == null) {
+            throw new IllegalArgumentException("The secret cannot be null");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8),
+                DuoAuthenticatorConstants.Crypto.HMAC_SHA512);
+        this.mac = ThreadLocal.withInitial(this::createMac);
+    }
+
+    @Override
+    public void verify(DecodedJWT jwt) throws SignatureVerificationException {
+
+        try {
+            byte[] signature = Base64.getUrlDecoder().decode(jwt.getSignature());
+            if (!MessageDigest.isEqual(sign(jwt.getHeader(), jwt.getPayload()), signature)) {
+                throw new SignatureVerificationException(this);
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new SignatureVerificationException(this, e);
+        }
+    }
+
+    @Override
+    public byte[] sign(byte[] headerBytes, byte[] payloadBytes) throws SignatureGenerationException {
+
+        try {
+            Mac threadMac = mac.get();
+            threadMac.update(headerBytes);
+            threadMac.update(JWT_PART_SEPARATOR);
+            threadMac.update(payloadBytes);
+            return threadMac.doFinal();
+        } catch (IllegalStateException e) {
+            throw new SignatureGenerationException(this, e);
+        }
+    }
+
+    @Override
+    public byte[] sign(byte[] contentBytes) throws SignatureGenerationException {
+
+        try {
+            return mac.get().doFinal(contentBytes);
+        } catch (IllegalStateException e) {
+            throw new SignatureGenerationException(this, e);
+        }
+    }
+
+    private byte[] sign(String header, String payload) {
+
+        Mac threadMac = mac.get();
+        updateAscii(threadMac, header);
+        threadMac.update(JWT_PART_SEPARATOR);
+        updateAscii(threadMac, payload);
+        return threadMac.doFinal();
+    }
+
+    private static void updateAscii(Mac mac, String value) {
+
+        // The parts of a JWT are base64url encoded, so every character is a single byte.
+        for (int i = 0; i < value.length(); i++) {
+            mac.update((byte) value.charAt(i));
+        }
+    }
+
+    private Mac createMac() {
+
+        try {
+            Mac created = Mac.getInstance(DuoAuthenticatorConstants.Crypto.HMAC_SHA512);
+            created.init(key);
+            return created;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC SHA-512 is not supported by the JVM", e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.crypto;
+
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.duosecurity.TokenValidator;
+import com.duosecurity.exception.DuoException;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+
+/**
+ * Validates the Duo id_token of a login, applying the same checks as the validator of the Duo Universal SDK.
+ * <p>
+ * The signature, issuer, audience and time claims are checked by the cached {@link JWTVerifier} of the client, which
+ * holds the parser and the {@link DuoHmacAlgorithm} of the client. Only the username claim is checked per login.
+ */
+public class DuoTokenValidator implements TokenValidator {
+
+    private final JWTVerifier verifier;
+    private final String username;
+
+    public DuoTokenValidator(JWTVerifier verifier, String username) {
+
+        this.verifier = verifier;
+        this.username = username;
+    }
+
+    @Override
+    public DecodedJWT validateAndDecode(String token) throws DuoException {
+
+        if (token == null) {
+            throw new DuoException("ID Token verification failed: Null token");
+        }
+        DecodedJWT decodedToken;
+        try {
+            decodedToken = verifier.verify(token);
+        } catch (JWTVerificationException e) {
+            throw new DuoException("ID Token verification failed", e);
+        }
+        if (username == null || !username.equals(
+                decodedToken.getClaim(DuoAuthenticatorConstants.Crypto.USERNAME_CLAIM).asString())) {
+            throw new DuoException("ID Token verification failed: The token was not issued for the user");
+        }
+        return decodedToken;
+    }
+}
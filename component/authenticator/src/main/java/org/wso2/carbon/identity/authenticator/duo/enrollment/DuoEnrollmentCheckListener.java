@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.enrollment;
+
+/**
+ * Receives the results of a Duo enrollment check as the users are checked.
+ */
+@FunctionalInterface
+public interface DuoEnrollmentCheckListener {
+
+    /**
+     * Called once per checked user. Calls are not concurrent, but may come from different threads.
+     *
+     * @param result the result of the user
+     */
+    void onResult(DuoEnrollmentCheckResult result);
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.enrollment;
+
+/**
+ * The outcome of the Duo enrollment check of one user.
+ */
+public class DuoEnrollmentCheckResult {
+
+    /**
+     * Enrollment status of a user. Each status other than {@link #ENROLLED} and {@link #FAILED} is the reason the
+     * mobile verification of a login of the user would fail.
+     */
+    public enum Status {
+
+        /**
+         * The user is enrolled and one of the Duo phones matches the mobile number.
+         */
+        ENROLLED,
+
+        /**
+         * The user is not enrolled in Duo.
+         */
+        NOT_ENROLLED,
+
+        /**
+         * The user has no mobile number.
+         */
+        MOBILE_CLAIM_NOT_FOUND,
+
+        /**
+         * The user has no phone in Duo.
+         */
+        MOBILE_NUMBER_NOT_FOUND,
+
+        /**
+         * None of the Duo phones of the user matches the mobile number.
+         */
+        NUMBER_MISMATCH,
+
+        /**
+         * The user could not be checked.
+         */
+        FAILED
+    }
+
+    private final DuoEnrollmentCheckUser user;
+    private final String duoUsername;
+    private final Status status;
+    private final String message;
+
+    public DuoEnrollmentCheckResult(DuoEnrollmentCheckUser user, String duoUsername, Status status, String message) {
+
+        this.user = user;
+        this.duoUsername = duoUsername;
+        this.status = status;
+        this.message = message;
+    }
+
+    public DuoEnrollmentCheckUser getUser() {
+
+        return user;
+    }
+
+    /**
+     * Get the identifier the user is looked up by in Duo.
+     *
+     * @return the Duo username, or null if it could not be derived
+     */
+    public String getDuoUsername() {
+
+        return duoUsername;
+    }
+
+    public Status getStatus() {
+
+        return status;
+    }
+
+    /**
+     * Get the reason a check failed.
+     *
+     * @return the reason, or null unless the status is {@link Status#FAILED}
+     */
+    public String getMessage() {
+
+        return message;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.enrollment;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Checks ahead of logins whether users are enrolled in Duo and whether their Duo phones match their mobile numbers,
+ * so that the users who would fail the mobile verification can be fixed in advance.
+ */
+public interface DuoEnrollmentCheckService {
+
+    /**
+     * Check a stream of users against the Admin integration of a Duo identity provider. Users are checked in
+     * parallel and their results are passed to the listener as soon as they are known, in completion order. The
+     * method returns once every user has been checked.
+     *
+     * @param authenticatorProperties the authenticator properties of the Duo identity provider
+     * @param users                   the users to check
+     * @param listener                the listener of the results
+     * @return the number of users per status
+     * @throws DuoEnrollmentCheckException if the Admin integration is not configured, the Duo users could not be
+     *                                     paged through or the check was interrupted
+     */
+    Map<DuoEnrollmentCheckResult.Status, Integer> check(Map<String, String> authenticatorProperties,
+                                                        Iterator<DuoEnrollmentCheckUser> users,
+                                                        DuoEnrollmentCheckListener listener)
+            throws DuoEnrollmentCheckException;
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.enrollment;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONArray;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+import org.wso2.carbon.identity.authenticator.duo.internal.DuoServiceHolder;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiter;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiterRegistry;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostRouter;
+import org.wso2.carbon.identity.authenticator.duo.sync.AdminApiUserLookup;
+import org.wso2.carbon.identity.authenticator.duo.sync.AdminApiUserPageFetcher;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserIndex;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserLookup;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserPageFetcher;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserSyncEngine;
+import org.wso2.carbon.identity.authenticator.duo.util.DuoPhoneNumberUtil;
+import org.wso2.carbon.identity.authenticator.duo.util.DuoUserIdentifierUtil;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.user.api.UserRealm;
+import org.wso2.carbon.user.api.UserStoreException;
+import org.wso2.carbon.user.core.UserStoreManager;
+import org.wso2.carbon.user.core.service.RealmService;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Checks users for Duo enrollment with the same identifier and phone matching as the mobile verification of a
+ * login.
+ * <p>
+ * The Duo users are read from the synchronized user index of the Admin integration when there is one. Otherwise, in
+ * the <code>directory</code> mode, the Duo users are paged through once and indexed for the check, and in the
+ * <code>lookup</code> mode every user is looked up on its own. As during a login, users missing from a synchronized
+ * index or without a matching number in it are looked up, since the index may be behind Duo. Admin API calls go
+ * through the {@link DuoRateLimiter} of the integration.
+ */
+public class DuoEnrollmentCheckServiceImpl implements DuoEnrollmentCheckService {
+
+    private static final Log log = LogFactory.getLog(DuoEnrollmentCheckServiceImpl.class);
+
+    @Override
+    public Map<DuoEnrollmentCheckResult.Status, Integer> check(Map<String, String> authenticatorProperties,
+                                                               Iterator<DuoEnrollmentCheckUser> users,
+                                                               DuoEnrollmentCheckListener listener)
+            throws DuoEnrollmentCheckException {
+
+        String host = authenticatorProperties.get(DuoAuthenticatorConstants.HOST);
+        String adminIntegrationKey = authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_IKEY);
+        String adminSecretKey = authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_SKEY);
+        if (StringUtils.isEmpty(host) || StringUtils.isEmpty(adminIntegrationKey)
+                || StringUtils.isEmpty(adminSecretKey)) {
+            throw new DuoEnrollmentCheckException("The Duo API host and the Admin integration keys are required to " +
+                    "check Duo enrollments");
+        }
+        DuoConfig duoConfig = getConfig();
+        Check check = new Check(duoConfig, authenticatorProperties, DuoRateLimiterRegistry.getInstance()
+                .getRateLimiter(host, adminIntegrationKey, duoConfig), createUserLookup(host, adminIntegrationKey,
+                adminSecretKey));
+        int pageSize = (int) duoConfig.getLong(DuoAuthenticatorConstants.UserSync.SYNC_PAGE_SIZE,
+                DuoAuthenticatorConstants.UserSync.DEFAULT_SYNC_PAGE_SIZE);
+        check.index = DuoUserSyncEngine.getInstance().getIndex(host, adminIntegrationKey);
+        if (check.index == null && !DuoAuthenticatorConstants.EnrollmentCheck.LOOKUP_MODE.equalsIgnoreCase(
+                duoConfig.get(DuoAuthenticatorConstants.EnrollmentCheck.CHECK_MODE))) {
+            DuoUserPageFetcher fetcher = createPageFetcher(host, adminIntegrationKey, adminSecretKey);
+            try {
+                check.index = DuoUserSyncEngine.buildIndex((offset, limit) -> check.rateLimiter.execute(
+                        () -> fetcher.fetchUsers(offset, limit)), pageSize);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DuoEnrollmentCheckException("Interrupted while paging through the Duo users", e);
+            } catch (Exception e) {
+                throw new DuoEnrollmentCheckException("Error while paging through the Duo users", e);
+            }
+            check.complete = true;
+            if (log.isDebugEnabled()) {
+                log.debug("Paged through " + check.index.size() + " Duo users of the integration "
+                        + adminIntegrationKey + " for the enrollment check");
+            }
+        }
+
+        Map<DuoEnrollmentCheckResult.Status, Integer> counts = new EnumMap<>(DuoEnrollmentCheckResult.Status.class);
+        // Users are read from the stream only as fast as they are checked, a page at a time.
+        Semaphore inFlight = new Semaphore(pageSize);
+        int parallelism = (int) duoConfig.getLong(DuoAuthenticatorConstants.EnrollmentCheck.PARALLELISM,
+                DuoAuthenticatorConstants.EnrollmentCheck.DEFAULT_PARALLELISM);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, DuoAuthenticatorConstants.EnrollmentCheck.THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (users.hasNext()) {
+                DuoEnrollmentCheckUser user = users.next();
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        publish(check.checkUser(user), counts, listener);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            inFlight.acquire(pageSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DuoEnrollmentCheckException("Interrupted while checking Duo enrollments", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        synchronized (counts) {
+            return Collections.unmodifiableMap(new EnumMap<>(counts));
+        }
+    }
+
+    /**
+     * Get the configuration of the authenticator.
+     *
+     * @return the configuration snapshot
+     */
+    protected DuoConfig getConfig() {
+
+        return DuoConfigManager.getInstance().getDeploymentConfig();
+    }
+
+    /**
+     * Create the fetcher of the Duo user pages of an Admin integration.
+     *
+     * @param host                the Duo API host
+     * @param adminIntegrationKey the Admin integration key
+     * @param adminSecretKey      the Admin secret key
+     * @return the fetcher
+     */
+    protected DuoUserPageFetcher createPageFetcher(String host, String adminIntegrationKey, String adminSecretKey) {
+
+        return new AdminApiUserPageFetcher(host, adminIntegrationKey, adminSecretKey);
+    }
+
+    /**
+     * Create the lookup of single Duo users of an Admin integration.
+     *
+     * @param host                the Duo API host
+     * @param adminIntegrationKey the Admin integration key
+     * @param adminSecretKey      the Admin secret key
+     * @return the lookup
+     */
+    protected DuoUserLookup createUserLookup(String host, String adminIntegrationKey, String adminSecretKey) {
+
+        return new AdminApiUserLookup(DuoHostRouter.getInstance().getPool(host), adminIntegrationKey,
+                adminSecretKey);
+    }
+
+    private void publish(DuoEnrollmentCheckResult result, Map<DuoEnrollmentCheckResult.Status, Integer> counts,
+                         DuoEnrollmentCheckListener listener) {
+
+        DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.ENROLLMENT_CHECK_PREFIX
+                + result.getStatus().name().toLowerCase());
+        synchronized (counts) {
+            counts.merge(result.getStatus(), 1, Integer::sum);
+            try {
+                listener.onResult(result);
+            } catch (RuntimeException e) {
+                log.warn("Error in the listener of the Duo enrollment check", e);
+            }
+        }
+    }
+
+    /**
+     * State of one enrollment check.
+     */
+    private static class Check {
+
+        private final DuoConfig duoConfig;
+        private final Map<String, String> authenticatorProperties;
+        private final DuoRateLimiter rateLimiter;
+        private final DuoUserLookup userLookup;
+        private DuoUserIndex index;
+        private boolean complete;
+
+        Check(DuoConfig duoConfig, Map<String, String> authenticatorProperties, DuoRateLimiter rateLimiter,
+              DuoUserLookup userLookup) {
+
+            this.duoConfig = duoConfig;
+            this.authenticatorProperties = authenticatorProperties;
+            this.rateLimiter = rateLimiter;
+            this.userLookup = userLookup;
+        }
+
+        DuoEnrollmentCheckResult checkUser(DuoEnrollmentCheckUser user) {
+
+            String duoUsername = duoConfig.isUsernameAsDuoIdentifier()
+                    ? DuoUserIdentifierUtil.getDuoUsername(user.getUserName(), user.getTenantDomain(),
+                    user.getUserStoreDomain(), authenticatorProperties)
+                    : user.getUserId();
+            if (StringUtils.isEmpty(duoUsername)) {
+                return new DuoEnrollmentCheckResult(user, null, DuoEnrollmentCheckResult.Status.FAILED,
+                        "User id not found for the user");
+            }
+            try {
+                return new DuoEnrollmentCheckResult(user, duoUsername, getStatus(user, duoUsername), null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new DuoEnrollmentCheckResult(user, duoUsername, DuoEnrollmentCheckResult.Status.FAILED,
+                        "Interrupted while checking the user");
+            } catch (UserStoreException e) {
+                log.error(DuoAuthenticatorConstants.DuoErrors.ERROR_USER_STORE, e);
+                return new DuoEnrollmentCheckResult(user, duoUsername, DuoEnrollmentCheckResult.Status.FAILED,
+                        DuoAuthenticatorConstants.DuoErrors.ERROR_USER_STORE);
+            } catch (Exception e) {
+                log.error(DuoAuthenticatorConstants.DuoErrors.ERROR_EXECUTE_REQUEST, e);
+                return new DuoEnrollmentCheckResult(user, duoUsername, DuoEnrollmentCheckResult.Status.FAILED,
+                        DuoAuthenticatorConstants.DuoErrors.ERROR_EXECUTE_REQUEST);
+            }
+        }
+
+        private DuoEnrollmentCheckResult.Status getStatus(DuoEnrollmentCheckUser user, String duoUsername)
+                throws Exception {
+
+            String mobile = null;
+            boolean normalized = duoConfig.isEnabled(DuoAuthenticatorConstants.ENABLE_PHONE_NUMBER_NORMALIZATION);
+            int position = index == null ? -1 : index.indexOf(duoUsername);
+            if (position >= 0) {
+                mobile = getMobile(user);
+                if (StringUtils.isEmpty(mobile)) {
+                    return DuoEnrollmentCheckResult.Status.MOBILE_CLAIM_NOT_FOUND;
+                }
+                if (index.hasPhoneNumber(position, mobile, normalized)) {
+                    return DuoEnrollmentCheckResult.Status.ENROLLED;
+                }
+                if (complete) {
+                    return index.getPhoneCount(position) == 0
+                            ? DuoEnrollmentCheckResult.Status.MOBILE_NUMBER_NOT_FOUND
+                            : DuoEnrollmentCheckResult.Status.NUMBER_MISMATCH;
+                }
+            } else if (complete) {
+                return DuoEnrollmentCheckResult.Status.NOT_ENROLLED;
+            }
+
+            DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.ENROLLMENT_LOOKUPS);
+            JSONArray userInfo = rateLimiter.execute(() -> userLookup.lookupUser(duoUsername));
+            if (userInfo.length() == 0) {
+                return DuoEnrollmentCheckResult.Status.NOT_ENROLLED;
+            }
+            if (mobile == null) {
+                mobile = getMobile(user);
+                if (StringUtils.isEmpty(mobile)) {
+                    return DuoEnrollmentCheckResult.Status.MOBILE_CLAIM_NOT_FOUND;
+                }
+            }
+            JSONArray phoneArray = userInfo.getJSONObject(0).getJSONArray(DuoAuthenticatorConstants.DUO_PHONES);
+            if (phoneArray.length() == 0) {
+                return DuoEnrollmentCheckResult.Status.MOBILE_NUMBER_NOT_FOUND;
+            }
+            return DuoPhoneNumberUtil.matchesAny(phoneArray, mobile, normalized)
+                    ? DuoEnrollmentCheckResult.Status.ENROLLED
+                    : DuoEnrollmentCheckResult.Status.NUMBER_MISMATCH;
+        }
+
+        /**
+         * Get the mobile number of a user, reading the mobile claim from the user store unless it was given.
+         */
+        private String getMobile(DuoEnrollmentCheckUser user) throws UserStoreException {
+
+            if (StringUtils.isNotEmpty(user.getMobile())) {
+                return user.getMobile();
+            }
+            RealmService realmService = DuoServiceHolder.getInstance().getRealmService();
+            if (realmService == null) {
+                throw new UserStoreException("The realm service is not available");
+            }
+            int tenantId = IdentityTenantUtil.getTenantId(user.getTenantDomain());
+            UserRealm userRealm = realmService.getTenantUserRealm(tenantId);
+            if (userRealm == null) {
+                throw new UserStoreException("Cannot find the user realm for the given tenant: " + tenantId);
+            }
+            UserStoreManager userStoreManager = (UserStoreManager) userRealm.getUserStoreManager();
+            return userStoreManager.getUserClaimValue(IdentityUtil.addDomainToName(user.getUserName(),
+                    user.getUserStoreDomain()), DuoAuthenticatorConstants.MOBILE_CLAIM, null);
+        }
+    }
+}
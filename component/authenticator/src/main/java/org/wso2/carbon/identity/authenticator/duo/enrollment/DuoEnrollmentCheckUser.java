@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.enrollment;
+
+/**
+ * A user to check for Duo enrollment.
+ */
+public class DuoEnrollmentCheckUser {
+
+    private final String userName;
+    private final String tenantDomain;
+    private final String userStoreDomain;
+    private final String userId;
+    private final String mobile;
+
+    /**
+     * Create a user to check.
+     *
+     * @param userName        the username, without domains
+     * @param tenantDomain    the tenant domain of the user
+     * @param userStoreDomain the user store domain of the user
+     * @param userId          the user id, needed unless the username is used as the Duo identifier
+     * @param mobile          the mobile number of the user, or null to read the mobile claim from the user store
+     */
+    public DuoEnrollmentCheckUser(String userName, String tenantDomain, String userStoreDomain, String userId,
+                                  String mobile) {
+
+        this.userName = userName;
+        this.tenantDomain = tenantDomain;
+        this.userStoreDomain = userStoreDomain;
+        this.userId = userId;
+        this.mobile = mobile;
+    }
+
+    public String getUserName() {
+
+        return userName;
+    }
+
+    public String getTenantDomain() {
+
+        return tenantDomain;
+    }
+
+    public String getUserStoreDomain() {
+
+        return userStoreDomain;
+    }
+
+    public String getUserId() {
+
+        return userId;
+    }
+
+    public String getMobile() {
+
+        return mobile;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.event;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Publishes the {@link DuoAuthEvent}s of the authenticator to the audit log through a {@link DuoEventPipeline}.
+ */
+public class DuoAuditEventPublisher {
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+    private static final DuoAuditEventPublisher instance = new DuoAuditEventPublisher();
+
+    private volatile Path logDirectory;
+    private volatile DuoEventPipeline<DuoAuthEvent> pipeline;
+    private volatile List<Object> settings;
+
+    private DuoAuditEventPublisher() {
+
+    }
+
+    public static DuoAuditEventPublisher getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Set the directory of the audit log. Events are not recorded until the directory is set.
+     *
+     * @param logDirectory the log directory
+     */
+    public void setLogDirectory(Path logDirectory) {
+
+        this.logDirectory = logDirectory;
+    }
+
+    /**
+     * Configure the pipeline of the audit events, replacing the running pipeline when the settings changed.
+     *
+     * @param capacity            capacity of the ring buffer
+     * @param batchSize           maximum number of events written at once
+     * @param flushIntervalMillis maximum time an event waits in the buffer while the consumer is idle
+     * @param overflowPolicy      what a login thread does when the buffer is full
+     * @param maxBlockMillis      maximum time a login thread waits for a free slot
+     */
+    public void configure(int capacity, int batchSize, long flushIntervalMillis,
+                          DuoEventPipeline.OverflowPolicy overflowPolicy, long maxBlockMillis) {
+
+        List<Object> requested = Arrays.asList(capacity, batchSize, flushIntervalMillis, overflowPolicy,
+                maxBlockMillis);
+        if (pipeline != null && requested.equals(settings)) {
+            return;
+        }
+        synchronized (this) {
+            Path directory = logDirectory;
+            if (directory == null || (pipeline != null && requested.equals(settings))) {
+                return;
+            }
+            DuoEventPipeline<DuoAuthEvent> previous = pipeline;
+            pipeline = new DuoEventPipeline<>(DuoAuthenticatorConstants.AuditEvents.PIPELINE_NAME,
+                    new JsonLinesFileSink<>(directory.resolve(DuoAuthenticatorConstants.AuditEvents.LOG_FILE),
+                            DuoAuthEvent::toJson, DuoAuthenticatorConstants.AuditEvents.LOG_FILE_MAX_BYTES,
+                            DuoAuthenticatorConstants.AuditEvents.LOG_FILE_BACKUPS),
+                    capacity, batchSize, flushIntervalMillis, overflowPolicy, maxBlockMillis);
+            settings = requested;
+            if (previous != null) {
+                previous.shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Publish an event without waiting for it to be written.
+     *
+     * @param event the event
+     */
+    public void publish(DuoAuthEvent event) {
+
+        DuoEventPipeline<DuoAuthEvent> current = pipeline;
+        if (current != null) {
+            current.publish(event);
+        }
+    }
+
+    /**
+     * Write the pending events and stop the pipeline.
+     */
+    public synchronized void shutdown() {
+
+        if (pipeline != null) {
+            pipeline.shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+            pipeline = null;
+            settings = null;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.event;
+
+import org.json.JSONObject;
+
+/**
+ * The outcome of a Duo authentication, recorded for auditing.
+ */
+public class DuoAuthEvent {
+
+    /**
+     * Outcomes of a Duo authentication.
+     */
+    public enum Outcome {
+        SUCCESS,
+        TRUSTED_SESSION,
+        PREAUTH_ALLOW,
+        ACCESS_DENIED,
+        USER_NOT_REGISTERED,
+        NUMBER_MISMATCH,
+        MOBILE_NUMBER_NOT_FOUND,
+        MOBILE_CLAIM_NOT_FOUND,
+        VERIFIED_USER_NOT_FOUND,
+        SERVICE_BUSY,
+        ERROR
+    }
+
+    private final long timestamp;
+    private final Outcome outcome;
+    private final String tenantDomain;
+    private final String serviceProvider;
+    private final String username;
+    private final String duoUserId;
+    private final String statusMessage;
+    private final String factor;
+
+    private DuoAuthEvent(Builder builder) {
+
+        this.timestamp = builder.timestamp;
+        this.outcome = builder.outcome;
+        this.tenantDomain = builder.tenantDomain;
+        this.serviceProvider = builder.serviceProvider;
+        this.username = builder.username;
+        this.duoUserId = builder.duoUserId;
+        this.statusMessage = builder.statusMessage;
+        this.factor = builder.factor;
+    }
+
+    public long getTimestamp() {
+
+        return timestamp;
+    }
+
+    public Outcome getOutcome() {
+
+        return outcome;
+    }
+
+    public String getTenantDomain() {
+
+        return tenantDomain;
+    }
+
+    public String getServiceProvider() {
+
+        return serviceProvider;
+    }
+
+    public String getUsername() {
+
+        return username;
+    }
+
+    public String getDuoUserId() {
+
+        return duoUserId;
+    }
+
+    public String getStatusMessage() {
+
+        return statusMessage;
+    }
+
+    public String getFactor() {
+
+        return factor;
+    }
+
+    /**
+     * Format the event as a single line of JSON. Fields without a value are left out.
+     *
+     * @return the JSON representation of the event
+     */
+    public String toJson() {
+
+        JSONObject json = new JSONObject();
+        json.put("timestamp", timestamp);
+        json.put("outcome", outcome.name());
+        json.put("tenantDomain", tenantDomain);
+        json.put("serviceProvider", serviceProvider);
+        json.put("username", username);
+        json.put("duoUserId", duoUserId);
+        json.put("statusMessage", statusMessage);
+        json.put("factor", factor);
+        return json.toString();
+    }
+
+    /**
+     * Builder of {@link DuoAuthEvent}s.
+     */
+    public static class Builder {
+
+        private final Outcome outcome;
+        private long timestamp = System.currentTimeMillis();
+        private String tenantDomain;
+        private String serviceProvider;
+        private String username;
+        private String duoUserId;
+        private String statusMessage;
+        private String factor;
+
+        public Builder(Outcome outcome) {
+
+            this.outcome = outcome;
+        }
+
+        public Builder timestamp(long timestamp) {
+
+            this.timestamp = timestamp;
+            return this;
+        }
+
+        public Builder tenantDomain(String tenantDomain) {
+
+            this.tenantDomain = tenantDomain;
+            return this;
+        }
+
+        public Builder serviceProvider(String serviceProvider) {
+
+            this.serviceProvider = serviceProvider;
+            return this;
+        }
+
+        public Builder username(String username) {
+
+            this.username = username;
+            return this;
+        }
+
+        public Builder duoUserId(String duoUserId) {
+
+            this.duoUserId = duoUserId;
+            return this;
+        }
+
+        public Builder statusMessage(String statusMessage) {
+
+            this.statusMessage = statusMessage;
+            return this;
+        }
+
+        public Builder factor(String factor) {
+
+            this.factor = factor;
+            return this;
+        }
+
+        public DuoAuthEvent build() {
+
+            return new DuoAuthEvent(this);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.event;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves events off the login threads. Events are published to a bounded, lock-free ring buffer and written to a
+ * {@link DuoEventSink} in batches by a single consumer thread, which flushes whenever a batch fills up and at least
+ * once per flush interval.
+ * <p>
+ * The ring buffer follows the bounded queue design of Dmitry Vyukov: each slot carries a sequence number telling
+ * producers when the slot is free and the consumer when it has been filled, so producers only contend on a single
+ * compare-and-set of the tail. When the buffer is full, events are either dropped straight away or the producer
+ * waits for a bounded time for the consumer to free a slot, depending on the {@link OverflowPolicy}.
+ *
+ * @param <T> type of the events
+ */
+public class DuoEventPipeline<T> {
+
+    private static final Log log = LogFactory.getLog(DuoEventPipeline.class);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * What a producer does when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * Drop the event.
+         */
+        DROP,
+
+        /**
+         * Wait up to the maximum block time for a free slot, then drop the event.
+         */
+        BLOCK
+    }
+
+    private final String name;
+    private final DuoEventSink<T> sink;
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final long maxBlockNanos;
+    private final String metricPrefix;
+    private final Thread consumer;
+    private volatile long head;
+    private volatile boolean running = true;
+
+    /**
+     * Create a pipeline and start its consumer thread.
+     *
+     * @param name                name of the pipeline, used for the consumer thread and the metrics
+     * @param sink                destination of the events
+     * @param capacity            capacity of the ring buffer, rounded up to a power of two of at least two
+     * @param batchSize           maximum number of events written to the sink at once
+     * @param flushIntervalMillis maximum time an event waits in the buffer while the consumer is idle
+     * @param overflowPolicy      what a producer does when the buffer is full
+     * @param maxBlockMillis      maximum time a producer waits for a free slot under {@link OverflowPolicy#BLOCK}
+     */
+    public DuoEventPipeline(String name, DuoEventSink<T> sink, int capacity, int batchSize, long flushIntervalMillis,
+                            OverflowPolicy overflowPolicy, long maxBlockMillis) {
+
+        if (capacity <= 0 || batchSize <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Capacity, batch size and flush interval of the event pipeline "
+                    + name + " should be positive");
+        }
+        this.name = name;
+        this.sink = sink;
+        // The sequence numbers cannot tell a full slot from a free one with a single slot.
+        this.capacity = Integer.highestOneBit(Math.min(Math.max(capacity, 2), 1 << 30) - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.overflowPolicy = overflowPolicy;
+        this.maxBlockNanos = TimeUnit.MILLISECONDS.toNanos(maxBlockMillis);
+        this.metricPrefix = DuoAuthenticatorConstants.Metrics.EVENTS_PREFIX + name;
+        DuoMetrics.getInstance().registerGauge(metricPrefix + DuoAuthenticatorConstants.Metrics.QUEUE_DEPTH,
+                this::getQueueDepth);
+        this.consumer = new Thread(this::consume, "duo-events-" + name);
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    public String getName() {
+
+        return name;
+    }
+
+    public int getCapacity() {
+
+        return capacity;
+    }
+
+    /**
+     * Publish an event. Never blocks under {@link OverflowPolicy#DROP}, and blocks for at most the maximum block
+     * time under {@link OverflowPolicy#BLOCK}.
+     *
+     * @param event the event
+     * @return true if the event was accepted, false if it was dropped
+     */
+    public boolean publish(T event) {
+
+        if (running && (offer(event) || (overflowPolicy == OverflowPolicy.BLOCK && offerWithin(event)))) {
+            DuoMetrics.getInstance().increment(metricPrefix + DuoAuthenticatorConstants.Metrics.PUBLISHED_EVENTS);
+            return true;
+        }
+        DuoMetrics.getInstance().increment(metricPrefix + DuoAuthenticatorConstants.Metrics.DROPPED_EVENTS);
+        return false;
+    }
+
+    /**
+     * Get the number of events waiting in the ring buffer.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+
+        long depth = tail.get() - head;
+        return (int) Math.max(0, Math.min(depth, capacity));
+    }
+
+    /**
+     * Stop accepting events, write the events left in the buffer and close the sink.
+     *
+     * @param timeoutMillis maximum time to wait for the consumer thread
+     */
+    public void shutdown(long timeoutMillis) {
+
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        DuoMetrics.getInstance().removeGauge(metricPrefix + DuoAuthenticatorConstants.Metrics.QUEUE_DEPTH);
+    }
+
+    private boolean offer(T event) {
+
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer.lazySet(index, event);
+                    // Publishes the event to the consumer.
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // The slot still holds an event a full lap behind: the buffer is full.
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private boolean offerWithin(T event) {
+
+        LockSupport.unpark(consumer);
+        long deadline = System.nanoTime() + maxBlockNanos;
+        while (running && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+            if (offer(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int drain(List<T> batch) {
+
+        long position = head;
+        while (batch.size() < batchSize) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            batch.add(buffer.get(index));
+            buffer.lazySet(index, null);
+            // Hands the slot back to the producers of the next lap.
+            sequences.set(index, position + capacity);
+            position++;
+        }
+        head = position;
+        return batch.size();
+    }
+
+    private void consume() {
+
+        List<T> batch = new ArrayList<>(batchSize);
+        while (running) {
+            if (drain(batch) > 0) {
+                flush(batch);
+            }
+            if (batch.size() < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            batch.clear();
+        }
+        while (drain(batch) > 0) {
+            flush(batch);
+            batch.clear();
+        }
+        try {
+            sink.close();
+        } catch (Exception e) {
+            log.warn("Error while closing the sink of the Duo event pipeline " + name, e);
+        }
+    }
+
+    private void flush(List<T> batch) {
+
+        try {
+            sink.write(batch);
+            DuoMetrics.getInstance().increment(metricPrefix + DuoAuthenticatorConstants.Metrics.FLUSHES);
+        } catch (Exception e) {
+            DuoMetrics.getInstance().increment(metricPrefix + DuoAuthenticatorConstants.Metrics.FLUSH_FAILURES);
+            DuoMetrics.getInstance().add(metricPrefix + DuoAuthenticatorConstants.Metrics.DROPPED_EVENTS,
+                    batch.size());
+            log.warn("Unable to write " + batch.size() + " events of the Duo event pipeline " + name, e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.event;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of the events flushed by a {@link DuoEventPipeline}. Sinks are called from the single consumer thread
+ * of the pipeline, so they do not need to be thread safe.
+ *
+ * @param <T> type of the events
+ */
+public interface DuoEventSink<T> {
+
+    /**
+     * Write a batch of events.
+     *
+     * @param events the events, in the order they were published
+     * @throws IOException if the events could not be written
+     */
+    void write(List<T> events) throws IOException;
+
+    /**
+     * Release the resources held by the sink.
+     *
+     * @throws IOException if the sink could not be closed cleanly
+     */
+    default void close() throws IOException {
+
+    }
+}
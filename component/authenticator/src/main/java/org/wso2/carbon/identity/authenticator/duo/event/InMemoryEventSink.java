@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link DuoEventSink} keeping the events in memory, for tests and diagnostics.
+ *
+ * @param <T> type of the events
+ */
+public class InMemoryEventSink<T> implements DuoEventSink<T> {
+
+    private final List<T> events = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void write(List<T> batch) {
+
+        events.addAll(batch);
+        batchSizes.add(batch.size());
+    }
+
+    /**
+     * Get the events written so far.
+     *
+     * @return a copy of the events
+     */
+    public List<T> getEvents() {
+
+        synchronized (events) {
+            return new ArrayList<>(events);
+        }
+    }
+
+    /**
+     * Get the sizes of the batches written so far.
+     *
+     * @return a copy of the batch sizes
+     */
+    public List<Integer> getBatchSizes() {
+
+        synchronized (batchSizes) {
+            return new ArrayList<>(batchSizes);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.event;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * {@link DuoEventSink} appending each event to a file as one line of JSON. The file is flushed once per batch.
+ * <p>
+ * A line which would grow the file past its maximum size first rolls the file over: the file becomes backup 1,
+ * backup 1 becomes backup 2 and so on, and the oldest backup is deleted.
+ *
+ * @param <T> type of the events
+ */
+public class JsonLinesFileSink<T> implements DuoEventSink<T> {
+
+    private static final int LINE_SEPARATOR_BYTES = System.lineSeparator().length();
+
+    private final Path file;
+    private final Function<T, String> formatter;
+    private final long maxFileBytes;
+    private final int maxBackups;
+    private BufferedWriter writer;
+    private long fileBytes;
+
+    /**
+     * Create a file sink.
+     *
+     * @param file         the file to append to
+     * @param formatter    formats an event as a single line of JSON
+     * @param maxFileBytes size in bytes past which the file is rolled over
+     * @param maxBackups   number of rolled over files kept, named after the file with a {@code .1}, {@code .2}, ...
+     *                     suffix
+     */
+    public JsonLinesFileSink(Path file, Function<T, String> formatter, long maxFileBytes, int maxBackups) {
+
+        this.file = file;
+        this.formatter = formatter;
+        this.maxFileBytes = maxFileBytes;
+        this.maxBackups = maxBackups;
+    }
+
+    public Path getFile() {
+
+        return file;
+    }
+
+    @Override
+    public void write(List<T> events) throws IOException {
+
+        try {
+            if (writer == null) {
+                open();
+            }
+            for (T event : events) {
+                String line = formatter.apply(event);
+                long lineBytes = line.getBytes(StandardCharsets.UTF_8).length + LINE_SEPARATOR_BYTES;
+                if (fileBytes > 0 && fileBytes + lineBytes > maxFileBytes) {
+                    rollOver();
+                }
+                writer.write(line);
+                writer.newLine();
+                fileBytes += lineBytes;
+            }
+            writer.flush();
+        } catch (IOException e) {
+            // Reopen the file for the next batch.
+            close();
+            throw e;
+        }
+    }
+
+    private void open() throws IOException {
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        fileBytes = Files.size(file);
+    }
+
+    private void rollOver() throws IOException {
+
+        close();
+        if (maxBackups > 0) {
+            Files.deleteIfExists(getBackup(maxBackups));
+            for (int i = maxBackups - 1; i > 0; i--) {
+                if (Files.exists(getBackup(i))) {
+                    Files.move(getBackup(i), getBackup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, getBackup(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+        open();
+    }
+
+    private Path getBackup(int number) {
+
+        return file.resolveSibling(file.getFileName() + "." + number);
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (writer != null) {
+            try {
+                writer.close();
+            } finally {
+                writer = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.failure;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+
+/**
+ * Error page redirects of a tenant, precomputed from the server URL of the error page. A redirect only appends the
+ * query string of the login and the error of its failure state.
+ */
+public class DuoErrorPageTemplate {
+
+    private static final DuoFailureState[] STATES = DuoFailureState.values();
+
+    private final String errorPage;
+    private final String authenticatorName;
+    private final String prefix;
+    private final String suffix;
+    private final String[] failureSuffixes;
+
+    DuoErrorPageTemplate(String errorPage, String authenticatorName, String errorPageUrl) {
+
+        this.errorPage = errorPage;
+        this.authenticatorName = authenticatorName;
+        this.prefix = errorPageUrl + '?';
+        this.suffix = DuoAuthenticatorConstants.ErrorPage.AUTHENTICATION_PARAMETER + authenticatorName;
+        this.failureSuffixes = new String[STATES.length];
+        for (DuoFailureState state : STATES) {
+            failureSuffixes[state.ordinal()] = suffix + state.getError();
+        }
+    }
+
+    /**
+     * Get the error page URL of a login.
+     *
+     * @param queryParams the query string of the login
+     * @return the URL
+     */
+    public String getUrl(String queryParams) {
+
+        return build(queryParams, suffix);
+    }
+
+    /**
+     * Get the error page URL of a login which failed.
+     *
+     * @param queryParams the query string of the login
+     * @param state       the failure state of the login
+     * @return the URL, with the error of the failure state
+     */
+    public String getUrl(String queryParams, DuoFailureState state) {
+
+        return build(queryParams, failureSuffixes[state.ordinal()]);
+    }
+
+    boolean isFor(String errorPage, String authenticatorName) {
+
+        return this.errorPage.equals(errorPage) && this.authenticatorName.equals(authenticatorName);
+    }
+
+    private String build(String queryParams, String end) {
+
+        String query = String.valueOf(queryParams);
+        return new StringBuilder(prefix.length() + query.length() + end.length())
+                .append(prefix).append(query).append(end).toString();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.failure;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the {@link DuoErrorPageTemplate} of each tenant for reuse across logins. A template is rebuilt when the error
+ * page configured for its tenant changes.
+ */
+public class DuoErrorPageTemplates {
+
+    private static final DuoErrorPageTemplates instance = new DuoErrorPageTemplates();
+
+    private final ConcurrentMap<String, DuoErrorPageTemplate> templates = new ConcurrentHashMap<>();
+
+    private DuoErrorPageTemplates() {
+
+    }
+
+    public static DuoErrorPageTemplates getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Get the error page template of a tenant. The server URL of the error page is resolved in the tenant of the
+     * current thread.
+     *
+     * @param tenantDomain      the tenant domain
+     * @param errorPage         the error page endpoint, relative to the server URL
+     * @param authenticatorName the name of the authenticator
+     * @return the template, or null if the server URL of the error page cannot be resolved
+     */
+    public DuoErrorPageTemplate getTemplate(String tenantDomain, String errorPage, String authenticatorName) {
+
+        String key = tenantDomain != null ? tenantDomain : "";
+        DuoErrorPageTemplate template = templates.get(key);
+        if (template != null && template.isFor(errorPage, authenticatorName)) {
+            return template;
+        }
+        String errorPageUrl = IdentityUtil.getServerURL(errorPage, false, false);
+        if (errorPageUrl == null) {
+            return null;
+        }
+        if (templates.size() >= DuoAuthenticatorConstants.ErrorPage.MAX_CACHED_TENANTS) {
+            // Only tenants with recent failures need a template, so starting over is cheap.
+            templates.clear();
+        }
+        template = new DuoErrorPageTemplate(errorPage, authenticatorName, errorPageUrl);
+        templates.put(key, template);
+        return template;
+    }
+
+    /**
+     * Forget the templates, for instance when the server URL changes.
+     */
+    public void clear() {
+
+        templates.clear();
+    }
+}
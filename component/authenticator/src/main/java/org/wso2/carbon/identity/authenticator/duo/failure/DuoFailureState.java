@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.failure;
+
+import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.event.DuoAuthEvent;
+
+/**
+ * Reason a Duo login failed, kept on the authentication context so that the retried login redirects to the matching
+ * error. Each state carries the error appended to the error page URL and the outcome of its audit event.
+ */
+public enum DuoFailureState {
+
+    NUMBER_MISMATCH(DuoAuthenticatorConstants.NUMBER_MISMATCH,
+            DuoAuthenticatorConstants.DuoErrors.ERROR_NUMBER_MISMATCH, DuoAuthEvent.Outcome.NUMBER_MISMATCH),
+    USER_NOT_REGISTERED(DuoAuthenticatorConstants.USER_NOT_REGISTERED_IN_DUO,
+            DuoAuthenticatorConstants.DuoErrors.ERROR_USER_NOT_REGISTERED, DuoAuthEvent.Outcome.USER_NOT_REGISTERED),
+    MOBILE_NUMBER_NOT_FOUND(DuoAuthenticatorConstants.MOBILE_NUMBER_NOT_FOUND,
+            DuoAuthenticatorConstants.DuoErrors.ERROR_GETTING_NUMBER_FROM_DUO,
+            DuoAuthEvent.Outcome.MOBILE_NUMBER_NOT_FOUND),
+    MOBILE_CLAIM_NOT_FOUND(DuoAuthenticatorConstants.MOBILE_CLAIM_NOT_FOUND,
+            DuoAuthenticatorConstants.DuoErrors.ERROR_NUMBER_NOT_FOUND, DuoAuthEvent.Outcome.MOBILE_CLAIM_NOT_FOUND),
+    VERIFIED_USER_NOT_FOUND(DuoAuthenticatorConstants.UNABLE_TO_FIND_VERIFIED_USER,
+            DuoAuthenticatorConstants.DuoErrors.ERROR_GETTING_VERIFIED_USER,
+            DuoAuthEvent.Outcome.VERIFIED_USER_NOT_FOUND),
+    SERVICE_BUSY(DuoAuthenticatorConstants.DUO_SERVICE_BUSY,
+            DuoAuthenticatorConstants.DuoErrors.ERROR_DUO_SERVICE_BUSY, DuoAuthEvent.Outcome.SERVICE_BUSY),
+    ACCESS_DENIED(DuoAuthenticatorConstants.ACCESS_DENIED_BY_DUO,
+            DuoAuthenticatorConstants.DuoErrors.ERROR_ACCESS_DENIED, DuoAuthEvent.Outcome.ACCESS_DENIED);
+
+    private static final DuoFailureState[] STATES = values();
+
+    private final String legacyProperty;
+    private final String error;
+    private final DuoAuthEvent.Outcome outcome;
+
+    DuoFailureState(String legacyProperty, String error, DuoAuthEvent.Outcome outcome) {
+
+        this.legacyProperty = legacyProperty;
+        this.error = error;
+        this.outcome = outcome;
+    }
+
+    /**
+     * Get the error appended to the error page URL.
+     *
+     * @return the error query parameters
+     */
+    public String getError() {
+
+        return error;
+    }
+
+    public DuoAuthEvent.Outcome getOutcome() {
+
+        return outcome;
+    }
+
+    /**
+     * Record this state as the failure of a login.
+     *
+     * @param context the authentication context
+     */
+    public void set(AuthenticationContext context) {
+
+        context.setProperty(DuoAuthenticatorConstants.DUO_FAILURE_STATE, this);
+    }
+
+    /**
+     * Forget the failure of an earlier attempt of a login, once the login goes on to Duo again.
+     *
+     * @param context the authentication context
+     */
+    public static void clear(AuthenticationContext context) {
+
+        if (context.getProperty(DuoAuthenticatorConstants.DUO_FAILURE_STATE) != null) {
+            context.setProperty(DuoAuthenticatorConstants.DUO_FAILURE_STATE, null);
+        }
+        for (DuoFailureState candidate : STATES) {
+            if (context.getProperty(candidate.legacyProperty) != null) {
+                context.setProperty(candidate.legacyProperty, false);
+            }
+        }
+    }
+
+    /**
+     * Get the failure state of a login.
+     * <p>
+     * Contexts flagged before the state was introduced, for instance by a node of the cluster which has not been
+     * upgraded yet, carry one boolean property per reason instead. Those are checked only when there is no state.
+     *
+     * @param context the authentication context
+     * @return the failure state, or null if the login has not failed for one of the known reasons
+     */
+    public static DuoFailureState get(AuthenticationContext context) {
+
+        Object state = context.getProperty(DuoAuthenticatorConstants.DUO_FAILURE_STATE);
+        if (state instanceof DuoFailureState) {
+            return (DuoFailureState) state;
+        }
+        for (DuoFailureState candidate : STATES) {
+            if (Boolean.parseBoolean(String.valueOf(context.getProperty(candidate.legacyProperty)))) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
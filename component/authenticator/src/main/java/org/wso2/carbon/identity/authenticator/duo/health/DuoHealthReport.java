@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.health;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The health of the Duo calls made by a node, as reported by {@link DuoHealthService}.
+ */
+public final class DuoHealthReport {
+
+    /**
+     * Overall health of the node.
+     */
+    public enum Status {
+        /**
+         * Every Duo host called so far is in rotation and no bulkhead is saturated.
+         */
+        UP,
+        /**
+         * Logins still reach Duo, but some hosts are out of rotation or on trial, or some bulkheads are saturated.
+         */
+        DEGRADED,
+        /**
+         * Logins would fail, as every Duo host is out of rotation.
+         */
+        DOWN
+    }
+
+    /**
+     * State of the failover of a host, in circuit breaker terms.
+     */
+    public enum CircuitState {
+        /**
+         * The host is in rotation.
+         */
+        CLOSED,
+        /**
+         * The host is out of rotation until its cooldown ends.
+         */
+        OPEN,
+        /**
+         * The cooldown of the host has ended, but no call to it has succeeded since.
+         */
+        HALF_OPEN
+    }
+
+    private final Status status;
+    private final long checkedAtMillis;
+    private final List<HostHealth> hosts;
+    private final List<BulkheadHealth> bulkheads;
+
+    DuoHealthReport(Status status, long checkedAtMillis, List<HostHealth> hosts, List<BulkheadHealth> bulkheads) {
+
+        this.status = status;
+        this.checkedAtMillis = checkedAtMillis;
+        this.hosts = Collections.unmodifiableList(hosts);
+        this.bulkheads = Collections.unmodifiableList(bulkheads);
+    }
+
+    public Status getStatus() {
+
+        return status;
+    }
+
+    /**
+     * Check whether the node should keep receiving logins.
+     *
+     * @return false if the node is down
+     */
+    public boolean isReady() {
+
+        return status != Status.DOWN;
+    }
+
+    public long getCheckedAtMillis() {
+
+        return checkedAtMillis;
+    }
+
+    public List<HostHealth> getHosts() {
+
+        return hosts;
+    }
+
+    public List<BulkheadHealth> getBulkheads() {
+
+        return bulkheads;
+    }
+
+    /**
+     * Format the report as a single line of JSON.
+     *
+     * @return the JSON representation of the report
+     */
+    public String toJson() {
+
+        JSONObject json = new JSONObject();
+        json.put("status", status.name());
+        json.put("ready", isReady());
+        json.put("checkedAtUnixMillis", checkedAtMillis);
+        JSONArray hostArray = new JSONArray();
+        for (HostHealth host : hosts) {
+            JSONObject entry = new JSONObject();
+            entry.put("name", host.getName());
+            entry.put("circuit", host.getCircuitState().name());
+            entry.put("unavailableUntilUnixMillis", host.getUnavailableUntilMillis());
+            entry.put("consecutiveFailures", host.getConsecutiveFailures());
+            entry.put("latencyMicros", host.getLatencyMicros());
+            hostArray.put(entry);
+        }
+        json.put("hosts", hostArray);
+        JSONArray bulkheadArray = new JSONArray();
+        for (BulkheadHealth bulkhead : bulkheads) {
+            JSONObject entry = new JSONObject();
+            entry.put("name", bulkhead.getName());
+            entry.put("activeCalls", bulkhead.getActiveCalls());
+            entry.put("maxConcurrentCalls", bulkhead.getMaxConcurrentCalls());
+            entry.put("waitingCalls", bulkhead.getWaitingCalls());
+            entry.put("maxWaitingCalls", bulkhead.getMaxWaitingCalls());
+            entry.put("saturated", bulkhead.isSaturated());
+            entry.put("rejecting", bulkhead.isRejecting());
+            bulkheadArray.put(entry);
+        }
+        json.put("bulkheads", bulkheadArray);
+        return json.toString();
+    }
+
+    /**
+     * Health of a Duo API host.
+     */
+    public static final class HostHealth {
+
+        private final String name;
+        private final CircuitState circuitState;
+        private final long unavailableUntilMillis;
+        private final int consecutiveFailures;
+        private final long latencyMicros;
+
+        HostHealth(String name, CircuitState circuitState, long unavailableUntilMillis, int consecutiveFailures,
+                   long latencyMicros) {
+
+            this.name = name;
+            this.circuitState = circuitState;
+            this.unavailableUntilMillis = unavailableUntilMillis;
+            this.consecutiveFailures = consecutiveFailures;
+            this.latencyMicros = latencyMicros;
+        }
+
+        public String getName() {
+
+            return name;
+        }
+
+        public CircuitState getCircuitState() {
+
+            return circuitState;
+        }
+
+        public long getUnavailableUntilMillis() {
+
+            return unavailableUntilMillis;
+        }
+
+        public int getConsecutiveFailures() {
+
+            return consecutiveFailures;
+        }
+
+        public long getLatencyMicros() {
+
+            return latencyMicros;
+        }
+    }
+
+    /**
+     * Occupancy of a bulkhead.
+     */
+    public static final class BulkheadHealth {
+
+        private final String name;
+        private final int activeCalls;
+        private final int maxConcurrentCalls;
+        private final int waitingCalls;
+        private final int maxWaitingCalls;
+        private final boolean saturated;
+        private final boolean rejecting;
+
+        BulkheadHealth(String name, int activeCalls, int maxConcurrentCalls, int waitingCalls, int maxWaitingCalls,
+                       boolean saturated, boolean rejecting) {
+
+            this.name = name;
+            this.activeCalls = activeCalls;
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            this.waitingCalls = waitingCalls;
+            this.maxWaitingCalls = maxWaitingCalls;
+            this.saturated = saturated;
+            this.rejecting = rejecting;
+        }
+
+        public String getName() {
+
+            return name;
+        }
+
+        public int getActiveCalls() {
+
+            return activeCalls;
+        }
+
+        public int getMaxConcurrentCalls() {
+
+            return maxConcurrentCalls;
+        }
+
+        public int getWaitingCalls() {
+
+            return waitingCalls;
+        }
+
+        public int getMaxWaitingCalls() {
+
+            return maxWaitingCalls;
+        }
+
+        public boolean isSaturated() {
+
+            return saturated;
+        }
+
+        public boolean isRejecting() {
+
+            return rejecting;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.health;
+
+/**
+ * Reports whether this node can currently reach Duo, so that load balancers and readiness probes can shift logins
+ * away from a node whose Duo calls would fail or queue. The report is built from the state the authenticator already
+ * keeps about its Duo calls; getting it never calls Duo.
+ */
+public interface DuoHealthService {
+
+    /**
+     * Get the current health of the Duo calls made by this node.
+     *
+     * @return the health report
+     */
+    DuoHealthReport getHealth();
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.health;
+
+import org.wso2.carbon.identity.authenticator.duo.bulkhead.DuoBulkhead;
+import org.wso2.carbon.identity.authenticator.duo.bulkhead.DuoBulkheadRegistry;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHost;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostRouter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the health report from the routing state of the Duo hosts and the occupancy of the bulkheads.
+ * <p>
+ * The node is down when every Duo host it has called is cooling down after failures. It is degraded, but still
+ * ready, when only some hosts are cooling down or on trial after a cooldown, or when bulkheads are saturated: a
+ * bulkhead only holds back the tenant it isolates, which another node would not serve any faster. A node which has
+ * not called Duo yet is up. As a host comes back into rotation once its cooldown ends, a node taken out of the load
+ * balancer is let back in to try Duo again without intervention.
+ */
+public class DuoHealthServiceImpl implements DuoHealthService {
+
+    @Override
+    public DuoHealthReport getHealth() {
+
+        long now = System.currentTimeMillis();
+        List<DuoHealthReport.HostHealth> hosts = new ArrayList<>();
+        int availableHosts = 0;
+        boolean hostsImpaired = false;
+        for (DuoHost host : DuoHostRouter.getInstance().getHosts()) {
+            DuoHealthReport.CircuitState state;
+            if (!host.isAvailable(now)) {
+                state = DuoHealthReport.CircuitState.OPEN;
+                hostsImpaired = true;
+            } else if (host.isRecovering(now)) {
+                state = DuoHealthReport.CircuitState.HALF_OPEN;
+                hostsImpaired = true;
+                availableHosts++;
+            } else {
+                state = DuoHealthReport.CircuitState.CLOSED;
+                availableHosts++;
+            }
+            hosts.add(new DuoHealthReport.HostHealth(host.getName(), state, host.getUnavailableUntilMillis(),
+                    host.getConsecutiveFailures(), host.getLatencyMicros()));
+        }
+        List<DuoHealthReport.BulkheadHealth> bulkheads = new ArrayList<>();
+        boolean bulkheadsSaturated = false;
+        for (DuoBulkhead bulkhead : DuoBulkheadRegistry.getInstance().getBulkheads()) {
+            boolean saturated = bulkhead.isSaturated();
+            bulkheadsSaturated |= saturated;
+            bulkheads.add(new DuoHealthReport.BulkheadHealth(bulkhead.getName(), bulkhead.getActiveCalls(),
+                    bulkhead.getMaxConcurrentCalls(), bulkhead.getWaitingCalls(), bulkhead.getMaxWaitingCalls(),
+                    saturated, bulkhead.isRejecting()));
+        }
+
+        DuoHealthReport.Status status;
+        if (!hosts.isEmpty() && availableHosts == 0) {
+            status = DuoHealthReport.Status.DOWN;
+        } else if (hostsImpaired || bulkheadsSaturated) {
+            status = DuoHealthReport.Status.DEGRADED;
+        } else {
+            status = DuoHealthReport.Status.UP;
+        }
+        return new DuoHealthReport(status, now, hosts, bulkheads);
+    }
+}
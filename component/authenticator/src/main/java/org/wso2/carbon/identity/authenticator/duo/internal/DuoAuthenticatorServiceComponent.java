@@ -28,10 +28,42 @@ import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
 import org.wso2.carbon.identity.application.authentication.framework.ApplicationAuthenticator;
 import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticator;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.bulkhead.DuoBulkheadRegistry;
+import org.wso2.carbon.identity.authenticator.duo.cache.DuoCacheManager;
+import org.wso2.carbon.identity.authenticator.duo.cache.DuoCacheWarmer;
+import org.wso2.carbon.identity.authenticator.duo.claim.DuoClaimResolverRegistry;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+import org.wso2.carbon.identity.authenticator.duo.crypto.DuoCryptoCache;
+import org.wso2.carbon.identity.authenticator.duo.enrollment.DuoEnrollmentCheckService;
+import org.wso2.carbon.identity.authenticator.duo.enrollment.DuoEnrollmentCheckServiceImpl;
+import org.wso2.carbon.identity.authenticator.duo.event.DuoAuditEventPublisher;
+import org.wso2.carbon.identity.authenticator.duo.failure.DuoErrorPageTemplates;
+import org.wso2.carbon.identity.authenticator.duo.health.DuoHealthService;
+import org.wso2.carbon.identity.authenticator.duo.health.DuoHealthServiceImpl;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+import org.wso2.carbon.identity.authenticator.duo.phonesync.DuoPhoneSyncService;
+import org.wso2.carbon.identity.authenticator.duo.phonesync.DuoPhoneSyncServiceImpl;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiterRegistry;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostRouter;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoProbeClientRegistry;
+import org.wso2.carbon.identity.authenticator.duo.session.DuoVerifiedSessionStore;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserLookupBatcherRegistry;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserSyncEngine;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoSlowLoginSampler;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoTracer;
 import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.utils.CarbonUtils;
 
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
 import java.util.Hashtable;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 /**
  * Service Component for Duo Authenticator
  */
@@ -51,6 +83,28 @@ public class DuoAuthenticatorServiceComponent {
             Hashtable<String, String> props = new Hashtable<>();
             ctxt.getBundleContext().registerService(ApplicationAuthenticator.class.getName(),
                     authenticator, props);
+            // The batch services are only used by admin tooling, so they are not created, nor their classes loaded,
+            // until they are first got.
+            ctxt.getBundleContext().registerService(DuoEnrollmentCheckService.class.getName(),
+                    new DuoLazyServiceFactory<DuoEnrollmentCheckService>(() -> new DuoEnrollmentCheckServiceImpl()),
+                    null);
+            ctxt.getBundleContext().registerService(DuoPhoneSyncService.class.getName(),
+                    new DuoLazyServiceFactory<DuoPhoneSyncService>(() -> new DuoPhoneSyncServiceImpl(Paths.get(
+                            CarbonUtils.getCarbonHome(), DuoAuthenticatorConstants.UserSync.SNAPSHOT_DIRECTORY))),
+                    null);
+            // Probes poll the health service from its first readiness check on; until then nothing has called Duo.
+            ctxt.getBundleContext().registerService(DuoHealthService.class.getName(),
+                    new DuoLazyServiceFactory<DuoHealthService>(DuoHealthServiceImpl::new), null);
+            // Snapshots of the Duo user index are only located here; they are loaded when an integration is first used.
+            DuoUserSyncEngine.getInstance().setSnapshotDirectory(Paths.get(CarbonUtils.getCarbonHome(),
+                    DuoAuthenticatorConstants.UserSync.SNAPSHOT_DIRECTORY));
+            DuoAuditEventPublisher.getInstance().setLogDirectory(Paths.get(CarbonUtils.getCarbonHome(),
+                    DuoAuthenticatorConstants.AuditEvents.LOG_DIRECTORY));
+            DuoTracer.getInstance().setLogDirectory(Paths.get(CarbonUtils.getCarbonHome(),
+                    DuoAuthenticatorConstants.AuditEvents.LOG_DIRECTORY));
+            registerMBean(DuoMetrics.getInstance(), DuoAuthenticatorConstants.Metrics.METRICS_MBEAN_NAME);
+            registerMBean(DuoSlowLoginSampler.getInstance(), DuoAuthenticatorConstants.SlowLogins.MBEAN_NAME);
+            DuoConfigManager.getInstance().addListener(this::onConfigChange);
             if (log.isDebugEnabled()) {
                 log.debug("DuoAuthenticator bundle is activated");
             }
@@ -61,11 +115,68 @@ public class DuoAuthenticatorServiceComponent {
 
     @Deactivate
     protected void deactivate(ComponentContext ctxt) {
+        DuoUserSyncEngine.getInstance().shutdown();
+        DuoCacheWarmer.getInstance().shutdown();
+        DuoCacheManager.getInstance().clear();
+        DuoVerifiedSessionStore.getInstance().clear();
+        DuoAuditEventPublisher.getInstance().shutdown();
+        DuoTracer.getInstance().shutdown();
+        DuoSlowLoginSampler.getInstance().clear();
+        DuoHostRouter.getInstance().clear();
+        DuoProbeClientRegistry.getInstance().clear();
+        DuoBulkheadRegistry.getInstance().clear();
+        DuoRateLimiterRegistry.getInstance().clear();
+        DuoUserLookupBatcherRegistry.getInstance().clear();
+        DuoCryptoCache.getInstance().clear();
+        DuoClaimResolverRegistry.getInstance().clear();
+        DuoErrorPageTemplates.getInstance().clear();
+        DuoConfigManager.getInstance().clear();
+        unregisterMBean(DuoAuthenticatorConstants.Metrics.METRICS_MBEAN_NAME);
+        unregisterMBean(DuoAuthenticatorConstants.SlowLogins.MBEAN_NAME);
         if (log.isDebugEnabled()) {
             log.info("DuoAuthenticator bundle is deactivated");
         }
     }
 
+    private void onConfigChange(DuoConfig previous, DuoConfig current) {
+
+        if (log.isDebugEnabled()) {
+            log.debug("Applying version " + current.getVersion() + " of the Duo authenticator configuration");
+        }
+        if (previous.differsIn(current, DuoAuthenticatorConstants.Cache.ENABLE_CACHE,
+                DuoAuthenticatorConstants.Cache.CACHE_TYPE)) {
+            // Entries cached before caching was disabled, or held by the previous cache backend, would otherwise be
+            // served once caching is enabled again.
+            DuoCacheManager.getInstance().clear();
+        }
+    }
+
+    private void registerMBean(Object mBean, String name) {
+
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(mBean, objectName);
+            }
+        } catch (JMException e) {
+            log.error("Error while registering the Duo authenticator MBean " + name, e);
+        }
+    }
+
+    private void unregisterMBean(String name) {
+
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            log.error("Error while unregistering the Duo authenticator MBean " + name, e);
+        }
+    }
+
     @Reference(
             name = "org.wso2.carbon.duo.authenticator.realmservice",
             service = RealmService.class,
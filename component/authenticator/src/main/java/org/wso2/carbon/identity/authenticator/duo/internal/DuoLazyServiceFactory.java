@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.internal;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceFactory;
+import org.osgi.framework.ServiceRegistration;
+
+import java.util.function.Supplier;
+
+/**
+ * Registers a service of the bundle without creating it. The service is created when a bundle first gets it, and is
+ * then shared by every bundle.
+ *
+ * @param <S> type of the service
+ */
+final class DuoLazyServiceFactory<S> implements ServiceFactory<S> {
+
+    private final Supplier<S> supplier;
+    private volatile S service;
+
+    DuoLazyServiceFactory(Supplier<S> supplier) {
+
+        this.supplier = supplier;
+    }
+
+    @Override
+    public S getService(Bundle bundle, ServiceRegistration<S> registration) {
+
+        S current = service;
+        if (current == null) {
+            synchronized (this) {
+                current = service;
+                if (current == null) {
+                    current = supplier.get();
+                    service = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public void ungetService(Bundle bundle, ServiceRegistration<S> registration, S service) {
+
+        // The service is kept for the other bundles, and for the bundle getting it again.
+    }
+}
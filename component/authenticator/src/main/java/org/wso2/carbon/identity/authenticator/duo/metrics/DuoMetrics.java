@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lightweight in-process metric registry of the Duo authenticator.
+ * Counters are backed by {@link LongAdder}s so that recording on the login threads does not contend, and gauges
+ * are sampled only when the metrics are read.
+ */
+public class DuoMetrics implements DuoMetricsMXBean {
+
+    private static final DuoMetrics instance = new DuoMetrics();
+
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private DuoMetrics() {
+
+    }
+
+    public static DuoMetrics getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Increment the given counter by one.
+     *
+     * @param name metric name
+     */
+    public void increment(String name) {
+
+        add(name, 1);
+    }
+
+    /**
+     * Add the given amount to a counter.
+     *
+     * @param name  metric name
+     * @param delta amount to add
+     */
+    public void add(String name, long delta) {
+
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Get the current value of a counter.
+     *
+     * @param name metric name
+     * @return the counter value, or zero if nothing was recorded yet
+     */
+    public long getCounter(String name) {
+
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Register a gauge which is sampled whenever the metrics are read. An existing gauge with the same name is
+     * replaced.
+     *
+     * @param name  metric name
+     * @param gauge supplier of the current value
+     */
+    public void registerGauge(String name, LongSupplier gauge) {
+
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Remove a previously registered gauge.
+     *
+     * @param name metric name
+     */
+    public void removeGauge(String name) {
+
+        gauges.remove(name);
+    }
+
+    /**
+     * Sample the current value of a gauge.
+     *
+     * @param name metric name
+     * @return the gauge value, or zero if the gauge is not registered
+     */
+    public long getGauge(String name) {
+
+        LongSupplier gauge = gauges.get(name);
+        return gauge == null ? 0 : gauge.getAsLong();
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().sum());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().getAsLong());
+        }
+        return values;
+    }
+}
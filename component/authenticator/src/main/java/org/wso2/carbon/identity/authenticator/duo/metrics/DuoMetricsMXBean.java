@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface exposing the Duo authenticator metrics over JMX.
+ */
+public interface DuoMetricsMXBean {
+
+    /**
+     * Get the current value of every counter maintained by the authenticator.
+     *
+     * @return counter values keyed by metric name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Get the current value of every gauge maintained by the authenticator.
+     *
+     * @return gauge values keyed by metric name
+     */
+    Map<String, Long> getGauges();
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.phonesync;
+
+import com.duosecurity.client.Admin;
+import com.duosecurity.client.Http;
+import org.json.JSONObject;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostPool;
+
+/**
+ * Writes phones through the Duo Admin API <code>/admin/v1/phones</code> and <code>/admin/v1/users</code>
+ * endpoints, failing over across the hosts of a {@link DuoHostPool}.
+ */
+public class AdminApiPhoneWriter implements DuoPhoneWriter {
+
+    private final DuoHostPool hostPool;
+    private final String adminIntegrationKey;
+    private final String adminSecretKey;
+
+    public AdminApiPhoneWriter(DuoHostPool hostPool, String adminIntegrationKey, String adminSecretKey) {
+
+        this.hostPool = hostPool;
+        this.adminIntegrationKey = adminIntegrationKey;
+        this.adminSecretKey = adminSecretKey;
+    }
+
+    @Override
+    public String createPhone(String number) throws Exception {
+
+        Object result = hostPool.execute(duoHost -> {
+            Http duoAdminRequest = new Admin.AdminBuilder(DuoAuthenticatorConstants.HTTP_POST, duoHost,
+                    DuoAuthenticatorConstants.PhoneSync.API_PHONES).build();
+            duoAdminRequest.addParam(DuoAuthenticatorConstants.DUO_NUMBER, number);
+            duoAdminRequest.addParam(DuoAuthenticatorConstants.PhoneSync.TYPE,
+                    DuoAuthenticatorConstants.PhoneSync.MOBILE);
+            duoAdminRequest.signRequest(adminIntegrationKey, adminSecretKey);
+            return duoAdminRequest.executeRequest();
+        });
+        return new JSONObject(result.toString()).getString(DuoAuthenticatorConstants.PhoneSync.PHONE_ID);
+    }
+
+    @Override
+    public void associatePhone(String duoUserId, String phoneId) throws Exception {
+
+        hostPool.execute(duoHost -> {
+            Http duoAdminRequest = new Admin.AdminBuilder(DuoAuthenticatorConstants.HTTP_POST, duoHost,
+                    String.format(DuoAuthenticatorConstants.PhoneSync.API_USER_PHONES, duoUserId)).build();
+            duoAdminRequest.addParam(DuoAuthenticatorConstants.PhoneSync.PHONE_ID, phoneId);
+            duoAdminRequest.signRequest(adminIntegrationKey, adminSecretKey);
+            return duoAdminRequest.executeRequest();
+        });
+    }
+
+    @Override
+    public void updatePhone(String phoneId, String number) throws Exception {
+
+        hostPool.execute(duoHost -> {
+            Http duoAdminRequest = new Admin.AdminBuilder(DuoAuthenticatorConstants.HTTP_POST, duoHost,
+                    String.format(DuoAuthenticatorConstants.PhoneSync.API_PHONE, phoneId)).build();
+            duoAdminRequest.addParam(DuoAuthenticatorConstants.DUO_NUMBER, number);
+            duoAdminRequest.signRequest(adminIntegrationKey, adminSecretKey);
+            return duoAdminRequest.executeRequest();
+        });
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.phonesync;
+
+import org.apache.commons.lang.StringUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserPageFetcher;
+import org.wso2.carbon.identity.authenticator.duo.util.DuoPhoneNumberUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Duo users of an Admin integration with the ids of their phones, read once per synchronization. Unlike the
+ * {@link org.wso2.carbon.identity.authenticator.duo.sync.DuoUserIndex}, it keeps the ids needed to write phones.
+ */
+final class DuoPhoneDirectory {
+
+    private final Map<String, DuoUser> users = new HashMap<>();
+
+    private DuoPhoneDirectory() {
+
+    }
+
+    /**
+     * Page through the Duo users of an Admin integration.
+     *
+     * @param fetcher  fetcher of the user pages
+     * @param pageSize number of users requested per page
+     * @return the directory
+     * @throws Exception if a page could not be fetched
+     */
+    static DuoPhoneDirectory read(DuoUserPageFetcher fetcher, int pageSize) throws Exception {
+
+        DuoPhoneDirectory directory = new DuoPhoneDirectory();
+        fetcher.forEachUser(pageSize, directory::addUser);
+        return directory;
+    }
+
+    /**
+     * Get a Duo user by username or alias.
+     *
+     * @param duoUsername the Duo username
+     * @return the user, or null if there is no such user
+     */
+    DuoUser get(String duoUsername) {
+
+        return users.get(duoUsername);
+    }
+
+    int size() {
+
+        return users.size();
+    }
+
+    private void addUser(JSONObject user) {
+
+        String username = user.optString(DuoAuthenticatorConstants.DUO_USERNAME);
+        String userId = user.optString(DuoAuthenticatorConstants.PhoneSync.USER_ID);
+        if (StringUtils.isEmpty(username) || StringUtils.isEmpty(userId)) {
+            return;
+        }
+        DuoUser duoUser = new DuoUser(userId);
+        JSONArray phones = user.optJSONArray(DuoAuthenticatorConstants.DUO_PHONES);
+        if (phones != null) {
+            for (int i = 0; i < phones.length(); i++) {
+                JSONObject phone = phones.getJSONObject(i);
+                duoUser.phoneIds.add(phone.optString(DuoAuthenticatorConstants.PhoneSync.PHONE_ID));
+                duoUser.numbers.add(phone.optString(DuoAuthenticatorConstants.DUO_NUMBER));
+            }
+        }
+        users.put(username, duoUser);
+        JSONObject aliases = user.optJSONObject(DuoAuthenticatorConstants.UserSync.ALIASES);
+        if (aliases != null) {
+            Iterator<String> aliasKeys = aliases.keys();
+            while (aliasKeys.hasNext()) {
+                String alias = aliases.optString(aliasKeys.next());
+                if (StringUtils.isNotEmpty(alias)) {
+                    users.put(alias, duoUser);
+                }
+            }
+        }
+    }
+
+    /**
+     * A Duo user with the ids and numbers of its phones.
+     */
+    static final class DuoUser {
+
+        private final String userId;
+        private final List<String> phoneIds = new ArrayList<>();
+        private final List<String> numbers = new ArrayList<>();
+
+        DuoUser(String userId) {
+
+            this.userId = userId;
+        }
+
+        String getUserId() {
+
+            return userId;
+        }
+
+        int getPhoneCount() {
+
+            return phoneIds.size();
+        }
+
+        String getPhoneId(int index) {
+
+            return phoneIds.get(index);
+        }
+
+        boolean hasPhoneNumber(String mobile) {
+
+            for (String number : numbers) {
+                if (DuoPhoneNumberUtil.matches(number, mobile)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
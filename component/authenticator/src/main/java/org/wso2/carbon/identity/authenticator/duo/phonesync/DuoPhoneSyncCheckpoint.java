@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.phonesync;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * On-disk checkpoint of a Duo phone synchronization, holding the number of users processed and the outcome counts.
+ * A checkpoint is written after each batch whose writes have all completed, and deleted when the synchronization
+ * completes.
+ */
+final class DuoPhoneSyncCheckpoint {
+
+    private static final String VERSION = "1";
+    private static final String VERSION_KEY = "version";
+    private static final String PROCESSED_KEY = "processed";
+    private static final String COUNT_KEY_PREFIX = "count.";
+
+    private DuoPhoneSyncCheckpoint() {
+
+    }
+
+    /**
+     * Write a checkpoint. The checkpoint is written to a temporary file which then replaces the target, so that a
+     * crash never leaves a partially written checkpoint.
+     *
+     * @param report the report of the synchronization
+     * @param file   the checkpoint file
+     * @throws IOException if the checkpoint could not be written
+     */
+    static void write(DuoPhoneSyncReport report, Path file) throws IOException {
+
+        Properties properties = new Properties();
+        properties.setProperty(VERSION_KEY, VERSION);
+        properties.setProperty(PROCESSED_KEY, String.valueOf(report.getProcessed()));
+        for (Map.Entry<DuoPhoneSyncReport.Outcome, Integer> count : report.getCounts().entrySet()) {
+            properties.setProperty(COUNT_KEY_PREFIX + count.getKey().name(), String.valueOf(count.getValue()));
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+            properties.store(outputStream, null);
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a checkpoint.
+     *
+     * @param file the checkpoint file
+     * @return a report continuing from the checkpoint
+     * @throws IOException if the file cannot be read or is not a valid checkpoint
+     */
+    static DuoPhoneSyncReport read(Path file) throws IOException {
+
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            properties.load(inputStream);
+        }
+        if (!VERSION.equals(properties.getProperty(VERSION_KEY))) {
+            throw new IOException("Unsupported Duo phone synchronization checkpoint version");
+        }
+        try {
+            int processed = Integer.parseInt(properties.getProperty(PROCESSED_KEY));
+            Map<DuoPhoneSyncReport.Outcome, Integer> counts = new EnumMap<>(DuoPhoneSyncReport.Outcome.class);
+            for (DuoPhoneSyncReport.Outcome outcome : DuoPhoneSyncReport.Outcome.values()) {
+                String count = properties.getProperty(COUNT_KEY_PREFIX + outcome.name());
+                if (count != null) {
+                    counts.put(outcome, Integer.parseInt(count));
+                }
+            }
+            if (processed < 0) {
+                throw new IOException("Invalid offset in the Duo phone synchronization checkpoint");
+            }
+            return new DuoPhoneSyncReport(processed, counts);
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupted Duo phone synchronization checkpoint", e);
+        }
+    }
+}
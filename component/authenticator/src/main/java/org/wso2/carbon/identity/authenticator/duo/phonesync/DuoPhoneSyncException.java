@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.phonesync;
+
+/**
+ * Thrown when a Duo phone synchronization cannot be carried out or has to stop before its end.
+ */
+public class DuoPhoneSyncException extends Exception {
+
+    private static final long serialVersionUID = 4870345124829914073L;
+
+    public DuoPhoneSyncException(String message) {
+
+        super(message);
+    }
+
+    public DuoPhoneSyncException(String message, Throwable cause) {
+
+        super(message, cause);
+    }
+}
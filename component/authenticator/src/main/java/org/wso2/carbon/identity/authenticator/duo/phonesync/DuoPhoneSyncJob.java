@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.phonesync;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+import org.wso2.carbon.identity.authenticator.duo.enrollment.DuoEnrollmentCheckUser;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiter;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserPageFetcher;
+import org.wso2.carbon.identity.authenticator.duo.util.DuoPhoneNumberUtil;
+import org.wso2.carbon.identity.authenticator.duo.util.DuoUserIdentifierUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Synchronizes the mobile numbers of users to the phones of their Duo users.
+ * <p>
+ * The Duo users of the Admin integration are paged through once. The users are then read a batch at a time and
+ * compared with their Duo users, with the same identifier as the mobile verification of a login. The phone numbers
+ * are compared normalized, so that a number which differs only in its formatting is not written again. A user
+ * whose Duo phones do not match the mobile number gets the number of its only phone changed, or a new phone when it
+ * has none or several. The writes of a batch run concurrently, and every Admin API call goes through
+ * the {@link DuoRateLimiter} of the integration. Once all writes of a batch have completed, a checkpoint is written,
+ * so that a synchronization which stopped resumes after the last completed batch.
+ */
+public class DuoPhoneSyncJob {
+
+    private static final Log log = LogFactory.getLog(DuoPhoneSyncJob.class);
+
+    private final DuoConfig duoConfig;
+    private final Map<String, String> authenticatorProperties;
+    private final DuoPhoneSyncUserSource userSource;
+    private final DuoUserPageFetcher pageFetcher;
+    private final DuoPhoneWriter phoneWriter;
+    private final DuoRateLimiter rateLimiter;
+    private final Path checkpointFile;
+
+    /**
+     * Create a synchronization job.
+     *
+     * @param duoConfig               the authenticator configuration
+     * @param authenticatorProperties the authenticator properties of the Duo identity provider
+     * @param userSource              source of the users and their mobile numbers
+     * @param pageFetcher             fetcher of the Duo user pages
+     * @param phoneWriter             writer of the Duo phones
+     * @param rateLimiter             rate limiter of the Admin integration
+     * @param checkpointFile          the checkpoint file, or null to run without checkpoints
+     */
+    public DuoPhoneSyncJob(DuoConfig duoConfig, Map<String, String> authenticatorProperties,
+                           DuoPhoneSyncUserSource userSource, DuoUserPageFetcher pageFetcher,
+                           DuoPhoneWriter phoneWriter, DuoRateLimiter rateLimiter, Path checkpointFile) {
+
+        this.duoConfig = duoConfig;
+        this.authenticatorProperties = authenticatorProperties;
+        this.userSource = userSource;
+        this.pageFetcher = pageFetcher;
+        this.phoneWriter = phoneWriter;
+        this.rateLimiter = rateLimiter;
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Run the synchronization, resuming from the checkpoint when there is one.
+     *
+     * @return the report of the synchronization
+     * @throws DuoPhoneSyncException if the synchronization stopped before its end
+     */
+    public DuoPhoneSyncReport run() throws DuoPhoneSyncException {
+
+        DuoPhoneSyncReport report = readCheckpoint();
+        boolean dryRun = duoConfig.isEnabled(DuoAuthenticatorConstants.PhoneSync.DRY_RUN);
+        report.setDryRun(dryRun);
+        int batchSize = (int) duoConfig.getLong(DuoAuthenticatorConstants.PhoneSync.BATCH_SIZE,
+                DuoAuthenticatorConstants.PhoneSync.DEFAULT_BATCH_SIZE);
+        DuoPhoneDirectory directory;
+        try {
+            directory = DuoPhoneDirectory.read((offset, limit) -> rateLimiter.execute(
+                    () -> pageFetcher.fetchUsers(offset, limit)), (int) duoConfig.getLong(
+                    DuoAuthenticatorConstants.UserSync.SYNC_PAGE_SIZE,
+                    DuoAuthenticatorConstants.UserSync.DEFAULT_SYNC_PAGE_SIZE));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DuoPhoneSyncException("Interrupted while paging through the Duo users", e);
+        } catch (Exception e) {
+            throw new DuoPhoneSyncException("Error while paging through the Duo users", e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Synchronizing mobile numbers to " + directory.size() + " Duo users from offset "
+                    + report.getProcessed());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool((int) duoConfig.getLong(
+                DuoAuthenticatorConstants.PhoneSync.CONCURRENCY,
+                DuoAuthenticatorConstants.PhoneSync.DEFAULT_CONCURRENCY), runnable -> {
+                    Thread thread = new Thread(runnable, DuoAuthenticatorConstants.PhoneSync.THREAD_NAME);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            List<DuoEnrollmentCheckUser> batch;
+            do {
+                batch = fetchBatch(report.getProcessed(), batchSize);
+                List<Future<DuoPhoneSyncReport.Outcome>> writes = new ArrayList<>();
+                List<DuoPhoneSyncReport.Outcome> outcomes = new ArrayList<>(batch.size());
+                for (DuoEnrollmentCheckUser user : batch) {
+                    Callable<DuoPhoneSyncReport.Outcome> write = synchronize(directory, user, outcomes, dryRun);
+                    if (write != null) {
+                        writes.add(executor.submit(write));
+                    }
+                }
+                for (Future<DuoPhoneSyncReport.Outcome> write : writes) {
+                    outcomes.add(write.get());
+                }
+                for (DuoPhoneSyncReport.Outcome outcome : outcomes) {
+                    report.record(outcome);
+                    DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.PHONE_SYNC_PREFIX
+                            + outcome.name().toLowerCase());
+                }
+                report.advance(batch.size());
+                writeCheckpoint(report);
+            } while (batch.size() == batchSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DuoPhoneSyncException("Interrupted while synchronizing Duo phones. The synchronization "
+                    + "resumes from offset " + report.getProcessed(), e);
+        } catch (ExecutionException e) {
+            throw new DuoPhoneSyncException("Duo rate limited the phone synchronization. The synchronization "
+                    + "resumes from offset " + report.getProcessed(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        deleteCheckpoint();
+        return report;
+    }
+
+    private List<DuoEnrollmentCheckUser> fetchBatch(int offset, int batchSize) throws DuoPhoneSyncException {
+
+        try {
+            List<DuoEnrollmentCheckUser> batch = userSource.fetchUsers(offset, batchSize);
+            return batch != null ? batch : Collections.emptyList();
+        } catch (Exception e) {
+            throw new DuoPhoneSyncException("Error while reading the users to synchronize from offset " + offset
+                    + ". The synchronization resumes from there.", e);
+        }
+    }
+
+    /**
+     * Compare a user with its Duo user.
+     *
+     * @return the write bringing the Duo user in line, or null if no write is needed, in which case the outcome
+     * is added to the outcomes
+     */
+    private Callable<DuoPhoneSyncReport.Outcome> synchronize(DuoPhoneDirectory directory,
+                                                             DuoEnrollmentCheckUser user,
+                                                             List<DuoPhoneSyncReport.Outcome> outcomes,
+                                                             boolean dryRun) {
+
+        String duoUsername = duoConfig.isUsernameAsDuoIdentifier()
+                ? DuoUserIdentifierUtil.getDuoUsername(user.getUserName(), user.getTenantDomain(),
+                user.getUserStoreDomain(), authenticatorProperties)
+                : user.getUserId();
+        DuoPhoneDirectory.DuoUser duoUser = StringUtils.isEmpty(duoUsername) ? null : directory.get(duoUsername);
+        String mobile = DuoPhoneNumberUtil.normalize(user.getMobile());
+        if (duoUser == null) {
+            outcomes.add(DuoPhoneSyncReport.Outcome.NOT_ENROLLED);
+        } else if (mobile == null) {
+            outcomes.add(DuoPhoneSyncReport.Outcome.NO_MOBILE);
+        } else if (duoUser.hasPhoneNumber(mobile)) {
+            outcomes.add(DuoPhoneSyncReport.Outcome.IN_SYNC);
+        } else if (duoUser.getPhoneCount() == 1) {
+            if (dryRun) {
+                outcomes.add(DuoPhoneSyncReport.Outcome.UPDATED);
+                return null;
+            }
+            return write(duoUsername, DuoPhoneSyncReport.Outcome.UPDATED, () -> rateLimiter.execute(() -> {
+                phoneWriter.updatePhone(duoUser.getPhoneId(0), mobile);
+                return null;
+            }));
+        } else {
+            if (dryRun) {
+                outcomes.add(DuoPhoneSyncReport.Outcome.ADDED);
+                return null;
+            }
+            return write(duoUsername, DuoPhoneSyncReport.Outcome.ADDED, () -> {
+                String phoneId = rateLimiter.execute(() -> phoneWriter.createPhone(mobile));
+                try {
+                    rateLimiter.execute(() -> {
+                        phoneWriter.associatePhone(duoUser.getUserId(), phoneId);
+                        return null;
+                    });
+                } catch (Exception e) {
+                    log.warn("The Duo phone " + phoneId + " was created but could not be associated with the Duo "
+                            + "user " + duoUsername);
+                    throw e;
+                }
+                return null;
+            });
+        }
+        return null;
+    }
+
+    /**
+     * Wrap the rate limited writes of a user. A write Duo rate limited beyond the retries stops the synchronization,
+     * while any other failure only fails the user.
+     */
+    private Callable<DuoPhoneSyncReport.Outcome> write(String duoUsername, DuoPhoneSyncReport.Outcome outcome,
+                                                       Callable<Void> writes) {
+
+        return () -> {
+            try {
+                writes.call();
+                return outcome;
+            } catch (Exception e) {
+                if (e instanceof InterruptedException || DuoRateLimiter.isRateLimited(e)) {
+                    throw e;
+                }
+                log.error("Error while synchronizing the phone of the Duo user " + duoUsername, e);
+                return DuoPhoneSyncReport.Outcome.FAILED;
+            }
+        };
+    }
+
+    private DuoPhoneSyncReport readCheckpoint() {
+
+        if (checkpointFile == null || !Files.exists(checkpointFile)) {
+            return new DuoPhoneSyncReport(0, Collections.emptyMap());
+        }
+        try {
+            DuoPhoneSyncReport report = DuoPhoneSyncCheckpoint.read(checkpointFile);
+            log.info("Resuming the Duo phone synchronization from offset " + report.getProcessed());
+            return report;
+        } catch (IOException e) {
+            log.warn("Discarding the Duo phone synchronization checkpoint " + checkpointFile + ": "
+                    + e.getMessage());
+            return new DuoPhoneSyncReport(0, Collections.emptyMap());
+        }
+    }
+
+    private void writeCheckpoint(DuoPhoneSyncReport report) throws DuoPhoneSyncException {
+
+        if (checkpointFile == null) {
+            return;
+        }
+        try {
+            DuoPhoneSyncCheckpoint.write(report, checkpointFile);
+        } catch (IOException e) {
+            // Going on without a checkpoint would redo every write of the run after a failure.
+            throw new DuoPhoneSyncException("Error while writing the Duo phone synchronization checkpoint "
+                    + checkpointFile, e);
+        }
+    }
+
+    private void deleteCheckpoint() {
+
+        if (checkpointFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(checkpointFile);
+        } catch (IOException e) {
+            log.warn("Error while deleting the Duo phone synchronization checkpoint " + checkpointFile, e);
+        }
+    }
+}
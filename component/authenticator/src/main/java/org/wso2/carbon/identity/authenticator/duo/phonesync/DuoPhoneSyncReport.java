@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.phonesync;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Progress and outcome of a Duo phone synchronization. A resumed synchronization continues the report of the run it
+ * resumes.
+ */
+public class DuoPhoneSyncReport {
+
+    /**
+     * Outcome of the synchronization of one user.
+     */
+    public enum Outcome {
+
+        /**
+         * One of the Duo phones of the user already matches the mobile number.
+         */
+        IN_SYNC,
+
+        /**
+         * The number of the only Duo phone of the user was changed to the mobile number.
+         */
+        UPDATED,
+
+        /**
+         * A phone with the mobile number was added to the Duo user.
+         */
+        ADDED,
+
+        /**
+         * The user is not enrolled in Duo, so there is nothing to synchronize.
+         */
+        NOT_ENROLLED,
+
+        /**
+         * The user has no mobile number. Duo phones are never removed.
+         */
+        NO_MOBILE,
+
+        /**
+         * The user could not be synchronized.
+         */
+        FAILED
+    }
+
+    private final Map<Outcome, Integer> counts = new EnumMap<>(Outcome.class);
+    private final int resumedFrom;
+    private int processed;
+    private boolean dryRun;
+
+    DuoPhoneSyncReport(int processed, Map<Outcome, Integer> counts) {
+
+        this.resumedFrom = processed;
+        this.processed = processed;
+        this.counts.putAll(counts);
+    }
+
+    synchronized void record(Outcome outcome) {
+
+        counts.merge(outcome, 1, Integer::sum);
+    }
+
+    synchronized void advance(int users) {
+
+        processed += users;
+    }
+
+    synchronized void setDryRun(boolean dryRun) {
+
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * Get the number of users with an outcome.
+     *
+     * @param outcome the outcome
+     * @return the number of users
+     */
+    public synchronized int getCount(Outcome outcome) {
+
+        return counts.getOrDefault(outcome, 0);
+    }
+
+    public synchronized Map<Outcome, Integer> getCounts() {
+
+        return Collections.unmodifiableMap(new EnumMap<>(counts));
+    }
+
+    /**
+     * Get the number of users processed, which is also the offset a resumed synchronization starts from.
+     *
+     * @return the number of users
+     */
+    public synchronized int getProcessed() {
+
+        return processed;
+    }
+
+    /**
+     * Get the offset the synchronization resumed from.
+     *
+     * @return the offset, 0 unless the synchronization resumed from a checkpoint
+     */
+    public int getResumedFrom() {
+
+        return resumedFrom;
+    }
+
+    /**
+     * Check whether the changes were only reported, and not written to Duo.
+     *
+     * @return true for a dry run
+     */
+    public synchronized boolean isDryRun() {
+
+        return dryRun;
+    }
+}
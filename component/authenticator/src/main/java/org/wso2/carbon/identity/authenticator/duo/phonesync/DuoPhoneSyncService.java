@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.phonesync;
+
+import java.util.Map;
+
+/**
+ * Synchronizes the mobile numbers of the users of a tenant to their Duo phones, so that the mobile verification of
+ * their logins succeeds.
+ */
+public interface DuoPhoneSyncService {
+
+    /**
+     * Synchronize the mobile numbers of the users of a tenant through the Admin integration of a Duo identity
+     * provider. A synchronization that stopped before its end resumes from its last checkpoint.
+     *
+     * @param tenantDomain            the tenant domain of the users
+     * @param authenticatorProperties the authenticator properties of the Duo identity provider
+     * @return the report of the synchronization
+     * @throws DuoPhoneSyncException if the Admin integration is not configured, a synchronization of the tenant is
+     *                               already running or the synchronization stopped before its end
+     */
+    DuoPhoneSyncReport synchronize(String tenantDomain, Map<String, String> authenticatorProperties)
+            throws DuoPhoneSyncException;
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.phonesync;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiterRegistry;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostRouter;
+import org.wso2.carbon.identity.authenticator.duo.sync.AdminApiUserPageFetcher;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserPageFetcher;
+import org.wso2.carbon.identity.authenticator.duo.util.DuoFileNameUtil;
+
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs phone synchronizations, one at a time per Admin integration and tenant. The checkpoint of a synchronization
+ * is kept in the checkpoint directory under a name derived from its integration, tenant and whether it is a dry run,
+ * so that the next synchronization of the same users in the same mode resumes from it.
+ */
+public class DuoPhoneSyncServiceImpl implements DuoPhoneSyncService {
+
+    private static final Log log = LogFactory.getLog(DuoPhoneSyncServiceImpl.class);
+
+    private final Path checkpointDirectory;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create the service.
+     *
+     * @param checkpointDirectory the directory of the checkpoints, or null to run without checkpoints
+     */
+    public DuoPhoneSyncServiceImpl(Path checkpointDirectory) {
+
+        this.checkpointDirectory = checkpointDirectory;
+    }
+
+    @Override
+    public DuoPhoneSyncReport synchronize(String tenantDomain, Map<String, String> authenticatorProperties)
+            throws DuoPhoneSyncException {
+
+        String host = authenticatorProperties.get(DuoAuthenticatorConstants.HOST);
+        String adminIntegrationKey = authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_IKEY);
+        String adminSecretKey = authenticatorProperties.get(DuoAuthenticatorConstants.ADMIN_SKEY);
+        if (StringUtils.isEmpty(host) || StringUtils.isEmpty(adminIntegrationKey)
+                || StringUtils.isEmpty(adminSecretKey)) {
+            throw new DuoPhoneSyncException("The Duo API host and the Admin integration keys are required to " +
+                    "synchronize Duo phones");
+        }
+        String key = host + ":" + adminIntegrationKey + ":" + tenantDomain;
+        if (!running.add(key)) {
+            throw new DuoPhoneSyncException("A Duo phone synchronization of the tenant " + tenantDomain
+                    + " through the integration " + adminIntegrationKey + " is already running");
+        }
+        try {
+            DuoConfig duoConfig = getConfig();
+            String filter = duoConfig.get(DuoAuthenticatorConstants.PhoneSync.USER_FILTER);
+            DuoPhoneSyncReport report = new DuoPhoneSyncJob(duoConfig, authenticatorProperties,
+                    createUserSource(tenantDomain, StringUtils.isEmpty(filter)
+                            ? DuoAuthenticatorConstants.PhoneSync.DEFAULT_USER_FILTER : filter),
+                    createPageFetcher(host, adminIntegrationKey, adminSecretKey),
+                    createPhoneWriter(host, adminIntegrationKey, adminSecretKey),
+                    DuoRateLimiterRegistry.getInstance().getRateLimiter(host, adminIntegrationKey, duoConfig),
+                    getCheckpointFile(duoConfig.isEnabled(DuoAuthenticatorConstants.PhoneSync.DRY_RUN)
+                            ? key + DuoAuthenticatorConstants.PhoneSync.DRY_RUN_CHECKPOINT_SUFFIX : key)).run();
+            log.info("Synchronized the Duo phones of " + report.getProcessed() + " users of the tenant "
+                    + tenantDomain + (report.isDryRun() ? " in a dry run: " : ": ") + report.getCounts());
+            return report;
+        } finally {
+            running.remove(key);
+        }
+    }
+
+    private Path getCheckpointFile(String key) {
+
+        if (checkpointDirectory == null) {
+            return null;
+        }
+        try {
+            return checkpointDirectory.resolve(DuoFileNameUtil.getFileName(key,
+                    DuoAuthenticatorConstants.PhoneSync.CHECKPOINT_FILE_EXTENSION));
+        } catch (NoSuchAlgorithmException e) {
+            log.warn("Unable to derive the Duo phone synchronization checkpoint file name", e);
+            return null;
+        }
+    }
+
+    /**
+     * Get the configuration of the authenticator.
+     *
+     * @return the configuration snapshot
+     */
+    protected DuoConfig getConfig() {
+
+        return DuoConfigManager.getInstance().getDeploymentConfig();
+    }
+
+    /**
+     * Create the source of the users of a tenant.
+     *
+     * @param tenantDomain the tenant domain
+     * @param filter       the filter of the user names
+     * @return the source
+     */
+    protected DuoPhoneSyncUserSource createUserSource(String tenantDomain, String filter) {
+
+        return new UserStorePhoneSyncUserSource(tenantDomain, filter);
+    }
+
+    /**
+     * Create the fetcher of the Duo user pages of an Admin integration.
+     *
+     * @param host                the Duo API host
+     * @param adminIntegrationKey the Admin integration key
+     * @param adminSecretKey      the Admin secret key
+     * @return the fetcher
+     */
+    protected DuoUserPageFetcher createPageFetcher(String host, String adminIntegrationKey, String adminSecretKey) {
+
+        return new AdminApiUserPageFetcher(host, adminIntegrationKey, adminSecretKey);
+    }
+
+    /**
+     * Create the writer of the Duo phones of an Admin integration.
+     *
+     * @param host                the Duo API host
+     * @param adminIntegrationKey the Admin integration key
+     * @param adminSecretKey      the Admin secret key
+     * @return the writer
+     */
+    protected DuoPhoneWriter createPhoneWriter(String host, String adminIntegrationKey, String adminSecretKey) {
+
+        return new AdminApiPhoneWriter(DuoHostRouter.getInstance().getPool(host), adminIntegrationKey,
+                adminSecretKey);
+    }
+}
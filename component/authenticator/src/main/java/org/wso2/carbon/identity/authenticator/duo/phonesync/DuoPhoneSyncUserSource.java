@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.phonesync;
+
+import org.wso2.carbon.identity.authenticator.duo.enrollment.DuoEnrollmentCheckUser;
+
+import java.util.List;
+
+/**
+ * Fetches one page of users, with their mobile numbers, to synchronize to Duo.
+ */
+@FunctionalInterface
+public interface DuoPhoneSyncUserSource {
+
+    /**
+     * Fetch a page of users.
+     *
+     * @param offset offset of the first user of the page
+     * @param limit  maximum number of users in the page
+     * @return the users of the page
+     * @throws Exception if the users could not be fetched
+     */
+    List<DuoEnrollmentCheckUser> fetchUsers(int offset, int limit) throws Exception;
+}
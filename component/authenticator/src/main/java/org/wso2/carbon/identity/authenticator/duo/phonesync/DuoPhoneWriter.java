@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.phonesync;
+
+/**
+ * Writes phones through the Duo Admin API.
+ */
+public interface DuoPhoneWriter {
+
+    /**
+     * Create a mobile phone.
+     *
+     * @param number the phone number
+     * @return the id of the phone
+     * @throws Exception if the phone could not be created
+     */
+    String createPhone(String number) throws Exception;
+
+    /**
+     * Associate a phone with a Duo user.
+     *
+     * @param duoUserId the id of the Duo user
+     * @param phoneId   the id of the phone
+     * @throws Exception if the phone could not be associated
+     */
+    void associatePhone(String duoUserId, String phoneId) throws Exception;
+
+    /**
+     * Change the number of a phone.
+     *
+     * @param phoneId the id of the phone
+     * @param number  the phone number
+     * @throws Exception if the phone could not be changed
+     */
+    void updatePhone(String phoneId, String number) throws Exception;
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.phonesync;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.enrollment.DuoEnrollmentCheckUser;
+import org.wso2.carbon.identity.authenticator.duo.internal.DuoServiceHolder;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.user.api.UserRealm;
+import org.wso2.carbon.user.api.UserStoreException;
+import org.wso2.carbon.user.core.PaginatedUserStoreManager;
+import org.wso2.carbon.user.core.UserStoreManager;
+import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.user.core.util.UserCoreUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the users of a tenant and their mobile numbers from the user store manager. User stores supporting
+ * pagination are read a page at a time. The names of the users of other user stores are listed once and their
+ * claims are still read a page at a time.
+ */
+public class UserStorePhoneSyncUserSource implements DuoPhoneSyncUserSource {
+
+    private static final String[] CLAIMS = {DuoAuthenticatorConstants.MOBILE_CLAIM,
+            DuoAuthenticatorConstants.PhoneSync.USER_ID_CLAIM};
+
+    private final String tenantDomain;
+    private final String filter;
+    private UserStoreManager userStoreManager;
+    private String[] userNames;
+
+    /**
+     * Create a source of the users of a tenant.
+     *
+     * @param tenantDomain the tenant domain
+     * @param filter       the filter of the user names
+     */
+    public UserStorePhoneSyncUserSource(String tenantDomain, String filter) {
+
+        this.tenantDomain = tenantDomain;
+        this.filter = filter;
+    }
+
+    @Override
+    public List<DuoEnrollmentCheckUser> fetchUsers(int offset, int limit) throws UserStoreException {
+
+        UserStoreManager manager = getUserStoreManager();
+        String[] page;
+        if (manager instanceof PaginatedUserStoreManager) {
+            // Offsets of paginated user store managers start at one.
+            page = ((PaginatedUserStoreManager) manager).listUsers(filter, limit, offset + 1);
+        } else {
+            if (userNames == null) {
+                userNames = manager.listUsers(filter, -1);
+            }
+            page = offset >= userNames.length ? new String[0]
+                    : Arrays.copyOfRange(userNames, offset, Math.min(userNames.length, offset + limit));
+        }
+        List<DuoEnrollmentCheckUser> users = new ArrayList<>(page.length);
+        for (String userName : page) {
+            Map<String, String> claims = manager.getUserClaimValues(userName, CLAIMS, null);
+            users.add(new DuoEnrollmentCheckUser(UserCoreUtil.removeDomainFromName(userName), tenantDomain,
+                    UserCoreUtil.extractDomainFromName(userName),
+                    claims.get(DuoAuthenticatorConstants.PhoneSync.USER_ID_CLAIM),
+                    claims.get(DuoAuthenticatorConstants.MOBILE_CLAIM)));
+        }
+        return users;
+    }
+
+    private UserStoreManager getUserStoreManager() throws UserStoreException {
+
+        if (userStoreManager == null) {
+            RealmService realmService = DuoServiceHolder.getInstance().getRealmService();
+            if (realmService == null) {
+                throw new UserStoreException("The realm service is not available");
+            }
+            int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
+            UserRealm userRealm = realmService.getTenantUserRealm(tenantId);
+            if (userRealm == null) {
+                throw new UserStoreException("Cannot find the user realm for the given tenant: " + tenantId);
+            }
+            userStoreManager = (UserStoreManager) userRealm.getUserStoreManager();
+        }
+        return userStoreManager;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.ratelimit;
+
+/**
+ * Thrown when a call is rejected by the {@link DuoFairScheduler}, as it was not at the head of the queue of its
+ * tenant within the maximum wait.
+ */
+public class DuoFairQueueFullException extends Exception {
+
+    private static final long serialVersionUID = 4316270588231705943L;
+
+    public DuoFairQueueFullException(String message) {
+
+        super(message);
+    }
+}
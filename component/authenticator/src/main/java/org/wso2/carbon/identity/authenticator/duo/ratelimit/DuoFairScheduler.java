@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.ratelimit;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shares the rate limit of an Admin integration fairly between the tenants calling it, by weighted fair queueing.
+ * <p>
+ * While the rate limit has spare capacity and no call is queued, a call takes a permit straight from the
+ * {@link DuoRateLimiter}, without taking a lock. Otherwise calls queue in the order of their virtual finish time: each
+ * call of a tenant advances the finish time of the tenant by the inverse of its weight, so backlogged tenants get
+ * permits in proportion to their weights whatever their call rates. A queued call of a tenant with a minimum rate is
+ * moved to the head of the queue once the tenant has not been served for the interval of that rate. Calls which are
+ * not at the head of the queue within the maximum wait are rejected.
+ */
+public class DuoFairScheduler {
+
+    private static final Log log = LogFactory.getLog(DuoFairScheduler.class);
+
+    private final String name;
+    private final DuoRateLimiter rateLimiter;
+    private final String weights;
+    private final String minimumRates;
+    private final long maxWaitNanos;
+    private final Map<String, Integer> tenantWeights;
+    private final Map<String, Long> tenantMinimumIntervals;
+    private final ConcurrentMap<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedCalls = new AtomicInteger();
+    private final Object lock = new Object();
+    private final PriorityQueue<Ticket> queue = new PriorityQueue<>(Comparator
+            .comparingDouble((Ticket ticket) -> ticket.finish)
+            .thenComparingLong(ticket -> ticket.sequence));
+    private final List<Ticket> guaranteedTickets = new ArrayList<>();
+    private double virtualTime;
+    private long sequence;
+
+    /**
+     * Create a scheduler.
+     *
+     * @param name          name of the scheduler in the metrics
+     * @param rateLimiter   the rate limiter of the Admin integration
+     * @param weights       tenant weights, in the form {@code tenant1|weight1, tenant2|weight2}. Other tenants have
+     *                      a weight of 1
+     * @param minimumRates  minimum calls per second of tenants, in the form {@code tenant1|rate1, tenant2|rate2}
+     * @param maxWaitMillis maximum time a call waits in the queue
+     */
+    public DuoFairScheduler(String name, DuoRateLimiter rateLimiter, String weights, String minimumRates,
+                            long maxWaitMillis) {
+
+        this.name = name;
+        this.rateLimiter = rateLimiter;
+        this.weights = weights;
+        this.minimumRates = minimumRates;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.tenantWeights = new HashMap<>();
+        for (Map.Entry<String, String> weight : parse(weights).entrySet()) {
+            try {
+                tenantWeights.put(weight.getKey(), Math.max(1, Integer.parseInt(weight.getValue())));
+            } catch (NumberFormatException e) {
+                log.warn("Invalid Duo Admin API weight " + weight.getValue() + " configured for the tenant "
+                        + weight.getKey());
+            }
+        }
+        this.tenantMinimumIntervals = new HashMap<>();
+        for (Map.Entry<String, String> minimumRate : parse(minimumRates).entrySet()) {
+            try {
+                double rate = Double.parseDouble(minimumRate.getValue());
+                if (rate > 0) {
+                    tenantMinimumIntervals.put(minimumRate.getKey(), (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Invalid Duo Admin API minimum rate " + minimumRate.getValue() + " configured for the "
+                        + "tenant " + minimumRate.getKey());
+            }
+        }
+    }
+
+    /**
+     * Wait for a permit to call the Admin API on behalf of a tenant, for at most the maximum wait.
+     *
+     * @param tenantDomain the tenant domain
+     * @return false if the call was rejected
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean acquire(String tenantDomain) throws InterruptedException {
+
+        return acquire(tenantDomain, maxWaitNanos);
+    }
+
+    /**
+     * Wait for a permit to call the Admin API on behalf of a tenant.
+     *
+     * @param tenantDomain the tenant domain
+     * @param maxWaitNanos maximum time to wait in the queue
+     * @return false if the call was rejected
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean acquire(String tenantDomain, long maxWaitNanos) throws InterruptedException {
+
+        Tenant tenant = getTenant(tenantDomain);
+        if (queuedCalls.get() == 0 && rateLimiter.tryAcquire()) {
+            tenant.recordGrant(0);
+            return true;
+        }
+        long start = System.nanoTime();
+        queuedCalls.incrementAndGet();
+        tenant.queuedCalls.incrementAndGet();
+        try {
+            if (!awaitHead(tenant, start, maxWaitNanos)) {
+                DuoMetrics.getInstance().increment(tenant.metricsPrefix + DuoAuthenticatorConstants.Metrics
+                        .REJECTED_CALLS);
+                if (log.isDebugEnabled()) {
+                    log.debug("Rejecting a Duo Admin API call of the tenant " + tenantDomain + " after waiting "
+                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+                }
+                return false;
+            }
+        } finally {
+            queuedCalls.decrementAndGet();
+            tenant.queuedCalls.decrementAndGet();
+        }
+        tenant.recordGrant(System.nanoTime() - start);
+        return true;
+    }
+
+    public DuoRateLimiter getRateLimiter() {
+
+        return rateLimiter;
+    }
+
+    /**
+     * Check whether the scheduler was created with the given settings.
+     *
+     * @param rateLimiter   the rate limiter of the Admin integration
+     * @param weights       tenant weights
+     * @param minimumRates  minimum rates of tenants
+     * @param maxWaitMillis maximum time a call waits in the queue
+     * @return true if the settings are the same
+     */
+    public boolean hasSettings(DuoRateLimiter rateLimiter, String weights, String minimumRates, long maxWaitMillis) {
+
+        return this.rateLimiter == rateLimiter && StringUtils.equals(this.weights, weights)
+                && StringUtils.equals(this.minimumRates, minimumRates)
+                && this.maxWaitNanos == TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    /**
+     * Stop publishing the metrics of the tenants.
+     */
+    public void close() {
+
+        for (Tenant tenant : tenants.values()) {
+            DuoMetrics.getInstance().removeGauge(tenant.metricsPrefix + DuoAuthenticatorConstants.Metrics
+                    .WAITING_CALLS);
+        }
+    }
+
+    /**
+     * Queue a call and wait until it is at the head of the queue, then take the next permit of the rate limit.
+     */
+    private boolean awaitHead(Tenant tenant, long start, long maxWaitNanos) throws InterruptedException {
+
+        Ticket ticket;
+        synchronized (lock) {
+            ticket = new Ticket(tenant, sequence++);
+            queue(ticket, start);
+            boolean head = false;
+            try {
+                while (queue.peek() != ticket) {
+                    long remainingNanos = maxWaitNanos - (System.nanoTime() - start);
+                    if (remainingNanos <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(lock, remainingNanos);
+                }
+                head = true;
+            } finally {
+                if (!head) {
+                    queue.remove(ticket);
+                    guaranteedTickets.remove(ticket);
+                    lock.notifyAll();
+                }
+            }
+        }
+        // The call stays at the head of the queue until the rate limit allows it, so no call overtakes it.
+        try {
+            rateLimiter.acquire();
+        } finally {
+            synchronized (lock) {
+                queue.remove(ticket);
+                virtualTime = Math.max(virtualTime, ticket.finish);
+                promoteGuaranteedTickets(System.nanoTime());
+                lock.notifyAll();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Give a call its virtual finish time and queue it. Called with the lock held.
+     */
+    private void queue(Ticket ticket, long now) {
+
+        Tenant tenant = ticket.tenant;
+        if (tenant.minimumIntervalNanos > 0 && now - tenant.guaranteedAtNanos >= 0) {
+            // The tenant is below its minimum rate, so the call is served next.
+            tenant.guaranteedAtNanos = now + tenant.minimumIntervalNanos;
+            ticket.finish = virtualTime;
+        } else {
+            tenant.finish = Math.max(virtualTime, tenant.finish) + 1.0 / tenant.weight;
+            ticket.finish = tenant.finish;
+            if (tenant.minimumIntervalNanos > 0) {
+                guaranteedTickets.add(ticket);
+            }
+        }
+        queue.add(ticket);
+    }
+
+    /**
+     * Move the queued calls of tenants which have fallen below their minimum rate to the head of the queue. Called
+     * with the lock held, each time the head of the queue is served.
+     */
+    private void promoteGuaranteedTickets(long now) {
+
+        Iterator<Ticket> tickets = guaranteedTickets.iterator();
+        while (tickets.hasNext()) {
+            Ticket ticket = tickets.next();
+            Tenant tenant = ticket.tenant;
+            if (now - tenant.guaranteedAtNanos >= 0) {
+                tenant.guaranteedAtNanos = now + tenant.minimumIntervalNanos;
+                queue.remove(ticket);
+                ticket.finish = virtualTime;
+                queue.add(ticket);
+                tickets.remove();
+            }
+        }
+    }
+
+    private Tenant getTenant(String tenantDomain) {
+
+        Tenant tenant = tenants.get(tenantDomain);
+        if (tenant != null) {
+            return tenant;
+        }
+        return tenants.computeIfAbsent(tenantDomain, domain -> {
+            Integer weight = tenantWeights.get(domain);
+            Long minimumIntervalNanos = tenantMinimumIntervals.get(domain);
+            Tenant created = new Tenant(DuoAuthenticatorConstants.Metrics.FAIR_QUEUE_PREFIX + name + "." + domain,
+                    weight != null ? weight : 1, minimumIntervalNanos != null ? minimumIntervalNanos : 0);
+            DuoMetrics.getInstance().registerGauge(created.metricsPrefix
+                    + DuoAuthenticatorConstants.Metrics.WAITING_CALLS, created.queuedCalls::get);
+            return created;
+        });
+    }
+
+    private static Map<String, String> parse(String values) {
+
+        Map<String, String> parsed = new HashMap<>();
+        if (StringUtils.isBlank(values)) {
+            return parsed;
+        }
+        for (String entry : StringUtils.split(values, DuoAuthenticatorConstants.RateLimit.TENANT_SEPARATOR)) {
+            int separator = entry.indexOf(DuoAuthenticatorConstants.RateLimit.VALUE_SEPARATOR);
+            if (separator > 0) {
+                parsed.put(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim());
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * The scheduling state and metrics of a tenant. The finish and guarantee times are guarded by the lock of the
+     * scheduler.
+     */
+    private static final class Tenant {
+
+        private final String metricsPrefix;
+        private final int weight;
+        private final long minimumIntervalNanos;
+        private final AtomicInteger queuedCalls = new AtomicInteger();
+        private double finish;
+        private long guaranteedAtNanos = System.nanoTime();
+
+        private Tenant(String metricsPrefix, int weight, long minimumIntervalNanos) {
+
+            this.metricsPrefix = metricsPrefix;
+            this.weight = weight;
+            this.minimumIntervalNanos = minimumIntervalNanos;
+        }
+
+        private void recordGrant(long waitNanos) {
+
+            DuoMetrics.getInstance().increment(metricsPrefix + DuoAuthenticatorConstants.Metrics.GRANTED_CALLS);
+            if (waitNanos > 0) {
+                DuoMetrics.getInstance().add(metricsPrefix + DuoAuthenticatorConstants.Metrics.WAIT_TIME,
+                        TimeUnit.NANOSECONDS.toMicros(waitNanos));
+            }
+        }
+    }
+
+    /**
+     * A queued call.
+     */
+    private static final class Ticket {
+
+        private final Tenant tenant;
+        private final long sequence;
+        private double finish;
+
+        private Ticket(Tenant tenant, long sequence) {
+
+            this.tenant = tenant;
+            this.sequence = sequence;
+        }
+    }
+}
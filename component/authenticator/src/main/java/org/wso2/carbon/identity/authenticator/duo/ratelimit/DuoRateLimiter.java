@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.ratelimit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoSlowLoginSampler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spaces out calls to a Duo API so that they stay under a rate, and lets a rate limited caller pause every other
+ * caller. Permits are reserved with compare-and-set, so callers do not contend on a lock.
+ */
+public class DuoRateLimiter {
+
+    private static final Log log = LogFactory.getLog(DuoRateLimiter.class);
+
+    private final double permitsPerSecond;
+    private final long intervalNanos;
+    private final AtomicLong nextPermitNanos;
+
+    public DuoRateLimiter(double permitsPerSecond) {
+
+        this.permitsPerSecond = permitsPerSecond;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.nextPermitNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Wait until a call is allowed.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+
+        long now;
+        long next;
+        long reserved;
+        do {
+            now = System.nanoTime();
+            next = nextPermitNanos.get();
+            reserved = next - now < 0 ? now : next;
+        } while (!nextPermitNanos.compareAndSet(next, reserved + intervalNanos));
+        long waitNanos = reserved - now;
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Take a permit if a call is allowed right away, without waiting.
+     *
+     * @return true if the call is allowed and counted against the rate
+     */
+    public boolean tryAcquire() {
+
+        long now;
+        long next;
+        do {
+            now = System.nanoTime();
+            next = nextPermitNanos.get();
+            if (next - now > 0) {
+                return false;
+            }
+        } while (!nextPermitNanos.compareAndSet(next, now + intervalNanos));
+        return true;
+    }
+
+    /**
+     * Hold back the calls which have not been allowed yet.
+     *
+     * @param millis the time to hold the calls back for
+     */
+    public void pause(long millis) {
+
+        long resumeNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long next;
+        do {
+            next = nextPermitNanos.get();
+            if (resumeNanos - next <= 0) {
+                return;
+            }
+        } while (!nextPermitNanos.compareAndSet(next, resumeNanos));
+    }
+
+    /**
+     * Make a call within the rate, retrying with a growing pause of every caller while Duo reports the rate limit
+     * is exceeded.
+     *
+     * @param call the call
+     * @param <T>  type of the call result
+     * @return the result of the call
+     * @throws Exception the failure of the call, or the rate limit error once the retries are exhausted
+     */
+    public <T> T execute(Callable<T> call) throws Exception {
+
+        long backoffMillis = DuoAuthenticatorConstants.RateLimit.INITIAL_BACKOFF_MILLIS;
+        for (int retries = 0; ; retries++) {
+            acquire();
+            try {
+                return call.call();
+            } catch (Exception e) {
+                if (retries >= DuoAuthenticatorConstants.RateLimit.MAX_RETRIES || !isRateLimited(e)) {
+                    throw e;
+                }
+                DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.RATE_LIMITED_RETRIES);
+                DuoSlowLoginSampler.getInstance().recordRetry();
+                if (log.isDebugEnabled()) {
+                    log.debug("Duo rate limited an Admin API call. Pausing the calls for " + backoffMillis + " ms");
+                }
+                pause(backoffMillis);
+                backoffMillis *= 2;
+            }
+        }
+    }
+
+    public double getPermitsPerSecond() {
+
+        return permitsPerSecond;
+    }
+
+    /**
+     * Check whether a Duo call failed because the rate limit was exceeded.
+     *
+     * @param e the failure of the call
+     * @return true if Duo rate limited the call
+     */
+    public static boolean isRateLimited(Throwable e) {
+
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().startsWith(
+                    DuoAuthenticatorConstants.RateLimit.RATE_LIMITED_ERROR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.ratelimit;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one {@link DuoRateLimiter} per Admin integration, so that the batch jobs calling the same integration share
+ * its rate limit, and one {@link DuoFairScheduler} sharing the rate limit between the tenants of the logins calling
+ * the integration.
+ */
+public class DuoRateLimiterRegistry {
+
+    private static final DuoRateLimiterRegistry instance = new DuoRateLimiterRegistry();
+
+    private final ConcurrentMap<String, DuoRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DuoFairScheduler> schedulers = new ConcurrentHashMap<>();
+
+    private DuoRateLimiterRegistry() {
+
+    }
+
+    public static DuoRateLimiterRegistry getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Get the rate limiter of an Admin integration. A new rate limiter replaces the existing one when the rate has
+     * been reconfigured.
+     *
+     * @param host                the Duo API host
+     * @param adminIntegrationKey the Admin integration key
+     * @param duoConfig           the authenticator configuration
+     * @return the rate limiter
+     */
+    public DuoRateLimiter getRateLimiter(String host, String adminIntegrationKey, DuoConfig duoConfig) {
+
+        double rateLimit = duoConfig.getDouble(DuoAuthenticatorConstants.RateLimit.ADMIN_RATE_LIMIT,
+                DuoAuthenticatorConstants.RateLimit.DEFAULT_ADMIN_RATE_LIMIT);
+        double permitsPerSecond = rateLimit > 0 ? rateLimit
+                : DuoAuthenticatorConstants.RateLimit.DEFAULT_ADMIN_RATE_LIMIT;
+        String key = host + "/" + adminIntegrationKey;
+        DuoRateLimiter rateLimiter = rateLimiters.get(key);
+        if (rateLimiter != null && rateLimiter.getPermitsPerSecond() == permitsPerSecond) {
+            return rateLimiter;
+        }
+        return rateLimiters.compute(key, (name, existing) ->
+                existing != null && existing.getPermitsPerSecond() == permitsPerSecond ? existing
+                        : new DuoRateLimiter(permitsPerSecond));
+    }
+
+    /**
+     * Get the fair scheduler of an Admin integration. A new scheduler replaces the existing one when its rate limiter
+     * has been replaced or the tenant settings have been reconfigured.
+     *
+     * @param host                the Duo API host
+     * @param adminIntegrationKey the Admin integration key
+     * @param duoConfig           the authenticator configuration
+     * @return the scheduler
+     */
+    public DuoFairScheduler getFairScheduler(String host, String adminIntegrationKey, DuoConfig duoConfig) {
+
+        DuoRateLimiter rateLimiter = getRateLimiter(host, adminIntegrationKey, duoConfig);
+        String weights = duoConfig.get(DuoAuthenticatorConstants.RateLimit.TENANT_WEIGHTS);
+        String minimumRates = duoConfig.get(DuoAuthenticatorConstants.RateLimit.TENANT_MINIMUM_RATES);
+        long maxWaitMillis = duoConfig.getLong(DuoAuthenticatorConstants.RateLimit.FAIR_QUEUE_MAX_WAIT,
+                DuoAuthenticatorConstants.RateLimit.DEFAULT_FAIR_QUEUE_MAX_WAIT_MILLIS);
+        String key = host + "/" + adminIntegrationKey;
+        DuoFairScheduler scheduler = schedulers.get(key);
+        if (scheduler != null && scheduler.hasSettings(rateLimiter, weights, minimumRates, maxWaitMillis)) {
+            return scheduler;
+        }
+        return schedulers.compute(key, (k, existing) -> {
+            if (existing != null) {
+                if (existing.hasSettings(rateLimiter, weights, minimumRates, maxWaitMillis)) {
+                    return existing;
+                }
+                existing.close();
+            }
+            return new DuoFairScheduler(adminIntegrationKey, rateLimiter, weights, minimumRates, maxWaitMillis);
+        });
+    }
+
+    /**
+     * Forget every rate limiter and scheduler.
+     */
+    public void clear() {
+
+        for (DuoFairScheduler scheduler : schedulers.values()) {
+            scheduler.close();
+        }
+        schedulers.clear();
+        rateLimiters.clear();
+    }
+}
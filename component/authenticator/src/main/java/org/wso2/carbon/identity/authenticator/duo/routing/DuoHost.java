@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.routing;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+
+import java.util.Arrays;
+
+/**
+ * The routing state of a Duo API host, shared by all the identity providers using the host.
+ * <p>
+ * The latency of the host is tracked as an exponentially weighted moving average of its call times. The average of
+ * a host that has not been called for a while decays towards zero, so that traffic eventually returns to a host that
+ * was avoided for being slow. The most recent call times are also kept, for the latency percentiles hedged calls are
+ * timed against. A host is taken out of rotation for a cooldown period after consecutive failed calls.
+ */
+public class DuoHost {
+
+    private final String name;
+    private double latencyNanos;
+    private long lastSampleMillis;
+    private boolean sampled;
+    private final long[] samples = new long[DuoAuthenticatorConstants.Routing.LATENCY_SAMPLES];
+    private int sampleCount;
+    private int nextSample;
+    private int staleSamples;
+    private double cachedPercentile = -1;
+    private long cachedPercentileNanos;
+    private int consecutiveFailures;
+    private volatile long unavailableUntilMillis;
+
+    public DuoHost(String name) {
+
+        this.name = name;
+    }
+
+    public String getName() {
+
+        return name;
+    }
+
+    /**
+     * Record a successful call.
+     *
+     * @param latencyNanos duration of the call
+     * @param alpha        weight of the new sample in the moving average
+     * @param nowMillis    current time
+     */
+    public synchronized void recordSuccess(long latencyNanos, double alpha, long nowMillis) {
+
+        this.latencyNanos = sampled ? alpha * latencyNanos + (1 - alpha) * this.latencyNanos : latencyNanos;
+        this.lastSampleMillis = nowMillis;
+        this.sampled = true;
+        samples[nextSample] = latencyNanos;
+        nextSample = (nextSample + 1) % samples.length;
+        sampleCount = Math.min(sampleCount + 1, samples.length);
+        staleSamples++;
+        this.consecutiveFailures = 0;
+        this.unavailableUntilMillis = 0;
+    }
+
+    /**
+     * Record a failed call, taking the host out of rotation when the failure threshold is reached.
+     *
+     * @param failureThreshold number of consecutive failures after which the host is taken out of rotation
+     * @param cooldownMillis   time the host stays out of rotation
+     * @param nowMillis        current time
+     * @return true if the host was taken out of rotation by this failure
+     */
+    public synchronized boolean recordFailure(int failureThreshold, long cooldownMillis, long nowMillis) {
+
+        consecutiveFailures++;
+        if (consecutiveFailures >= failureThreshold) {
+            consecutiveFailures = 0;
+            unavailableUntilMillis = nowMillis + cooldownMillis;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether the host is in rotation.
+     *
+     * @param nowMillis current time
+     * @return false if the host is cooling down after failures
+     */
+    public boolean isAvailable(long nowMillis) {
+
+        return nowMillis >= unavailableUntilMillis;
+    }
+
+    public long getUnavailableUntilMillis() {
+
+        return unavailableUntilMillis;
+    }
+
+    /**
+     * Check whether the host has come back into rotation after a cooldown, but has not had a successful call since.
+     *
+     * @param nowMillis current time
+     * @return true if the host is on trial after failures
+     */
+    public boolean isRecovering(long nowMillis) {
+
+        long until = unavailableUntilMillis;
+        return until != 0 && nowMillis >= until;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+
+        return consecutiveFailures;
+    }
+
+    /**
+     * Get the moving average of the call times, decayed by the time since the last call.
+     *
+     * @param decayMillis time in which the average decays by a factor of e
+     * @param nowMillis   current time
+     * @return the latency in nanoseconds, or 0 if the host has not been called yet
+     */
+    public synchronized double getLatencyNanos(long decayMillis, long nowMillis) {
+
+        if (!sampled) {
+            return 0;
+        }
+        long idleMillis = Math.max(0, nowMillis - lastSampleMillis);
+        return latencyNanos * Math.exp(-(double) idleMillis / decayMillis);
+    }
+
+    /**
+     * Get the moving average of the call times, without decay.
+     *
+     * @return the latency in microseconds, or 0 if the host has not been called yet
+     */
+    public synchronized long getLatencyMicros() {
+
+        return sampled ? (long) (latencyNanos / 1000) : 0;
+    }
+
+    /**
+     * Get a percentile of the most recent call times. The percentile is recomputed after every few new calls rather
+     * than on every read.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @param minSamples number of calls needed for the percentile to be meaningful
+     * @return the latency in nanoseconds, or -1 if the host has been called fewer than {@code minSamples} times
+     */
+    public synchronized long getLatencyPercentileNanos(double percentile, int minSamples) {
+
+        if (sampleCount == 0 || sampleCount < minSamples) {
+            return -1;
+        }
+        if (percentile != cachedPercentile
+                || staleSamples >= DuoAuthenticatorConstants.Routing.PERCENTILE_REFRESH_SAMPLES) {
+            long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            // Nearest rank.
+            int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+            cachedPercentileNanos = sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+            cachedPercentile = percentile;
+            staleSamples = 0;
+        }
+        return cachedPercentileNanos;
+    }
+}
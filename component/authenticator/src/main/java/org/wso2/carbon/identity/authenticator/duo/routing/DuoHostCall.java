@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.routing;
+
+/**
+ * A call to the Duo API made through a {@link DuoHostPool}.
+ *
+ * @param <T> type of the call result
+ */
+@FunctionalInterface
+public interface DuoHostCall<T> {
+
+    /**
+     * Make the call against a Duo API host.
+     *
+     * @param host the Duo API host selected for the call
+     * @return the call result
+     * @throws Exception if the call fails
+     */
+    T call(String host) throws Exception;
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.routing;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiter;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoSlowLoginSampler;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The Duo API hosts configured for an identity provider, in order of preference, with optional weights.
+ * <p>
+ * Calls go to the available host with the lowest latency relative to its weight. Hosts that have not been called
+ * yet are preferred in their configured order, so each host is measured once before latencies are compared. A call
+ * that fails is retried on the next host of the route; hosts that are out of rotation after repeated failures are
+ * only tried when every other host has failed.
+ * <p>
+ * Idempotent calls can be hedged: a call which has not completed within a recent latency percentile of its host is
+ * sent again, to the next host of the route, and the caller gets whichever copy completes first.
+ */
+public class DuoHostPool {
+
+    private static final Log log = LogFactory.getLog(DuoHostPool.class);
+
+    private final DuoHostRouter router;
+    private final List<DuoHost> hosts;
+    private final int[] weights;
+
+    DuoHostPool(DuoHostRouter router, List<DuoHost> hosts, int[] weights) {
+
+        this.router = router;
+        this.hosts = Collections.unmodifiableList(new ArrayList<>(hosts));
+        this.weights = weights.clone();
+    }
+
+    public List<DuoHost> getHosts() {
+
+        return hosts;
+    }
+
+    /**
+     * Get the weight of a host of the pool.
+     *
+     * @param index position of the host in the configured order
+     * @return the weight
+     */
+    public int getWeight(int index) {
+
+        return weights[index];
+    }
+
+    /**
+     * Get the hosts in the order they are tried for the next call.
+     *
+     * @return the route
+     */
+    public List<DuoHost> getRoute() {
+
+        long now = System.currentTimeMillis();
+        long decayMillis = router.getLatencyDecayMillis();
+        List<Integer> available = new ArrayList<>(hosts.size());
+        List<Integer> unavailable = new ArrayList<>(0);
+        double[] scores = new double[hosts.size()];
+        for (int i = 0; i < hosts.size(); i++) {
+            DuoHost host = hosts.get(i);
+            if (host.isAvailable(now)) {
+                scores[i] = host.getLatencyNanos(decayMillis, now) / weights[i];
+                available.add(i);
+            } else {
+                unavailable.add(i);
+            }
+        }
+        // Sorting is stable, so hosts with equal scores keep their configured order.
+        available.sort(Comparator.comparingDouble(i -> scores[i]));
+        unavailable.sort(Comparator.comparingLong(i -> hosts.get(i).getUnavailableUntilMillis()));
+        List<DuoHost> route = new ArrayList<>(hosts.size());
+        for (int i : available) {
+            route.add(hosts.get(i));
+        }
+        for (int i : unavailable) {
+            route.add(hosts.get(i));
+        }
+        return route;
+    }
+
+    /**
+     * Make a call, failing over to the next host of the route when it fails.
+     *
+     * @param call the call
+     * @param <T>  type of the call result
+     * @return the result of the first successful call
+     * @throws Exception the failure of the call on the last host
+     */
+    public <T> T execute(DuoHostCall<T> call) throws Exception {
+
+        return execute(getRoute(), call);
+    }
+
+    /**
+     * Make an idempotent call, failing over to the next host of the route when it fails, and hedging it when it is
+     * slow. A call which has not completed within the hedging percentile of the recent call times of its host is sent
+     * again to the next available host of the route, or to the same host if it is the only one. The first copy to
+     * succeed wins and the other is cancelled by interrupting it.
+     * <p>
+     * A call can only be hedged if it gets a permit of the cap on hedges in flight when it starts, and the hedge is
+     * only sent if the rate limit, if given, allows it right away. The permit is held until both copies have
+     * completed. Calls are not hedged while hedging is disabled, or before their host has been called enough times
+     * for its percentile to be meaningful.
+     * <p>
+     * Both copies run on the hedging executor, so that the caller can return as soon as one of them succeeds. The
+     * retries they make are added to the slow-login timeline of the caller once the call returns.
+     *
+     * @param call        the call, which must be safe to make twice
+     * @param rateLimiter the rate limiter hedges are counted against, or null if the API is not rate limited
+     * @param <T>         type of the call result
+     * @return the result of the first successful call
+     * @throws Exception the failure of the call, once both copies have failed
+     */
+    public <T> T executeHedged(DuoHostCall<T> call, DuoRateLimiter rateLimiter) throws Exception {
+
+        if (!router.isHedgingEnabled()) {
+            return execute(call);
+        }
+        List<DuoHost> route = getRoute();
+        if (route.isEmpty()) {
+            throw new IOException(DuoAuthenticatorConstants.DuoErrors.ERROR_NO_DUO_HOST);
+        }
+        long delayNanos = router.getHedgeDelayNanos(route.get(0));
+        if (delayNanos < 0) {
+            return execute(route, call);
+        }
+        Semaphore hedgePermits = router.tryAcquireHedge();
+        if (hedgePermits == null) {
+            return executeUnhedged(route, call, delayNanos);
+        }
+        HedgeSlot slot = new HedgeSlot(hedgePermits);
+        DuoSlowLoginSampler sampler = DuoSlowLoginSampler.getInstance();
+        AtomicInteger copyRetries = new AtomicInteger();
+        HedgeSlot.Copy<T> primaryCopy = slot.copy(sampler.relayRetries(() -> execute(route, call), copyRetries));
+        CompletionService<T> completion = new ExecutorCompletionService<>(router.getHedgingExecutor());
+        Future<T> primary;
+        try {
+            primary = completion.submit(primaryCopy);
+        } catch (RejectedExecutionException e) {
+            primaryCopy.discard();
+            slot.release();
+            return executeUnhedged(route, call, delayNanos);
+        }
+        HedgeSlot.Copy<T> hedgeCopy = null;
+        Future<T> hedge = null;
+        try {
+            if (completion.poll(delayNanos, TimeUnit.NANOSECONDS) != null) {
+                return getResult(primary);
+            }
+            if (rateLimiter != null && !rateLimiter.tryAcquire()) {
+                DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.HEDGES_REJECTED);
+                return getResult(primary);
+            }
+            DuoHost hedgeHost = route.size() > 1 && route.get(1).isAvailable(System.currentTimeMillis())
+                    ? route.get(1) : route.get(0);
+            hedgeCopy = slot.copy(sampler.relayRetries(() -> execute(hedgeHost, call), copyRetries));
+            try {
+                hedge = completion.submit(hedgeCopy);
+            } catch (RejectedExecutionException e) {
+                // No thread is left for the hedge; the call goes on without it.
+                DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.HEDGES_REJECTED);
+                return getResult(primary);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Hedging a Duo call slower than " + TimeUnit.NANOSECONDS.toMillis(delayNanos)
+                        + " ms to " + hedgeHost.getName());
+            }
+            DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.HEDGES_SENT);
+            sampler.recordRetry();
+            Future<T> first = completion.take();
+            try {
+                T result = getResult(first);
+                if (first == hedge) {
+                    DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.HEDGES_WON);
+                }
+                return result;
+            } catch (Exception e) {
+                // The other copy may still succeed.
+                Future<T> second = completion.take();
+                T result = getResult(second);
+                if (second == hedge) {
+                    DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.HEDGES_WON);
+                }
+                return result;
+            }
+        } finally {
+            // The permit is returned once the copies still running have completed, so that a cancelled copy
+            // blocked in I/O keeps counting against the cap.
+            primary.cancel(true);
+            primaryCopy.discard();
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+            if (hedgeCopy != null) {
+                hedgeCopy.discard();
+            }
+            slot.release();
+            sampler.recordRetries(copyRetries.get());
+        }
+    }
+
+    /**
+     * Make a call which could not be hedged for want of a permit, counting it as a rejected hedge if it took longer
+     * than the hedging delay.
+     */
+    private <T> T executeUnhedged(List<DuoHost> route, DuoHostCall<T> call, long delayNanos) throws Exception {
+
+        long start = System.nanoTime();
+        try {
+            return execute(route, call);
+        } finally {
+            if (System.nanoTime() - start > delayNanos) {
+                DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.HEDGES_REJECTED);
+            }
+        }
+    }
+
+    private <T> T execute(List<DuoHost> route, DuoHostCall<T> call) throws Exception {
+
+        if (route.isEmpty()) {
+            throw new IOException(DuoAuthenticatorConstants.DuoErrors.ERROR_NO_DUO_HOST);
+        }
+        Exception failure = null;
+        for (int i = 0; i < route.size(); i++) {
+            DuoHost host = route.get(i);
+            if (i > 0) {
+                DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.ROUTING_FAILOVERS);
+                DuoSlowLoginSampler.getInstance().recordRetry();
+                if (log.isDebugEnabled()) {
+                    log.debug("Failing over the Duo call to " + host.getName());
+                }
+            }
+            try {
+                return execute(host, call);
+            } catch (Exception e) {
+                failure = e;
+                if (isInterrupted(e)) {
+                    break;
+                }
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Make a call against the given host, without failover. Used for calls bound to the host of an earlier call.
+     *
+     * @param hostName the host name
+     * @param call     the call
+     * @param <T>      type of the call result
+     * @return the result
+     * @throws Exception the failure of the call
+     */
+    public <T> T execute(String hostName, DuoHostCall<T> call) throws Exception {
+
+        return execute(router.getHost(hostName), call);
+    }
+
+    private <T> T execute(DuoHost host, DuoHostCall<T> call) throws Exception {
+
+        DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.ROUTING_PREFIX + host.getName()
+                + DuoAuthenticatorConstants.Metrics.HOST_SELECTED);
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.call(host.getName());
+        } catch (Exception e) {
+            if (isInterrupted(e)) {
+                // A call cancelled because its hedge won says nothing about the host.
+                throw e;
+            }
+            DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.ROUTING_PREFIX + host.getName()
+                    + DuoAuthenticatorConstants.Metrics.HOST_FAILURES);
+            if (host.recordFailure(router.getFailureThreshold(), router.getCooldownMillis(),
+                    System.currentTimeMillis())) {
+                log.warn("Taking the Duo API host " + host.getName() + " out of rotation for "
+                        + router.getCooldownMillis() + " ms after repeated failures");
+            }
+            throw e;
+        }
+        host.recordSuccess(System.nanoTime() - start, DuoAuthenticatorConstants.Routing.EWMA_ALPHA,
+                System.currentTimeMillis());
+        return result;
+    }
+
+    private static boolean isInterrupted(Exception e) {
+
+        return e instanceof InterruptedException || e instanceof InterruptedIOException
+                || Thread.currentThread().isInterrupted();
+    }
+
+    private static <T> T getResult(Future<T> call) throws Exception {
+
+        try {
+            return call.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Parse a host list of the form {@code host1|weight1, host2|weight2}. Weights are optional and default to 1.
+     *
+     * @param hostList the host list
+     * @param hosts    receives the host names
+     * @return the weights
+     */
+    static int[] parse(String hostList, List<String> hosts) {
+
+        List<Integer> weights = new ArrayList<>();
+        for (String entry : StringUtils.split(hostList, DuoAuthenticatorConstants.Routing.HOST_SEPARATOR)) {
+            String host = entry.trim();
+            int weight = 1;
+            int separator = host.indexOf(DuoAuthenticatorConstants.Routing.WEIGHT_SEPARATOR);
+            if (separator >= 0) {
+                String configuredWeight = host.substring(separator + 1).trim();
+                host = host.substring(0, separator).trim();
+                try {
+                    weight = Math.max(1, Integer.parseInt(configuredWeight));
+                } catch (NumberFormatException e) {
+                    log.warn("Invalid weight " + configuredWeight + " configured for the Duo API host " + host);
+                }
+            }
+            if (!host.isEmpty()) {
+                hosts.add(host);
+                weights.add(weight);
+            }
+        }
+        int[] parsed = new int[weights.size()];
+        for (int i = 0; i < parsed.length; i++) {
+            parsed[i] = weights.get(i);
+        }
+        return parsed;
+    }
+
+    /**
+     * The permit of a hedged call. It is held by the caller and by each copy of the call, and returned to the cap on
+     * hedges in flight once all of them are done. A copy cancelled before it started is done once discarded.
+     */
+    private static final class HedgeSlot {
+
+        private final Semaphore permits;
+        private final AtomicInteger holders = new AtomicInteger(1);
+
+        HedgeSlot(Semaphore permits) {
+
+            this.permits = permits;
+        }
+
+        <T> Copy<T> copy(Callable<T> call) {
+
+            holders.incrementAndGet();
+            return new Copy<>(call);
+        }
+
+        void release() {
+
+            if (holders.decrementAndGet() == 0) {
+                permits.release();
+            }
+        }
+
+        /**
+         * A copy of the hedged call, which releases its hold on the permit when it completes.
+         */
+        final class Copy<T> implements Callable<T> {
+
+            private final Callable<T> call;
+            private final AtomicBoolean claimed = new AtomicBoolean();
+
+            private Copy(Callable<T> call) {
+
+                this.call = call;
+            }
+
+            @Override
+            public T call() throws Exception {
+
+                if (!claimed.compareAndSet(false, true)) {
+                    throw new CancellationException();
+                }
+                try {
+                    return call.call();
+                } finally {
+                    release();
+                }
+            }
+
+            /**
+             * Release the hold of the copy if it has not started, so that it never will.
+             */
+            void discard() {
+
+                if (claimed.compareAndSet(false, true)) {
+                    release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.routing;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the {@link DuoHostPool} of each configured host list and the routing state of each Duo API host, and
+ * publishes the latency and availability of the hosts through {@link DuoMetrics}. Also holds the hedging settings,
+ * the cap on hedges in flight and the threads hedged calls run on.
+ */
+public class DuoHostRouter {
+
+    private static final DuoHostRouter instance = new DuoHostRouter();
+
+    private final ConcurrentMap<String, DuoHost> hosts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DuoHostPool> pools = new ConcurrentHashMap<>();
+    private volatile int failureThreshold = DuoAuthenticatorConstants.Routing.DEFAULT_FAILURE_THRESHOLD;
+    private volatile long cooldownMillis =
+            TimeUnit.SECONDS.toMillis(DuoAuthenticatorConstants.Routing.DEFAULT_COOLDOWN_SECONDS);
+    private volatile long latencyDecayMillis =
+            TimeUnit.SECONDS.toMillis(DuoAuthenticatorConstants.Routing.DEFAULT_LATENCY_DECAY_SECONDS);
+    private volatile boolean hedgingEnabled;
+    private volatile double hedgingPercentile = DuoAuthenticatorConstants.Hedging.DEFAULT_PERCENTILE;
+    private volatile long hedgingMinDelayNanos =
+            TimeUnit.MILLISECONDS.toNanos(DuoAuthenticatorConstants.Hedging.DEFAULT_MIN_DELAY_MILLIS);
+    private volatile int maxHedgesInFlight = DuoAuthenticatorConstants.Hedging.DEFAULT_MAX_IN_FLIGHT;
+    private volatile Semaphore hedgePermits = new Semaphore(maxHedgesInFlight);
+    private ThreadPoolExecutor hedgingExecutor;
+
+    private DuoHostRouter() {
+
+    }
+
+    public static DuoHostRouter getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Configure the failover of the hosts.
+     *
+     * @param failureThreshold   number of consecutive failures after which a host is taken out of rotation
+     * @param cooldownMillis     time a host stays out of rotation
+     * @param latencyDecayMillis time in which the latency of an idle host decays by a factor of e
+     */
+    public void configure(int failureThreshold, long cooldownMillis, long latencyDecayMillis) {
+
+        this.failureThreshold = failureThreshold;
+        this.cooldownMillis = cooldownMillis;
+        this.latencyDecayMillis = latencyDecayMillis;
+    }
+
+    /**
+     * Configure the hedging of idempotent calls.
+     *
+     * @param enabled        whether calls made through {@link DuoHostPool#executeHedged} are hedged
+     * @param percentile     percentile of the recent call times of a host after which a call to it is hedged
+     * @param maxInFlight    maximum number of hedges in flight across all hosts
+     * @param minDelayMillis minimum time a call is given before it is hedged
+     */
+    public void configureHedging(boolean enabled, double percentile, int maxInFlight, long minDelayMillis) {
+
+        this.hedgingEnabled = enabled;
+        this.hedgingPercentile = percentile;
+        this.hedgingMinDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMillis);
+        if (maxInFlight != maxHedgesInFlight) {
+            // Hedges in flight release the permits of the semaphore they were counted against.
+            this.hedgePermits = new Semaphore(maxInFlight);
+            this.maxHedgesInFlight = maxInFlight;
+            synchronized (this) {
+                if (hedgingExecutor != null) {
+                    hedgingExecutor.setMaximumPoolSize(2 * maxInFlight);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the pool of a host list.
+     *
+     * @param hostList the hosts configured for an identity provider, in the form {@code host1|weight1, host2}
+     * @return the pool
+     */
+    public DuoHostPool getPool(String hostList) {
+
+        DuoHostPool pool = pools.get(hostList);
+        if (pool != null) {
+            return pool;
+        }
+        return pools.computeIfAbsent(hostList, list -> {
+            List<String> names = new ArrayList<>();
+            int[] weights = DuoHostPool.parse(list, names);
+            List<DuoHost> poolHosts = new ArrayList<>(names.size());
+            for (String name : names) {
+                poolHosts.add(getHost(name));
+            }
+            return new DuoHostPool(this, poolHosts, weights);
+        });
+    }
+
+    /**
+     * Get the routing state of a host.
+     *
+     * @param name the host name
+     * @return the host
+     */
+    public DuoHost getHost(String name) {
+
+        DuoHost host = hosts.get(name);
+        if (host != null) {
+            return host;
+        }
+        return hosts.computeIfAbsent(name, hostName -> {
+            DuoHost created = new DuoHost(hostName);
+            String prefix = DuoAuthenticatorConstants.Metrics.ROUTING_PREFIX + hostName;
+            DuoMetrics.getInstance().registerGauge(prefix + DuoAuthenticatorConstants.Metrics.HOST_LATENCY,
+                    created::getLatencyMicros);
+            DuoMetrics.getInstance().registerGauge(prefix + DuoAuthenticatorConstants.Metrics.HOST_AVAILABLE,
+                    () -> created.isAvailable(System.currentTimeMillis()) ? 1 : 0);
+            DuoMetrics.getInstance().registerGauge(prefix + DuoAuthenticatorConstants.Metrics.HOST_TAIL_LATENCY,
+                    () -> Math.max(0, created.getLatencyPercentileNanos(hedgingPercentile, 1) / 1000));
+            return created;
+        });
+    }
+
+    /**
+     * Get the hosts called so far.
+     *
+     * @return an unmodifiable view of the hosts
+     */
+    public Collection<DuoHost> getHosts() {
+
+        return Collections.unmodifiableCollection(hosts.values());
+    }
+
+    public int getFailureThreshold() {
+
+        return failureThreshold;
+    }
+
+    public long getCooldownMillis() {
+
+        return cooldownMillis;
+    }
+
+    public long getLatencyDecayMillis() {
+
+        return latencyDecayMillis;
+    }
+
+    public boolean isHedgingEnabled() {
+
+        return hedgingEnabled;
+    }
+
+    /**
+     * Get the time a call to a host is given before it is hedged.
+     *
+     * @param host the host
+     * @return the delay in nanoseconds, or -1 if calls to the host are not hedged yet
+     */
+    long getHedgeDelayNanos(DuoHost host) {
+
+        long percentileNanos = host.getLatencyPercentileNanos(hedgingPercentile,
+                DuoAuthenticatorConstants.Hedging.MIN_SAMPLES);
+        return percentileNanos < 0 ? -1 : Math.max(percentileNanos, hedgingMinDelayNanos);
+    }
+
+    /**
+     * Take a permit for a hedged call, counted against the cap on hedges in flight. It is not waited for: a call
+     * which cannot be hedged right away is made without a hedge.
+     *
+     * @return the semaphore to release the permit to once both copies of the call have completed, or null if the
+     * call is not allowed to be hedged
+     */
+    Semaphore tryAcquireHedge() {
+
+        Semaphore permits = hedgePermits;
+        return permits.tryAcquire() ? permits : null;
+    }
+
+    /**
+     * Get the threads hedged calls run on. Both the call and its hedge run on them, so that the caller can return
+     * with whichever completes first. There are at most two threads per hedge in flight; a call or hedge submitted
+     * beyond them is rejected, and made without a hedge.
+     *
+     * @return the executor
+     */
+    synchronized ExecutorService getHedgingExecutor() {
+
+        if (hedgingExecutor == null) {
+            hedgingExecutor = new ThreadPoolExecutor(0, 2 * maxHedgesInFlight, DuoAuthenticatorConstants.Hedging
+                    .THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, DuoAuthenticatorConstants.Hedging.THREAD_NAME);
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        return hedgingExecutor;
+    }
+
+    /**
+     * Forget all hosts and pools, and stop the hedged calls in flight.
+     */
+    public void clear() {
+
+        for (String name : hosts.keySet()) {
+            String prefix = DuoAuthenticatorConstants.Metrics.ROUTING_PREFIX + name;
+            DuoMetrics.getInstance().removeGauge(prefix + DuoAuthenticatorConstants.Metrics.HOST_LATENCY);
+            DuoMetrics.getInstance().removeGauge(prefix + DuoAuthenticatorConstants.Metrics.HOST_AVAILABLE);
+            DuoMetrics.getInstance().removeGauge(prefix + DuoAuthenticatorConstants.Metrics.HOST_TAIL_LATENCY);
+        }
+        pools.clear();
+        hosts.clear();
+        synchronized (this) {
+            if (hedgingExecutor != null) {
+                hedgingExecutor.shutdownNow();
+                hedgingExecutor = null;
+            }
+        }
+    }
+}
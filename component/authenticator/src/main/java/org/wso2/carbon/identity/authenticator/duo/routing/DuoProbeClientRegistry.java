@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.routing;
+
+import com.duosecurity.Client;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one Duo client per Duo API host and Duo application for the health checks, created by the first health check
+ * of the host. A Duo client builds its own HTTP stack, so sharing it keeps the connections to the host alive between
+ * logins. The clients of the logins are not shared, as they carry the callback URL of the login.
+ */
+public class DuoProbeClientRegistry {
+
+    private static final DuoProbeClientRegistry instance = new DuoProbeClientRegistry();
+
+    private final ConcurrentMap<String, ProbeClient> clients = new ConcurrentHashMap<>();
+
+    private DuoProbeClientRegistry() {
+
+    }
+
+    public static DuoProbeClientRegistry getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Get the health check client of a Duo application at a host. A new client replaces the existing one when the
+     * client secret of the application has been changed.
+     *
+     * @param host         the Duo API host
+     * @param clientId     the client ID of the Duo application
+     * @param clientSecret the client secret of the Duo application
+     * @param factory      creates the client for the host
+     * @return the client
+     * @throws Exception if the client could not be created
+     */
+    public Client getClient(String host, String clientId, String clientSecret, DuoHostCall<Client> factory)
+            throws Exception {
+
+        String key = host + "/" + clientId;
+        ProbeClient probeClient = clients.get(key);
+        if (probeClient == null || !probeClient.clientSecret.equals(clientSecret)) {
+            // Health checks racing on a new host may each create a client; the one stored last is kept.
+            probeClient = new ProbeClient(clientSecret, factory.call(host));
+            clients.put(key, probeClient);
+            DuoMetrics.getInstance().registerGauge(DuoAuthenticatorConstants.Metrics.PROBE_CLIENTS, clients::size);
+        }
+        return probeClient.client;
+    }
+
+    /**
+     * Get the number of clients kept.
+     *
+     * @return the number of clients
+     */
+    public int size() {
+
+        return clients.size();
+    }
+
+    /**
+     * Forget every client.
+     */
+    public void clear() {
+
+        clients.clear();
+    }
+
+    /**
+     * A health check client, with the client secret it was created with.
+     */
+    private static final class ProbeClient {
+
+        private final String clientSecret;
+        private final Client client;
+
+        private ProbeClient(String clientSecret, Client client) {
+
+            this.clientSecret = clientSecret;
+            this.client = client;
+        }
+    }
+}
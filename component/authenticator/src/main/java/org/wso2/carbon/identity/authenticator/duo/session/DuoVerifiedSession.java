@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.session;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A successful Duo verification of a user in a browser session.
+ */
+public class DuoVerifiedSession implements Serializable {
+
+    private static final long serialVersionUID = 5208474513915672390L;
+
+    private final long verifiedAt;
+    private final Map<String, String> userAttributes;
+
+    /**
+     * Create a verified session.
+     *
+     * @param verifiedAt     time of the verification in milliseconds since the epoch
+     * @param userAttributes attributes of the user returned by Duo, including the authentication method
+     */
+    public DuoVerifiedSession(long verifiedAt, Map<String, String> userAttributes) {
+
+        this.verifiedAt = verifiedAt;
+        this.userAttributes = Collections.unmodifiableMap(new HashMap<>(userAttributes));
+    }
+
+    public long getVerifiedAt() {
+
+        return verifiedAt;
+    }
+
+    public Map<String, String> getUserAttributes() {
+
+        return userAttributes;
+    }
+}
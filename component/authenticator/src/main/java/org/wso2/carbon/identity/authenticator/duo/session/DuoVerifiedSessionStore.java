@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.session;
+
+import org.wso2.carbon.identity.authenticator.duo.cache.LocalDuoCache;
+import org.wso2.carbon.identity.authenticator.duo.crypto.DuoCryptoCache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Keeps the recent Duo verifications of users, so that a user moving to another service provider within the
+ * trusted-session window is not sent to Duo again. A verification is bound to the browser session, the authenticated
+ * subject, the Duo user and the Duo host, and is looked up by a digest of those values.
+ */
+public class DuoVerifiedSessionStore {
+
+    private static final String CACHE_NAME = "DuoVerifiedSessions";
+    private static final int BROWSER_SESSION_ID_LENGTH = 32;
+    private static final DuoVerifiedSessionStore instance = new DuoVerifiedSessionStore();
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private volatile LocalDuoCache<DuoVerifiedSession> sessions;
+
+    private DuoVerifiedSessionStore() {
+
+    }
+
+    public static DuoVerifiedSessionStore getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Set the longest window a verification can be trusted for and the maximum number of verifications kept.
+     * Verifications recorded earlier are dropped when the limits change.
+     *
+     * @param maxWindowMillis the longest trusted-session window
+     * @param maxEntries      the maximum number of verifications kept
+     */
+    public void configure(long maxWindowMillis, int maxEntries) {
+
+        if (isConfiguredAs(sessions, maxWindowMillis, maxEntries)) {
+            return;
+        }
+        synchronized (this) {
+            if (!isConfiguredAs(sessions, maxWindowMillis, maxEntries)) {
+                sessions = new LocalDuoCache<>(CACHE_NAME, maxWindowMillis, maxEntries);
+            }
+        }
+    }
+
+    /**
+     * Record a successful verification.
+     *
+     * @param tenantDomain tenant domain of the login
+     * @param sessionKey   the key returned by {@link #getSessionKey(String, String, String, String)}
+     * @param session      the verification
+     */
+    public void record(String tenantDomain, String sessionKey, DuoVerifiedSession session) {
+
+        LocalDuoCache<DuoVerifiedSession> current = sessions;
+        if (current != null) {
+            current.put(tenantDomain, sessionKey, session);
+        }
+    }
+
+    /**
+     * Get a verification made within the given window.
+     *
+     * @param tenantDomain tenant domain of the login
+     * @param sessionKey   the key returned by {@link #getSessionKey(String, String, String, String)}
+     * @param windowMillis the trusted-session window of the service provider
+     * @return the verification, or null if there is none within the window
+     */
+    public DuoVerifiedSession get(String tenantDomain, String sessionKey, long windowMillis) {
+
+        LocalDuoCache<DuoVerifiedSession> current = sessions;
+        if (current == null) {
+            return null;
+        }
+        DuoVerifiedSession session = current.get(tenantDomain, sessionKey);
+        if (session == null || System.currentTimeMillis() - session.getVerifiedAt() > windowMillis) {
+            return null;
+        }
+        return session;
+    }
+
+    /**
+     * Drop all verifications.
+     */
+    public synchronized void clear() {
+
+        sessions = null;
+    }
+
+    private static boolean isConfiguredAs(LocalDuoCache<DuoVerifiedSession> cache, long maxWindowMillis,
+                                          int maxEntries) {
+
+        return cache != null && cache.getExpiryMillis() == maxWindowMillis && cache.getMaxEntries() == maxEntries;
+    }
+
+    /**
+     * Generate a new identifier for a browser session.
+     *
+     * @return a random, URL safe identifier
+     */
+    public String generateBrowserSessionId() {
+
+        byte[] bytes = new byte[BROWSER_SESSION_ID_LENGTH];
+        secureRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Get the key a verification is recorded under.
+     *
+     * @param browserSessionId identifier of the browser session
+     * @param username         the authenticated subject
+     * @param duoUserId        the Duo user identifier
+     * @param host             the Duo host
+     * @return a digest of the given values
+     */
+    public static String getSessionKey(String browserSessionId, String username, String duoUserId, String host) {
+
+        MessageDigest digest = DuoCryptoCache.getSha256();
+        for (String value : new String[]{browserSessionId, username, duoUserId, host}) {
+            digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+    }
+}
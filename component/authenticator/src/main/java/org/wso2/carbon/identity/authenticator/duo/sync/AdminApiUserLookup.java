@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.sync;
+
+import com.duosecurity.client.Admin;
+import com.duosecurity.client.Http;
+import org.json.JSONArray;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiter;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostCall;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostPool;
+
+import java.util.List;
+
+/**
+ * Looks up users through the Duo Admin API <code>/admin/v1/users</code> endpoint, failing over across the hosts of
+ * a {@link DuoHostPool}, either one user per request or several users at once through the {@code username_list}
+ * parameter. Lookups made on behalf of a login can be hedged, as looking users up is idempotent.
+ */
+public class AdminApiUserLookup implements DuoUserLookup, DuoUserBatchLookup {
+
+    private final DuoHostPool hostPool;
+    private final String adminIntegrationKey;
+    private final String adminSecretKey;
+    private final DuoRateLimiter hedgeRateLimiter;
+
+    public AdminApiUserLookup(DuoHostPool hostPool, String adminIntegrationKey, String adminSecretKey) {
+
+        this(hostPool, adminIntegrationKey, adminSecretKey, null);
+    }
+
+    /**
+     * Create a lookup which hedges slow lookups.
+     *
+     * @param hostPool            the hosts of the Admin integration
+     * @param adminIntegrationKey the Admin integration key
+     * @param adminSecretKey      the Admin secret key
+     * @param hedgeRateLimiter    the rate limiter of the Admin integration hedges are counted against, or null to
+     *                            look users up without hedging
+     */
+    public AdminApiUserLookup(DuoHostPool hostPool, String adminIntegrationKey, String adminSecretKey,
+                              DuoRateLimiter hedgeRateLimiter) {
+
+        this.hostPool = hostPool;
+        this.adminIntegrationKey = adminIntegrationKey;
+        this.adminSecretKey = adminSecretKey;
+        this.hedgeRateLimiter = hedgeRateLimiter;
+    }
+
+    @Override
+    public JSONArray lookupUser(String duoUsername) throws Exception {
+
+        return execute(duoHost -> {
+            Http duoAdminRequest = new Admin.AdminBuilder(DuoAuthenticatorConstants.HTTP_GET, duoHost,
+                    DuoAuthenticatorConstants.API_USER).build();
+            duoAdminRequest.addParam(DuoAuthenticatorConstants.DUO_USERNAME, duoUsername);
+            duoAdminRequest.signRequest(adminIntegrationKey, adminSecretKey);
+            return duoAdminRequest.executeRequest();
+        });
+    }
+
+    @Override
+    public JSONArray lookupUsers(List<String> duoUsernames) throws Exception {
+
+        // The list is sent as a JSON array, as the client would otherwise send the string form of the list.
+        String usernameList = new JSONArray(duoUsernames).toString();
+        return execute(duoHost -> {
+            Http duoAdminRequest = new Admin.AdminBuilder(DuoAuthenticatorConstants.HTTP_GET, duoHost,
+                    DuoAuthenticatorConstants.API_USER).build();
+            duoAdminRequest.addParam(DuoAuthenticatorConstants.LookupBatching.USERNAME_LIST, usernameList);
+            duoAdminRequest.signRequest(adminIntegrationKey, adminSecretKey);
+            return duoAdminRequest.executeRequest();
+        });
+    }
+
+    private JSONArray execute(DuoHostCall<Object> lookup) throws Exception {
+
+        Object result = hedgeRateLimiter != null ? hostPool.executeHedged(lookup, hedgeRateLimiter)
+                : hostPool.execute(lookup);
+        return new JSONArray(result.toString());
+    }
+}
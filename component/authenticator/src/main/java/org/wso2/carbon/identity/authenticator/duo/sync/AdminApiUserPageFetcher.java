@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.sync;
+
+import com.duosecurity.client.Admin;
+import com.duosecurity.client.Http;
+import org.json.JSONArray;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostRouter;
+
+/**
+ * Fetches pages of users through the Duo Admin API <code>/admin/v1/users</code> endpoint. Requests are routed
+ * through the {@link DuoHostRouter} when several hosts are configured.
+ */
+public class AdminApiUserPageFetcher implements DuoUserPageFetcher {
+
+    private final String host;
+    private final String adminIntegrationKey;
+    private final String adminSecretKey;
+
+    public AdminApiUserPageFetcher(String host, String adminIntegrationKey, String adminSecretKey) {
+
+        this.host = host;
+        this.adminIntegrationKey = adminIntegrationKey;
+        this.adminSecretKey = adminSecretKey;
+    }
+
+    @Override
+    public JSONArray fetchUsers(int offset, int limit) throws Exception {
+
+        Object result = DuoHostRouter.getInstance().getPool(host).execute(duoHost -> {
+            Http duoAdminRequest = new Admin.AdminBuilder(DuoAuthenticatorConstants.HTTP_GET, duoHost,
+                    DuoAuthenticatorConstants.API_USER).build();
+            duoAdminRequest.addParam(DuoAuthenticatorConstants.UserSync.LIMIT, String.valueOf(limit));
+            duoAdminRequest.addParam(DuoAuthenticatorConstants.UserSync.OFFSET, String.valueOf(offset));
+            duoAdminRequest.signRequest(adminIntegrationKey, adminSecretKey);
+            return duoAdminRequest.executeRequest();
+        });
+        return new JSONArray(result.toString());
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.sync;
+
+import org.wso2.carbon.identity.authenticator.duo.util.DuoPhoneNumberUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable index from Duo usernames to their phone numbers, as registered in Duo.
+ * <p>
+ * Usernames are kept in a sorted array and looked up with a binary search. The phone numbers of all users are
+ * stored as references into a de-duplicated string table, so that an index of a large Duo account costs a few
+ * primitive arrays on top of the strings themselves.
+ */
+public final class DuoUserIndex {
+
+    public static final DuoUserIndex EMPTY = new Builder().build();
+
+    private final String[] usernames;
+    private final int[] phoneOffsets;
+    private final int[] phoneReferences;
+    private final String[] phoneTable;
+    private final long createdAt;
+
+    private DuoUserIndex(String[] usernames, int[] phoneOffsets, int[] phoneReferences, String[] phoneTable,
+                         long createdAt) {
+
+        this.usernames = usernames;
+        this.phoneOffsets = phoneOffsets;
+        this.phoneReferences = phoneReferences;
+        this.phoneTable = phoneTable;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Create an index from its raw storage arrays, as read back from a snapshot.
+     */
+    static DuoUserIndex fromArrays(String[] usernames, int[] phoneOffsets, int[] phoneReferences,
+                                   String[] phoneTable, long createdAt) {
+
+        return new DuoUserIndex(usernames, phoneOffsets, phoneReferences, phoneTable, createdAt);
+    }
+
+    /**
+     * Get the time the index was built, or for an index read back from a snapshot, the time the snapshot was written.
+     *
+     * @return the creation time in milliseconds since the epoch
+     */
+    public long getCreatedAt() {
+
+        return createdAt;
+    }
+
+    String[] getUsernames() {
+
+        return usernames;
+    }
+
+    int[] getPhoneOffsets() {
+
+        return phoneOffsets;
+    }
+
+    int[] getPhoneReferences() {
+
+        return phoneReferences;
+    }
+
+    String[] getPhoneTable() {
+
+        return phoneTable;
+    }
+
+    /**
+     * Find the position of a user in the index.
+     *
+     * @param username the Duo username
+     * @return the position of the user, or a negative value if the user is not indexed
+     */
+    public int indexOf(String username) {
+
+        if (username == null) {
+            return -1;
+        }
+        return Arrays.binarySearch(usernames, username);
+    }
+
+    /**
+     * Get the number of users in the index.
+     *
+     * @return the number of users
+     */
+    public int size() {
+
+        return usernames.length;
+    }
+
+    /**
+     * Get the number of distinct phone numbers in the index.
+     *
+     * @return the size of the phone number table
+     */
+    public int getPhoneTableSize() {
+
+        return phoneTable.length;
+    }
+
+    public String getUsername(int userIndex) {
+
+        return usernames[userIndex];
+    }
+
+    public int getPhoneCount(int userIndex) {
+
+        return phoneOffsets[userIndex + 1] - phoneOffsets[userIndex];
+    }
+
+    public String getPhoneNumber(int userIndex, int phoneIndex) {
+
+        return phoneTable[phoneReferences[phoneOffsets[userIndex] + phoneIndex]];
+    }
+
+    /**
+     * Check whether the user at the given position has a phone number matching a mobile number, with the same
+     * matching as {@link DuoPhoneNumberUtil#matches(String, String, boolean)}.
+     *
+     * @param userIndex  position of the user
+     * @param mobile     the mobile number
+     * @param normalized whether to compare the normalized numbers, rather than the numbers as they are
+     * @return true if the user has the phone number
+     */
+    public boolean hasPhoneNumber(int userIndex, String mobile, boolean normalized) {
+
+        if (mobile == null) {
+            return false;
+        }
+        for (int i = phoneOffsets[userIndex]; i < phoneOffsets[userIndex + 1]; i++) {
+            if (DuoPhoneNumberUtil.matches(phoneTable[phoneReferences[i]], mobile, normalized)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the phone numbers of a user.
+     *
+     * @param username the Duo username
+     * @return the phone numbers, or null if the user is not indexed
+     */
+    public List<String> getPhoneNumbers(String username) {
+
+        int userIndex = indexOf(username);
+        if (userIndex < 0) {
+            return null;
+        }
+        List<String> phoneNumbers = new ArrayList<>(getPhoneCount(userIndex));
+        for (int i = 0; i < getPhoneCount(userIndex); i++) {
+            phoneNumbers.add(getPhoneNumber(userIndex, i));
+        }
+        return phoneNumbers;
+    }
+
+    /**
+     * Count the users whose phone numbers differ between this index and another one, including users present in
+     * only one of them.
+     *
+     * @param other the index to compare with
+     * @return the number of added, removed or changed users
+     */
+    public int countDifferences(DuoUserIndex other) {
+
+        int differences = 0;
+        int i = 0;
+        int j = 0;
+        while (i < usernames.length && j < other.usernames.length) {
+            int comparison = usernames[i].compareTo(other.usernames[j]);
+            if (comparison < 0) {
+                differences++;
+                i++;
+            } else if (comparison > 0) {
+                differences++;
+                j++;
+            } else {
+                if (!hasSamePhoneNumbers(i, other, j)) {
+                    differences++;
+                }
+                i++;
+                j++;
+            }
+        }
+        return differences + (usernames.length - i) + (other.usernames.length - j);
+    }
+
+    private boolean hasSamePhoneNumbers(int userIndex, DuoUserIndex other, int otherUserIndex) {
+
+        int phoneCount = getPhoneCount(userIndex);
+        if (phoneCount != other.getPhoneCount(otherUserIndex)) {
+            return false;
+        }
+        for (int i = 0; i < phoneCount; i++) {
+            if (!getPhoneNumber(userIndex, i).equals(other.getPhoneNumber(otherUserIndex, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builder of {@link DuoUserIndex}. Phone numbers are kept as they are registered in Duo.
+     */
+    public static class Builder {
+
+        private final Map<String, List<String>> users = new TreeMap<>();
+
+        /**
+         * Add a user, replacing the phone numbers of a user added before with the same username.
+         *
+         * @param username     the Duo username
+         * @param phoneNumbers phone numbers of the user
+         * @return this builder
+         */
+        public Builder addUser(String username, List<String> phoneNumbers) {
+
+            users.put(username, phoneNumbers == null ? Collections.<String>emptyList() : phoneNumbers);
+            return this;
+        }
+
+        public int size() {
+
+            return users.size();
+        }
+
+        public DuoUserIndex build() {
+
+            String[] usernames = new String[users.size()];
+            int[] phoneOffsets = new int[users.size() + 1];
+            int phoneCount = 0;
+            for (List<String> phoneNumbers : users.values()) {
+                phoneCount += phoneNumbers.size();
+            }
+            int[] phoneReferences = new int[phoneCount];
+            Map<String, Integer> phoneTableIndex = new HashMap<>();
+            List<String> phoneTable = new ArrayList<>();
+
+            int userIndex = 0;
+            int phoneIndex = 0;
+            for (Map.Entry<String, List<String>> user : users.entrySet()) {
+                usernames[userIndex] = user.getKey();
+                phoneOffsets[userIndex] = phoneIndex;
+                for (String phoneNumber : user.getValue()) {
+                    Integer reference = phoneTableIndex.get(phoneNumber);
+                    if (reference == null) {
+                        reference = phoneTable.size();
+                        phoneTableIndex.put(phoneNumber, reference);
+                        phoneTable.add(phoneNumber);
+                    }
+                    phoneReferences[phoneIndex++] = reference;
+                }
+                userIndex++;
+            }
+            phoneOffsets[userIndex] = phoneIndex;
+            return new DuoUserIndex(usernames, phoneOffsets, phoneReferences,
+                    phoneTable.toArray(new String[0]), System.currentTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.sync;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk snapshot format of a {@link DuoUserIndex}.
+ * <p>
+ * A snapshot starts with a fixed size header holding a magic number, the format version, the creation time, the
+ * array sizes, the payload length and a CRC32 checksum of the payload. The payload holds the phone number table,
+ * the usernames, the phone offsets and the phone references. Snapshots are memory-mapped when read and validated
+ * before use, so a truncated, corrupted, outdated or stale file is rejected instead of being served.
+ */
+public final class DuoUserIndexSnapshot {
+
+    static final int MAGIC = 0x44554F49;
+    static final int VERSION = 2;
+    static final int HEADER_LENGTH = 40;
+
+    private DuoUserIndexSnapshot() {
+
+    }
+
+    /**
+     * Write a snapshot of an index. The snapshot is written to a temporary file which then replaces the target,
+     * so that readers never see a partially written snapshot.
+     *
+     * @param index the index
+     * @param file  the snapshot file
+     * @throws IOException if the snapshot could not be written
+     */
+    public static void write(DuoUserIndex index, Path file) throws IOException {
+
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        writeStrings(payload, index.getPhoneTable());
+        writeStrings(payload, index.getUsernames());
+        for (int offset : index.getPhoneOffsets()) {
+            payload.writeInt(offset);
+        }
+        for (int reference : index.getPhoneReferences()) {
+            payload.writeInt(reference);
+        }
+        payload.flush();
+        byte[] payloadArray = payloadBytes.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(payloadArray, 0, payloadArray.length);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(System.currentTimeMillis());
+        header.putInt(index.getUsernames().length);
+        header.putInt(index.getPhoneTable().length);
+        header.putInt(index.getPhoneReferences().length);
+        header.putInt(payloadArray.length);
+        header.putLong(checksum.getValue());
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+            outputStream.write(header.array());
+            outputStream.write(payloadArray);
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a snapshot of an index.
+     *
+     * @param file        the snapshot file
+     * @param maxAgeMillis maximum age of a usable snapshot
+     * @return the index
+     * @throws IOException if the file cannot be read, or is corrupted, outdated or stale
+     */
+    public static DuoUserIndex read(Path file, long maxAgeMillis) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Invalid Duo user index snapshot size " + channel.size());
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("The file is not a Duo user index snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported Duo user index snapshot version " + version);
+            }
+            long createdAt = buffer.getLong();
+            if (System.currentTimeMillis() - createdAt > maxAgeMillis) {
+                throw new IOException("The Duo user index snapshot is stale");
+            }
+            int userCount = buffer.getInt();
+            int phoneTableSize = buffer.getInt();
+            int referenceCount = buffer.getInt();
+            int payloadLength = buffer.getInt();
+            long expectedChecksum = buffer.getLong();
+            if (userCount < 0 || phoneTableSize < 0 || referenceCount < 0
+                    || payloadLength != buffer.capacity() - HEADER_LENGTH) {
+                throw new IOException("Corrupted Duo user index snapshot header");
+            }
+
+            ByteBuffer payload = buffer.slice();
+            CRC32 checksum = new CRC32();
+            checksum.update(payload.duplicate());
+            if (checksum.getValue() != expectedChecksum) {
+                throw new IOException("Checksum mismatch in the Duo user index snapshot");
+            }
+
+            String[] phoneTable = readStrings(payload, phoneTableSize);
+            String[] usernames = readStrings(payload, userCount);
+            int[] phoneOffsets = readInts(payload, userCount + 1);
+            int[] phoneReferences = readInts(payload, referenceCount);
+            validate(usernames, phoneOffsets, phoneReferences, phoneTable);
+            return DuoUserIndex.fromArrays(usernames, phoneOffsets, phoneReferences, phoneTable, createdAt);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupted Duo user index snapshot", e);
+        }
+    }
+
+    private static void validate(String[] usernames, int[] phoneOffsets, int[] phoneReferences,
+                                 String[] phoneTable) throws IOException {
+
+        if (phoneOffsets[0] != 0 || phoneOffsets[usernames.length] != phoneReferences.length) {
+            throw new IOException("Corrupted Duo user index snapshot offsets");
+        }
+        for (int i = 0; i < usernames.length; i++) {
+            if (phoneOffsets[i] > phoneOffsets[i + 1] || (i > 0 && usernames[i - 1].compareTo(usernames[i]) >= 0)) {
+                throw new IOException("Corrupted Duo user index snapshot entries");
+            }
+        }
+        for (int reference : phoneReferences) {
+            if (reference < 0 || reference >= phoneTable.length) {
+                throw new IOException("Corrupted Duo user index snapshot references");
+            }
+        }
+    }
+
+    private static void writeStrings(DataOutputStream output, String[] values) throws IOException {
+
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, int count) throws IOException {
+
+        if (count > buffer.remaining() / Integer.BYTES) {
+            throw new IOException("Corrupted string table in the Duo user index snapshot");
+        }
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("Corrupted string in the Duo user index snapshot");
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) throws IOException {
+
+        if (count > buffer.remaining() / Integer.BYTES) {
+            throw new IOException("Corrupted integer array in the Duo user index snapshot");
+        }
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = buffer.getInt();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.sync;
+
+import org.json.JSONArray;
+
+/**
+ * Looks up a single user through the Duo Admin API.
+ */
+@FunctionalInterface
+public interface DuoUserLookup {
+
+    /**
+     * Look up a Duo user by username or alias.
+     *
+     * @param duoUsername the Duo username
+     * @return the matching Duo user objects, empty if the user is not enrolled
+     * @throws Exception if the user could not be looked up
+     */
+    JSONArray lookupUser(String duoUsername) throws Exception;
+}
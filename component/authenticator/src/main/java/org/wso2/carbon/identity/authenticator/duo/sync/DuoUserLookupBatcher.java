@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.sync;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the Admin API user lookups of concurrent logins into batches, and looks each batch up in one request.
+ * <p>
+ * The first lookup of a batch waits for the batch window, or until the batch is full, and then makes the request on
+ * its own thread, on behalf of every lookup in the batch. Lookups of a user already in the open batch share its
+ * result. No thread is kept between batches, so a lookup made while no other login is looking users up only waits for
+ * the window.
+ */
+public class DuoUserLookupBatcher {
+
+    private static final Log log = LogFactory.getLog(DuoUserLookupBatcher.class);
+
+    private final long windowNanos;
+    private final int batchSize;
+    private final Object lock = new Object();
+    private Batch openBatch;
+
+    public DuoUserLookupBatcher(long windowMillis, int batchSize) {
+
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.batchSize = Math.min(batchSize, DuoAuthenticatorConstants.LookupBatching.MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Look up a Duo user by username or alias, as part of a batch.
+     *
+     * @param duoUsername the Duo username
+     * @param batchLookup the lookup used if this lookup makes the request of its batch
+     * @return the matching Duo user objects, empty if the user is not enrolled
+     * @throws Exception if the batch could not be looked up
+     */
+    public JSONArray lookupUser(String duoUsername, DuoUserBatchLookup batchLookup) throws Exception {
+
+        Batch batch;
+        boolean first;
+        CompletableFuture<JSONArray> result;
+        synchronized (lock) {
+            first = openBatch == null;
+            if (first) {
+                openBatch = new Batch();
+            }
+            batch = openBatch;
+            result = batch.add(duoUsername);
+            if (batch.size() >= batchSize) {
+                openBatch = null;
+                lock.notifyAll();
+            }
+        }
+        if (first) {
+            try {
+                awaitClose(batch);
+            } finally {
+                // Interrupted or not, the other lookups of the batch are waiting for the request.
+                batch.lookUp(batchLookup);
+            }
+        }
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public long getWindowMillis() {
+
+        return TimeUnit.NANOSECONDS.toMillis(windowNanos);
+    }
+
+    public int getBatchSize() {
+
+        return batchSize;
+    }
+
+    private void awaitClose(Batch batch) throws InterruptedException {
+
+        long deadline = System.nanoTime() + windowNanos;
+        synchronized (lock) {
+            try {
+                while (openBatch == batch) {
+                    long remainingNanos = deadline - System.nanoTime();
+                    if (remainingNanos <= 0) {
+                        break;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(lock, remainingNanos);
+                }
+            } finally {
+                if (openBatch == batch) {
+                    openBatch = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * The lookups collected in one batch, by username.
+     */
+    private static final class Batch {
+
+        private final Map<String, CompletableFuture<JSONArray>> lookups = new LinkedHashMap<>();
+
+        CompletableFuture<JSONArray> add(String duoUsername) {
+
+            return lookups.computeIfAbsent(duoUsername, username -> new CompletableFuture<>());
+        }
+
+        int size() {
+
+            return lookups.size();
+        }
+
+        void lookUp(DuoUserBatchLookup batchLookup) {
+
+            // The batch is closed, so its lookups no longer change.
+            DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.LOOKUP_BATCHES);
+            DuoMetrics.getInstance().add(DuoAuthenticatorConstants.Metrics.LOOKUP_BATCHED_USERS, lookups.size());
+            try {
+                Map<String, JSONArray> usersByName = index(batchLookup.lookupUsers(new ArrayList<>(lookups.keySet())));
+                for (Map.Entry<String, CompletableFuture<JSONArray>> lookup : lookups.entrySet()) {
+                    JSONArray users = usersByName.get(lookup.getKey().toLowerCase(Locale.ROOT));
+                    lookup.getValue().complete(users != null ? users : new JSONArray());
+                }
+            } catch (Exception | Error e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Failed to look up a batch of " + lookups.size() + " Duo users", e);
+                }
+                for (CompletableFuture<JSONArray> lookup : lookups.values()) {
+                    lookup.completeExceptionally(e);
+                }
+            }
+        }
+
+        /**
+         * Index the users of a response by username and alias. Duo matches usernames regardless of case.
+         */
+        private static Map<String, JSONArray> index(JSONArray users) throws JSONException {
+
+            Map<String, JSONArray> usersByName = new HashMap<>();
+            for (int i = 0; i < users.length(); i++) {
+                JSONObject user = users.getJSONObject(i);
+                addUser(usersByName, user.optString(DuoAuthenticatorConstants.DUO_USERNAME), user);
+                JSONObject aliases = user.optJSONObject(DuoAuthenticatorConstants.UserSync.ALIASES);
+                if (aliases != null) {
+                    Iterator<String> aliasKeys = aliases.keys();
+                    while (aliasKeys.hasNext()) {
+                        addUser(usersByName, aliases.optString(aliasKeys.next()), user);
+                    }
+                }
+            }
+            return usersByName;
+        }
+
+        private static void addUser(Map<String, JSONArray> usersByName, String name, JSONObject user) {
+
+            if (StringUtils.isNotEmpty(name)) {
+                usersByName.computeIfAbsent(name.toLowerCase(Locale.ROOT), key -> new JSONArray()).put(user);
+            }
+        }
+    }
+}
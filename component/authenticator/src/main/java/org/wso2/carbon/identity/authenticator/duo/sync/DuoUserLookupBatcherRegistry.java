@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.sync;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one {@link DuoUserLookupBatcher} per Admin integration, so that the lookups of all the logins calling the
+ * same integration are batched together.
+ */
+public class DuoUserLookupBatcherRegistry {
+
+    private static final DuoUserLookupBatcherRegistry instance = new DuoUserLookupBatcherRegistry();
+
+    private final ConcurrentMap<String, DuoUserLookupBatcher> batchers = new ConcurrentHashMap<>();
+
+    private DuoUserLookupBatcherRegistry() {
+
+    }
+
+    public static DuoUserLookupBatcherRegistry getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Get the batcher of an Admin integration. A new batcher replaces the existing one when the batch window or size
+     * has been reconfigured.
+     *
+     * @param host                the Duo API host
+     * @param adminIntegrationKey the Admin integration key
+     * @param duoConfig           the authenticator configuration
+     * @return the batcher
+     */
+    public DuoUserLookupBatcher getBatcher(String host, String adminIntegrationKey, DuoConfig duoConfig) {
+
+        long windowMillis = duoConfig.getLong(DuoAuthenticatorConstants.LookupBatching.BATCH_WINDOW,
+                DuoAuthenticatorConstants.LookupBatching.DEFAULT_BATCH_WINDOW_MILLIS);
+        int batchSize = (int) Math.min(duoConfig.getLong(DuoAuthenticatorConstants.LookupBatching.BATCH_SIZE,
+                DuoAuthenticatorConstants.LookupBatching.DEFAULT_BATCH_SIZE),
+                DuoAuthenticatorConstants.LookupBatching.MAX_BATCH_SIZE);
+        String key = host + "/" + adminIntegrationKey;
+        DuoUserLookupBatcher batcher = batchers.get(key);
+        if (batcher != null && batcher.getWindowMillis() == windowMillis && batcher.getBatchSize() == batchSize) {
+            return batcher;
+        }
+        return batchers.compute(key, (k, existing) -> existing != null && existing.getWindowMillis() == windowMillis
+                && existing.getBatchSize() == batchSize ? existing : new DuoUserLookupBatcher(windowMillis, batchSize));
+    }
+
+    /**
+     * Forget every batcher.
+     */
+    public void clear() {
+
+        batchers.clear();
+    }
+}
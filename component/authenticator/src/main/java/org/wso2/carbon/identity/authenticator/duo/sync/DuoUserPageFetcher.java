@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.sync;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.function.Consumer;
+
+/**
+ * Fetches one page of users from the Duo Admin API.
+ */
+@FunctionalInterface
+public interface DuoUserPageFetcher {
+
+    /**
+     * Fetch a page of Duo users.
+     *
+     * @param offset offset of the first user of the page
+     * @param limit  maximum number of users in the page
+     * @return the Duo user objects of the page
+     * @throws Exception if the users could not be fetched
+     */
+    JSONArray fetchUsers(int offset, int limit) throws Exception;
+
+    /**
+     * Page through every Duo user.
+     *
+     * @param pageSize number of users requested per page
+     * @param action   action applied to each Duo user object
+     * @throws Exception if a page could not be fetched
+     */
+    default void forEachUser(int pageSize, Consumer<JSONObject> action) throws Exception {
+
+        int offset = 0;
+        while (true) {
+            JSONArray page = fetchUsers(offset, pageSize);
+            for (int i = 0; i < page.length(); i++) {
+                action.accept(page.getJSONObject(i));
+            }
+            if (page.length() < pageSize) {
+                break;
+            }
+            offset += page.length();
+        }
+    }
+}
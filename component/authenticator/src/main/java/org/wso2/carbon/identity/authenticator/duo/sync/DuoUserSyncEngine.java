@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.sync;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiter;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiterRegistry;
+import org.wso2.carbon.identity.authenticator.duo.util.DuoFileNameUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically pages through the users of each registered Duo Admin integration and keeps a {@link DuoUserIndex}
+ * of their phone numbers, so that mobile verification does not need an Admin API call per login.
+ * <p>
+ * An integration is registered the first time a login uses its Admin integration key. Each run rebuilds the index
+ * in the background, paging through the users within the rate limit of the integration, and only publishes it when
+ * at least one user changed.
+ * <p>
+ * When snapshots are enabled, every published index is also persisted through {@link DuoUserIndexSnapshot}, and
+ * the snapshot is loaded when the integration is registered after a restart, so that the node serves logins from
+ * the index straight away. The first synchronization then only runs once the interval has passed since the snapshot
+ * was written.
+ */
+public class DuoUserSyncEngine {
+
+    private static final Log log = LogFactory.getLog(DuoUserSyncEngine.class);
+    private static final DuoUserSyncEngine instance = new DuoUserSyncEngine();
+    private static final String SNAPSHOT_FILE_EXTENSION = ".idx";
+
+    private final ConcurrentMap<String, Integration> integrations = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private volatile Path snapshotDirectory;
+    private volatile boolean snapshotsEnabled;
+    private volatile long snapshotMaxAgeMillis;
+
+    private DuoUserSyncEngine() {
+
+    }
+
+    public static DuoUserSyncEngine getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Set the directory holding the index snapshots.
+     *
+     * @param snapshotDirectory the snapshot directory
+     */
+    public void setSnapshotDirectory(Path snapshotDirectory) {
+
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    /**
+     * Enable or disable the index snapshots.
+     *
+     * @param enabled       whether snapshots are read and written
+     * @param maxAgeSeconds maximum age of a snapshot which may be loaded
+     */
+    public void configureSnapshots(boolean enabled, long maxAgeSeconds) {
+
+        this.snapshotsEnabled = enabled;
+        this.snapshotMaxAgeMillis = TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+    }
+
+    /**
+     * Register an Admin integration for synchronization through the Duo Admin API. Registering an integration
+     * again with the same settings has no effect.
+     *
+     * @param host                the Duo API host
+     * @param adminIntegrationKey the Admin integration key
+     * @param adminSecretKey      the Admin secret key
+     * @param intervalSeconds     delay between two synchronizations
+     * @param pageSize            number of users requested per page
+     */
+    public void register(String host, String adminIntegrationKey, String adminSecretKey, long intervalSeconds,
+                         int pageSize) {
+
+        Integration existing = integrations.get(getKey(host, adminIntegrationKey));
+        if (existing != null && existing.hasSettings(adminSecretKey, intervalSeconds, pageSize)) {
+            return;
+        }
+        register(host, adminIntegrationKey, adminSecretKey, intervalSeconds, pageSize,
+                new AdminApiUserPageFetcher(host, adminIntegrationKey, adminSecretKey), true);
+    }
+
+    /**
+     * Register an Admin integration with a custom page fetcher.
+     *
+     * @param host                the Duo API host
+     * @param adminIntegrationKey the Admin integration key
+     * @param adminSecretKey      the Admin secret key, used only to detect reconfiguration
+     * @param intervalSeconds     delay between two synchronizations
+     * @param pageSize            number of users requested per page
+     * @param fetcher             fetcher of the user pages
+     * @param scheduled           whether to synchronize periodically in the background
+     */
+    public synchronized void register(String host, String adminIntegrationKey, String adminSecretKey,
+                                      long intervalSeconds, int pageSize, DuoUserPageFetcher fetcher,
+                                      boolean scheduled) {
+
+        String key = getKey(host, adminIntegrationKey);
+        Integration existing = integrations.get(key);
+        if (existing != null && existing.hasSettings(adminSecretKey, intervalSeconds, pageSize)) {
+            return;
+        }
+        Integration integration = new Integration(key, host, adminIntegrationKey, adminSecretKey, intervalSeconds,
+                pageSize, fetcher);
+        if (existing != null) {
+            existing.cancel();
+            integration.index = existing.index;
+        } else {
+            integration.index = loadSnapshot(key);
+        }
+        integrations.put(key, integration);
+        DuoMetrics.getInstance().registerGauge(DuoAuthenticatorConstants.Metrics.USER_SYNC_PREFIX
+                + adminIntegrationKey + DuoAuthenticatorConstants.Metrics.INDEXED_USERS, () -> {
+                    DuoUserIndex index = integration.index;
+                    return index == null ? 0 : index.size();
+                });
+        if (scheduled) {
+            // An index restored from a snapshot is as fresh as the snapshot, so it is only synchronized again once
+            // the interval has passed since the snapshot was written.
+            long intervalMillis = TimeUnit.SECONDS.toMillis(intervalSeconds);
+            long initialDelayMillis = existing == null && integration.index != null
+                    ? Math.max(0, integration.index.getCreatedAt() + intervalMillis - System.currentTimeMillis())
+                    : 0;
+            integration.future = getScheduler().scheduleWithFixedDelay(() -> synchronize(integration),
+                    initialDelayMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Registered the Duo Admin integration " + adminIntegrationKey + " for user synchronization");
+        }
+    }
+
+    /**
+     * Get the latest index of an Admin integration.
+     *
+     * @param host                the Duo API host
+     * @param adminIntegrationKey the Admin integration key
+     * @return the index, or null if the integration has not been synchronized yet
+     */
+    public DuoUserIndex getIndex(String host, String adminIntegrationKey) {
+
+        Integration integration = integrations.get(getKey(host, adminIntegrationKey));
+        return integration == null ? null : integration.index;
+    }
+
+    /**
+     * Synchronize an Admin integration immediately.
+     *
+     * @param host                the Duo API host
+     * @param adminIntegrationKey the Admin integration key
+     * @return the number of users which changed, or -1 if the integration is unknown or the synchronization failed
+     */
+    public int synchronize(String host, String adminIntegrationKey) {
+
+        Integration integration = integrations.get(getKey(host, adminIntegrationKey));
+        return integration == null ? -1 : synchronize(integration);
+    }
+
+    /**
+     * Stop the background synchronization and forget every registered integration.
+     */
+    public synchronized void shutdown() {
+
+        for (Integration integration : integrations.values()) {
+            integration.cancel();
+        }
+        integrations.clear();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Page through the users of an Admin integration and index their phone numbers, without registering the
+     * integration.
+     *
+     * @param fetcher  fetcher of the user pages
+     * @param pageSize number of users requested per page
+     * @return the index
+     * @throws Exception if a page could not be fetched
+     */
+    public static DuoUserIndex buildIndex(DuoUserPageFetcher fetcher, int pageSize) throws Exception {
+
+        DuoUserIndex.Builder builder = new DuoUserIndex.Builder();
+        fetcher.forEachUser(pageSize, user -> addUser(builder, user));
+        return builder.build();
+    }
+
+    private int synchronize(Integration integration) {
+
+        synchronized (integration) {
+            try {
+                // The pages share the rate limit of the logins and batch jobs calling the same Admin integration.
+                // The rate limiter is looked up for every run, as it is replaced when the rate is reconfigured.
+                DuoRateLimiter rateLimiter = DuoRateLimiterRegistry.getInstance().getRateLimiter(integration.host,
+                        integration.adminIntegrationKey, DuoConfigManager.getInstance().getDeploymentConfig());
+                DuoUserIndex index = buildIndex((offset, limit) -> rateLimiter.execute(
+                        () -> integration.fetcher.fetchUsers(offset, limit)), integration.pageSize);
+                DuoUserIndex current = integration.index;
+                int changes = index.countDifferences(current == null ? DuoUserIndex.EMPTY : current);
+                if (current == null || changes > 0) {
+                    integration.index = index;
+                    saveSnapshot(integration.key, index);
+                }
+                DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.USER_SYNC_RUNS);
+                DuoMetrics.getInstance().add(DuoAuthenticatorConstants.Metrics.USER_SYNC_CHANGES, changes);
+                if (log.isDebugEnabled()) {
+                    log.debug("Synchronized " + index.size() + " Duo users of the integration " + integration.key
+                            + " with " + changes + " changes");
+                }
+                return changes;
+            } catch (Exception e) {
+                DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.USER_SYNC_FAILURES);
+                log.warn("Error while synchronizing the Duo users of the integration " + integration.key
+                        + ". The previous index is kept.", e);
+                return -1;
+            }
+        }
+    }
+
+    private DuoUserIndex loadSnapshot(String key) {
+
+        Path snapshotFile = getSnapshotFile(key);
+        if (snapshotFile == null || !Files.exists(snapshotFile)) {
+            return null;
+        }
+        try {
+            DuoUserIndex index = DuoUserIndexSnapshot.read(snapshotFile, snapshotMaxAgeMillis);
+            DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.USER_SNAPSHOT_LOADS);
+            if (log.isDebugEnabled()) {
+                log.debug("Loaded " + index.size() + " Duo users of the integration " + key + " from "
+                        + snapshotFile);
+            }
+            return index;
+        } catch (IOException e) {
+            DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.USER_SNAPSHOT_DISCARDS);
+            log.warn("Discarding the Duo user index snapshot " + snapshotFile + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(snapshotFile);
+            } catch (IOException deleteException) {
+                log.warn("Error while deleting the Duo user index snapshot " + snapshotFile, deleteException);
+            }
+            return null;
+        }
+    }
+
+    private void saveSnapshot(String key, DuoUserIndex index) {
+
+        Path snapshotFile = getSnapshotFile(key);
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            DuoUserIndexSnapshot.write(index, snapshotFile);
+        } catch (IOException e) {
+            log.warn("Error while writing the Duo user index snapshot " + snapshotFile, e);
+        }
+    }
+
+    private Path getSnapshotFile(String key) {
+
+        Path directory = snapshotDirectory;
+        if (!snapshotsEnabled || directory == null) {
+            return null;
+        }
+        try {
+            return directory.resolve(DuoFileNameUtil.getFileName(key, SNAPSHOT_FILE_EXTENSION));
+        } catch (NoSuchAlgorithmException e) {
+            log.warn("Unable to derive the Duo user index snapshot file name", e);
+            return null;
+        }
+    }
+
+    private static void addUser(DuoUserIndex.Builder builder, JSONObject user) throws JSONException {
+
+        String username = user.optString(DuoAuthenticatorConstants.DUO_USERNAME);
+        if (StringUtils.isEmpty(username)) {
+            return;
+        }
+        List<String> phoneNumbers = new ArrayList<>();
+        JSONArray phones = user.optJSONArray(DuoAuthenticatorConstants.DUO_PHONES);
+        if (phones != null) {
+            for (int i = 0; i < phones.length(); i++) {
+                // The numbers are kept as they are, as mobile verification only compares them normalized when
+                // configured to.
+                String phoneNumber = phones.getJSONObject(i).optString(DuoAuthenticatorConstants.DUO_NUMBER);
+                if (StringUtils.isNotBlank(phoneNumber)) {
+                    phoneNumbers.add(phoneNumber);
+                }
+            }
+        }
+        builder.addUser(username, phoneNumbers);
+        // Admin lookups by username also match the aliases of a user.
+        JSONObject aliases = user.optJSONObject(DuoAuthenticatorConstants.UserSync.ALIASES);
+        if (aliases != null) {
+            Iterator<String> aliasKeys = aliases.keys();
+            while (aliasKeys.hasNext()) {
+                String alias = aliases.optString(aliasKeys.next());
+                if (StringUtils.isNotEmpty(alias)) {
+                    builder.addUser(alias, phoneNumbers);
+                }
+            }
+        }
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "duo-user-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    private static String getKey(String host, String adminIntegrationKey) {
+
+        return host + "/" + adminIntegrationKey;
+    }
+
+    /**
+     * Synchronization state of one Admin integration.
+     */
+    private static class Integration {
+
+        private final String key;
+        private final String host;
+        private final String adminIntegrationKey;
+        private final String secretKey;
+        private final long intervalSeconds;
+        private final int pageSize;
+        private final DuoUserPageFetcher fetcher;
+        private volatile DuoUserIndex index;
+        private ScheduledFuture<?> future;
+
+        Integration(String key, String host, String adminIntegrationKey, String secretKey, long intervalSeconds,
+                    int pageSize, DuoUserPageFetcher fetcher) {
+
+            this.key = key;
+            this.host = host;
+            this.adminIntegrationKey = adminIntegrationKey;
+            this.secretKey = secretKey;
+            this.intervalSeconds = intervalSeconds;
+            this.pageSize = pageSize;
+            this.fetcher = fetcher;
+        }
+
+        boolean hasSettings(String secretKey, long intervalSeconds, int pageSize) {
+
+            return Objects.equals(this.secretKey, secretKey) && this.intervalSeconds == intervalSeconds
+                    && this.pageSize == pageSize;
+        }
+
+        void cancel() {
+
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
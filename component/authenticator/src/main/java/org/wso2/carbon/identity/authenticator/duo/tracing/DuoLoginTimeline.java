@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.tracing;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+
+/**
+ * The phase timeline of the login leg served by a thread. A timeline is allocated once per thread and reused by
+ * every leg, so recording the phases of a login does not allocate. Phases beyond the capacity of the timeline are
+ * counted, but not recorded.
+ */
+final class DuoLoginTimeline {
+
+    private final String[] phaseNames;
+    private final long[] phaseStartNanos;
+    private final long[] phaseEndNanos;
+    private final int[] phaseDepths;
+    private final boolean[] phaseErrors;
+    private final int[] openPhases;
+    private int phaseCount;
+    private int depth;
+    private int droppedPhases;
+    private boolean active;
+    private String contextIdentifier;
+    private long startMillis;
+    private String host;
+    private String tenantDomain;
+    private String serviceProvider;
+    private String errorType;
+    private boolean error;
+    private int cacheHits;
+    private int cacheMisses;
+    private int retries;
+
+    DuoLoginTimeline(int maxPhases) {
+
+        phaseNames = new String[maxPhases];
+        phaseStartNanos = new long[maxPhases];
+        phaseEndNanos = new long[maxPhases];
+        phaseDepths = new int[maxPhases];
+        phaseErrors = new boolean[maxPhases];
+        openPhases = new int[maxPhases];
+    }
+
+    /**
+     * Start the timeline of a leg, discarding what is left of the previous leg.
+     *
+     * @param leg               name of the leg
+     * @param contextIdentifier context identifier of the login
+     * @param nowNanos          the current {@link System#nanoTime()}
+     */
+    void begin(String leg, String contextIdentifier, long nowNanos) {
+
+        reset();
+        this.active = true;
+        this.contextIdentifier = contextIdentifier;
+        this.startMillis = System.currentTimeMillis();
+        enter(leg, nowNanos);
+    }
+
+    boolean isActive() {
+
+        return active;
+    }
+
+    void enter(String name, long nowNanos) {
+
+        int index = -1;
+        if (phaseCount < phaseNames.length) {
+            index = phaseCount++;
+            phaseNames[index] = name;
+            phaseStartNanos[index] = nowNanos;
+            phaseEndNanos[index] = 0;
+            phaseDepths[index] = depth;
+            phaseErrors[index] = false;
+        } else {
+            droppedPhases++;
+        }
+        if (depth < openPhases.length) {
+            openPhases[depth] = index;
+        }
+        depth++;
+    }
+
+    /**
+     * End the innermost open phase.
+     *
+     * @param nowNanos the current {@link System#nanoTime()}
+     * @return true if the phase was the root phase of the leg, which ends the leg
+     */
+    boolean exit(long nowNanos) {
+
+        if (depth == 0) {
+            return false;
+        }
+        depth--;
+        int index = getOpenPhase(depth);
+        if (index >= 0) {
+            phaseEndNanos[index] = nowNanos;
+        }
+        return depth == 0;
+    }
+
+    void markError(Throwable throwable) {
+
+        error = true;
+        errorType = throwable.getClass().getName();
+        int index = getOpenPhase(depth - 1);
+        if (index >= 0) {
+            phaseErrors[index] = true;
+        }
+    }
+
+    void setAttribute(String key, String value) {
+
+        if (value == null) {
+            return;
+        }
+        if (DuoAuthenticatorConstants.Tracing.ATTRIBUTE_HOST.equals(key)) {
+            host = value;
+        } else if (DuoAuthenticatorConstants.Tracing.ATTRIBUTE_TENANT.equals(key)) {
+            tenantDomain = value;
+        } else if (DuoAuthenticatorConstants.Tracing.ATTRIBUTE_SERVICE_PROVIDER.equals(key)) {
+            serviceProvider = value;
+        }
+    }
+
+    void recordCacheLookup(boolean hit) {
+
+        if (hit) {
+            cacheHits++;
+        } else {
+            cacheMisses++;
+        }
+    }
+
+    void recordRetry() {
+
+        retries++;
+    }
+
+    boolean isError() {
+
+        return error;
+    }
+
+    long getDurationNanos() {
+
+        return phaseEndNanos[0] - phaseStartNanos[0];
+    }
+
+    /**
+     * Copy the timeline of the ended leg into a sample.
+     *
+     * @param traceId trace identifier of the login, or null if it is not known
+     * @return the sample
+     */
+    DuoSlowLogin toSample(String traceId) {
+
+        DuoSlowLogin.Phase[] phases = new DuoSlowLogin.Phase[phaseCount];
+        for (int i = 0; i < phaseCount; i++) {
+            long endNanos = phaseEndNanos[i] != 0 ? phaseEndNanos[i] : phaseEndNanos[0];
+            phases[i] = new DuoSlowLogin.Phase(phaseNames[i], phaseStartNanos[i] - phaseStartNanos[0],
+                    endNanos - phaseStartNanos[i], phaseDepths[i], phaseErrors[i]);
+        }
+        return new DuoSlowLogin(phaseNames[0], traceId, startMillis, getDurationNanos(), error, errorType, host,
+                tenantDomain, serviceProvider, cacheHits, cacheMisses, retries, phases, droppedPhases);
+    }
+
+    String getContextIdentifier() {
+
+        return contextIdentifier;
+    }
+
+    /**
+     * End the leg and release the references it holds.
+     */
+    void reset() {
+
+        for (int i = 0; i < phaseCount; i++) {
+            phaseNames[i] = null;
+        }
+        phaseCount = 0;
+        depth = 0;
+        droppedPhases = 0;
+        active = false;
+        contextIdentifier = null;
+        host = null;
+        tenantDomain = null;
+        serviceProvider = null;
+        errorType = null;
+        error = false;
+        cacheHits = 0;
+        cacheMisses = 0;
+        retries = 0;
+    }
+
+    private int getOpenPhase(int level) {
+
+        return level >= 0 && level < openPhases.length ? openPhases[level] : -1;
+    }
+}
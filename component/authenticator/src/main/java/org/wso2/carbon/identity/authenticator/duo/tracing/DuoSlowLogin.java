@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.tracing;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A login leg retained by {@link DuoSlowLoginSampler} because it was slow or failed, with the timeline of its phases.
+ */
+public final class DuoSlowLogin {
+
+    private final String leg;
+    private final String traceId;
+    private final long startMillis;
+    private final long durationNanos;
+    private final boolean error;
+    private final String errorType;
+    private final String host;
+    private final String tenantDomain;
+    private final String serviceProvider;
+    private final int cacheHits;
+    private final int cacheMisses;
+    private final int retries;
+    private final Phase[] phases;
+    private final int droppedPhases;
+
+    DuoSlowLogin(String leg, String traceId, long startMillis, long durationNanos, boolean error, String errorType,
+                 String host, String tenantDomain, String serviceProvider, int cacheHits, int cacheMisses,
+                 int retries, Phase[] phases, int droppedPhases) {
+
+        this.leg = leg;
+        this.traceId = traceId;
+        this.startMillis = startMillis;
+        this.durationNanos = durationNanos;
+        this.error = error;
+        this.errorType = errorType;
+        this.host = host;
+        this.tenantDomain = tenantDomain;
+        this.serviceProvider = serviceProvider;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+        this.retries = retries;
+        this.phases = phases;
+        this.droppedPhases = droppedPhases;
+    }
+
+    public String getLeg() {
+
+        return leg;
+    }
+
+    public String getTraceId() {
+
+        return traceId;
+    }
+
+    public long getDurationNanos() {
+
+        return durationNanos;
+    }
+
+    public boolean isError() {
+
+        return error;
+    }
+
+    public String getErrorType() {
+
+        return errorType;
+    }
+
+    public String getHost() {
+
+        return host;
+    }
+
+    public String getTenantDomain() {
+
+        return tenantDomain;
+    }
+
+    public int getCacheHits() {
+
+        return cacheHits;
+    }
+
+    public int getCacheMisses() {
+
+        return cacheMisses;
+    }
+
+    public int getRetries() {
+
+        return retries;
+    }
+
+    public List<Phase> getPhases() {
+
+        return Collections.unmodifiableList(Arrays.asList(phases));
+    }
+
+    public int getDroppedPhases() {
+
+        return droppedPhases;
+    }
+
+    /**
+     * Format the login leg as a single line of JSON.
+     *
+     * @return the JSON representation of the login leg
+     */
+    public String toJson() {
+
+        JSONObject json = new JSONObject();
+        json.put("leg", leg);
+        json.put("traceId", traceId);
+        json.put("startTimeUnixMillis", startMillis);
+        json.put("durationMicros", durationNanos / 1000);
+        json.put("error", error);
+        json.put("errorType", errorType);
+        json.put("host", host);
+        json.put("tenantDomain", tenantDomain);
+        json.put("serviceProvider", serviceProvider);
+        json.put("cacheHits", cacheHits);
+        json.put("cacheMisses", cacheMisses);
+        json.put("retries", retries);
+        JSONArray timeline = new JSONArray();
+        for (Phase phase : phases) {
+            JSONObject entry = new JSONObject();
+            entry.put("name", phase.getName());
+            entry.put("offsetMicros", phase.getOffsetNanos() / 1000);
+            entry.put("durationMicros", phase.getDurationNanos() / 1000);
+            entry.put("depth", phase.getDepth());
+            entry.put("error", phase.isError());
+            timeline.put(entry);
+        }
+        json.put("phases", timeline);
+        json.put("droppedPhases", droppedPhases);
+        return json.toString();
+    }
+
+    /**
+     * A phase of a retained login leg.
+     */
+    public static final class Phase {
+
+        private final String name;
+        private final long offsetNanos;
+        private final long durationNanos;
+        private final int depth;
+        private final boolean error;
+
+        Phase(String name, long offsetNanos, long durationNanos, int depth, boolean error) {
+
+            this.name = name;
+            this.offsetNanos = offsetNanos;
+            this.durationNanos = durationNanos;
+            this.depth = depth;
+            this.error = error;
+        }
+
+        public String getName() {
+
+            return name;
+        }
+
+        public long getOffsetNanos() {
+
+            return offsetNanos;
+        }
+
+        public long getDurationNanos() {
+
+            return durationNanos;
+        }
+
+        public int getDepth() {
+
+            return depth;
+        }
+
+        public boolean isError() {
+
+            return error;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.tracing;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tail-based sampling of slow Duo logins. The phases of every login leg are recorded in a timeline preallocated for
+ * the serving thread, which costs a few array writes per phase and no allocation. Once a leg ends, it is only kept
+ * when it took longer than the threshold or failed: its timeline is then copied, together with the Duo host, tenant,
+ * cache hits and misses and retries of the leg, into a bounded store which keeps the most recent samples and is
+ * exposed over JMX.
+ * <p>
+ * The phases are the spans started through {@link DuoTracer}, so the sampler sees the same phases as tracing, whether
+ * or not the login is traced. Calls made on another thread on behalf of a leg count their retries separately, and the
+ * leg adds them once the calls are done, so that only the serving thread writes to its timeline.
+ */
+public class DuoSlowLoginSampler implements DuoSlowLoginsMXBean {
+
+    private static final DuoSlowLoginSampler instance = new DuoSlowLoginSampler();
+
+    private final ThreadLocal<DuoLoginTimeline> timelines = new ThreadLocal<>();
+    private final ThreadLocal<AtomicInteger> relayedRetries = new ThreadLocal<>();
+    private volatile boolean enabled;
+    private volatile long thresholdNanos =
+            TimeUnit.MILLISECONDS.toNanos(DuoAuthenticatorConstants.SlowLogins.DEFAULT_THRESHOLD_MILLIS);
+    private volatile int capacity = DuoAuthenticatorConstants.SlowLogins.DEFAULT_CAPACITY;
+    // Guarded by this. A ring of the retained samples, the oldest being overwritten first.
+    private DuoSlowLogin[] samples = new DuoSlowLogin[DuoAuthenticatorConstants.SlowLogins.DEFAULT_CAPACITY];
+    private int nextSample;
+    private int sampleCount;
+
+    private DuoSlowLoginSampler() {
+
+    }
+
+    public static DuoSlowLoginSampler getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Configure the sampler. Reconfiguring with unchanged settings does not allocate.
+     *
+     * @param enabled         whether login legs are recorded
+     * @param thresholdMillis legs taking longer are retained
+     * @param capacity        maximum number of retained legs
+     */
+    public void configure(boolean enabled, long thresholdMillis, int capacity) {
+
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        if (capacity != this.capacity) {
+            resize(capacity);
+        }
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+
+        return enabled;
+    }
+
+    /**
+     * Start recording a login leg on the current thread.
+     *
+     * @param leg               name of the leg
+     * @param contextIdentifier context identifier of the login
+     * @return true if the leg is recorded, in which case {@link #exitPhase()} must be called when it ends
+     */
+    public boolean begin(String leg, String contextIdentifier) {
+
+        if (!enabled) {
+            return false;
+        }
+        DuoLoginTimeline timeline = timelines.get();
+        if (timeline == null) {
+            timeline = new DuoLoginTimeline(DuoAuthenticatorConstants.SlowLogins.MAX_PHASES);
+            timelines.set(timeline);
+        }
+        timeline.begin(leg, contextIdentifier, System.nanoTime());
+        return true;
+    }
+
+    /**
+     * Start a phase of the login leg recorded on the current thread.
+     *
+     * @param name name of the phase
+     * @return true if the phase is recorded, in which case {@link #exitPhase()} must be called when it ends
+     */
+    public boolean enterPhase(String name) {
+
+        DuoLoginTimeline timeline = getActiveTimeline();
+        if (timeline == null) {
+            return false;
+        }
+        timeline.enter(name, System.nanoTime());
+        return true;
+    }
+
+    /**
+     * End the innermost phase of the login leg recorded on the current thread. Ending the leg itself retains it if
+     * it was slow or failed.
+     */
+    public void exitPhase() {
+
+        DuoLoginTimeline timeline = timelines.get();
+        if (timeline == null || !timeline.isActive() || !timeline.exit(System.nanoTime())) {
+            return;
+        }
+        if (timeline.isError() || timeline.getDurationNanos() > thresholdNanos) {
+            String contextIdentifier = timeline.getContextIdentifier();
+            retain(timeline.toSample(contextIdentifier != null ? DuoTracer.getTraceId(contextIdentifier) : null));
+        }
+        timeline.reset();
+    }
+
+    /**
+     * Mark the innermost phase, and so the login leg, as failed.
+     *
+     * @param throwable the cause of the failure
+     */
+    public void markError(Throwable throwable) {
+
+        DuoLoginTimeline timeline = getActiveTimeline();
+        if (timeline != null) {
+            timeline.markError(throwable);
+        }
+    }
+
+    /**
+     * Record an attribute of the login leg. Only the Duo host, tenant domain and service provider are kept.
+     *
+     * @param key   attribute name
+     * @param value attribute value
+     */
+    public void recordAttribute(String key, String value) {
+
+        DuoLoginTimeline timeline = getActiveTimeline();
+        if (timeline != null) {
+            timeline.setAttribute(key, value);
+        }
+    }
+
+    /**
+     * Record a cache lookup of the login leg.
+     *
+     * @param hit whether the value was cached
+     */
+    public void recordCacheLookup(boolean hit) {
+
+        DuoLoginTimeline timeline = getActiveTimeline();
+        if (timeline != null) {
+            timeline.recordCacheLookup(hit);
+        }
+    }
+
+    /**
+     * Record a retried, failed over or hedged Duo call of the login leg.
+     */
+    public void recordRetry() {
+
+        DuoLoginTimeline timeline = getActiveTimeline();
+        if (timeline != null) {
+            timeline.recordRetry();
+            return;
+        }
+        AtomicInteger retries = relayedRetries.get();
+        if (retries != null) {
+            retries.incrementAndGet();
+        }
+    }
+
+    /**
+     * Wrap a call to be made on another thread on behalf of the login leg recorded on the current thread, so that the
+     * retries it records are counted instead of being lost.
+     *
+     * @param call    the call
+     * @param retries counts the retries of the call, to be added to the leg with {@link #recordRetries(int)}
+     * @param <T>     type of the call result
+     * @return the wrapped call, or the call itself if no leg is recorded on the current thread
+     */
+    public <T> Callable<T> relayRetries(Callable<T> call, AtomicInteger retries) {
+
+        if (getActiveTimeline() == null) {
+            return call;
+        }
+        return () -> {
+            relayedRetries.set(retries);
+            try {
+                return call.call();
+            } finally {
+                relayedRetries.remove();
+            }
+        };
+    }
+
+    /**
+     * Record retries made on behalf of the login leg recorded on the current thread.
+     *
+     * @param count number of retries
+     */
+    public void recordRetries(int count) {
+
+        for (int i = 0; i < count; i++) {
+            recordRetry();
+        }
+    }
+
+    /**
+     * Get the retained login legs.
+     *
+     * @return the samples, newest first
+     */
+    public synchronized List<DuoSlowLogin> getSamples() {
+
+        List<DuoSlowLogin> result = new ArrayList<>(sampleCount);
+        for (int i = 1; i <= sampleCount; i++) {
+            result.add(samples[(nextSample - i + samples.length) % samples.length]);
+        }
+        return result;
+    }
+
+    @Override
+    public List<String> getSlowLogins() {
+
+        List<String> result = new ArrayList<>();
+        for (DuoSlowLogin sample : getSamples()) {
+            result.add(sample.toJson());
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void clearSlowLogins() {
+
+        samples = new DuoSlowLogin[capacity];
+        nextSample = 0;
+        sampleCount = 0;
+    }
+
+    /**
+     * Disable the sampler and discard the retained login legs.
+     */
+    public void clear() {
+
+        enabled = false;
+        clearSlowLogins();
+    }
+
+    private DuoLoginTimeline getActiveTimeline() {
+
+        DuoLoginTimeline timeline = timelines.get();
+        return timeline != null && timeline.isActive() ? timeline : null;
+    }
+
+    private synchronized void retain(DuoSlowLogin sample) {
+
+        samples[nextSample] = sample;
+        nextSample = (nextSample + 1) % samples.length;
+        sampleCount = Math.min(sampleCount + 1, samples.length);
+        DuoMetrics.getInstance().increment(DuoAuthenticatorConstants.Metrics.SLOW_LOGINS_RETAINED);
+    }
+
+    private synchronized void resize(int capacity) {
+
+        List<DuoSlowLogin> retained = getSamples();
+        samples = new DuoSlowLogin[capacity];
+        sampleCount = Math.min(retained.size(), capacity);
+        for (int i = 0; i < sampleCount; i++) {
+            samples[sampleCount - 1 - i] = retained.get(i);
+        }
+        nextSample = sampleCount % capacity;
+        this.capacity = capacity;
+    }
+}
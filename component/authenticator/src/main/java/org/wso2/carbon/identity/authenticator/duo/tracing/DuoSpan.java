@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.tracing;
+
+import org.json.JSONObject;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A timed phase of a Duo login. Spans are started through {@link DuoTracer} and ended by closing them, which makes
+ * the parent span current again and hands the span to the exporter.
+ * <p>
+ * Logins which are not sampled get {@link #NOOP}, on which every method returns without doing anything, or
+ * {@link #TIMELINE} while the {@link DuoSlowLoginSampler} records the login. The phases of spans started while the
+ * sampler records the login are added to its timeline.
+ */
+public class DuoSpan implements AutoCloseable {
+
+    /**
+     * The span of logins which are not traced.
+     */
+    public static final DuoSpan NOOP = new DuoSpan(null, null, null, null, null, null, false);
+
+    /**
+     * The span of logins which are not traced, but recorded by the {@link DuoSlowLoginSampler}.
+     */
+    static final DuoSpan TIMELINE = new DuoSpan(null, null, null, null, null, null, true);
+
+    private final DuoTracer tracer;
+    private final DuoSpan parent;
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final String name;
+    private final long startEpochNanos;
+    private final long startNanos;
+    private final boolean timed;
+    private long endEpochNanos;
+    private Map<String, String> attributes;
+    private boolean error;
+
+    DuoSpan(DuoTracer tracer, DuoSpan parent, String traceId, String spanId, String parentSpanId, String name,
+            boolean timed) {
+
+        this.tracer = tracer;
+        this.parent = parent;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.startEpochNanos = System.currentTimeMillis() * 1000000L;
+        this.startNanos = System.nanoTime();
+        this.timed = timed;
+    }
+
+    /**
+     * Check whether the span is recorded.
+     *
+     * @return false for {@link #NOOP} and {@link #TIMELINE}
+     */
+    public boolean isRecording() {
+
+        return tracer != null;
+    }
+
+    public String getTraceId() {
+
+        return traceId;
+    }
+
+    public String getSpanId() {
+
+        return spanId;
+    }
+
+    public String getParentSpanId() {
+
+        return parentSpanId;
+    }
+
+    public String getName() {
+
+        return name;
+    }
+
+    public long getStartEpochNanos() {
+
+        return startEpochNanos;
+    }
+
+    public long getEndEpochNanos() {
+
+        return endEpochNanos;
+    }
+
+    public boolean isError() {
+
+        return error;
+    }
+
+    public Map<String, String> getAttributes() {
+
+        return attributes == null ? Collections.<String, String>emptyMap() : attributes;
+    }
+
+    DuoSpan getParent() {
+
+        return parent;
+    }
+
+    /**
+     * Set an attribute of the span.
+     *
+     * @param key   attribute name
+     * @param value attribute value
+     * @return this span
+     */
+    public DuoSpan setAttribute(String key, String value) {
+
+        if (timed) {
+            DuoSlowLoginSampler.getInstance().recordAttribute(key, value);
+        }
+        if (tracer != null && value != null) {
+            if (attributes == null) {
+                attributes = new LinkedHashMap<>();
+            }
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    /**
+     * Mark the span as failed.
+     *
+     * @param throwable the cause of the failure
+     * @return this span
+     */
+    public DuoSpan setError(Throwable throwable) {
+
+        if (timed) {
+            DuoSlowLoginSampler.getInstance().markError(throwable);
+        }
+        if (tracer != null) {
+            error = true;
+            setAttribute("exception.type", throwable.getClass().getName());
+            setAttribute("exception.message", throwable.getMessage());
+        }
+        return this;
+    }
+
+    /**
+     * End the span.
+     */
+    @Override
+    public void close() {
+
+        if (tracer == null) {
+            if (timed) {
+                DuoSlowLoginSampler.getInstance().exitPhase();
+            }
+        } else if (endEpochNanos == 0) {
+            endEpochNanos = startEpochNanos + Math.max(0, System.nanoTime() - startNanos);
+            if (timed) {
+                DuoSlowLoginSampler.getInstance().exitPhase();
+            }
+            tracer.end(this);
+        }
+    }
+
+    /**
+     * Format the span as a single line of JSON.
+     *
+     * @return the JSON representation of the span
+     */
+    public String toJson() {
+
+        JSONObject json = new JSONObject();
+        json.put("traceId", traceId);
+        json.put("spanId", spanId);
+        json.put("parentSpanId", parentSpanId);
+        json.put("name", name);
+        json.put("startTimeUnixNano", startEpochNanos);
+        json.put("endTimeUnixNano", endEpochNanos);
+        json.put("durationMicros", (endEpochNanos - startEpochNanos) / 1000);
+        json.put("error", error);
+        if (attributes != null) {
+            json.put("attributes", new JSONObject(attributes));
+        }
+        return json.toString();
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.tracing;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.crypto.DuoCryptoCache;
+import org.wso2.carbon.identity.authenticator.duo.event.DuoEventPipeline;
+import org.wso2.carbon.identity.authenticator.duo.event.DuoEventSink;
+import org.wso2.carbon.identity.authenticator.duo.event.JsonLinesFileSink;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Creates the {@link DuoSpan}s of Duo logins and exports them through a {@link DuoEventPipeline}.
+ * <p>
+ * The trace identifier of a login is derived from its context identifier, which is carried through the Duo redirect
+ * as the session data key. The initiate and callback legs, which may be served by different threads or nodes, thus
+ * land in the same trace without any state being shared. The sampling decision is derived from the trace identifier
+ * as well, so both legs of a login are either traced or not. The current span of a thread is kept in a thread local,
+ * so that the spans of outbound calls nest under the phase that made them.
+ */
+public class DuoTracer {
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+    private static final DuoTracer instance = new DuoTracer();
+
+    private final ThreadLocal<DuoSpan> currentSpan = new ThreadLocal<>();
+    private volatile Path logDirectory;
+    private volatile DuoEventPipeline<DuoSpan> pipeline;
+    private volatile List<Object> settings;
+    private volatile long sampleThreshold;
+
+    private DuoTracer() {
+
+    }
+
+    public static DuoTracer getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Set the directory of the file exporter.
+     *
+     * @param logDirectory the log directory
+     */
+    public void setLogDirectory(Path logDirectory) {
+
+        this.logDirectory = logDirectory;
+    }
+
+    /**
+     * Configure tracing, replacing the exporter when the settings changed.
+     *
+     * @param enabled      whether logins are traced
+     * @param sampleRatio  share of the logins traced, between 0 and 1
+     * @param exporter     {@code file} or {@code otlp}
+     * @param otlpEndpoint the OTLP/HTTP traces endpoint used by the {@code otlp} exporter
+     */
+    public void configure(boolean enabled, double sampleRatio, String exporter, String otlpEndpoint) {
+
+        List<Object> requested = Arrays.asList(enabled, sampleRatio, exporter, otlpEndpoint);
+        if (requested.equals(settings)) {
+            return;
+        }
+        DuoEventSink<DuoSpan> sink = null;
+        if (enabled) {
+            if (DuoAuthenticatorConstants.Tracing.OTLP_EXPORTER.equalsIgnoreCase(exporter)) {
+                sink = new OtlpHttpSpanSink(StringUtils.isNotBlank(otlpEndpoint) ? otlpEndpoint
+                        : DuoAuthenticatorConstants.Tracing.DEFAULT_OTLP_ENDPOINT);
+            } else if (logDirectory != null) {
+                sink = new JsonLinesFileSink<>(logDirectory.resolve(DuoAuthenticatorConstants.Tracing.LOG_FILE),
+                        DuoSpan::toJson, DuoAuthenticatorConstants.Tracing.LOG_FILE_MAX_BYTES,
+                        DuoAuthenticatorConstants.Tracing.LOG_FILE_BACKUPS);
+            }
+        }
+        configure(requested, sampleRatio, sink);
+    }
+
+    /**
+     * Configure tracing with the given exporter.
+     *
+     * @param sampleRatio share of the logins traced, between 0 and 1
+     * @param sink        the exporter, or null to disable tracing
+     */
+    public void configure(double sampleRatio, DuoEventSink<DuoSpan> sink) {
+
+        configure(null, sampleRatio, sink);
+    }
+
+    /**
+     * Start the root span of a leg of a login.
+     *
+     * @param name              span name
+     * @param contextIdentifier context identifier of the login
+     * @param parentSpanId      identifier of the root span of the previous leg, if any
+     * @return the span, or {@link DuoSpan#TIMELINE} or {@link DuoSpan#NOOP} if the login is not traced
+     */
+    public DuoSpan startTrace(String name, String contextIdentifier, String parentSpanId) {
+
+        boolean timed = DuoSlowLoginSampler.getInstance().begin(name, contextIdentifier);
+        if (pipeline == null || sampleThreshold == 0 || contextIdentifier == null) {
+            return timed ? DuoSpan.TIMELINE : DuoSpan.NOOP;
+        }
+        String traceId = getTraceId(contextIdentifier);
+        if (!isSampled(traceId)) {
+            return timed ? DuoSpan.TIMELINE : DuoSpan.NOOP;
+        }
+        return start(name, currentSpan.get(), traceId, parentSpanId, timed);
+    }
+
+    /**
+     * Start a span nested under the current span of the thread.
+     *
+     * @param name span name
+     * @return the span, or {@link DuoSpan#TIMELINE} or {@link DuoSpan#NOOP} if the thread is not tracing a login
+     */
+    public DuoSpan startSpan(String name) {
+
+        boolean timed = DuoSlowLoginSampler.getInstance().enterPhase(name);
+        DuoSpan parent = currentSpan.get();
+        if (parent == null) {
+            return timed ? DuoSpan.TIMELINE : DuoSpan.NOOP;
+        }
+        return start(name, parent, parent.getTraceId(), parent.getSpanId(), timed);
+    }
+
+    /**
+     * Get the trace identifier of a login.
+     *
+     * @param contextIdentifier context identifier of the login
+     * @return 32 hexadecimal characters
+     */
+    public static String getTraceId(String contextIdentifier) {
+
+        byte[] digest = DuoCryptoCache.getSha256().digest(contextIdentifier.getBytes(StandardCharsets.UTF_8));
+        return toHex(digest, 16);
+    }
+
+    /**
+     * Write the pending spans and stop exporting.
+     */
+    public synchronized void shutdown() {
+
+        if (pipeline != null) {
+            pipeline.shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+            pipeline = null;
+        }
+        settings = null;
+        sampleThreshold = 0;
+    }
+
+    void end(DuoSpan span) {
+
+        if (currentSpan.get() == span) {
+            if (span.getParent() != null) {
+                currentSpan.set(span.getParent());
+            } else {
+                currentSpan.remove();
+            }
+        }
+        DuoEventPipeline<DuoSpan> current = pipeline;
+        if (current != null) {
+            current.publish(span);
+        }
+    }
+
+    private synchronized void configure(List<Object> requested, double sampleRatio, DuoEventSink<DuoSpan> sink) {
+
+        if (requested != null && requested.equals(settings)) {
+            return;
+        }
+        DuoEventPipeline<DuoSpan> previous = pipeline;
+        pipeline = sink == null ? null : new DuoEventPipeline<>(DuoAuthenticatorConstants.Tracing.PIPELINE_NAME,
+                sink, DuoAuthenticatorConstants.Tracing.BUFFER_SIZE, DuoAuthenticatorConstants.Tracing.BATCH_SIZE,
+                DuoAuthenticatorConstants.Tracing.FLUSH_INTERVAL_MILLIS, DuoEventPipeline.OverflowPolicy.DROP, 0);
+        double ratio = Math.max(0, Math.min(1, sampleRatio));
+        sampleThreshold = ratio >= 1 ? Long.MAX_VALUE : (long) (ratio * Long.MAX_VALUE);
+        settings = requested;
+        if (previous != null) {
+            previous.shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+        }
+    }
+
+    private boolean isSampled(String traceId) {
+
+        long threshold = sampleThreshold;
+        if (threshold == Long.MAX_VALUE) {
+            return true;
+        }
+        // The trace identifier is a digest, so its leading bits are uniformly distributed.
+        return Long.parseUnsignedLong(traceId.substring(0, 16), 16) >>> 1 < threshold;
+    }
+
+    private DuoSpan start(String name, DuoSpan parent, String traceId, String parentSpanId, boolean timed) {
+
+        byte[] spanId = new byte[8];
+        ThreadLocalRandom.current().nextBytes(spanId);
+        DuoSpan span = new DuoSpan(this, parent, traceId, toHex(spanId, 8), parentSpanId, name, timed);
+        currentSpan.set(span);
+        return span;
+    }
+
+    private static String toHex(byte[] bytes, int length) {
+
+        StringBuilder hex = new StringBuilder(length * 2);
+        for (int i = 0; i < length; i++) {
+            hex.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16)).append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
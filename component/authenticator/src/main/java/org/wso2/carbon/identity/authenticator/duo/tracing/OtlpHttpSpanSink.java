@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.tracing;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.event.DuoEventSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link DuoEventSink} exporting spans to an OpenTelemetry collector with the OTLP/HTTP JSON encoding.
+ */
+public class OtlpHttpSpanSink implements DuoEventSink<DuoSpan> {
+
+    private static final int TIMEOUT_MILLIS = 5000;
+    private static final int SPAN_KIND_INTERNAL = 1;
+    private static final int STATUS_CODE_OK = 1;
+    private static final int STATUS_CODE_ERROR = 2;
+
+    private final String endpoint;
+
+    /**
+     * Create an OTLP exporter.
+     *
+     * @param endpoint the traces endpoint of the collector, such as {@code http://localhost:4318/v1/traces}
+     */
+    public OtlpHttpSpanSink(String endpoint) {
+
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public void write(List<DuoSpan> spans) throws IOException {
+
+        byte[] payload = toOtlpJson(spans).getBytes(StandardCharsets.UTF_8);
+        HttpURLConnection connection = (HttpURLConnection) new URL(endpoint).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(payload.length);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                outputStream.write(payload);
+            }
+            int status = connection.getResponseCode();
+            try (InputStream inputStream = status < 400 ? connection.getInputStream()
+                    : connection.getErrorStream()) {
+                if (inputStream != null) {
+                    while (inputStream.read() != -1) {
+                        // Drain the response so that the connection can be reused.
+                    }
+                }
+            }
+            if (status / 100 != 2) {
+                throw new IOException("The OTLP endpoint " + endpoint + " responded with status " + status);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Encode spans as an OTLP/HTTP JSON export request.
+     *
+     * @param spans the spans
+     * @return the request body
+     */
+    public static String toOtlpJson(List<DuoSpan> spans) {
+
+        JSONArray otlpSpans = new JSONArray();
+        for (DuoSpan span : spans) {
+            JSONObject otlpSpan = new JSONObject();
+            otlpSpan.put("traceId", span.getTraceId());
+            otlpSpan.put("spanId", span.getSpanId());
+            if (span.getParentSpanId() != null) {
+                otlpSpan.put("parentSpanId", span.getParentSpanId());
+            }
+            otlpSpan.put("name", span.getName());
+            otlpSpan.put("kind", SPAN_KIND_INTERNAL);
+            otlpSpan.put("startTimeUnixNano", String.valueOf(span.getStartEpochNanos()));
+            otlpSpan.put("endTimeUnixNano", String.valueOf(span.getEndEpochNanos()));
+            JSONArray attributes = new JSONArray();
+            for (Map.Entry<String, String> attribute : span.getAttributes().entrySet()) {
+                attributes.put(toAttribute(attribute.getKey(), attribute.getValue()));
+            }
+            otlpSpan.put("attributes", attributes);
+            otlpSpan.put("status", new JSONObject().put("code", span.isError() ? STATUS_CODE_ERROR : STATUS_CODE_OK));
+            otlpSpans.put(otlpSpan);
+        }
+        JSONObject resource = new JSONObject().put("attributes", new JSONArray()
+                .put(toAttribute("service.name", DuoAuthenticatorConstants.Tracing.SERVICE_NAME)));
+        JSONObject scopeSpans = new JSONObject()
+                .put("scope", new JSONObject().put("name", DuoTracer.class.getName()))
+                .put("spans", otlpSpans);
+        JSONObject resourceSpans = new JSONObject()
+                .put("resource", resource)
+                .put("scopeSpans", new JSONArray().put(scopeSpans));
+        return new JSONObject().put("resourceSpans", new JSONArray().put(resourceSpans)).toString();
+    }
+
+    private static JSONObject toAttribute(String key, String value) {
+
+        return new JSONObject().put("key", key).put("value", new JSONObject().put("stringValue", value));
+    }
+}
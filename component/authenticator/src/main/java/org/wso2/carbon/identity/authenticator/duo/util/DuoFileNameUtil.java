@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Utilities to name the files the authenticator keeps for an Admin integration.
+ */
+public class DuoFileNameUtil {
+
+    private static final String FILE_NAME_DIGEST = "SHA-256";
+
+    private DuoFileNameUtil() {
+
+    }
+
+    /**
+     * Derive a file name from a key, so that integration keys do not show up on disk.
+     *
+     * @param key       the key, for instance the Duo API host and the Admin integration key
+     * @param extension the file extension, including the dot
+     * @return the file name
+     * @throws NoSuchAlgorithmException if the digest algorithm is not available
+     */
+    public static String getFileName(String key, String extension) throws NoSuchAlgorithmException {
+
+        byte[] digest = MessageDigest.getInstance(FILE_NAME_DIGEST).digest(key.getBytes(StandardCharsets.UTF_8));
+        StringBuilder fileName = new StringBuilder(digest.length * 2 + extension.length());
+        for (byte b : digest) {
+            fileName.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return fileName.append(extension).toString();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.util;
+
+import org.apache.commons.lang.StringUtils;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+
+/**
+ * Utilities to compare the phone numbers registered in Duo with the mobile claim of a user.
+ */
+public class DuoPhoneNumberUtil {
+
+    private DuoPhoneNumberUtil() {
+
+    }
+
+    /**
+     * Normalize a phone number by removing the formatting characters (white space, dashes, dots and brackets)
+     * while keeping a leading plus sign.
+     *
+     * @param phoneNumber the phone number
+     * @return the normalized phone number, or null if the phone number is empty
+     */
+    public static String normalize(String phoneNumber) {
+
+        if (StringUtils.isBlank(phoneNumber)) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(phoneNumber.length());
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            char c = phoneNumber.charAt(i);
+            if (Character.isDigit(c) || (c == '+' && normalized.length() == 0)) {
+                normalized.append(c);
+            } else if (!Character.isWhitespace(c) && c != '-' && c != '.' && c != '(' && c != ')') {
+                // Not a formatting character, keep it so that the number does not match by accident.
+                normalized.append(c);
+            }
+        }
+        return normalized.length() == 0 ? null : normalized.toString();
+    }
+
+    /**
+     * Check whether two phone numbers are the same once normalized.
+     *
+     * @param duoPhoneNumber phone number registered in Duo
+     * @param mobile         mobile claim value of the user
+     * @return true if both numbers match
+     */
+    public static boolean matches(String duoPhoneNumber, String mobile) {
+
+        String normalizedDuoPhoneNumber = normalize(duoPhoneNumber);
+        return normalizedDuoPhoneNumber != null && normalizedDuoPhoneNumber.equals(normalize(mobile));
+    }
+
+    /**
+     * Check whether two phone numbers are the same, either exactly or once normalized.
+     *
+     * @param duoPhoneNumber phone number registered in Duo
+     * @param mobile         mobile claim value of the user
+     * @param normalized     whether to compare the normalized numbers
+     * @return true if both numbers match
+     */
+    public static boolean matches(String duoPhoneNumber, String mobile, boolean normalized) {
+
+        if (normalized) {
+            return matches(duoPhoneNumber, mobile);
+        }
+        return duoPhoneNumber != null && duoPhoneNumber.equals(mobile);
+    }
+
+    /**
+     * Check whether one of the phones of a Duo user, as returned by the Admin API, matches a mobile claim value.
+     *
+     * @param duoPhones  the phones of the Duo user
+     * @param mobile     mobile claim value of the user
+     * @param normalized whether to compare the normalized numbers, rather than the numbers as they are
+     * @return true if one of the phone numbers matches
+     * @throws JSONException if a phone has no number
+     */
+    public static boolean matchesAny(JSONArray duoPhones, String mobile, boolean normalized) throws JSONException {
+
+        for (int i = 0; i < duoPhones.length(); i++) {
+            if (matches(duoPhones.getJSONObject(i).getString(DuoAuthenticatorConstants.DUO_NUMBER), mobile,
+                    normalized)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
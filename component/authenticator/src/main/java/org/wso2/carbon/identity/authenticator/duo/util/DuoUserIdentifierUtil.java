@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.authenticator.duo.util;
+
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.user.core.util.UserCoreUtil;
+
+import java.util.Map;
+
+/**
+ * Utilities to derive the identifier a user is known by in Duo.
+ */
+public class DuoUserIdentifierUtil {
+
+    private DuoUserIdentifierUtil() {
+
+    }
+
+    /**
+     * Get the Duo username of a user, appending the tenant domain and the user store domain unless they are
+     * disabled in the authenticator properties.
+     *
+     * @param userName                the username of the user
+     * @param tenantDomain            the tenant domain of the user
+     * @param userStoreDomain         the user store domain of the user
+     * @param authenticatorProperties the authenticator properties of the Duo identity provider
+     * @return the Duo username
+     */
+    public static String getDuoUsername(String userName, String tenantDomain, String userStoreDomain,
+                                        Map<String, String> authenticatorProperties) {
+
+        return getDuoUsername(userName, tenantDomain, userStoreDomain,
+                !isDisableTenantDomainInUserName(authenticatorProperties),
+                !isDisableUserStoreDomainInUserName(authenticatorProperties));
+    }
+
+    /**
+     * Get the Duo username of a user.
+     *
+     * @param userName              the username of the user
+     * @param tenantDomain          the tenant domain of the user
+     * @param userStoreDomain       the user store domain of the user
+     * @param appendTenantDomain    whether the tenant domain is appended
+     * @param appendUserStoreDomain whether the user store domain is appended
+     * @return the Duo username
+     */
+    public static String getDuoUsername(String userName, String tenantDomain, String userStoreDomain,
+                                        boolean appendTenantDomain, boolean appendUserStoreDomain) {
+
+        String username = userName;
+        if (appendTenantDomain) {
+            username = UserCoreUtil.addTenantDomainToEntry(username, tenantDomain);
+        }
+        if (appendUserStoreDomain) {
+            username = IdentityUtil.addDomainToName(username, userStoreDomain);
+        }
+        return username;
+    }
+
+    /**
+     * Check if the tenant domain should be appended or not.
+     *
+     * @param authenticatorProperties the authenticator properties
+     * @return True if the tenant domain should not be appended.
+     */
+    public static boolean isDisableTenantDomainInUserName(Map<String, String> authenticatorProperties) {
+
+        return Boolean.parseBoolean(authenticatorProperties.get(DuoAuthenticatorConstants.TENANT_DOMAIN));
+    }
+
+    /**
+     * Check if the user store domain should be appended or not.
+     *
+     * @param authenticatorProperties the authenticator properties
+     * @return True if the user store domain should not be appended.
+     */
+    public static boolean isDisableUserStoreDomainInUserName(Map<String, String> authenticatorProperties) {
+
+        return Boolean.parseBoolean(authenticatorProperties.get(DuoAuthenticatorConstants.USER_STORE_DOMAIN));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the memory allocated by the login hot path. Exact byte counts come from the allocation counter of the
+ * current thread, and allocation sites from the TLAB allocation events of JDK Flight Recorder.
+ */
+final class DuoAllocationProfiler {
+
+    static final String NEW_TLAB_EVENT = "jdk.ObjectAllocationInNewTLAB";
+    static final String OUTSIDE_TLAB_EVENT = "jdk.ObjectAllocationOutsideTLAB";
+    static final String OTHER_SITE = "other";
+    static final String STAND_IN_SITE = "stand-in";
+
+    private static final String[] STAND_IN_PACKAGES = {"org.mockito.", "org.powermock.",
+            DuoAllocationProfiler.class.getPackage().getName() + "."};
+
+    private DuoAllocationProfiler() {
+
+    }
+
+    /**
+     * Work whose allocations are measured.
+     */
+    interface Work {
+
+        void run() throws Exception;
+    }
+
+    /**
+     * Get the number of bytes allocated by the current thread so far.
+     *
+     * @return the allocated bytes
+     */
+    static long getAllocatedBytes() {
+
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+    }
+
+    /**
+     * Measure the bytes allocated by the current thread per run of some work.
+     *
+     * @param runs the number of runs
+     * @param work the work
+     * @return the average bytes allocated per run
+     * @throws Exception if the work failed
+     */
+    static long measure(int runs, Work work) throws Exception {
+
+        long before = getAllocatedBytes();
+        for (int i = 0; i < runs; i++) {
+            work.run();
+        }
+        return (getAllocatedBytes() - before) / runs;
+    }
+
+    /**
+     * Record the allocation sites of the current thread while it runs some work. Each sampled allocation is
+     * attributed to the innermost frame of a class in the given package or its sub packages. Allocations of the
+     * mocks and stand-ins of the test are attributed to {@link #STAND_IN_SITE}, and other allocations to
+     * {@link #OTHER_SITE}.
+     *
+     * @param packageName the package whose methods are reported as sites
+     * @param work        the work
+     * @return the sampled bytes per site, as {@code SimpleClassName.method}
+     * @throws Exception if the work failed or the recording could not be read
+     */
+    static Map<String, Long> recordSites(String packageName, Work work) throws Exception {
+
+        Path dump = Files.createTempFile("duo-allocations", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable(NEW_TLAB_EVENT).withStackTrace();
+                recording.enable(OUTSIDE_TLAB_EVENT).withStackTrace();
+                recording.start();
+                work.run();
+                recording.stop();
+                recording.dump(dump);
+            }
+            return readSites(dump, packageName + ".", Thread.currentThread().getId());
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    private static Map<String, Long> readSites(Path dump, String packagePrefix, long threadId) throws IOException {
+
+        Map<String, Long> sites = new HashMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+            RecordedThread thread = event.getThread();
+            if (thread == null || thread.getJavaThreadId() != threadId || event.getStackTrace() == null) {
+                continue;
+            }
+            long bytes = NEW_TLAB_EVENT.equals(event.getEventType().getName()) ? event.getLong("tlabSize")
+                    : event.getLong("allocationSize");
+            sites.merge(getSite(event.getStackTrace().getFrames(), packagePrefix), bytes, Long::sum);
+        }
+        return sites;
+    }
+
+    private static String getSite(List<RecordedFrame> frames, String packagePrefix) {
+
+        for (RecordedFrame frame : frames) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            String className = frame.getMethod().getType().getName();
+            for (String standInPackage : STAND_IN_PACKAGES) {
+                if (className.startsWith(standInPackage)) {
+                    return STAND_IN_SITE;
+                }
+            }
+            if (className.startsWith(packagePrefix)) {
+                return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethod().getName();
+            }
+        }
+        return OTHER_SITE;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import com.duosecurity.model.AuthContext;
+import com.duosecurity.model.AuthResult;
+import com.duosecurity.model.Token;
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockObjectFactory;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.powermock.reflect.Whitebox;
+import org.testng.Assert;
+import org.testng.IObjectFactory;
+import org.testng.SkipException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.extension.identity.helper.FederatedAuthenticatorUtil;
+import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
+import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticator;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+import org.wso2.carbon.identity.authenticator.duo.crypto.DuoCryptoCache;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostRouter;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoProbeClientRegistry;
+import org.wso2.carbon.identity.core.ServiceURLBuilder;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Allocation regression test case for the login hot path. A fixed number of logins is run through the initiate and
+ * callback legs against the stand-in Duo service, and the allocations are checked against the budget in
+ * {@value #BUDGET_FILE}. When a change legitimately allocates more, the budget has to be raised in the same change.
+ */
+@PowerMockIgnore({"javax.crypto.*", "jdk.jfr.*", "com.sun.management.*"})
+@PrepareForTest({FrameworkUtils.class, IdentityUtil.class, FederatedAuthenticatorUtil.class,
+        ServiceURLBuilder.class})
+public class DuoAllocationTest extends PowerMockTestCase {
+
+    private static final String BUDGET_FILE = "duo-allocation-budget.properties";
+    private static final String DUO_PACKAGE = DuoAuthenticator.class.getPackage().getName();
+    private static final int USERS = 10;
+    private static final int WARM_UP_RUNS = 500;
+    private static final int RUNS = 500;
+    private static final int TOP_SITES = 5;
+
+    private StandInDuoService duoService;
+    private StandInDuoAuthenticator authenticator;
+    private Properties budget;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        StandInDuoService.mockFramework();
+        duoService = new StandInDuoService();
+        authenticator = new StandInDuoAuthenticator(duoService);
+        budget = new Properties();
+        try (InputStream budgetStream = getClass().getClassLoader().getResourceAsStream(BUDGET_FILE)) {
+            Assert.assertNotNull(budgetStream, "Missing " + BUDGET_FILE);
+            budget.load(budgetStream);
+        }
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoHostRouter.getInstance().clear();
+        DuoProbeClientRegistry.getInstance().clear();
+        DuoCryptoCache.getInstance().clear();
+        DuoConfigManager.getInstance().clear();
+    }
+
+    @Test(description = "Test case for the bytes allocated per login staying within the budget.")
+    public void testLoginAllocation() throws Exception {
+
+        runLogins(WARM_UP_RUNS);
+        List<StandInLogin> logins = createLogins(RUNS);
+        int[] next = {0};
+        long bytesPerLogin = DuoAllocationProfiler.measure(RUNS, () -> runLogin(logins.get(next[0]++)));
+        for (StandInLogin login : logins) {
+            login.assertAuthenticated();
+        }
+        assertWithinBudget("login", bytesPerLogin);
+    }
+
+    @Test(description = "Test case for the bytes allocated by the hot methods of a login staying within the budget.")
+    public void testHotMethodAllocation() throws Exception {
+
+        DuoAuthenticator duoAuthenticator = new DuoAuthenticator();
+        Token token = new Token();
+        token.setSub("duo-user");
+        token.setPreferred_username("duo-user");
+        token.setAud(StandInDuoService.CLIENT_ID);
+        token.setAuth_result(new AuthResult("allow", "allow", "User is authorized"));
+        token.setAuth_context(new AuthContext());
+        AuthenticationContext context = new AuthenticationContext();
+        context.setContextIdentifier("context");
+
+        DuoAllocationProfiler.Work userAttributes = () -> Whitebox.invokeMethod(duoAuthenticator,
+                "getUserAttributesFromDuoToken", token);
+        DuoAllocationProfiler.Work errorPage = () -> Whitebox.invokeMethod(duoAuthenticator, "getErrorPage",
+                context);
+        DuoAllocationProfiler.measure(WARM_UP_RUNS, userAttributes);
+        DuoAllocationProfiler.measure(WARM_UP_RUNS, errorPage);
+        assertWithinBudget("getUserAttributesFromDuoToken", DuoAllocationProfiler.measure(RUNS, userAttributes));
+        assertWithinBudget("getErrorPage", DuoAllocationProfiler.measure(RUNS, errorPage));
+    }
+
+    @Test(description = "Test case for the top allocation sites of a login staying within the budget.")
+    public void testAllocationSites() throws Exception {
+
+        try {
+            Class.forName("jdk.jfr.Recording");
+        } catch (ClassNotFoundException e) {
+            throw new SkipException("JDK Flight Recorder is not available in this JVM");
+        }
+        runLogins(WARM_UP_RUNS);
+        List<StandInLogin> logins = createLogins(RUNS);
+        Map<String, Long> sites = DuoAllocationProfiler.recordSites(DUO_PACKAGE, () -> {
+            for (StandInLogin login : logins) {
+                runLogin(login);
+            }
+        });
+        List<Map.Entry<String, Long>> topSites = new ArrayList<>(sites.entrySet());
+        topSites.removeIf(site -> DuoAllocationProfiler.OTHER_SITE.equals(site.getKey())
+                || DuoAllocationProfiler.STAND_IN_SITE.equals(site.getKey()));
+        topSites.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        StringBuilder report = new StringBuilder("Top allocation sites per login:");
+        for (Map.Entry<String, Long> site : topSites.subList(0, Math.min(TOP_SITES, topSites.size()))) {
+            report.append(' ').append(site.getKey()).append('=').append(site.getValue() / RUNS);
+        }
+        for (Map.Entry<String, Long> site : topSites.subList(0, Math.min(TOP_SITES, topSites.size()))) {
+            long bytesPerLogin = site.getValue() / RUNS;
+            long allowed = getBudget("site." + site.getKey(), getBudget("site.default", 0));
+            Assert.assertTrue(bytesPerLogin <= allowed, site.getKey() + " allocated " + bytesPerLogin
+                    + " bytes per login, above the budget of " + allowed + " bytes. " + report);
+        }
+    }
+
+    private void runLogins(int count) throws Exception {
+
+        for (StandInLogin login : createLogins(count)) {
+            runLogin(login);
+            login.assertAuthenticated();
+        }
+    }
+
+    private List<StandInLogin> createLogins(int count) throws Exception {
+
+        // The logins of a few users are repeated, as they are at the busiest identity nodes.
+        List<StandInLogin> logins = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            logins.add(new StandInLogin(i, "duo-user-" + i % USERS));
+        }
+        return logins;
+    }
+
+    private void runLogin(StandInLogin login) throws Exception {
+
+        login.initiate(authenticator);
+        login.callback(authenticator);
+    }
+
+    private void assertWithinBudget(String name, long bytes) {
+
+        long allowed = getBudget(name, -1);
+        Assert.assertTrue(allowed > 0, "No allocation budget for " + name + " in " + BUDGET_FILE);
+        Assert.assertTrue(bytes <= allowed, name + " allocated " + bytes + " bytes per run, above the budget of "
+                + allowed + " bytes");
+    }
+
+    private long getBudget(String name, long defaultValue) {
+
+        String value = budget.getProperty(name + ".bytes");
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new PowerMockObjectFactory();
+    }
+}
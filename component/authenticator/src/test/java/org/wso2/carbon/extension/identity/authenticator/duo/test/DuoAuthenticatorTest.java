@@ -18,6 +18,9 @@
 
 package org.wso2.carbon.extension.identity.authenticator.duo.test;
 
+import com.duosecurity.model.AuthContext;
+import com.duosecurity.model.AuthResult;
+import com.duosecurity.model.Token;
 import com.squareup.okhttp.OkHttpClient;
 import com.squareup.okhttp.Request;
 import com.squareup.okhttp.Response;
@@ -45,9 +48,15 @@ import org.wso2.carbon.identity.application.authentication.framework.context.Aut
 import org.wso2.carbon.identity.application.authentication.framework.exception.AuthenticationFailedException;
 import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
 import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
+import org.wso2.carbon.identity.application.common.model.ClaimMapping;
 import org.wso2.carbon.identity.application.common.model.Property;
 import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticator;
 import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.bulkhead.DuoBulkhead;
+import org.wso2.carbon.identity.authenticator.duo.bulkhead.DuoBulkheadRegistry;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+import org.wso2.carbon.identity.authenticator.duo.failure.DuoErrorPageTemplates;
+import org.wso2.carbon.identity.authenticator.duo.failure.DuoFailureState;
 import org.wso2.carbon.identity.authenticator.duo.internal.DuoAuthenticatorServiceComponent;
 import org.wso2.carbon.identity.authenticator.duo.internal.DuoServiceHolder;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
@@ -58,6 +67,7 @@ import org.wso2.carbon.user.core.service.RealmService;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -127,6 +137,7 @@ public class DuoAuthenticatorTest extends PowerMockTestCase {
     @AfterMethod
     public void tearDown() throws Exception {
 
+        DuoErrorPageTemplates.getInstance().clear();
     }
 
     @Test(description = "Test case for canHandle() method true case.")
@@ -229,6 +240,92 @@ public class DuoAuthenticatorTest extends PowerMockTestCase {
         Assert.assertTrue(captor.getValue().contains(DuoAuthenticatorConstants.DuoErrors.ERROR_NUMBER_MISMATCH));
     }
 
+    @Test(description = "Test case for checkStatusCode() with a user denied by the Duo pre-authentication")
+    public void testCheckStatusCodeWithAccessDenied() throws Exception {
+
+        mockStatic(FrameworkUtils.class);
+        mockStatic(IdentityUtil.class);
+        context.setProperty(DuoAuthenticatorConstants.ACCESS_DENIED_BY_DUO, true);
+        when(FrameworkUtils.getQueryStringWithFrameworkContextId(context.getQueryParams(),
+                context.getCallerSessionKey(), context.getContextIdentifier())).thenReturn
+                (null);
+        when(IdentityUtil.getServerURL(DuoAuthenticatorConstants.DUO_DEFAULT_ERROR_PAGE, false,
+                false)).thenReturn(DuoAuthenticatorConstants.DUO_DEFAULT_ERROR_PAGE);
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        Whitebox.invokeMethod(duoAuthenticator, "checkStatusCode", httpServletResponse, context);
+        verify(httpServletResponse).sendRedirect(captor.capture());
+        Assert.assertTrue(captor.getValue().contains(DuoAuthenticatorConstants.DuoErrors.ERROR_ACCESS_DENIED));
+    }
+
+    @Test(description = "Test case for checkStatusCode() with the failure state of the context")
+    public void testCheckStatusCodeWithFailureState() throws Exception {
+
+        mockStatic(FrameworkUtils.class);
+        mockStatic(IdentityUtil.class);
+        AuthenticationContext failedContext = new AuthenticationContext();
+        DuoFailureState.SERVICE_BUSY.set(failedContext);
+        when(FrameworkUtils.getQueryStringWithFrameworkContextId(failedContext.getQueryParams(),
+                failedContext.getCallerSessionKey(), failedContext.getContextIdentifier()))
+                .thenReturn("sessionDataKey=abc");
+        when(IdentityUtil.getServerURL(DuoAuthenticatorConstants.DUO_DEFAULT_ERROR_PAGE, false,
+                false)).thenReturn("https://localhost:9443/" + DuoAuthenticatorConstants.DUO_DEFAULT_ERROR_PAGE);
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        Whitebox.invokeMethod(duoAuthenticator, "checkStatusCode", httpServletResponse, failedContext);
+        verify(httpServletResponse).sendRedirect(captor.capture());
+        Assert.assertEquals(captor.getValue(), "https://localhost:9443/"
+                + DuoAuthenticatorConstants.DUO_DEFAULT_ERROR_PAGE + "?sessionDataKey=abc&"
+                + DuoAuthenticatorConstants.AUTHENTICATION + "=" + DuoAuthenticatorConstants.AUTHENTICATOR_NAME
+                + DuoAuthenticatorConstants.DuoErrors.ERROR_DUO_SERVICE_BUSY);
+    }
+
+    @Test(description = "Test case for the Duo pre-authentication sending the user to the busy page when the "
+            + "bulkhead rejects the call, and clearing the failure state once it is bypassed")
+    public void testPreauthWithBulkheadRejection() throws Exception {
+
+        mockStatic(FrameworkUtils.class);
+        mockStatic(IdentityUtil.class);
+        AuthenticationContext preauthContext = new AuthenticationContext();
+        preauthContext.setTenantDomain("preauth.com");
+        Map<String, String> authenticatorProperties = new HashMap<>();
+        authenticatorProperties.put(DuoAuthenticatorConstants.HOST, "api-preauth.example.com");
+        authenticatorProperties.put(DuoAuthenticatorConstants.AUTH_IKEY, "ikey");
+        authenticatorProperties.put(DuoAuthenticatorConstants.AUTH_SKEY, "skey");
+        preauthContext.setAuthenticatorProperties(authenticatorProperties);
+        when(FrameworkUtils.getQueryStringWithFrameworkContextId(preauthContext.getQueryParams(),
+                preauthContext.getCallerSessionKey(), preauthContext.getContextIdentifier())).thenReturn(null);
+        when(IdentityUtil.getServerURL(DuoAuthenticatorConstants.DUO_DEFAULT_ERROR_PAGE, false,
+                false)).thenReturn(DuoAuthenticatorConstants.DUO_DEFAULT_ERROR_PAGE);
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(DuoAuthenticatorConstants.Preauth.ENABLE_PREAUTH, "true");
+        parameters.put(DuoAuthenticatorConstants.Bulkhead.ENABLE_BULKHEAD, "true");
+        parameters.put(DuoAuthenticatorConstants.Bulkhead.MAX_CONCURRENT_CALLS, "1");
+        parameters.put(DuoAuthenticatorConstants.Bulkhead.MAX_WAITING_CALLS, "1");
+        parameters.put(DuoAuthenticatorConstants.Bulkhead.MAX_WAIT_TIME, "1");
+        DuoBulkhead bulkhead = DuoBulkheadRegistry.getInstance().getBulkhead("preauth.com", null, 1, 1, 1);
+        Assert.assertTrue(bulkhead.tryAcquire());
+        try {
+            DuoConfigManager.getInstance().bind(DuoConfigManager.getInstance().getConfig(parameters));
+            Assert.assertTrue(Whitebox.invokeMethod(duoAuthenticator, "isHandledByPreauth", httpServletResponse,
+                    preauthContext, "duo-user"));
+            ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+            verify(httpServletResponse).sendRedirect(captor.capture());
+            Assert.assertTrue(captor.getValue().contains(DuoAuthenticatorConstants.DuoErrors.ERROR_DUO_SERVICE_BUSY),
+                    captor.getValue());
+
+            // The next attempt bypasses the pre-authentication, and is not reported as busy once retried.
+            parameters.remove(DuoAuthenticatorConstants.Preauth.ENABLE_PREAUTH);
+            DuoConfigManager.getInstance().bind(DuoConfigManager.getInstance().getConfig(parameters));
+            Assert.assertFalse(Whitebox.invokeMethod(duoAuthenticator, "isHandledByPreauth", httpServletResponse,
+                    preauthContext, "duo-user"));
+            Assert.assertNull(DuoFailureState.get(preauthContext));
+        } finally {
+            bulkhead.release();
+            DuoConfigManager.getInstance().unbind();
+            DuoConfigManager.getInstance().clear();
+            DuoBulkheadRegistry.getInstance().clear();
+        }
+    }
+
     @Test(description = "Test case for getErrorPage() method")
     public void testGetErrorPage() throws Exception {
 
@@ -251,6 +348,17 @@ public class DuoAuthenticatorTest extends PowerMockTestCase {
                 context, jsonArray, "0771234567")).get(), true);
     }
 
+    @Test(description = "Test case for isValidPhoneNumber() method with a formatted Duo phone number")
+    public void testIsValidPhoneNumberWithFormattedNumber() throws Exception {
+
+        JSONObject jo = new JSONObject();
+        jo.put("number", "+94 77-123 4567");
+        JSONArray jsonArray = new JSONArray();
+        jsonArray.put(jo);
+        Assert.assertEquals(Optional.ofNullable(Whitebox.invokeMethod(duoAuthenticator, "isValidPhoneNumber",
+                context, jsonArray, "+94771234567")).get(), false);
+    }
+
     @Test(description = "Test case for isValidPhoneNumber() method false")
     public void testIsValidPhoneNumberWithFalse() throws Exception {
 
@@ -280,6 +388,10 @@ public class DuoAuthenticatorTest extends PowerMockTestCase {
         configProperties.add(disableUserStoreDomain);
         Property disableTenantDomain = new Property();
         configProperties.add(disableTenantDomain);
+        Property authIntegrationKey = new Property();
+        configProperties.add(authIntegrationKey);
+        Property authSecretKey = new Property();
+        configProperties.add(authSecretKey);
         Assert.assertEquals(configProperties.size(), duoAuthenticator.getConfigurationProperties().size());
     }
 
@@ -299,6 +411,32 @@ public class DuoAuthenticatorTest extends PowerMockTestCase {
         Assert.assertFalse(Whitebox.invokeMethod(duoAuthenticator, "isValidResponse", contextState, duoState));
     }
 
+    @Test(description = "Test case for getUserAttributesFromDuoToken() method.")
+    public void testGetUserAttributesFromDuoToken() throws Exception {
+
+        Token token = new Token();
+        token.setIss("https://api-xxx.duosecurity.com/oauth/v1/token");
+        token.setSub("duo-user");
+        token.setPreferred_username("duo-user@carbon.super");
+        token.setAud("DIXXXXXXXXXXXXXXXXXX");
+        token.setAuth_result(new AuthResult("allow", "allow", "User is authorized"));
+        AuthContext authContext = new AuthContext();
+        authContext.setFactor("Duo Push");
+        token.setAuth_context(authContext);
+
+        Map<ClaimMapping, String> userAttributes = Whitebox.invokeMethod(duoAuthenticator,
+                "getUserAttributesFromDuoToken", token);
+        Map<String, String> claims = new HashMap<>();
+        for (Map.Entry<ClaimMapping, String> userAttribute : userAttributes.entrySet()) {
+            claims.put(userAttribute.getKey().getRemoteClaim().getClaimUri(), userAttribute.getValue());
+        }
+        Map<String, String> expected = new HashMap<>();
+        expected.put("sub", "duo-user");
+        expected.put("preferred_username", "duo-user@carbon.super");
+        expected.put("amr", "Duo Push");
+        Assert.assertEquals(claims, expected);
+    }
+
     @ObjectFactory
     public IObjectFactory getObjectFactory() {
 
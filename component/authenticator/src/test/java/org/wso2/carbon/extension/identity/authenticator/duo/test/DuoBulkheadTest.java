@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.bulkhead.DuoBulkhead;
+import org.wso2.carbon.identity.authenticator.duo.bulkhead.DuoBulkheadRegistry;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Test case for the per-tenant bulkheads around outbound Duo calls.
+ */
+public class DuoBulkheadTest {
+
+    @Test(description = "Test case for rejecting calls once the permits and the wait queue are exhausted.")
+    public void testRejectWhenFull() {
+
+        DuoBulkhead bulkhead = new DuoBulkhead("tenant-a", 2, 0, 10);
+        Assert.assertTrue(bulkhead.tryAcquire());
+        Assert.assertTrue(bulkhead.tryAcquire());
+        Assert.assertEquals(bulkhead.getActiveCalls(), 2);
+        Assert.assertFalse(bulkhead.tryAcquire());
+        bulkhead.release();
+        Assert.assertTrue(bulkhead.tryAcquire());
+    }
+
+    @Test(description = "Test case for a waiting call obtaining a released permit.")
+    public void testWaitingCallGetsPermit() throws Exception {
+
+        DuoBulkhead bulkhead = new DuoBulkhead("tenant-b", 1, 1, 5000);
+        Assert.assertTrue(bulkhead.tryAcquire());
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean acquired = new AtomicBoolean();
+        Thread waiter = new Thread(() -> {
+            started.countDown();
+            acquired.set(bulkhead.tryAcquire());
+        });
+        waiter.start();
+        started.await(5, TimeUnit.SECONDS);
+        while (bulkhead.getWaitingCalls() == 0 && waiter.isAlive()) {
+            Thread.sleep(5);
+        }
+        Assert.assertFalse(bulkhead.tryAcquire(), "The wait queue is full and the call should be rejected.");
+        bulkhead.release();
+        waiter.join(5000);
+        Assert.assertTrue(acquired.get());
+        Assert.assertEquals(bulkhead.getWaitingCalls(), 0);
+    }
+
+    @Test(description = "Test case for the unbounded bulkhead used when isolation is disabled.")
+    public void testUnboundedBulkhead() {
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(DuoBulkhead.UNBOUNDED.tryAcquire());
+        }
+        Assert.assertEquals(DuoBulkhead.UNBOUNDED.getActiveCalls(), 0);
+    }
+
+    @Test(description = "Test case for per tenant isolation and occupancy metrics of the registry.")
+    public void testRegistryIsolationAndMetrics() {
+
+        DuoBulkheadRegistry registry = DuoBulkheadRegistry.getInstance();
+        DuoBulkhead tenantOne = registry.getBulkhead("one.com", null, 1, 0, 10);
+        DuoBulkhead tenantTwo = registry.getBulkhead("two.com", null, 1, 0, 10);
+        Assert.assertNotSame(tenantOne, tenantTwo);
+        Assert.assertSame(registry.getBulkhead("one.com", null, 1, 0, 10), tenantOne);
+        Assert.assertNotSame(registry.getBulkhead("one.com", "duo-idp", 1, 0, 10), tenantOne);
+
+        Assert.assertTrue(tenantOne.tryAcquire());
+        Assert.assertTrue(tenantTwo.tryAcquire());
+        Assert.assertFalse(tenantOne.tryAcquire());
+        registry.recordRejection(tenantOne);
+
+        String prefix = DuoAuthenticatorConstants.Metrics.BULKHEAD_PREFIX + "one.com";
+        Assert.assertEquals(DuoMetrics.getInstance().getGauge(prefix + DuoAuthenticatorConstants.Metrics.ACTIVE_CALLS),
+                1);
+        Assert.assertEquals(DuoMetrics.getInstance().getCounter(prefix
+                + DuoAuthenticatorConstants.Metrics.REJECTED_CALLS), 1);
+        tenantOne.release();
+        tenantTwo.release();
+
+        DuoBulkhead resized = registry.getBulkhead("one.com", null, 5, 0, 10);
+        Assert.assertNotSame(resized, tenantOne);
+        Assert.assertEquals(resized.getMaxConcurrentCalls(), 5);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.cache.ClusterAwareDuoCache;
+import org.wso2.carbon.identity.authenticator.duo.cache.DuoCache;
+import org.wso2.carbon.identity.authenticator.duo.cache.DuoCacheInvalidator;
+import org.wso2.carbon.identity.authenticator.duo.cache.DuoCacheKey;
+import org.wso2.carbon.identity.authenticator.duo.cache.DuoCacheManager;
+import org.wso2.carbon.identity.authenticator.duo.cache.LocalDuoCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test case for the caches of Duo verification data.
+ */
+public class DuoCacheTest {
+
+    private static final String TENANT_DOMAIN = "carbon.super";
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoCacheManager.getInstance().setInvalidator(null);
+        DuoCacheManager.getInstance().clear();
+    }
+
+    @Test(description = "Test case for the expiry of local cache entries.")
+    public void testLocalCacheExpiry() throws Exception {
+
+        LocalDuoCache<String> cache = new LocalDuoCache<>("test", 50, 10);
+        cache.put(TENANT_DOMAIN, "alice", "+94771234567");
+        Assert.assertEquals(cache.get(TENANT_DOMAIN, "alice"), "+94771234567");
+        Assert.assertNull(cache.get("wso2.com", "alice"));
+        Thread.sleep(60);
+        Assert.assertNull(cache.get(TENANT_DOMAIN, "alice"));
+    }
+
+    @Test(description = "Test case for evicting the least recently used local cache entry.")
+    public void testLocalCacheEviction() {
+
+        LocalDuoCache<String> cache = new LocalDuoCache<>("test", 60000, 2);
+        cache.put(TENANT_DOMAIN, "alice", "1");
+        cache.put(TENANT_DOMAIN, "bob", "2");
+        cache.get(TENANT_DOMAIN, "alice");
+        cache.put(TENANT_DOMAIN, "carol", "3");
+
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertEquals(cache.get(TENANT_DOMAIN, "alice"), "1");
+        Assert.assertNull(cache.get(TENANT_DOMAIN, "bob"));
+        Assert.assertEquals(cache.get(TENANT_DOMAIN, "carol"), "3");
+    }
+
+    @Test(description = "Test case for spreading a large local cache over segments which stay within its size.")
+    public void testLocalCacheSegments() throws Exception {
+
+        LocalDuoCache<String> cache = new LocalDuoCache<>("test", 60000, 1000);
+        Assert.assertEquals(cache.getSegmentCount(), 8);
+        Assert.assertEquals(new LocalDuoCache<String>("test", 60000, 2).getSegmentCount(), 1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        String key = thread + "-" + i;
+                        cache.put(TENANT_DOMAIN, key, key);
+                        cache.get(TENANT_DOMAIN, thread + "-" + i / 2);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertTrue(cache.size() <= 1000, "The cache holds " + cache.size() + " entries");
+        Assert.assertTrue(cache.size() > 900, "The cache holds " + cache.size() + " entries");
+        cache.put(TENANT_DOMAIN, "alice", "1");
+        Assert.assertEquals(cache.get(TENANT_DOMAIN, "alice"), "1");
+    }
+
+    @Test(description = "Test case for propagating an invalidation to the other nodes of a cluster.")
+    public void testClusterInvalidation() {
+
+        SimulatedCluster cluster = new SimulatedCluster();
+        DuoCache<String> node1 = new ClusterAwareDuoCache<>("test", 60000, 10, cluster.join());
+        DuoCache<String> node2 = new ClusterAwareDuoCache<>("test", 60000, 10, cluster.join());
+        DuoCache<String> node3 = new ClusterAwareDuoCache<>("test", 60000, 10, cluster.join());
+
+        node1.put(TENANT_DOMAIN, "alice", "+94771234567");
+        node2.put(TENANT_DOMAIN, "alice", "+94771234567");
+        node3.put(TENANT_DOMAIN, "bob", "+94771234568");
+        Assert.assertEquals(node1.get(TENANT_DOMAIN, "alice"), "+94771234567");
+        Assert.assertEquals(node2.get(TENANT_DOMAIN, "alice"), "+94771234567");
+
+        // A number mismatch on the second node.
+        node2.invalidate(TENANT_DOMAIN, "alice");
+        Assert.assertNull(node1.get(TENANT_DOMAIN, "alice"));
+        Assert.assertNull(node2.get(TENANT_DOMAIN, "alice"));
+        Assert.assertEquals(node3.get(TENANT_DOMAIN, "bob"), "+94771234568");
+
+        node1.put(TENANT_DOMAIN, "alice", "+94779999999");
+        Assert.assertEquals(node1.get(TENANT_DOMAIN, "alice"), "+94779999999");
+        Assert.assertNull(node2.get(TENANT_DOMAIN, "alice"));
+    }
+
+    @Test(description = "Test case for replacing a cache when it is reconfigured.")
+    public void testCacheManagerReconfiguration() {
+
+        DuoCacheManager.getInstance().setInvalidator(new SimulatedCluster().join());
+        DuoCache<String> cache = DuoCacheManager.getInstance().getCache("test", false, 60000, 10);
+        Assert.assertTrue(cache instanceof LocalDuoCache);
+        Assert.assertSame(DuoCacheManager.getInstance().getCache("test", false, 60000, 10), cache);
+
+        DuoCache<String> clusteredCache = DuoCacheManager.getInstance().getCache("test", true, 60000, 10);
+        Assert.assertTrue(clusteredCache instanceof ClusterAwareDuoCache);
+        Assert.assertNotSame(DuoCacheManager.getInstance().getCache("test", true, 30000, 10), clusteredCache);
+    }
+
+    /**
+     * Nodes of a cluster each holding their own copy of the version cache. Like a Carbon cache, removing an entry on
+     * one node removes it from the caches of the other nodes.
+     */
+    private static final class SimulatedCluster {
+
+        private final List<Map<DuoCacheKey, String>> nodes = new ArrayList<>();
+
+        private DuoCacheInvalidator join() {
+
+            Map<DuoCacheKey, String> versions = new ConcurrentHashMap<>();
+            nodes.add(versions);
+            return new DuoCacheInvalidator() {
+
+                @Override
+                public String getVersion(DuoCacheKey key) {
+
+                    return versions.get(key);
+                }
+
+                @Override
+                public String getOrCreateVersion(DuoCacheKey key) {
+
+                    String version = versions.get(key);
+                    if (version == null) {
+                        version = UUID.randomUUID().toString();
+                        versions.put(key, version);
+                    }
+                    return version;
+                }
+
+                @Override
+                public void invalidate(DuoCacheKey key) {
+
+                    versions.remove(key);
+                    broadcastRemoval(versions, key);
+                }
+            };
+        }
+
+        private void broadcastRemoval(Map<DuoCacheKey, String> sender, DuoCacheKey key) {
+
+            for (Map<DuoCacheKey, String> node : nodes) {
+                if (node != sender) {
+                    node.remove(key);
+                }
+            }
+        }
+    }
+}
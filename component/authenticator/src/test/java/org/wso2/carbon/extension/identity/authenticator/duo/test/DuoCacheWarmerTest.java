@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.cache.DuoCacheWarmer;
+import org.wso2.carbon.identity.authenticator.duo.cache.DuoLoginHistory;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test case for warming the Duo verification data caches from the recent logins.
+ */
+public class DuoCacheWarmerTest {
+
+    private static final String HOST = "api-test.duosecurity.com";
+    private static final String ADMIN_IKEY = "DIWARMINGTEST";
+    private static final String ADMIN_SKEY = "admin-secret";
+    private static final String TENANT = "carbon.super";
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoCacheWarmer.getInstance().shutdown();
+    }
+
+    @Test(description = "Test case for keeping one entry per user and evicting the least recently seen user.")
+    public void testBoundedHistory() {
+
+        DuoLoginHistory history = new DuoLoginHistory();
+        history.record(TENANT, "alice", null, 2);
+        history.record(TENANT, "bob", null, 2);
+        history.record(TENANT, "alice", null, 2);
+        history.record(TENANT, "carol", null, 2);
+
+        List<DuoLoginHistory.Entry> recent = history.getRecent(0);
+        Assert.assertEquals(history.size(), 2);
+        Assert.assertEquals(recent.get(0).getDuoUserId(), "carol");
+        Assert.assertEquals(recent.get(1).getDuoUserId(), "alice");
+        Assert.assertTrue(history.getRecent(System.currentTimeMillis() + 1000).isEmpty());
+    }
+
+    @Test(description = "Test case for warming the caches for the users of the history.")
+    public void testWarmNow() {
+
+        DuoCacheWarmer warmer = DuoCacheWarmer.getInstance();
+        warmer.configure(true, null, 15, 1000, 100, 24);
+        Map<String, String> loaded = new ConcurrentHashMap<>();
+        warmer.register(HOST, ADMIN_IKEY, ADMIN_SKEY, (tenantDomain, duoUserId, username) -> {
+            if ("mallory".equals(duoUserId)) {
+                throw new IllegalStateException("Duo user lookup failed");
+            }
+            loaded.put(duoUserId, String.valueOf(username));
+            return username != null ? 2 : 1;
+        });
+        warmer.recordLogin(HOST, ADMIN_IKEY, TENANT, "alice", "alice@carbon.super");
+        warmer.recordLogin(HOST, ADMIN_IKEY, TENANT, "bob", null);
+        warmer.recordLogin(HOST, ADMIN_IKEY, TENANT, "alice", "alice@carbon.super");
+        warmer.recordLogin(HOST, ADMIN_IKEY, TENANT, "mallory", null);
+        warmer.recordLogin("api-other.duosecurity.com", ADMIN_IKEY, TENANT, "eve", null);
+        DuoMetrics metrics = DuoMetrics.getInstance();
+        long prefetches = metrics.getCounter(DuoAuthenticatorConstants.Metrics.CACHE_WARMING_PREFETCHES);
+        long failures = metrics.getCounter(DuoAuthenticatorConstants.Metrics.CACHE_WARMING_FAILURES);
+        long warmedLogins = metrics.getCounter(DuoAuthenticatorConstants.Metrics.CACHE_WARMING_WARMED_LOGINS);
+
+        Assert.assertEquals(warmer.warmNow(), 2);
+
+        Assert.assertEquals(loaded.size(), 2);
+        Assert.assertEquals(loaded.get("alice"), "alice@carbon.super");
+        Assert.assertEquals(loaded.get("bob"), "null");
+        Assert.assertEquals(metrics.getCounter(DuoAuthenticatorConstants.Metrics.CACHE_WARMING_PREFETCHES),
+                prefetches + 3);
+        Assert.assertEquals(metrics.getCounter(DuoAuthenticatorConstants.Metrics.CACHE_WARMING_FAILURES),
+                failures + 1);
+        Assert.assertEquals(metrics.getGauge(DuoAuthenticatorConstants.Metrics.CACHE_WARMING_HISTORY), 3);
+
+        // Only the first login after the warming is served by it.
+        warmer.recordLogin(HOST, ADMIN_IKEY, TENANT, "alice", "alice@carbon.super");
+        warmer.recordLogin(HOST, ADMIN_IKEY, TENANT, "alice", "alice@carbon.super");
+        warmer.recordLogin(HOST, ADMIN_IKEY, TENANT, "mallory", null);
+        Assert.assertEquals(metrics.getCounter(DuoAuthenticatorConstants.Metrics.CACHE_WARMING_WARMED_LOGINS),
+                warmedLogins + 1);
+    }
+
+    @Test(description = "Test case for pacing the warming at the configured rate.")
+    public void testWarmingRate() {
+
+        DuoCacheWarmer warmer = DuoCacheWarmer.getInstance();
+        warmer.configure(true, null, 15, 20, 100, 24);
+        warmer.register(HOST, ADMIN_IKEY, ADMIN_SKEY, (tenantDomain, duoUserId, username) -> 1);
+        for (int i = 0; i < 5; i++) {
+            warmer.recordLogin(HOST, ADMIN_IKEY, TENANT, "user" + i, null);
+        }
+
+        long start = System.nanoTime();
+        Assert.assertEquals(warmer.warmNow(), 5);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Five users at 20 users per second are four intervals of 50 ms apart.
+        Assert.assertTrue(elapsedMillis >= 180, "Warmed five users in " + elapsedMillis + " ms");
+    }
+
+    @Test(description = "Test case for keeping the history in memory only.")
+    public void testHistoryInMemory() {
+
+        DuoCacheWarmer warmer = DuoCacheWarmer.getInstance();
+        warmer.configure(true, null, 15, 1000, 100, 24);
+        warmer.register(HOST, ADMIN_IKEY, ADMIN_SKEY, (tenantDomain, duoUserId, username) -> 1);
+        warmer.recordLogin(HOST, ADMIN_IKEY, TENANT, "alice", "alice@carbon.super");
+
+        // Reconfiguring the integration keeps the users seen so far.
+        warmer.register(HOST, ADMIN_IKEY, "rotated-secret", (tenantDomain, duoUserId, username) -> 1);
+        Assert.assertEquals(warmer.warmNow(), 1);
+
+        warmer.shutdown();
+        warmer.configure(true, null, 15, 1000, 100, 24);
+        warmer.register(HOST, ADMIN_IKEY, ADMIN_SKEY, (tenantDomain, duoUserId, username) -> 1);
+        Assert.assertEquals(warmer.warmNow(), 0, "A new history should start empty.");
+    }
+
+    @Test(description = "Test case for scheduling the warming a lead time before the next peak.")
+    public void testWarmingDelay() {
+
+        LocalDateTime morning = LocalDateTime.of(2026, 10, 19, 7, 0);
+        Assert.assertEquals(DuoCacheWarmer.getWarmingDelayMillis(morning, "08:00, 13:00", 15),
+                TimeUnit.MINUTES.toMillis(45));
+        LocalDateTime afternoon = LocalDateTime.of(2026, 10, 19, 13, 50);
+        Assert.assertEquals(DuoCacheWarmer.getWarmingDelayMillis(afternoon, "08:00,13:00", 15),
+                TimeUnit.MINUTES.toMillis(17 * 60 + 55));
+        Assert.assertEquals(DuoCacheWarmer.getWarmingDelayMillis(morning, "25:00,invalid", 15), -1);
+        Assert.assertEquals(DuoCacheWarmer.getWarmingDelayMillis(morning, null, 15), -1);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.exception.AuthenticationFailedException;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.application.common.model.ClaimMapping;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.claim.DuoClaimResolver;
+import org.wso2.carbon.identity.authenticator.duo.claim.DuoClaimResolverRegistry;
+import org.wso2.carbon.identity.authenticator.duo.claim.DuoUserClaims;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test case for the resolution of the Duo identifier and the mobile number of a user.
+ */
+public class DuoClaimResolverTest {
+
+    private static final String MOBILE_ATTRIBUTE = "http://wso2.org/claims/mobile";
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoClaimResolverRegistry.getInstance().clear();
+        DuoConfigManager.getInstance().clear();
+    }
+
+    @Test(description = "Test case for compiling a plan once per configuration and username domain properties.")
+    public void testPlansAreReused() {
+
+        DuoConfig duoConfig = config(DuoAuthenticatorConstants.USERNAME_AS_DUO_IDENTIFIER, "true");
+        Map<String, String> properties = new HashMap<>();
+        DuoClaimResolver resolver = DuoClaimResolverRegistry.getInstance().getResolver(duoConfig, properties);
+
+        Assert.assertSame(DuoClaimResolverRegistry.getInstance().getResolver(duoConfig, new HashMap<>()), resolver);
+        properties.put(DuoAuthenticatorConstants.TENANT_DOMAIN, "true");
+        Assert.assertNotSame(DuoClaimResolverRegistry.getInstance().getResolver(duoConfig, properties), resolver);
+        Assert.assertNotSame(DuoClaimResolverRegistry.getInstance().getResolver(
+                config(DuoAuthenticatorConstants.USERNAME_AS_DUO_IDENTIFIER, "false"), new HashMap<>()), resolver);
+    }
+
+    @Test(description = "Test case for resolving the Duo identifier from the runtime parameters, the username or "
+            + "the user id.")
+    public void testResolveDuoUserId() throws Exception {
+
+        AuthenticatedUser user = user();
+        DuoConfig usernameConfig = config(DuoAuthenticatorConstants.USERNAME_AS_DUO_IDENTIFIER, "true");
+        Map<String, String> properties = new HashMap<>();
+
+        Assert.assertEquals(DuoClaimResolverRegistry.getInstance().getResolver(usernameConfig, properties)
+                .resolveDuoUserId(user, null), "alice@example.com");
+        properties.put(DuoAuthenticatorConstants.TENANT_DOMAIN, "true");
+        Assert.assertEquals(DuoClaimResolverRegistry.getInstance().getResolver(usernameConfig, properties)
+                .resolveDuoUserId(user, null), "alice");
+        Assert.assertEquals(DuoClaimResolverRegistry.getInstance().getResolver(config(), properties)
+                .resolveDuoUserId(user, null), "user-id-1");
+        Assert.assertEquals(DuoClaimResolverRegistry.getInstance().getResolver(config(), properties)
+                .resolveDuoUserId(user, Collections.singletonMap(DuoAuthenticatorConstants.DUO_USER_IDENTIFIER,
+                        "runtime-id")), "runtime-id");
+
+        user.setUserId(null);
+        try {
+            DuoClaimResolverRegistry.getInstance().getResolver(config(), properties).resolveDuoUserId(user, null);
+            Assert.fail("A user without a user id should not be identified.");
+        } catch (AuthenticationFailedException e) {
+            // Expected.
+        }
+    }
+
+    @Test(description = "Test case for resolving the identifier and the federated mobile number in one pass.")
+    public void testResolveFederatedMobile() throws Exception {
+
+        AuthenticatedUser user = user();
+        Map<ClaimMapping, String> attributes = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            String uri = "http://wso2.org/claims/attribute" + i;
+            attributes.put(ClaimMapping.build(uri, uri, null, false), "value" + i);
+        }
+        attributes.put(ClaimMapping.build(MOBILE_ATTRIBUTE, "mobile", null, false), "+94771234567");
+        user.setUserAttributes(attributes);
+
+        DuoUserClaims claims = DuoClaimResolverRegistry.getInstance().getResolver(config(
+                DuoAuthenticatorConstants.ENABLE_MOBILE_VERIFICATION, "true",
+                DuoAuthenticatorConstants.SEND_DUO_TO_FEDERATED_MOBILE_ATTRIBUTE, "true",
+                DuoAuthenticatorConstants.FEDERATED_MOBILE_ATTRIBUTE_KEY, MOBILE_ATTRIBUTE), new HashMap<>())
+                .resolve(user, null);
+        Assert.assertEquals(claims.getDuoUserId(), "user-id-1");
+        Assert.assertEquals(claims.getMobile(), "+94771234567");
+        Assert.assertFalse(claims.isMobileFromUserStore());
+
+        claims = DuoClaimResolverRegistry.getInstance().getResolver(config(
+                DuoAuthenticatorConstants.ENABLE_MOBILE_VERIFICATION, "true"), new HashMap<>()).resolve(user, null);
+        Assert.assertNull(claims.getMobile());
+        Assert.assertTrue(claims.isMobileFromUserStore());
+
+        claims = DuoClaimResolverRegistry.getInstance().getResolver(config(), new HashMap<>()).resolve(user, null);
+        Assert.assertFalse(claims.isMobileFromUserStore(), "No mobile number is needed without mobile verification.");
+    }
+
+    @Test(description = "Test case for rejecting a federated mobile attribute without its key.",
+            expectedExceptions = AuthenticationFailedException.class)
+    public void testUndefinedFederatedMobileAttributeKey() throws Exception {
+
+        DuoClaimResolverRegistry.getInstance().getResolver(config(
+                DuoAuthenticatorConstants.ENABLE_MOBILE_VERIFICATION, "true",
+                DuoAuthenticatorConstants.SEND_DUO_TO_FEDERATED_MOBILE_ATTRIBUTE, "true"), new HashMap<>())
+                .resolve(user(), null);
+    }
+
+    private static DuoConfig config(String... parameters) {
+
+        Map<String, String> parameterMap = new HashMap<>();
+        for (int i = 0; i < parameters.length; i += 2) {
+            parameterMap.put(parameters[i], parameters[i + 1]);
+        }
+        return DuoConfigManager.getInstance().getConfig(parameterMap);
+    }
+
+    private static AuthenticatedUser user() {
+
+        AuthenticatedUser user = new AuthenticatedUser();
+        user.setUserName("alice");
+        user.setTenantDomain("example.com");
+        user.setUserStoreDomain("PRIMARY");
+        user.setUserId("user-id-1");
+        return user;
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockObjectFactory;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.Assert;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.extension.identity.helper.FederatedAuthenticatorUtil;
+import org.wso2.carbon.extension.identity.helper.util.IdentityHelperUtil;
+import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
+import org.wso2.carbon.identity.application.authentication.framework.exception.AuthenticationFailedException;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+import org.wso2.carbon.identity.authenticator.duo.crypto.DuoCryptoCache;
+import org.wso2.carbon.identity.authenticator.duo.failure.DuoErrorPageTemplates;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostRouter;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoProbeClientRegistry;
+import org.wso2.carbon.identity.core.ServiceURLBuilder;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.powermock.api.mockito.PowerMockito.doAnswer;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+/**
+ * Stress test case for the single Duo authenticator instance shared by all request threads. Logins are driven
+ * through the initiate and callback legs in parallel against an in-process stand-in of the Duo service.
+ */
+@PowerMockIgnore({"javax.crypto.*"})
+@PrepareForTest({FrameworkUtils.class, IdentityUtil.class, FederatedAuthenticatorUtil.class,
+        ServiceURLBuilder.class, IdentityHelperUtil.class})
+public class DuoConcurrencyTest extends PowerMockTestCase {
+
+    private static final int THREADS = 16;
+    private static final int LOGINS = 800;
+
+    private StandInDuoService duoService;
+    private StandInDuoAuthenticator authenticator;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        StandInDuoService.mockFramework();
+        duoService = new StandInDuoService();
+        authenticator = new StandInDuoAuthenticator(duoService);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoHostRouter.getInstance().clear();
+        DuoProbeClientRegistry.getInstance().clear();
+        DuoCryptoCache.getInstance().clear();
+        DuoConfigManager.getInstance().clear();
+        DuoErrorPageTemplates.getInstance().clear();
+    }
+
+    @Test(description = "Test case for parallel logins completing for their own user only.")
+    public void testParallelLogins() throws Exception {
+
+        BlockingQueue<StandInLogin> initiated = new LinkedBlockingQueue<>();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < LOGINS; i++) {
+            StandInLogin login = new StandInLogin(i);
+            tasks.add(() -> {
+                login.initiate(authenticator);
+                login.assertRedirectedToDuo();
+                initiated.add(login);
+                // Complete the callback of any initiated login, most likely one initiated by another thread.
+                StandInLogin callback = initiated.take();
+                callback.callback(authenticator);
+                callback.assertAuthenticated();
+                return null;
+            });
+        }
+        runConcurrently(tasks);
+
+        Assert.assertEquals(duoService.getExchangedCount(), LOGINS);
+        Assert.assertEquals(duoService.getPendingCodeCount(), 0);
+    }
+
+    @Test(description = "Test case for parallel logins sharing one health check client per Duo host.")
+    public void testSharedProbeClients() throws Exception {
+
+        Set<Object> selectedHosts = ConcurrentHashMap.newKeySet();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < LOGINS; i++) {
+            StandInLogin login = new StandInLogin(i);
+            tasks.add(() -> {
+                login.initiate(authenticator);
+                login.callback(authenticator);
+                login.assertAuthenticated();
+                selectedHosts.add(login.context.getProperty(DuoAuthenticatorConstants.Routing.SELECTED_HOST));
+                return null;
+            });
+        }
+        runConcurrently(tasks);
+
+        // Every login creates its own client for the initiate and the callback legs. The health checks go through
+        // one client per selected host, of which the first racing health checks may each have created one.
+        int probeClients = authenticator.getCreatedClientCount() - 2 * LOGINS;
+        Assert.assertEquals(DuoProbeClientRegistry.getInstance().size(), selectedHosts.size());
+        Assert.assertEquals(DuoMetrics.getInstance().getGauge(DuoAuthenticatorConstants.Metrics.PROBE_CLIENTS),
+                selectedHosts.size());
+        Assert.assertTrue(probeClients >= selectedHosts.size() && probeClients <= THREADS * selectedHosts.size(),
+                probeClients + " health check clients were created");
+    }
+
+    @Test(description = "Test case for callbacks presenting the state of another login being rejected.")
+    public void testCrossedCallbacks() throws Exception {
+
+        List<StandInLogin> logins = new ArrayList<>();
+        List<Callable<Void>> initiations = new ArrayList<>();
+        for (int i = 0; i < LOGINS; i++) {
+            StandInLogin login = new StandInLogin(i);
+            logins.add(login);
+            initiations.add(() -> {
+                login.initiate(authenticator);
+                login.assertRedirectedToDuo();
+                return null;
+            });
+        }
+        runConcurrently(initiations);
+
+        AtomicInteger rejected = new AtomicInteger();
+        List<Callable<Void>> callbacks = new ArrayList<>();
+        for (int i = 0; i < LOGINS; i++) {
+            StandInLogin login = logins.get(i);
+            StandInLogin other = logins.get((i + 1) % LOGINS);
+            boolean crossed = i % 2 == 0;
+            callbacks.add(() -> {
+                if (!crossed) {
+                    login.callback(authenticator);
+                    login.assertAuthenticated();
+                    return null;
+                }
+                try {
+                    login.callback(authenticator, other.getState());
+                    Assert.fail("The callback of login " + login.index + " accepted the state of login "
+                            + other.index);
+                } catch (AuthenticationFailedException e) {
+                    Assert.assertNull(login.context.getSubject());
+                    rejected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        runConcurrently(callbacks);
+
+        Assert.assertEquals(rejected.get(), LOGINS / 2);
+        Assert.assertEquals(duoService.getExchangedCount(), LOGINS / 2);
+        // The authorization codes of the rejected callbacks were not redeemed.
+        Assert.assertEquals(duoService.getPendingCodeCount(), LOGINS / 2);
+    }
+
+    @Test(description = "Test case for retried logins each redirected to the error of their own context.")
+    public void testParallelRetries() throws Exception {
+
+        String[][] errors = {
+                {DuoAuthenticatorConstants.NUMBER_MISMATCH, DuoAuthenticatorConstants.DuoErrors.ERROR_NUMBER_MISMATCH},
+                {DuoAuthenticatorConstants.USER_NOT_REGISTERED_IN_DUO,
+                        DuoAuthenticatorConstants.DuoErrors.ERROR_USER_NOT_REGISTERED},
+                {DuoAuthenticatorConstants.MOBILE_NUMBER_NOT_FOUND,
+                        DuoAuthenticatorConstants.DuoErrors.ERROR_GETTING_NUMBER_FROM_DUO},
+                {DuoAuthenticatorConstants.MOBILE_CLAIM_NOT_FOUND,
+                        DuoAuthenticatorConstants.DuoErrors.ERROR_NUMBER_NOT_FOUND},
+                {DuoAuthenticatorConstants.UNABLE_TO_FIND_VERIFIED_USER,
+                        DuoAuthenticatorConstants.DuoErrors.ERROR_GETTING_VERIFIED_USER},
+                {DuoAuthenticatorConstants.DUO_SERVICE_BUSY,
+                        DuoAuthenticatorConstants.DuoErrors.ERROR_DUO_SERVICE_BUSY},
+                {DuoAuthenticatorConstants.ACCESS_DENIED_BY_DUO,
+                        DuoAuthenticatorConstants.DuoErrors.ERROR_ACCESS_DENIED}
+        };
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < LOGINS; i++) {
+            StandInLogin login = new StandInLogin(i);
+            String[] error = errors[i % errors.length];
+            login.context.setProperty(error[0], true);
+            login.context.setRetrying(true);
+            tasks.add(() -> {
+                login.initiate(authenticator);
+                String redirect = login.getRedirect();
+                Assert.assertTrue(redirect.contains("sessionDataKey=" + login.contextIdentifier + "&"), redirect);
+                Assert.assertTrue(redirect.endsWith(error[1]), redirect);
+                return null;
+            });
+        }
+        runConcurrently(tasks);
+
+        Assert.assertEquals(duoService.getExchangedCount(), 0);
+    }
+
+    @Test(description = "Test case for retried logins reusing the state resolved by their earlier attempt.")
+    public void testRetryFastPath() throws Exception {
+
+        DuoMetrics metrics = DuoMetrics.getInstance();
+        long reusedHealthChecks = metrics.getCounter(DuoAuthenticatorConstants.Metrics.HEALTH_CHECKS_REUSED);
+        long fastRetries = metrics.getCounter(DuoAuthenticatorConstants.Metrics.RETRY_FAST_PATH);
+        StandInLogin login = new StandInLogin(0);
+        login.initiate(authenticator);
+        login.assertRedirectedToDuo();
+        Assert.assertEquals(duoService.getHealthCheckCount(), 1);
+        Assert.assertEquals(authenticator.getResolvedRuntimeParamsCount(), 1);
+
+        // The failed attempt is reported without resolving the login again.
+        login.context.setProperty(DuoAuthenticatorConstants.NUMBER_MISMATCH, true);
+        login.context.setRetrying(true);
+        login.initiate(authenticator);
+        Assert.assertTrue(login.getRedirect().endsWith(DuoAuthenticatorConstants.DuoErrors.ERROR_NUMBER_MISMATCH),
+                login.getRedirect());
+        Assert.assertEquals(metrics.getCounter(DuoAuthenticatorConstants.Metrics.RETRY_FAST_PATH), fastRetries + 1);
+
+        // The next attempt resolves the user again, but goes back to the host checked by the first attempt.
+        login.context.setProperty(DuoAuthenticatorConstants.NUMBER_MISMATCH, false);
+        login.context.setRetrying(false);
+        login.initiate(authenticator);
+        login.assertRedirectedToDuo();
+        Assert.assertEquals(duoService.getHealthCheckCount(), 1);
+        Assert.assertEquals(authenticator.getResolvedRuntimeParamsCount(), 2);
+        Assert.assertEquals(metrics.getCounter(DuoAuthenticatorConstants.Metrics.HEALTH_CHECKS_REUSED),
+                reusedHealthChecks + 1);
+
+        // A health check older than the reuse window is made again.
+        login.context.setProperty(DuoAuthenticatorConstants.Routing.HEALTH_CHECKED_AT, System.currentTimeMillis()
+                - (DuoAuthenticatorConstants.Routing.DEFAULT_HEALTH_CHECK_REUSE_SECONDS + 1) * 1000);
+        login.initiate(authenticator);
+        login.assertRedirectedToDuo();
+        Assert.assertEquals(duoService.getHealthCheckCount(), 2);
+        login.callback(authenticator);
+        login.assertAuthenticated();
+    }
+
+    @Test(description = "Test case for a retried login resolving the Duo user again when the user of the first "
+            + "step has changed.")
+    public void testRetryAfterFirstStepUserChange() throws Exception {
+
+        DuoMetrics metrics = DuoMetrics.getInstance();
+        long fastRetries = metrics.getCounter(DuoAuthenticatorConstants.Metrics.RETRY_FAST_PATH);
+        StandInLogin login = new StandInLogin(0);
+        login.initiate(authenticator);
+        login.assertRedirectedToDuo();
+        Assert.assertEquals(login.context.getProperty(DuoAuthenticatorConstants.RESOLVED_DUO_USER_ID),
+                login.duoUserId);
+
+        AuthenticatedUser otherUser = new AuthenticatedUser();
+        otherUser.setUserName("other-user");
+        otherUser.setAuthenticatedSubjectIdentifier("other-user");
+        login.context.setProperty(DuoAuthenticatorConstants.AUTHENTICATED_USER, otherUser);
+        login.context.setProperty(StandInDuoAuthenticator.RUNTIME_PARAMS,
+                Collections.singletonMap(DuoAuthenticatorConstants.DUO_USER_IDENTIFIER, "duo-other-user"));
+        login.context.setProperty(DuoAuthenticatorConstants.NUMBER_MISMATCH, true);
+        login.context.setRetrying(true);
+        login.initiate(authenticator);
+        Assert.assertEquals(metrics.getCounter(DuoAuthenticatorConstants.Metrics.RETRY_FAST_PATH), fastRetries);
+        Assert.assertEquals(authenticator.getResolvedRuntimeParamsCount(), 2);
+        Assert.assertEquals(login.context.getProperty(DuoAuthenticatorConstants.RESOLVED_DUO_USER_ID),
+                "duo-other-user");
+    }
+
+    @Test(description = "Test case for a retried login reporting its failure on the error page of its own tenant.")
+    public void testRetryErrorPageOfTenant() throws Exception {
+
+        // The registry configuration of a tenant is loaded into the parameters shared by the tenants.
+        Map<String, String> errorPages = new HashMap<>();
+        errorPages.put("tenant-a.com", "authenticationendpoint/tenant_a_error.do");
+        errorPages.put("tenant-b.com", "authenticationendpoint/tenant_b_error.do");
+        mockStatic(IdentityHelperUtil.class);
+        doAnswer(invocation -> {
+            authenticator.getAuthenticatorConfig().getParameterMap().put(
+                    DuoAuthenticatorConstants.DUO_AUTHENTICATION_ENDPOINT_ERROR_PAGE,
+                    errorPages.get((String) invocation.getArguments()[2]));
+            return null;
+        }).when(IdentityHelperUtil.class);
+        IdentityHelperUtil.loadApplicationAuthenticationXMLFromRegistry(any(AuthenticationContext.class),
+                anyString(), anyString());
+
+        StandInLogin tenantALogin = new StandInLogin(0);
+        tenantALogin.context.setTenantDomain("tenant-a.com");
+        StandInLogin tenantBLogin = new StandInLogin(1);
+        tenantBLogin.context.setTenantDomain("tenant-b.com");
+        tenantALogin.initiate(authenticator);
+        tenantALogin.assertRedirectedToDuo();
+        tenantBLogin.initiate(authenticator);
+        tenantBLogin.assertRedirectedToDuo();
+
+        // The retry of the first tenant follows a login of the other tenant.
+        tenantALogin.context.setProperty(DuoAuthenticatorConstants.NUMBER_MISMATCH, true);
+        tenantALogin.context.setRetrying(true);
+        tenantALogin.initiate(authenticator);
+        Assert.assertTrue(tenantALogin.getRedirect().startsWith(StandInDuoService.SERVER_URL
+                + errorPages.get("tenant-a.com")), tenantALogin.getRedirect());
+        Assert.assertEquals(authenticator.getResolvedRuntimeParamsCount(), 2);
+    }
+
+    private void runConcurrently(List<Callable<Void>> tasks) throws Exception {
+
+        // Plain threads, as the executor services of java.util.concurrent cannot be called through the PowerMock
+        // class loader.
+        Queue<Callable<Void>> pending = new ConcurrentLinkedQueue<>(tasks);
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    Callable<Void> task;
+                    while ((task = pending.poll()) != null) {
+                        task.call();
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(60));
+        }
+        if (!failures.isEmpty()) {
+            // Rethrows the first assertion error of the login threads.
+            Throwable failure = failures.peek();
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw (Exception) failure;
+        }
+        Assert.assertTrue(pending.isEmpty());
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new PowerMockObjectFactory();
+    }
+}
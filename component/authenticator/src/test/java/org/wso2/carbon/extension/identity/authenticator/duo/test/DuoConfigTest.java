@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test case for the configuration snapshots of the Duo authenticator.
+ */
+public class DuoConfigTest {
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoConfigManager.getInstance().unbind();
+        DuoConfigManager.getInstance().clear();
+    }
+
+    @Test(description = "Test case for parsing the parameters once into typed values.")
+    public void testSnapshot() {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(DuoAuthenticatorConstants.ENABLE_MOBILE_VERIFICATION, " true ");
+        parameters.put(DuoAuthenticatorConstants.Cache.CACHE_EXPIRY, "120");
+        parameters.put(DuoAuthenticatorConstants.Cache.CACHE_MAX_ENTRIES, "-5");
+        parameters.put(DuoAuthenticatorConstants.Preauth.PREAUTH_CACHE_EXPIRY, "often");
+        parameters.put(DuoAuthenticatorConstants.Tracing.SAMPLE_RATIO, "0.25");
+        DuoConfig config = DuoConfigManager.getInstance().getConfig(parameters);
+
+        Assert.assertTrue(config.isMobileVerificationEnabled());
+        Assert.assertFalse(config.isUsernameAsDuoIdentifier());
+        Assert.assertEquals(config.getLong(DuoAuthenticatorConstants.Cache.CACHE_EXPIRY, 10), 120);
+        Assert.assertEquals(config.getLong(DuoAuthenticatorConstants.Cache.CACHE_MAX_ENTRIES, 10), 10);
+        Assert.assertEquals(config.getLong(DuoAuthenticatorConstants.Preauth.PREAUTH_CACHE_EXPIRY, 10), 10);
+        Assert.assertEquals(config.getDouble(DuoAuthenticatorConstants.Tracing.SAMPLE_RATIO, 1), 0.25);
+        Assert.assertEquals(config.getErrorPage(), DuoAuthenticatorConstants.DUO_DEFAULT_ERROR_PAGE);
+
+        // The snapshot does not see changes made after it was taken.
+        parameters.put(DuoAuthenticatorConstants.Cache.CACHE_EXPIRY, "60");
+        Assert.assertEquals(config.getLong(DuoAuthenticatorConstants.Cache.CACHE_EXPIRY, 10), 120);
+        Assert.assertEquals(DuoConfigManager.getInstance().getConfig(null), DuoConfig.EMPTY);
+    }
+
+    @Test(description = "Test case for publishing a new snapshot only when the parameters change.")
+    public void testReload() {
+
+        DuoConfigManager manager = DuoConfigManager.getInstance();
+        List<DuoConfig[]> changes = new ArrayList<>();
+        manager.addListener((previous, current) -> changes.add(new DuoConfig[]{previous, current}));
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(DuoAuthenticatorConstants.Cache.ENABLE_CACHE, "true");
+        DuoConfig first = manager.getConfig(parameters);
+        Assert.assertSame(manager.getConfig(parameters), first);
+        Assert.assertSame(manager.getConfig(new HashMap<>(parameters)), first);
+        Assert.assertEquals(changes.size(), 1);
+
+        // Parameters updated in place are only compared in full when refreshed.
+        Assert.assertSame(manager.getConfig(parameters), first);
+        parameters.put(DuoAuthenticatorConstants.Cache.ENABLE_CACHE, "false");
+        Assert.assertSame(manager.getConfig(parameters), first);
+        DuoConfig second = manager.refresh(parameters);
+        Assert.assertSame(manager.getConfig(parameters), second);
+        Assert.assertNotSame(second, first);
+        Assert.assertFalse(second.isEnabled(DuoAuthenticatorConstants.Cache.ENABLE_CACHE));
+        Assert.assertEquals(second.getVersion(), first.getVersion() + 1);
+        Assert.assertEquals(changes.size(), 2);
+        Assert.assertSame(changes.get(1)[0], first);
+        Assert.assertSame(changes.get(1)[1], second);
+        Assert.assertTrue(first.differsIn(second, DuoAuthenticatorConstants.Cache.ENABLE_CACHE));
+        Assert.assertFalse(first.differsIn(second, DuoAuthenticatorConstants.Cache.CACHE_TYPE));
+
+        // A login keeps the snapshot it started with.
+        manager.bind(second);
+        parameters.put(DuoAuthenticatorConstants.Cache.ENABLE_CACHE, "true");
+        Assert.assertSame(manager.getBoundConfig(), second);
+        Assert.assertTrue(manager.refresh(parameters).isEnabled(DuoAuthenticatorConstants.Cache.ENABLE_CACHE));
+        manager.unbind();
+        Assert.assertNull(manager.getBoundConfig());
+    }
+
+    @Test(description = "Test case for logins alternating between tenants switching between their snapshots.")
+    public void testTenantSnapshots() {
+
+        DuoConfigManager manager = DuoConfigManager.getInstance();
+        List<DuoConfig[]> changes = new ArrayList<>();
+        manager.addListener((previous, current) -> changes.add(new DuoConfig[]{previous, current}));
+
+        // The registry configuration of each tenant is loaded into the same parameters.
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(DuoAuthenticatorConstants.Cache.ENABLE_CACHE, "true");
+        DuoConfig tenantA = manager.refresh("tenant-a.com", parameters);
+        parameters.put(DuoAuthenticatorConstants.Cache.ENABLE_CACHE, "false");
+        DuoConfig tenantB = manager.refresh("tenant-b.com", parameters);
+        Assert.assertEquals(changes.size(), 2);
+
+        for (int i = 0; i < 10; i++) {
+            parameters.put(DuoAuthenticatorConstants.Cache.ENABLE_CACHE, "true");
+            Assert.assertSame(manager.refresh("tenant-a.com", parameters), tenantA);
+            Assert.assertSame(manager.getConfig(parameters), tenantA);
+            parameters.put(DuoAuthenticatorConstants.Cache.ENABLE_CACHE, "false");
+            Assert.assertSame(manager.refresh("tenant-b.com", parameters), tenantB);
+            Assert.assertSame(manager.getConfig(parameters), tenantB);
+        }
+        Assert.assertEquals(changes.size(), 2, "Switching between tenants should not publish a new snapshot.");
+
+        // A change of the configuration of a tenant is compared with the last snapshot of the same tenant.
+        parameters.put(DuoAuthenticatorConstants.Cache.ENABLE_CACHE, "true");
+        parameters.put(DuoAuthenticatorConstants.Cache.CACHE_TYPE, "cluster");
+        DuoConfig changedTenantA = manager.refresh("tenant-a.com", parameters);
+        Assert.assertNotSame(changedTenantA, tenantA);
+        Assert.assertEquals(changes.size(), 3);
+        Assert.assertSame(changes.get(2)[0], tenantA);
+        Assert.assertSame(changes.get(2)[1], changedTenantA);
+        Assert.assertEquals(changedTenantA.getVersion(), tenantB.getVersion() + 1);
+    }
+
+    @Test(description = "Test case for reading consistent snapshots while the configuration is reloaded.")
+    public void testConcurrentReload() throws Exception {
+
+        DuoConfigManager manager = DuoConfigManager.getInstance();
+        AtomicReference<Map<String, String>> parameters = new AtomicReference<>(createParameters(1));
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch readersStarted = new CountDownLatch(3);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Long>> readers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                readers.add(executor.submit(() -> {
+                    long checked = 0;
+                    readersStarted.countDown();
+                    while (running.get() || checked == 0) {
+                        DuoConfig config = manager.getConfig(parameters.get());
+                        // The writer always updates both parameters to the same value.
+                        long expiry = config.getLong(DuoAuthenticatorConstants.Cache.CACHE_EXPIRY, 0);
+                        long maxEntries = config.getLong(DuoAuthenticatorConstants.Cache.CACHE_MAX_ENTRIES, 0);
+                        if (expiry != maxEntries && config.getVersion() > 0) {
+                            throw new AssertionError("Inconsistent snapshot " + expiry + " / " + maxEntries);
+                        }
+                        checked++;
+                    }
+                    return checked;
+                }));
+            }
+            readersStarted.await(10, TimeUnit.SECONDS);
+            // The framework replaces the parameters while logins are reading them.
+            for (int i = 2; i < 2000; i++) {
+                parameters.set(createParameters(i));
+            }
+            running.set(false);
+            for (Future<Long> reader : readers) {
+                Assert.assertTrue(reader.get(10, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        DuoConfig last = manager.getConfig(parameters.get());
+        Assert.assertEquals(last.getLong(DuoAuthenticatorConstants.Cache.CACHE_EXPIRY, 0), 1999);
+    }
+
+    private Map<String, String> createParameters(long value) {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(DuoAuthenticatorConstants.Cache.CACHE_EXPIRY, String.valueOf(value));
+        parameters.put(DuoAuthenticatorConstants.Cache.CACHE_MAX_ENTRIES, String.valueOf(value));
+        return parameters;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.duosecurity.DuoIdTokenValidator;
+import com.duosecurity.TokenValidator;
+import com.duosecurity.exception.DuoException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.crypto.DuoCryptoCache;
+import org.wso2.carbon.identity.authenticator.duo.crypto.DuoHmacAlgorithm;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test case for the reusable cryptographic primitives of the Duo authenticator.
+ */
+public class DuoCryptoCacheTest {
+
+    private static final String CLIENT_ID = "DIXXXXXXXXXXXXXXXXXX";
+    private static final String CLIENT_SECRET = "deadbeefdeadbeefdeadbeefdeadbeefdeadbeef";
+    private static final String HOST = "api-test.duosecurity.com";
+    private static final String USERNAME = "admin";
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoCryptoCache.getInstance().clear();
+    }
+
+    @Test(description = "Test case for signing the same as the HMAC SHA-512 algorithm of the JWT library.")
+    public void testSignature() {
+
+        DuoHmacAlgorithm algorithm = DuoCryptoCache.getInstance().getHmacAlgorithm(CLIENT_SECRET);
+        Assert.assertSame(DuoCryptoCache.getInstance().getHmacAlgorithm(CLIENT_SECRET), algorithm);
+        byte[] header = "eyJhbGciOiJIUzUxMiJ9".getBytes(StandardCharsets.UTF_8);
+        byte[] payload = "eyJzdWIiOiJhZG1pbiJ9".getBytes(StandardCharsets.UTF_8);
+        Algorithm reference = Algorithm.HMAC512(CLIENT_SECRET);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(algorithm.sign(header, payload), reference.sign(header, payload));
+        }
+        Assert.assertEquals(algorithm.getName(), "HS512");
+    }
+
+    @Test(description = "Test case for validating a Duo id_token like the Duo Universal SDK.")
+    public void testTokenValidation() throws Exception {
+
+        String token = createToken(CLIENT_SECRET, USERNAME);
+        DecodedJWT expected = new DuoIdTokenValidator(CLIENT_SECRET, USERNAME, CLIENT_ID, HOST)
+                .validateAndDecode(token);
+        DecodedJWT actual = DuoCryptoCache.getInstance().getTokenValidator(CLIENT_ID, CLIENT_SECRET, HOST, USERNAME)
+                .validateAndDecode(token);
+        Assert.assertEquals(actual.getClaims().keySet(), expected.getClaims().keySet());
+        Assert.assertEquals(actual.getClaim("preferred_username").asString(), USERNAME);
+    }
+
+    @Test(description = "Test case for rejecting an id_token signed with another secret.",
+            expectedExceptions = DuoException.class)
+    public void testForgedToken() throws Exception {
+
+        String token = createToken("another-secret-another-secret-another-se", USERNAME);
+        DuoCryptoCache.getInstance().getTokenValidator(CLIENT_ID, CLIENT_SECRET, HOST, USERNAME)
+                .validateAndDecode(token);
+    }
+
+    @Test(description = "Test case for rejecting an id_token issued for another user.",
+            expectedExceptions = DuoException.class)
+    public void testTokenOfAnotherUser() throws Exception {
+
+        String token = createToken(CLIENT_SECRET, "attacker");
+        DuoCryptoCache.getInstance().getTokenValidator(CLIENT_ID, CLIENT_SECRET, HOST, USERNAME)
+                .validateAndDecode(token);
+    }
+
+    @Test(description = "Test case for validating tokens concurrently with the shared algorithm.")
+    public void testConcurrentValidation() throws Exception {
+
+        String token = createToken(CLIENT_SECRET, USERNAME);
+        String forged = createToken("another-secret-another-secret-another-se", USERNAME);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    TokenValidator validator = DuoCryptoCache.getInstance().getTokenValidator(CLIENT_ID,
+                            CLIENT_SECRET, HOST, USERNAME);
+                    for (int j = 0; j < 500; j++) {
+                        validator.validateAndDecode(token);
+                        try {
+                            validator.validateAndDecode(forged);
+                            Assert.fail("A forged token was accepted");
+                        } catch (DuoException e) {
+                            // Expected.
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(description = "Test case for the allocation of validating an id_token, compared with the Duo Universal SDK.")
+    public void testValidationAllocation() throws Exception {
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        String token = createToken(CLIENT_SECRET, USERNAME);
+        int iterations = 2000;
+        // Warm up both paths before measuring.
+        measureSdkValidation(threadBean, token, iterations);
+        measureCachedValidation(threadBean, token, iterations);
+
+        long sdkBytes = measureSdkValidation(threadBean, token, iterations);
+        long cachedBytes = measureCachedValidation(threadBean, token, iterations);
+        Assert.assertTrue(cachedBytes * 2 < sdkBytes, "Cached validation allocated " + cachedBytes / iterations
+                + " bytes per token, the SDK validation " + sdkBytes / iterations);
+    }
+
+    private static long measureSdkValidation(com.sun.management.ThreadMXBean threadBean, String token,
+                                             int iterations) throws DuoException {
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            new DuoIdTokenValidator(CLIENT_SECRET, USERNAME, CLIENT_ID, HOST).validateAndDecode(token);
+        }
+        return threadBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private static long measureCachedValidation(com.sun.management.ThreadMXBean threadBean, String token,
+                                                int iterations) throws DuoException {
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            DuoCryptoCache.getInstance().getTokenValidator(CLIENT_ID, CLIENT_SECRET, HOST, USERNAME)
+                    .validateAndDecode(token);
+        }
+        return threadBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private static String createToken(String secret, String username) {
+
+        return JWT.create()
+                .withIssuer("https://" + HOST + "/oauth/v1/token")
+                .withAudience(CLIENT_ID)
+                .withClaim("preferred_username", username)
+                .withIssuedAt(new Date())
+                .withExpiresAt(new Date(System.currentTimeMillis() + 300000))
+                .sign(Algorithm.HMAC512(secret));
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+import org.wso2.carbon.identity.authenticator.duo.enrollment.DuoEnrollmentCheckException;
+import org.wso2.carbon.identity.authenticator.duo.enrollment.DuoEnrollmentCheckResult;
+import org.wso2.carbon.identity.authenticator.duo.enrollment.DuoEnrollmentCheckServiceImpl;
+import org.wso2.carbon.identity.authenticator.duo.enrollment.DuoEnrollmentCheckUser;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiter;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserLookup;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserPageFetcher;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserSyncEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test case for the bulk Duo enrollment check service.
+ */
+public class DuoEnrollmentCheckTest {
+
+    private static final String HOST = "api-enrollment.duosecurity.com";
+    private static final String IKEY = "DIENROLLMENTXXXXXXXX";
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoUserSyncEngine.getInstance().shutdown();
+    }
+
+    @Test(description = "Test case for paging through the Duo users and reporting the status of each user.")
+    public void testDirectoryCheck() throws Exception {
+
+        List<JSONObject> duoUsers = Arrays.asList(user("id-1", "+94 77-123 4567"), user("id-2"),
+                user("id-3", "+94770000000"), user("id-4", "+94771111111"), user("id-5", "+94772222222"));
+        AtomicInteger pages = new AtomicInteger();
+        AtomicInteger lookups = new AtomicInteger();
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(DuoAuthenticatorConstants.UserSync.SYNC_PAGE_SIZE, "2");
+        parameters.put(DuoAuthenticatorConstants.ENABLE_PHONE_NUMBER_NORMALIZATION, "true");
+        CheckService service = new CheckService(parameters, (offset, limit) -> {
+            pages.incrementAndGet();
+            return page(duoUsers, offset, limit);
+        }, duoUsername -> {
+            lookups.incrementAndGet();
+            return new JSONArray();
+        });
+
+        Map<String, DuoEnrollmentCheckResult> results = new HashMap<>();
+        Map<DuoEnrollmentCheckResult.Status, Integer> counts = service.check(properties(), Arrays.asList(
+                checkUser("alice", "id-1", "+94771234567"), checkUser("bob", "id-2", "+94771234568"),
+                checkUser("carol", "id-3", "+94771234569"), checkUser("dave", "id-9", "+94771234570"),
+                checkUser("erin", null, "+94771234571"), checkUser("frank", "id-5", "+94 772 222 222")).iterator(),
+                result -> results.put(result.getUser().getUserName(), result));
+
+        Assert.assertEquals(pages.get(), 3);
+        Assert.assertEquals(lookups.get(), 0, "A paged directory should not need user lookups.");
+        Assert.assertEquals(results.get("alice").getStatus(), DuoEnrollmentCheckResult.Status.ENROLLED);
+        Assert.assertEquals(results.get("alice").getDuoUsername(), "id-1");
+        Assert.assertEquals(results.get("bob").getStatus(), DuoEnrollmentCheckResult.Status.MOBILE_NUMBER_NOT_FOUND);
+        Assert.assertEquals(results.get("carol").getStatus(), DuoEnrollmentCheckResult.Status.NUMBER_MISMATCH);
+        Assert.assertEquals(results.get("dave").getStatus(), DuoEnrollmentCheckResult.Status.NOT_ENROLLED);
+        Assert.assertEquals(results.get("erin").getStatus(), DuoEnrollmentCheckResult.Status.FAILED);
+        Assert.assertNotNull(results.get("erin").getMessage());
+        Assert.assertEquals(results.get("frank").getStatus(), DuoEnrollmentCheckResult.Status.ENROLLED);
+        Assert.assertEquals(counts.get(DuoEnrollmentCheckResult.Status.ENROLLED), Integer.valueOf(2));
+        Assert.assertEquals(counts.get(DuoEnrollmentCheckResult.Status.NOT_ENROLLED), Integer.valueOf(1));
+    }
+
+    @Test(description = "Test case for looking up users in parallel and streaming the results one at a time.")
+    public void testParallelLookups() throws Exception {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(DuoAuthenticatorConstants.EnrollmentCheck.CHECK_MODE,
+                DuoAuthenticatorConstants.EnrollmentCheck.LOOKUP_MODE);
+        parameters.put(DuoAuthenticatorConstants.EnrollmentCheck.PARALLELISM, "4");
+        parameters.put(DuoAuthenticatorConstants.RateLimit.ADMIN_RATE_LIMIT, "1000");
+        parameters.put(DuoAuthenticatorConstants.UserSync.SYNC_PAGE_SIZE, "8");
+        Set<String> lookupThreads = ConcurrentHashMap.newKeySet();
+        AtomicInteger concurrentLookups = new AtomicInteger();
+        AtomicInteger maxConcurrentLookups = new AtomicInteger();
+        CheckService service = new CheckService(parameters, (offset, limit) -> {
+            throw new AssertionError("The lookup mode should not page through the Duo users");
+        }, duoUsername -> {
+            lookupThreads.add(Thread.currentThread().getName());
+            maxConcurrentLookups.accumulateAndGet(concurrentLookups.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } finally {
+                concurrentLookups.decrementAndGet();
+            }
+            int number = Integer.parseInt(duoUsername.substring(3));
+            return number % 3 == 0 ? new JSONArray()
+                    : new JSONArray().put(user(duoUsername, "+9477" + String.format("%07d", number)));
+        });
+
+        List<DuoEnrollmentCheckUser> users = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            users.add(checkUser("user" + i, "id-" + i, "+9477" + String.format("%07d", i)));
+        }
+        AtomicInteger activeListeners = new AtomicInteger();
+        List<String> checked = Collections.synchronizedList(new ArrayList<>());
+        Map<DuoEnrollmentCheckResult.Status, Integer> counts = service.check(properties(), users.iterator(),
+                result -> {
+                    Assert.assertEquals(activeListeners.incrementAndGet(), 1, "Listener calls should not overlap.");
+                    checked.add(result.getDuoUsername());
+                    activeListeners.decrementAndGet();
+                });
+
+        Assert.assertEquals(new HashSet<>(checked).size(), 60);
+        Assert.assertEquals(counts.get(DuoEnrollmentCheckResult.Status.NOT_ENROLLED), Integer.valueOf(20));
+        Assert.assertEquals(counts.get(DuoEnrollmentCheckResult.Status.ENROLLED), Integer.valueOf(40));
+        Assert.assertTrue(maxConcurrentLookups.get() > 1, "Users should be looked up in parallel.");
+        Assert.assertTrue(maxConcurrentLookups.get() <= 4);
+        Assert.assertTrue(lookupThreads.stream().allMatch(name ->
+                name.equals(DuoAuthenticatorConstants.EnrollmentCheck.THREAD_NAME)));
+    }
+
+    @Test(description = "Test case for looking up the users missing from the synchronized index, or without a "
+            + "matching number in it.")
+    public void testSynchronizedIndexFallsBackToLookup() throws Exception {
+
+        List<JSONObject> indexedUsers = Arrays.asList(user("alice", "+94771234567"), user("bob", "+94770000000"));
+        DuoUserSyncEngine.getInstance().register(HOST, IKEY, "secret", 60, 100,
+                (offset, limit) -> page(indexedUsers, offset, limit), false);
+        DuoUserSyncEngine.getInstance().synchronize(HOST, IKEY);
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(DuoAuthenticatorConstants.USERNAME_AS_DUO_IDENTIFIER, "true");
+        List<String> lookedUp = Collections.synchronizedList(new ArrayList<>());
+        Map<String, JSONObject> duoUsers = new HashMap<>();
+        duoUsers.put("bob", user("bob", "+94771234568"));
+        duoUsers.put("carol", user("carol", "+94771234569"));
+        CheckService service = new CheckService(parameters, (offset, limit) -> {
+            throw new AssertionError("The synchronized index should be used");
+        }, duoUsername -> {
+            lookedUp.add(duoUsername);
+            JSONObject duoUser = duoUsers.get(duoUsername);
+            return duoUser == null ? new JSONArray() : new JSONArray().put(duoUser);
+        });
+        Map<String, String> properties = properties();
+        properties.put(DuoAuthenticatorConstants.TENANT_DOMAIN, "true");
+        properties.put(DuoAuthenticatorConstants.USER_STORE_DOMAIN, "true");
+
+        Map<String, DuoEnrollmentCheckResult.Status> statuses = new HashMap<>();
+        service.check(properties, Arrays.asList(checkUser("alice", null, "+94771234567"),
+                checkUser("bob", null, "+94771234568"), checkUser("carol", null, "+94771234569"),
+                checkUser("dave", null, "+94771234570")).iterator(),
+                result -> statuses.put(result.getDuoUsername(), result.getStatus()));
+
+        Assert.assertEquals(statuses.get("alice"), DuoEnrollmentCheckResult.Status.ENROLLED);
+        Assert.assertEquals(statuses.get("bob"), DuoEnrollmentCheckResult.Status.ENROLLED);
+        Assert.assertEquals(statuses.get("carol"), DuoEnrollmentCheckResult.Status.ENROLLED);
+        Assert.assertEquals(statuses.get("dave"), DuoEnrollmentCheckResult.Status.NOT_ENROLLED);
+        Collections.sort(lookedUp);
+        Assert.assertEquals(lookedUp, Arrays.asList("bob", "carol", "dave"));
+    }
+
+    @Test(description = "Test case for pausing and retrying the Admin API calls which Duo rate limited.")
+    public void testRateLimitedLookupIsRetried() throws Exception {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(DuoAuthenticatorConstants.EnrollmentCheck.CHECK_MODE,
+                DuoAuthenticatorConstants.EnrollmentCheck.LOOKUP_MODE);
+        AtomicInteger calls = new AtomicInteger();
+        CheckService service = new CheckService(parameters, null, duoUsername -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new Exception("Duo error code (42901): Too Many Requests");
+            }
+            return new JSONArray().put(user(duoUsername, "+94771234567"));
+        });
+        long rateLimited = DuoMetrics.getInstance().getCounter(
+                DuoAuthenticatorConstants.Metrics.RATE_LIMITED_RETRIES);
+
+        long start = System.currentTimeMillis();
+        Map<DuoEnrollmentCheckResult.Status, Integer> counts = service.check(properties(),
+                Collections.singletonList(checkUser("alice", "id-1", "+94771234567")).iterator(), result -> { });
+
+        Assert.assertEquals(counts.get(DuoEnrollmentCheckResult.Status.ENROLLED), Integer.valueOf(1));
+        Assert.assertEquals(calls.get(), 2);
+        Assert.assertTrue(System.currentTimeMillis() - start
+                >= DuoAuthenticatorConstants.RateLimit.INITIAL_BACKOFF_MILLIS - 50);
+        Assert.assertEquals(DuoMetrics.getInstance().getCounter(
+                DuoAuthenticatorConstants.Metrics.RATE_LIMITED_RETRIES), rateLimited + 1);
+
+        calls.set(1);
+        service = new CheckService(parameters, null, duoUsername -> {
+            throw new Exception("Duo error code (40301): Access forbidden");
+        });
+        counts = service.check(properties(),
+                Collections.singletonList(checkUser("alice", "id-1", "+94771234567")).iterator(), result -> { });
+        Assert.assertEquals(counts.get(DuoEnrollmentCheckResult.Status.FAILED), Integer.valueOf(1));
+    }
+
+    @Test(description = "Test case for spacing out the calls to the configured rate.")
+    public void testRateLimiter() throws Exception {
+
+        DuoRateLimiter rateLimiter = new DuoRateLimiter(50);
+        long start = System.nanoTime();
+        for (int i = 0; i < 11; i++) {
+            rateLimiter.acquire();
+        }
+        Assert.assertTrue(System.nanoTime() - start >= 190_000_000L, "11 calls at 50 per second take 200 ms.");
+
+        rateLimiter.pause(300);
+        start = System.nanoTime();
+        rateLimiter.acquire();
+        Assert.assertTrue(System.nanoTime() - start >= 250_000_000L, "A paused limiter should hold calls back.");
+    }
+
+    @Test(description = "Test case for rejecting a check without the Admin integration keys.",
+            expectedExceptions = DuoEnrollmentCheckException.class)
+    public void testMissingAdminIntegration() throws Exception {
+
+        Map<String, String> properties = properties();
+        properties.remove(DuoAuthenticatorConstants.ADMIN_SKEY);
+        new CheckService(new HashMap<>(), null, null).check(properties,
+                Collections.<DuoEnrollmentCheckUser>emptyList().iterator(), result -> { });
+    }
+
+    private static Map<String, String> properties() {
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put(DuoAuthenticatorConstants.HOST, HOST);
+        properties.put(DuoAuthenticatorConstants.ADMIN_IKEY, IKEY);
+        properties.put(DuoAuthenticatorConstants.ADMIN_SKEY, "secret");
+        return properties;
+    }
+
+    private static DuoEnrollmentCheckUser checkUser(String userName, String userId, String mobile) {
+
+        return new DuoEnrollmentCheckUser(userName, "carbon.super", "PRIMARY", userId, mobile);
+    }
+
+    private static JSONObject user(String username, String... phoneNumbers) {
+
+        JSONArray phones = new JSONArray();
+        for (String phoneNumber : phoneNumbers) {
+            phones.put(new JSONObject().put("number", phoneNumber));
+        }
+        return new JSONObject().put("username", username).put("phones", phones);
+    }
+
+    private static JSONArray page(List<JSONObject> users, int offset, int limit) {
+
+        JSONArray page = new JSONArray();
+        for (int i = offset; i < Math.min(users.size(), offset + limit); i++) {
+            page.put(users.get(i));
+        }
+        return page;
+    }
+
+    /**
+     * Enrollment check service backed by stand-in Admin API calls.
+     */
+    private static class CheckService extends DuoEnrollmentCheckServiceImpl {
+
+        private final Map<String, String> parameters;
+        private final DuoUserPageFetcher fetcher;
+        private final DuoUserLookup lookup;
+
+        CheckService(Map<String, String> parameters, DuoUserPageFetcher fetcher, DuoUserLookup lookup) {
+
+            this.parameters = parameters;
+            this.fetcher = fetcher;
+            this.lookup = lookup;
+        }
+
+        @Override
+        protected DuoConfig getConfig() {
+
+            return DuoConfigManager.getInstance().getConfig(parameters);
+        }
+
+        @Override
+        protected DuoUserPageFetcher createPageFetcher(String host, String adminIntegrationKey,
+                                                       String adminSecretKey) {
+
+            return fetcher;
+        }
+
+        @Override
+        protected DuoUserLookup createUserLookup(String host, String adminIntegrationKey, String adminSecretKey) {
+
+            return lookup;
+        }
+    }
+}
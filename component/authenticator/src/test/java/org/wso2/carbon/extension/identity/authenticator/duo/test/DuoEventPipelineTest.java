@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.event.DuoAuthEvent;
+import org.wso2.carbon.identity.authenticator.duo.event.DuoEventPipeline;
+import org.wso2.carbon.identity.authenticator.duo.event.DuoEventSink;
+import org.wso2.carbon.identity.authenticator.duo.event.InMemoryEventSink;
+import org.wso2.carbon.identity.authenticator.duo.event.JsonLinesFileSink;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test case for the batched event pipeline of the Duo authenticator.
+ */
+public class DuoEventPipelineTest {
+
+    @Test(description = "Test case for writing the events in order and in bounded batches.")
+    public void testBatching() {
+
+        InMemoryEventSink<Integer> sink = new InMemoryEventSink<>();
+        DuoEventPipeline<Integer> pipeline = new DuoEventPipeline<>("batching", sink, 64, 4, 60000,
+                DuoEventPipeline.OverflowPolicy.DROP, 0);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(pipeline.publish(i));
+        }
+        pipeline.shutdown(5000);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            expected.add(i);
+        }
+        Assert.assertEquals(sink.getEvents(), expected);
+        for (int batchSize : sink.getBatchSizes()) {
+            Assert.assertTrue(batchSize <= 4);
+        }
+        Assert.assertFalse(pipeline.publish(10));
+    }
+
+    @Test(description = "Test case for dropping events when the ring buffer is full.")
+    public void testDropWhenFull() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingSink sink = new BlockingSink(release);
+        DuoEventPipeline<Integer> pipeline = new DuoEventPipeline<>("drop", sink, 4, 1, 1,
+                DuoEventPipeline.OverflowPolicy.DROP, 0);
+        String prefix = DuoAuthenticatorConstants.Metrics.EVENTS_PREFIX + "drop";
+        long droppedBefore = DuoMetrics.getInstance().getCounter(prefix
+                + DuoAuthenticatorConstants.Metrics.DROPPED_EVENTS);
+
+        // The consumer takes the first event and blocks in the sink.
+        pipeline.publish(0);
+        Assert.assertTrue(sink.entered.await(5, TimeUnit.SECONDS));
+        int accepted = 0;
+        for (int i = 1; i <= 10; i++) {
+            if (pipeline.publish(i)) {
+                accepted++;
+            }
+        }
+        Assert.assertEquals(accepted, 4);
+        Assert.assertEquals(pipeline.getQueueDepth(), 4);
+        Assert.assertEquals(DuoMetrics.getInstance().getGauge(prefix + DuoAuthenticatorConstants.Metrics.QUEUE_DEPTH),
+                4);
+        Assert.assertEquals(DuoMetrics.getInstance().getCounter(prefix
+                + DuoAuthenticatorConstants.Metrics.DROPPED_EVENTS) - droppedBefore, 6);
+
+        release.countDown();
+        pipeline.shutdown(5000);
+        Assert.assertEquals(sink.events.size(), 5);
+    }
+
+    @Test(description = "Test case for producers waiting for a free slot under backpressure.")
+    public void testBlockWhenFull() throws Exception {
+
+        InMemoryEventSink<Integer> sink = new InMemoryEventSink<>();
+        DuoEventPipeline<Integer> pipeline = new DuoEventPipeline<>("block", sink, 8, 8, 1,
+                DuoEventPipeline.OverflowPolicy.BLOCK, 5000);
+        int producers = 4;
+        int eventsPerProducer = 5000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * eventsPerProducer;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    Assert.assertTrue(pipeline.publish(base + i));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(30000);
+        }
+        pipeline.shutdown(5000);
+
+        List<Integer> events = sink.getEvents();
+        Assert.assertEquals(events.size(), producers * eventsPerProducer);
+        Set<Integer> distinct = new HashSet<>(events);
+        Assert.assertEquals(distinct.size(), producers * eventsPerProducer);
+    }
+
+    @Test(description = "Test case for writing audit events to a JSON lines file.")
+    public void testJsonLinesFileSink() throws Exception {
+
+        Path directory = Files.createTempDirectory("duo-events");
+        Path file = directory.resolve("duo-audit.log");
+        DuoEventPipeline<DuoAuthEvent> pipeline = new DuoEventPipeline<>("file",
+                new JsonLinesFileSink<>(file, DuoAuthEvent::toJson, 1024 * 1024, 1), 16, 16, 60000,
+                DuoEventPipeline.OverflowPolicy.DROP, 0);
+        pipeline.publish(new DuoAuthEvent.Builder(DuoAuthEvent.Outcome.SUCCESS).tenantDomain("carbon.super")
+                .username("alice").duoUserId("alice").statusMessage("Allowing unknown user").factor("Duo Push")
+                .build());
+        pipeline.publish(new DuoAuthEvent.Builder(DuoAuthEvent.Outcome.NUMBER_MISMATCH).tenantDomain("carbon.super")
+                .username("bob").build());
+        pipeline.shutdown(5000);
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Assert.assertEquals(lines.size(), 2);
+        JSONObject success = new JSONObject(lines.get(0));
+        Assert.assertEquals(success.getString("outcome"), "SUCCESS");
+        Assert.assertEquals(success.getString("factor"), "Duo Push");
+        JSONObject mismatch = new JSONObject(lines.get(1));
+        Assert.assertEquals(mismatch.getString("outcome"), "NUMBER_MISMATCH");
+        Assert.assertFalse(mismatch.has("factor"));
+
+        Files.delete(file);
+        Files.delete(directory);
+    }
+
+    @Test(description = "Test case for rolling over a JSON lines file once it reaches its maximum size.")
+    public void testJsonLinesFileSinkRollOver() throws Exception {
+
+        Path directory = Files.createTempDirectory("duo-events");
+        Path file = directory.resolve("duo-audit.log");
+        int lineBytes = "{\"n\":0}".length() + System.lineSeparator().length();
+        JsonLinesFileSink<Integer> sink = new JsonLinesFileSink<>(file, n -> "{\"n\":" + n + "}", 3 * lineBytes, 2);
+        for (int i = 0; i < 10; i++) {
+            sink.write(Collections.singletonList(i));
+        }
+        sink.close();
+
+        Assert.assertEquals(Files.readAllLines(file, StandardCharsets.UTF_8), Arrays.asList("{\"n\":9}"));
+        Path backup1 = directory.resolve("duo-audit.log.1");
+        Path backup2 = directory.resolve("duo-audit.log.2");
+        Assert.assertEquals(Files.readAllLines(backup1, StandardCharsets.UTF_8),
+                Arrays.asList("{\"n\":6}", "{\"n\":7}", "{\"n\":8}"));
+        Assert.assertEquals(Files.readAllLines(backup2, StandardCharsets.UTF_8),
+                Arrays.asList("{\"n\":3}", "{\"n\":4}", "{\"n\":5}"));
+        Assert.assertFalse(Files.exists(directory.resolve("duo-audit.log.3")), "The oldest file should be deleted.");
+
+        Files.delete(file);
+        Files.delete(backup1);
+        Files.delete(backup2);
+        Files.delete(directory);
+    }
+
+    private static final class BlockingSink implements DuoEventSink<Integer> {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release;
+        private final List<Integer> events = new ArrayList<>();
+
+        private BlockingSink(CountDownLatch release) {
+
+            this.release = release;
+        }
+
+        @Override
+        public void write(List<Integer> batch) throws IOException {
+
+            events.addAll(batch);
+            entered.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
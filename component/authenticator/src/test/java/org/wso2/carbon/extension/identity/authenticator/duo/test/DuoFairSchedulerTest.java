@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoFairScheduler;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiter;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiterRegistry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test case for sharing the Admin API rate limit fairly between tenants.
+ */
+public class DuoFairSchedulerTest {
+
+    @Test(description = "Test case for calls taking a permit straight from the rate limiter while none are queued.")
+    public void testUncontendedCall() throws Exception {
+
+        DuoFairScheduler scheduler = new DuoFairScheduler("uncontended", new DuoRateLimiter(1000), null, null, 1000);
+
+        Assert.assertTrue(scheduler.acquire("carbon.super"));
+        Assert.assertEquals(getCounter("uncontended", "carbon.super", DuoAuthenticatorConstants.Metrics.GRANTED_CALLS),
+                1);
+        Assert.assertEquals(getCounter("uncontended", "carbon.super", DuoAuthenticatorConstants.Metrics.WAIT_TIME),
+                0);
+        Assert.assertEquals(DuoMetrics.getInstance().getGauge(DuoAuthenticatorConstants.Metrics.FAIR_QUEUE_PREFIX
+                + "uncontended.carbon.super" + DuoAuthenticatorConstants.Metrics.WAITING_CALLS), 0);
+        scheduler.close();
+    }
+
+    @Test(description = "Test case for a tenant with more callers not taking more than its share of the rate.")
+    public void testEqualShares() throws Exception {
+
+        DuoFairScheduler scheduler = new DuoFairScheduler("equal", new DuoRateLimiter(50), null, null, 10000);
+
+        Map<String, AtomicLong> grants = runContention(scheduler, "noisy.com", 6, "quiet.com", 2, 1000);
+
+        long noisy = grants.get("noisy.com").get();
+        long quiet = grants.get("quiet.com").get();
+        // Served in arrival order, the noisy tenant would get three times the permits of the quiet tenant.
+        Assert.assertTrue(quiet >= noisy * 0.7, "noisy " + noisy + ", quiet " + quiet);
+        Assert.assertTrue(getCounter("equal", "noisy.com", DuoAuthenticatorConstants.Metrics.WAIT_TIME) > 0);
+        scheduler.close();
+    }
+
+    @Test(description = "Test case for backlogged tenants sharing the rate in proportion to their weights.")
+    public void testWeightedShares() throws Exception {
+
+        DuoFairScheduler scheduler = new DuoFairScheduler("weighted", new DuoRateLimiter(50),
+                "quiet.com|3, noisy.com|1", null, 10000);
+
+        Map<String, AtomicLong> grants = runContention(scheduler, "noisy.com", 6, "quiet.com", 2, 1000);
+
+        long noisy = grants.get("noisy.com").get();
+        long quiet = grants.get("quiet.com").get();
+        Assert.assertTrue(quiet >= noisy * 2, "noisy " + noisy + ", quiet " + quiet);
+        scheduler.close();
+    }
+
+    @Test(description = "Test case for a tenant getting its minimum rate whatever the weights of other tenants.")
+    public void testMinimumRate() throws Exception {
+
+        DuoFairScheduler scheduler = new DuoFairScheduler("minimum", new DuoRateLimiter(20), "noisy.com|100",
+                "small.com|5", 10000);
+
+        Map<String, AtomicLong> grants = runContention(scheduler, "noisy.com", 4, "small.com", 1, 1000);
+
+        // By weight alone, the small tenant would get one permit in a hundred.
+        Assert.assertTrue(grants.get("small.com").get() >= 3, "small " + grants.get("small.com").get());
+        scheduler.close();
+    }
+
+    @Test(description = "Test case for rejecting a call which is not served within the maximum wait.")
+    public void testRejectedAfterMaxWait() throws Exception {
+
+        DuoFairScheduler scheduler = new DuoFairScheduler("rejecting", new DuoRateLimiter(1), null, null, 100);
+        Assert.assertTrue(scheduler.acquire("tenant.com"));
+        // The next permit is a second away, so this call holds the head of the queue.
+        Thread head = new Thread(() -> {
+            try {
+                scheduler.acquire("tenant.com");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        head.start();
+        Thread.sleep(50);
+
+        Assert.assertFalse(scheduler.acquire("other.com"));
+        Assert.assertEquals(getCounter("rejecting", "other.com", DuoAuthenticatorConstants.Metrics.REJECTED_CALLS),
+                1);
+        head.join();
+        Assert.assertEquals(getCounter("rejecting", "tenant.com", DuoAuthenticatorConstants.Metrics.GRANTED_CALLS),
+                2);
+        scheduler.close();
+    }
+
+    @Test(description = "Test case for the registry reusing the rate limiter and scheduler of an integration until "
+            + "their settings change.")
+    public void testRegistryReuse() {
+
+        DuoRateLimiterRegistry registry = DuoRateLimiterRegistry.getInstance();
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(DuoAuthenticatorConstants.RateLimit.ADMIN_RATE_LIMIT, "5");
+        try {
+            DuoConfig duoConfig = DuoConfigManager.getInstance().getConfig(parameters);
+            DuoRateLimiter rateLimiter = registry.getRateLimiter("api.example.com", "reused", duoConfig);
+            DuoFairScheduler scheduler = registry.getFairScheduler("api.example.com", "reused", duoConfig);
+            Assert.assertSame(registry.getRateLimiter("api.example.com", "reused", duoConfig), rateLimiter);
+            Assert.assertSame(registry.getFairScheduler("api.example.com", "reused", duoConfig), scheduler);
+
+            Map<String, String> changed = new HashMap<>(parameters);
+            changed.put(DuoAuthenticatorConstants.RateLimit.ADMIN_RATE_LIMIT, "10");
+            duoConfig = DuoConfigManager.getInstance().getConfig(changed);
+            DuoRateLimiter replaced = registry.getRateLimiter("api.example.com", "reused", duoConfig);
+            Assert.assertNotSame(replaced, rateLimiter);
+            Assert.assertEquals(replaced.getPermitsPerSecond(), 10.0);
+            Assert.assertNotSame(registry.getFairScheduler("api.example.com", "reused", duoConfig), scheduler);
+        } finally {
+            registry.clear();
+            DuoConfigManager.getInstance().clear();
+        }
+    }
+
+    /**
+     * Keep the callers of two tenants calling for a while, and count the permits granted to each tenant meanwhile.
+     * Calls still queued at the end are not counted.
+     */
+    private static Map<String, AtomicLong> runContention(DuoFairScheduler scheduler, String firstTenant,
+                                                         int firstCallers, String secondTenant, int secondCallers,
+                                                         long durationMillis) throws InterruptedException {
+
+        Map<String, AtomicLong> grants = new HashMap<>();
+        grants.put(firstTenant, new AtomicLong());
+        grants.put(secondTenant, new AtomicLong());
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> callers = new ArrayList<>();
+        for (int i = 0; i < firstCallers + secondCallers; i++) {
+            String tenant = i < firstCallers ? firstTenant : secondTenant;
+            Thread caller = new Thread(() -> {
+                try {
+                    while (running.get()) {
+                        if (scheduler.acquire(tenant) && running.get()) {
+                            grants.get(tenant).incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            callers.add(caller);
+            caller.start();
+        }
+        Thread.sleep(durationMillis);
+        running.set(false);
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        return grants;
+    }
+
+    private static long getCounter(String scheduler, String tenant, String metric) {
+
+        return DuoMetrics.getInstance().getCounter(DuoAuthenticatorConstants.Metrics.FAIR_QUEUE_PREFIX + scheduler
+                + "." + tenant + metric);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.bulkhead.DuoBulkhead;
+import org.wso2.carbon.identity.authenticator.duo.bulkhead.DuoBulkheadRegistry;
+import org.wso2.carbon.identity.authenticator.duo.health.DuoHealthReport;
+import org.wso2.carbon.identity.authenticator.duo.health.DuoHealthService;
+import org.wso2.carbon.identity.authenticator.duo.health.DuoHealthServiceImpl;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHost;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostRouter;
+
+/**
+ * Test case for the health and readiness report of the Duo calls of a node.
+ */
+public class DuoHealthServiceTest {
+
+    private static final long COOLDOWN_MILLIS = 60000;
+
+    private final DuoHealthService healthService = new DuoHealthServiceImpl();
+
+    @BeforeMethod
+    public void setUp() {
+
+        DuoHostRouter.getInstance().clear();
+        DuoBulkheadRegistry.getInstance().clear();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoHostRouter.getInstance().clear();
+        DuoBulkheadRegistry.getInstance().clear();
+    }
+
+    @Test(description = "Test case for a node which has not called Duo yet being ready.")
+    public void testNoCalls() {
+
+        DuoHealthReport report = healthService.getHealth();
+        Assert.assertEquals(report.getStatus(), DuoHealthReport.Status.UP);
+        Assert.assertTrue(report.isReady());
+        Assert.assertTrue(report.getHosts().isEmpty());
+        Assert.assertTrue(report.getBulkheads().isEmpty());
+    }
+
+    @Test(description = "Test case for a node being degraded while some hosts are out of rotation, and down once "
+            + "every host is.")
+    public void testHostsOutOfRotation() {
+
+        long now = System.currentTimeMillis();
+        DuoHost primary = DuoHostRouter.getInstance().getHost("api-a.example.com");
+        DuoHost secondary = DuoHostRouter.getInstance().getHost("api-b.example.com");
+        primary.recordSuccess(1000000, 0.5, now);
+        secondary.recordSuccess(2000000, 0.5, now);
+        Assert.assertEquals(healthService.getHealth().getStatus(), DuoHealthReport.Status.UP);
+
+        Assert.assertTrue(primary.recordFailure(1, COOLDOWN_MILLIS, now));
+        DuoHealthReport report = healthService.getHealth();
+        Assert.assertEquals(report.getStatus(), DuoHealthReport.Status.DEGRADED);
+        Assert.assertTrue(report.isReady());
+        Assert.assertEquals(getHost(report, "api-a.example.com").getCircuitState(),
+                DuoHealthReport.CircuitState.OPEN);
+        Assert.assertEquals(getHost(report, "api-a.example.com").getUnavailableUntilMillis(), now + COOLDOWN_MILLIS);
+        Assert.assertEquals(getHost(report, "api-b.example.com").getCircuitState(),
+                DuoHealthReport.CircuitState.CLOSED);
+        Assert.assertEquals(getHost(report, "api-b.example.com").getLatencyMicros(), 2000);
+
+        Assert.assertTrue(secondary.recordFailure(1, COOLDOWN_MILLIS, now));
+        report = healthService.getHealth();
+        Assert.assertEquals(report.getStatus(), DuoHealthReport.Status.DOWN);
+        Assert.assertFalse(report.isReady());
+    }
+
+    @Test(description = "Test case for a host coming back on trial once its cooldown ends, and back into rotation "
+            + "once a call to it succeeds.")
+    public void testHostRecovery() {
+
+        long now = System.currentTimeMillis();
+        DuoHost host = DuoHostRouter.getInstance().getHost("api-a.example.com");
+        Assert.assertTrue(host.recordFailure(1, 0, now - 1));
+        DuoHealthReport report = healthService.getHealth();
+        Assert.assertEquals(report.getStatus(), DuoHealthReport.Status.DEGRADED);
+        Assert.assertTrue(report.isReady());
+        Assert.assertEquals(getHost(report, "api-a.example.com").getCircuitState(),
+                DuoHealthReport.CircuitState.HALF_OPEN);
+
+        host.recordSuccess(1000000, 0.5, System.currentTimeMillis());
+        report = healthService.getHealth();
+        Assert.assertEquals(report.getStatus(), DuoHealthReport.Status.UP);
+        Assert.assertEquals(getHost(report, "api-a.example.com").getCircuitState(),
+                DuoHealthReport.CircuitState.CLOSED);
+    }
+
+    @Test(description = "Test case for a node being degraded, but still ready, while bulkheads are saturated, even "
+            + "once every bulkhead rejects new calls.")
+    public void testBulkheadSaturation() {
+
+        DuoBulkhead tenantA = DuoBulkheadRegistry.getInstance().getBulkhead("a.com", null, 1, 0, 10);
+        DuoBulkhead tenantB = DuoBulkheadRegistry.getInstance().getBulkhead("b.com", null, 2, 0, 10);
+        Assert.assertEquals(healthService.getHealth().getStatus(), DuoHealthReport.Status.UP);
+
+        Assert.assertTrue(tenantA.tryAcquire());
+        DuoHealthReport report = healthService.getHealth();
+        Assert.assertEquals(report.getStatus(), DuoHealthReport.Status.DEGRADED);
+        Assert.assertTrue(getBulkhead(report, "a.com").isSaturated());
+        Assert.assertTrue(getBulkhead(report, "a.com").isRejecting());
+        Assert.assertEquals(getBulkhead(report, "a.com").getActiveCalls(), 1);
+        Assert.assertFalse(getBulkhead(report, "b.com").isSaturated());
+
+        Assert.assertTrue(tenantB.tryAcquire());
+        Assert.assertTrue(tenantB.tryAcquire());
+        report = healthService.getHealth();
+        Assert.assertTrue(getBulkhead(report, "b.com").isRejecting());
+        Assert.assertEquals(report.getStatus(), DuoHealthReport.Status.DEGRADED);
+        Assert.assertTrue(report.isReady());
+
+        tenantA.release();
+        tenantB.release();
+        tenantB.release();
+        Assert.assertEquals(healthService.getHealth().getStatus(), DuoHealthReport.Status.UP);
+    }
+
+    @Test(description = "Test case for formatting the report as JSON.")
+    public void testJson() {
+
+        long now = System.currentTimeMillis();
+        DuoHostRouter.getInstance().getHost("api-a.example.com").recordFailure(1, COOLDOWN_MILLIS, now);
+        DuoBulkheadRegistry.getInstance().getBulkhead("a.com", "Duo", 4, 2, 10);
+
+        JSONObject json = new JSONObject(healthService.getHealth().toJson());
+        Assert.assertEquals(json.getString("status"), "DOWN");
+        Assert.assertFalse(json.getBoolean("ready"));
+        JSONObject host = json.getJSONArray("hosts").getJSONObject(0);
+        Assert.assertEquals(host.getString("name"), "api-a.example.com");
+        Assert.assertEquals(host.getString("circuit"), "OPEN");
+        Assert.assertEquals(host.getLong("unavailableUntilUnixMillis"), now + COOLDOWN_MILLIS);
+        JSONObject bulkhead = json.getJSONArray("bulkheads").getJSONObject(0);
+        Assert.assertEquals(bulkhead.getString("name"), "a.com/Duo");
+        Assert.assertEquals(bulkhead.getInt("maxConcurrentCalls"), 4);
+        Assert.assertFalse(bulkhead.getBoolean("saturated"));
+    }
+
+    private static DuoHealthReport.HostHealth getHost(DuoHealthReport report, String name) {
+
+        for (DuoHealthReport.HostHealth host : report.getHosts()) {
+            if (host.getName().equals(name)) {
+                return host;
+            }
+        }
+        throw new AssertionError("No health reported for " + name);
+    }
+
+    private static DuoHealthReport.BulkheadHealth getBulkhead(DuoHealthReport report, String name) {
+
+        for (DuoHealthReport.BulkheadHealth bulkhead : report.getBulkheads()) {
+            if (bulkhead.getName().equals(name)) {
+                return bulkhead;
+            }
+        }
+        throw new AssertionError("No health reported for " + name);
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiter;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostCall;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostPool;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostRouter;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoSlowLogin;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoSlowLoginSampler;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test case for hedging slow Duo calls.
+ */
+public class DuoHedgingTest {
+
+    private static final double PERCENTILE = 75;
+    private static final long MIN_DELAY_MILLIS = 20;
+
+    @BeforeMethod
+    public void setUp() {
+
+        DuoHostRouter.getInstance().configureHedging(true, PERCENTILE,
+                DuoAuthenticatorConstants.Hedging.DEFAULT_MAX_IN_FLIGHT, MIN_DELAY_MILLIS);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoHostRouter.getInstance().configureHedging(false, DuoAuthenticatorConstants.Hedging.DEFAULT_PERCENTILE,
+                DuoAuthenticatorConstants.Hedging.DEFAULT_MAX_IN_FLIGHT,
+                DuoAuthenticatorConstants.Hedging.DEFAULT_MIN_DELAY_MILLIS);
+        DuoHostRouter.getInstance().clear();
+        DuoSlowLoginSampler.getInstance().clear();
+    }
+
+    @Test(description = "Test case for a hedge winning over a slow call, which is cancelled.")
+    public void testHedgeWinsAndCancelsLoser() throws Exception {
+
+        DuoHostPool pool = warmUp("hedged.example.com");
+        long sentBefore = getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT);
+        long wonBefore = getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_WON);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch cancelled = new CountDownLatch(1);
+
+        long start = System.nanoTime();
+        String result = pool.executeHedged(host -> {
+            if (calls.incrementAndGet() == 1) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    cancelled.countDown();
+                    throw e;
+                }
+                return "primary";
+            }
+            return "hedge";
+        }, null);
+
+        Assert.assertEquals(result, "hedge");
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        Assert.assertTrue(cancelled.await(1, TimeUnit.SECONDS), "The losing call was not cancelled");
+        Assert.assertEquals(getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT), sentBefore + 1);
+        Assert.assertEquals(getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_WON), wonBefore + 1);
+        // The cancelled call does not count against the host.
+        Assert.assertEquals(getCounter(DuoAuthenticatorConstants.Metrics.ROUTING_PREFIX + "hedged.example.com"
+                + DuoAuthenticatorConstants.Metrics.HOST_FAILURES), 0);
+    }
+
+    @Test(description = "Test case for a failover on the hedging executor being counted in the timeline of the login.")
+    public void testFailoverRecordedInTimeline() throws Exception {
+
+        DuoHostPool pool = DuoHostRouter.getInstance().getPool("failing.example.com, backup.example.com");
+        for (int i = 0; i < DuoAuthenticatorConstants.Hedging.MIN_SAMPLES; i++) {
+            pool.execute("failing.example.com", host -> sleep(1));
+            pool.execute("backup.example.com", host -> sleep(5));
+        }
+        DuoSlowLoginSampler sampler = DuoSlowLoginSampler.getInstance();
+        sampler.configure(true, 0, 10);
+
+        Assert.assertTrue(sampler.begin(DuoAuthenticatorConstants.Tracing.SPAN_INITIATE, "hedged-login"));
+        String result = pool.executeHedged(host -> {
+            if ("failing.example.com".equals(host)) {
+                throw new IOException("Connection refused");
+            }
+            return host;
+        }, null);
+        sampler.exitPhase();
+
+        Assert.assertEquals(result, "backup.example.com");
+        List<DuoSlowLogin> samples = sampler.getSamples();
+        Assert.assertEquals(samples.size(), 1);
+        Assert.assertEquals(samples.get(0).getRetries(), 1);
+    }
+
+    @Test(description = "Test case for calls within the hedging delay, or to hosts without enough samples, not being "
+            + "hedged.")
+    public void testCallsNotHedged() throws Exception {
+
+        DuoHostPool pool = DuoHostRouter.getInstance().getPool("unhedged.example.com");
+        long sentBefore = getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT);
+        AtomicInteger calls = new AtomicInteger();
+
+        // The host has not been called enough times for its percentile to be known.
+        pool.executeHedged(host -> {
+            calls.incrementAndGet();
+            return sleep(100);
+        }, null);
+        warmUp("unhedged.example.com");
+        pool.executeHedged(host -> {
+            calls.incrementAndGet();
+            return host;
+        }, null);
+
+        Assert.assertEquals(calls.get(), 2);
+        Assert.assertEquals(getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT), sentBefore);
+    }
+
+    @Test(description = "Test case for hedges being counted against the rate limit of the API they call.")
+    public void testHedgeCountedAgainstRateLimit() throws Exception {
+
+        DuoHostPool pool = warmUp("ratelimited.example.com");
+        long sentBefore = getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT);
+        long rejectedBefore = getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_REJECTED);
+
+        DuoRateLimiter rateLimiter = new DuoRateLimiter(0.01);
+        pool.executeHedged(host -> sleep(200), rateLimiter);
+        Assert.assertEquals(getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT), sentBefore + 1);
+        // The hedge took the only permit of the rate limiter.
+        Assert.assertFalse(rateLimiter.tryAcquire());
+
+        AtomicInteger calls = new AtomicInteger();
+        String result = pool.executeHedged(host -> {
+            calls.incrementAndGet();
+            sleep(200);
+            return "primary";
+        }, rateLimiter);
+        Assert.assertEquals(result, "primary");
+        Assert.assertEquals(calls.get(), 1);
+        Assert.assertEquals(getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT), sentBefore + 1);
+        Assert.assertEquals(getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_REJECTED), rejectedBefore + 1);
+    }
+
+    @Test(description = "Test case for capping the number of hedges in flight.")
+    public void testHedgesInFlightCapped() throws Exception {
+
+        DuoHostRouter.getInstance().configureHedging(true, PERCENTILE, 1, MIN_DELAY_MILLIS);
+        DuoHostPool pool = warmUp("capped.example.com");
+        long sentBefore = getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT);
+        long rejectedBefore = getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_REJECTED);
+
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] callers = new Thread[2];
+        for (int i = 0; i < callers.length; i++) {
+            callers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    pool.executeHedged(host -> sleep(300), null);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            callers[i].start();
+        }
+        start.countDown();
+        for (Thread caller : callers) {
+            caller.join();
+        }
+
+        Assert.assertEquals(getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT), sentBefore + 1);
+        Assert.assertEquals(getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_REJECTED), rejectedBefore + 1);
+    }
+
+    @Test(description = "Test case for a losing copy blocked in uninterruptible I/O counting against the cap on "
+            + "hedges in flight until it completes.")
+    public void testPermitHeldUntilLoserCompletes() throws Exception {
+
+        DuoHostRouter.getInstance().configureHedging(true, PERCENTILE, 1, MIN_DELAY_MILLIS);
+        DuoHostPool pool = warmUp("blocked.example.com");
+        long sentBefore = getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT);
+        long rejectedBefore = getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_REJECTED);
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch loserDone = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = pool.executeHedged(host -> {
+            if (calls.incrementAndGet() > 1) {
+                return "hedge";
+            }
+            // Like a read on a socket, the call does not give up when it is interrupted.
+            boolean interrupted = false;
+            while (unblock.getCount() > 0) {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            loserDone.countDown();
+            if (interrupted) {
+                throw new InterruptedException();
+            }
+            return "primary";
+        }, null);
+        Assert.assertEquals(result, "hedge");
+        Assert.assertEquals(getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT), sentBefore + 1);
+
+        // The loser still holds the only permit, so a slow call is not hedged.
+        pool.executeHedged(host -> sleep(100), null);
+        Assert.assertEquals(getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT), sentBefore + 1);
+        Assert.assertEquals(getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_REJECTED), rejectedBefore + 1);
+
+        unblock.countDown();
+        Assert.assertTrue(loserDone.await(1, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT) == sentBefore + 1
+                && System.nanoTime() < deadline) {
+            pool.executeHedged(host -> sleep(100), null);
+        }
+        Assert.assertEquals(getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT), sentBefore + 2);
+    }
+
+    @Test(description = "Test case for hedging cutting the tail latency of a host with occasional slow responses, "
+            + "at a bounded extra load.")
+    public void testTailLatencyUnderLoad() throws Exception {
+
+        DuoHostPool pool = warmUp("tail.example.com");
+        // One request in ten to the host is slow, whether it is a call or a hedge.
+        AtomicInteger requests = new AtomicInteger();
+        DuoHostCall<String> call = host -> requests.incrementAndGet() % 10 == 0 ? sleep(200) : sleep(1);
+
+        DuoHostRouter.getInstance().configureHedging(false, PERCENTILE,
+                DuoAuthenticatorConstants.Hedging.DEFAULT_MAX_IN_FLIGHT, MIN_DELAY_MILLIS);
+        long unhedgedP99 = runLoad(pool, call, 100);
+
+        DuoHostRouter.getInstance().configureHedging(true, PERCENTILE,
+                DuoAuthenticatorConstants.Hedging.DEFAULT_MAX_IN_FLIGHT, MIN_DELAY_MILLIS);
+        long sentBefore = getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT);
+        requests.set(0);
+        long hedgedP99 = runLoad(pool, call, 100);
+        long sent = getCounter(DuoAuthenticatorConstants.Metrics.HEDGES_SENT) - sentBefore;
+
+        Assert.assertTrue(unhedgedP99 >= 200, "Unhedged p99 of " + unhedgedP99 + " ms");
+        Assert.assertTrue(hedgedP99 < 150, "Hedged p99 of " + hedgedP99 + " ms");
+        // Only the slow calls are hedged.
+        Assert.assertTrue(sent >= 8 && sent <= 30, sent + " hedges sent for 100 calls");
+        Assert.assertTrue(DuoMetrics.getInstance().getGauge(DuoAuthenticatorConstants.Metrics.ROUTING_PREFIX
+                + "tail.example.com" + DuoAuthenticatorConstants.Metrics.HOST_TAIL_LATENCY) > 0);
+    }
+
+    private static DuoHostPool warmUp(String hostName) throws Exception {
+
+        DuoHostPool pool = DuoHostRouter.getInstance().getPool(hostName);
+        for (int i = 0; i < DuoAuthenticatorConstants.Hedging.MIN_SAMPLES; i++) {
+            pool.execute(hostName, host -> sleep(1));
+        }
+        return pool;
+    }
+
+    private static long runLoad(DuoHostPool pool, DuoHostCall<String> call, int calls) throws Exception {
+
+        long[] latencies = new long[calls];
+        for (int i = 0; i < calls; i++) {
+            long start = System.nanoTime();
+            pool.executeHedged(call, null);
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return TimeUnit.NANOSECONDS.toMillis(latencies[(int) Math.ceil(0.99 * calls) - 1]);
+    }
+
+    private static long getCounter(String name) {
+
+        return DuoMetrics.getInstance().getCounter(name);
+    }
+
+    private static String sleep(long millis) throws InterruptedException {
+
+        Thread.sleep(millis);
+        return null;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.metrics.DuoMetrics;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostPool;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoHostRouter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Test case for routing Duo API calls across hosts.
+ */
+public class DuoHostRouterTest {
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoHostRouter.getInstance().configure(DuoAuthenticatorConstants.Routing.DEFAULT_FAILURE_THRESHOLD,
+                DuoAuthenticatorConstants.Routing.DEFAULT_COOLDOWN_SECONDS * 1000,
+                DuoAuthenticatorConstants.Routing.DEFAULT_LATENCY_DECAY_SECONDS * 1000);
+        DuoHostRouter.getInstance().clear();
+    }
+
+    @Test(description = "Test case for a call through a pool without hosts failing with an I/O error.",
+            expectedExceptions = IOException.class)
+    public void testEmptyRoute() throws Exception {
+
+        DuoHostPool pool = DuoHostRouter.getInstance().getPool(" , ");
+        Assert.assertTrue(pool.getRoute().isEmpty());
+        pool.execute(host -> host);
+    }
+
+    @Test(description = "Test case for parsing an ordered and weighted host list.")
+    public void testHostList() {
+
+        DuoHostPool pool = DuoHostRouter.getInstance().getPool(" api-a.example.com|3, api-b.example.com ,");
+        Assert.assertEquals(pool.getHosts().size(), 2);
+        Assert.assertEquals(pool.getHosts().get(0).getName(), "api-a.example.com");
+        Assert.assertEquals(pool.getHosts().get(1).getName(), "api-b.example.com");
+        Assert.assertEquals(pool.getWeight(0), 3);
+        Assert.assertEquals(pool.getWeight(1), 1);
+        Assert.assertSame(DuoHostRouter.getInstance().getPool(" api-a.example.com|3, api-b.example.com ,"), pool);
+    }
+
+    @Test(description = "Test case for failing over to the next host when a call fails.")
+    public void testFailover() throws Exception {
+
+        DuoHostPool pool = DuoHostRouter.getInstance().getPool("failing.example.com,healthy.example.com");
+        long failoversBefore = DuoMetrics.getInstance().getCounter(
+                DuoAuthenticatorConstants.Metrics.ROUTING_FAILOVERS);
+        List<String> attempts = new CopyOnWriteArrayList<>();
+
+        String result = pool.execute(host -> {
+            attempts.add(host);
+            if (host.startsWith("failing")) {
+                throw new IOException("Connection refused");
+            }
+            return host;
+        });
+
+        Assert.assertEquals(result, "healthy.example.com");
+        Assert.assertEquals(attempts.size(), 2);
+        Assert.assertEquals(DuoMetrics.getInstance().getCounter(DuoAuthenticatorConstants.Metrics.ROUTING_FAILOVERS),
+                failoversBefore + 1);
+        Assert.assertEquals(DuoMetrics.getInstance().getCounter(DuoAuthenticatorConstants.Metrics.ROUTING_PREFIX
+                + "failing.example.com" + DuoAuthenticatorConstants.Metrics.HOST_FAILURES), 1);
+    }
+
+    @Test(description = "Test case for taking a failing host out of rotation for the cooldown period.",
+            expectedExceptions = IOException.class)
+    public void testCooldown() throws Exception {
+
+        DuoHostRouter.getInstance().configure(2, 200, 60000);
+        DuoHostPool pool = DuoHostRouter.getInstance().getPool("primary.example.com,secondary.example.com");
+        for (int i = 0; i < 2; i++) {
+            pool.execute(host -> {
+                if (host.startsWith("primary")) {
+                    throw new IOException("Connection refused");
+                }
+                return host;
+            });
+        }
+        Assert.assertEquals(pool.getRoute().get(0).getName(), "secondary.example.com");
+        Assert.assertEquals(DuoMetrics.getInstance().getGauge(DuoAuthenticatorConstants.Metrics.ROUTING_PREFIX
+                + "primary.example.com" + DuoAuthenticatorConstants.Metrics.HOST_AVAILABLE), 0);
+
+        Thread.sleep(300);
+        Assert.assertEquals(pool.getRoute().get(0).getName(), "primary.example.com");
+
+        // Every host failing surfaces the failure of the last host tried.
+        pool.execute(host -> {
+            throw new IOException("Connection refused");
+        });
+    }
+
+    @Test(description = "Test case for preferring the host with the lowest latency relative to its weight.")
+    public void testLatencyAwareSelection() throws Exception {
+
+        DuoHostPool pool = DuoHostRouter.getInstance().getPool("slow.example.com,fast.example.com");
+        pool.execute("slow.example.com", host -> sleep(40));
+        pool.execute("fast.example.com", host -> sleep(5));
+        Assert.assertEquals(pool.getRoute().get(0).getName(), "fast.example.com");
+        Assert.assertTrue(DuoMetrics.getInstance().getGauge(DuoAuthenticatorConstants.Metrics.ROUTING_PREFIX
+                + "slow.example.com" + DuoAuthenticatorConstants.Metrics.HOST_LATENCY) >= 40000);
+
+        // The same hosts, with the slow host weighted well above its latency disadvantage.
+        DuoHostPool weightedPool = DuoHostRouter.getInstance().getPool("slow.example.com|100,fast.example.com");
+        Assert.assertEquals(weightedPool.getRoute().get(0).getName(), "slow.example.com");
+    }
+
+    @Test(description = "Test case for returning traffic to a host once its latency has decayed.")
+    public void testLatencyDecay() throws Exception {
+
+        DuoHostRouter.getInstance().configure(3, 30000, 20);
+        DuoHostPool pool = DuoHostRouter.getInstance().getPool("recovering.example.com,steady.example.com");
+        pool.execute("recovering.example.com", host -> sleep(40));
+        pool.execute("steady.example.com", host -> sleep(5));
+        Thread.sleep(200);
+        // The average of the idle host has decayed below the average of the host still in use.
+        pool.execute("steady.example.com", host -> sleep(5));
+        Assert.assertEquals(pool.getRoute().get(0).getName(), "recovering.example.com");
+    }
+
+    private static String sleep(long millis) throws InterruptedException {
+
+        Thread.sleep(millis);
+        return null;
+    }
+}
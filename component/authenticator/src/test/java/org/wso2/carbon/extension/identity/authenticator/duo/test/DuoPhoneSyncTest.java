@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfig;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+import org.wso2.carbon.identity.authenticator.duo.enrollment.DuoEnrollmentCheckUser;
+import org.wso2.carbon.identity.authenticator.duo.phonesync.DuoPhoneSyncException;
+import org.wso2.carbon.identity.authenticator.duo.phonesync.DuoPhoneSyncJob;
+import org.wso2.carbon.identity.authenticator.duo.phonesync.DuoPhoneSyncReport;
+import org.wso2.carbon.identity.authenticator.duo.phonesync.DuoPhoneSyncServiceImpl;
+import org.wso2.carbon.identity.authenticator.duo.phonesync.DuoPhoneSyncUserSource;
+import org.wso2.carbon.identity.authenticator.duo.phonesync.DuoPhoneWriter;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiter;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserPageFetcher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Test case for the synchronization of mobile numbers to Duo phones.
+ */
+public class DuoPhoneSyncTest {
+
+    private Path checkpointDirectory;
+    private Map<String, String> parameters;
+    private PhoneWriter phoneWriter;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+
+        checkpointDirectory = Files.createTempDirectory("duo-phone-sync");
+        parameters = new HashMap<>();
+        parameters.put(DuoAuthenticatorConstants.PhoneSync.BATCH_SIZE, "2");
+        phoneWriter = new PhoneWriter();
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+
+        try (Stream<Path> files = Files.list(checkpointDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(checkpointDirectory);
+    }
+
+    @Test(description = "Test case for updating, adding and leaving the Duo phones of the users as needed.")
+    public void testSynchronize() throws Exception {
+
+        DuoPhoneSyncReport report = job(users(), checkpointFile()).run();
+
+        Assert.assertEquals(report.getProcessed(), 6);
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.IN_SYNC), 1);
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.UPDATED), 1);
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.ADDED), 2);
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.NOT_ENROLLED), 1);
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.NO_MOBILE), 1);
+        Assert.assertFalse(report.isDryRun());
+        List<String> calls = new ArrayList<>(phoneWriter.calls);
+        Collections.sort(calls);
+        Assert.assertEquals(calls, Arrays.asList("associate id-3 phone+94771234569",
+                "associate id-4 phone+94771234570",
+                "create +94771234569", "create +94771234570", "update p-2 +94771234568"));
+        Assert.assertFalse(Files.exists(checkpointFile()), "A completed synchronization should drop its checkpoint.");
+    }
+
+    @Test(description = "Test case for resuming a synchronization after the last batch written before it stopped.")
+    public void testResumeFromCheckpoint() throws Exception {
+
+        List<DuoEnrollmentCheckUser> users = users();
+        try {
+            job((offset, limit) -> {
+                if (offset >= 2) {
+                    throw new IOException("User store unavailable");
+                }
+                return users.subList(offset, Math.min(users.size(), offset + limit));
+            }, checkpointFile()).run();
+            Assert.fail("The synchronization should stop when the users cannot be read.");
+        } catch (DuoPhoneSyncException e) {
+            Assert.assertTrue(Files.exists(checkpointFile()));
+        }
+        Assert.assertEquals(phoneWriter.calls, Collections.singletonList("update p-2 +94771234568"));
+
+        phoneWriter.calls.clear();
+        DuoPhoneSyncReport report = job(users, checkpointFile()).run();
+
+        Assert.assertEquals(report.getResumedFrom(), 2);
+        Assert.assertEquals(report.getProcessed(), 6);
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.IN_SYNC), 1);
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.UPDATED), 1);
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.ADDED), 2);
+        Assert.assertFalse(phoneWriter.calls.contains("update p-2 +94771234568"),
+                "The users of completed batches should not be written again.");
+        Assert.assertEquals(phoneWriter.calls.size(), 4);
+    }
+
+    @Test(description = "Test case for reporting the changes of a dry run without writing them.")
+    public void testDryRun() throws Exception {
+
+        parameters.put(DuoAuthenticatorConstants.PhoneSync.DRY_RUN, "true");
+        DuoPhoneSyncReport report = job(users(), null).run();
+
+        Assert.assertTrue(report.isDryRun());
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.UPDATED), 1);
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.ADDED), 2);
+        Assert.assertTrue(phoneWriter.calls.isEmpty());
+    }
+
+    @Test(description = "Test case for dry runs and synchronizations that write to Duo keeping separate checkpoints.")
+    public void testDryRunCheckpoint() throws Exception {
+
+        List<DuoEnrollmentCheckUser> users = users();
+        AtomicInteger failFrom = new AtomicInteger(2);
+        Map<String, String> properties = new HashMap<>();
+        properties.put(DuoAuthenticatorConstants.HOST, "api-phonesync.duosecurity.com");
+        properties.put(DuoAuthenticatorConstants.ADMIN_IKEY, "DIPHONESYNCXXXXXXXXX");
+        properties.put(DuoAuthenticatorConstants.ADMIN_SKEY, "secret");
+        DuoPhoneSyncServiceImpl service = new DuoPhoneSyncServiceImpl(checkpointDirectory) {
+
+            @Override
+            protected DuoConfig getConfig() {
+
+                return DuoConfigManager.getInstance().getConfig(new HashMap<>(parameters));
+            }
+
+            @Override
+            protected DuoPhoneSyncUserSource createUserSource(String tenantDomain, String filter) {
+
+                return (offset, limit) -> {
+                    if (offset >= failFrom.get()) {
+                        throw new IOException("User store unavailable");
+                    }
+                    return users.subList(Math.min(users.size(), offset), Math.min(users.size(), offset + limit));
+                };
+            }
+
+            @Override
+            protected DuoUserPageFetcher createPageFetcher(String host, String adminIntegrationKey,
+                                                           String adminSecretKey) {
+
+                return (offset, limit) -> page(duoUsers(), offset, limit);
+            }
+
+            @Override
+            protected DuoPhoneWriter createPhoneWriter(String host, String adminIntegrationKey,
+                                                       String adminSecretKey) {
+
+                return phoneWriter;
+            }
+        };
+
+        // A dry run stops after its first batch.
+        parameters.put(DuoAuthenticatorConstants.PhoneSync.DRY_RUN, "true");
+        try {
+            service.synchronize("carbon.super", properties);
+            Assert.fail("The dry run should stop when the users cannot be read.");
+        } catch (DuoPhoneSyncException e) {
+            Assert.assertTrue(phoneWriter.calls.isEmpty());
+        }
+
+        // A synchronization that writes does not resume from the checkpoint of the dry run, and stops after its
+        // second batch.
+        parameters.put(DuoAuthenticatorConstants.PhoneSync.DRY_RUN, "false");
+        failFrom.set(4);
+        try {
+            service.synchronize("carbon.super", properties);
+            Assert.fail("The synchronization should stop when the users cannot be read.");
+        } catch (DuoPhoneSyncException e) {
+            Assert.assertEquals(phoneWriter.calls.size(), 5, phoneWriter.calls.toString());
+        }
+
+        // A completed dry run resumes from its own checkpoint, and leaves the other one in place.
+        parameters.put(DuoAuthenticatorConstants.PhoneSync.DRY_RUN, "true");
+        failFrom.set(Integer.MAX_VALUE);
+        DuoPhoneSyncReport dryRunReport = service.synchronize("carbon.super", properties);
+        Assert.assertEquals(dryRunReport.getResumedFrom(), 2);
+        Assert.assertEquals(phoneWriter.calls.size(), 5);
+
+        parameters.put(DuoAuthenticatorConstants.PhoneSync.DRY_RUN, "false");
+        phoneWriter.calls.clear();
+        DuoPhoneSyncReport report = service.synchronize("carbon.super", properties);
+        Assert.assertEquals(report.getResumedFrom(), 4);
+        Assert.assertEquals(report.getProcessed(), 6);
+        Assert.assertTrue(phoneWriter.calls.isEmpty(), phoneWriter.calls.toString());
+        try (Stream<Path> files = Files.list(checkpointDirectory)) {
+            Assert.assertEquals(files.count(), 0);
+        }
+    }
+
+    @Test(description = "Test case for failing only the user whose write failed.")
+    public void testFailedWrite() throws Exception {
+
+        phoneWriter.failure = new Exception("Duo error code (40003): Invalid phone number");
+        DuoPhoneSyncReport report = job(users(), checkpointFile()).run();
+
+        Assert.assertEquals(report.getProcessed(), 6);
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.FAILED), 1);
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.UPDATED), 0);
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.ADDED), 2);
+    }
+
+    @Test(description = "Test case for bounding the concurrent writes of a batch.")
+    public void testConcurrentWrites() throws Exception {
+
+        parameters.put(DuoAuthenticatorConstants.PhoneSync.BATCH_SIZE, "20");
+        parameters.put(DuoAuthenticatorConstants.PhoneSync.CONCURRENCY, "3");
+        List<DuoEnrollmentCheckUser> users = new ArrayList<>();
+        List<JSONObject> duoUsers = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            users.add(user("user" + i, "id-" + i, "+9477" + String.format("%07d", i)));
+            duoUsers.add(duoUser("id-" + i));
+        }
+        AtomicInteger concurrentWrites = new AtomicInteger();
+        AtomicInteger maxConcurrentWrites = new AtomicInteger();
+        Set<String> writeThreads = ConcurrentHashMap.newKeySet();
+        phoneWriter.onWrite = () -> {
+            writeThreads.add(Thread.currentThread().getName());
+            maxConcurrentWrites.accumulateAndGet(concurrentWrites.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } finally {
+                concurrentWrites.decrementAndGet();
+            }
+        };
+
+        DuoPhoneSyncReport report = new DuoPhoneSyncJob(DuoConfigManager.getInstance().getConfig(parameters),
+                new HashMap<>(), (offset, limit) -> users.subList(Math.min(users.size(), offset),
+                Math.min(users.size(), offset + limit)), (offset, limit) -> page(duoUsers, offset, limit),
+                phoneWriter, new DuoRateLimiter(10000), null).run();
+
+        Assert.assertEquals(report.getCount(DuoPhoneSyncReport.Outcome.ADDED), 40);
+        Assert.assertEquals(phoneWriter.calls.size(), 80);
+        Assert.assertTrue(maxConcurrentWrites.get() > 1, "The writes of a batch should run concurrently.");
+        Assert.assertTrue(maxConcurrentWrites.get() <= 3);
+        Assert.assertTrue(writeThreads.stream().allMatch(name ->
+                name.equals(DuoAuthenticatorConstants.PhoneSync.THREAD_NAME)));
+    }
+
+    @Test(description = "Test case for rejecting a synchronization without the Admin integration keys.",
+            expectedExceptions = DuoPhoneSyncException.class)
+    public void testMissingAdminIntegration() throws Exception {
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put(DuoAuthenticatorConstants.HOST, "api-phonesync.duosecurity.com");
+        properties.put(DuoAuthenticatorConstants.ADMIN_IKEY, "DIPHONESYNCXXXXXXXXX");
+        new DuoPhoneSyncServiceImpl(checkpointDirectory).synchronize("carbon.super", properties);
+    }
+
+    private Path checkpointFile() {
+
+        return checkpointDirectory.resolve("sync.checkpoint");
+    }
+
+    private DuoPhoneSyncJob job(List<DuoEnrollmentCheckUser> users, Path checkpointFile) {
+
+        return job((offset, limit) -> users.subList(Math.min(users.size(), offset),
+                Math.min(users.size(), offset + limit)), checkpointFile);
+    }
+
+    private DuoPhoneSyncJob job(DuoPhoneSyncUserSource userSource, Path checkpointFile) {
+
+        List<JSONObject> duoUsers = duoUsers();
+        return new DuoPhoneSyncJob(DuoConfigManager.getInstance().getConfig(parameters), new HashMap<>(),
+                userSource, (offset, limit) -> page(duoUsers, offset, limit), phoneWriter, new DuoRateLimiter(10000),
+                checkpointFile);
+    }
+
+    private static List<JSONObject> duoUsers() {
+
+        return Arrays.asList(duoUser("id-1", "p-1", "+94 77-123 4567"),
+                duoUser("id-2", "p-2", "+94770000000"), duoUser("id-3"),
+                duoUser("id-4", "p-3", "+94770000001", "p-4", "+94770000002"), duoUser("id-6", "p-5", "+94770000003"));
+    }
+
+    private static List<DuoEnrollmentCheckUser> users() {
+
+        return Arrays.asList(user("alice", "id-1", "+94771234567"), user("bob", "id-2", "+94771234568"),
+                user("carol", "id-3", "+94771234569"), user("dave", "id-4", "+94771234570"),
+                user("erin", "id-5", "+94771234571"), user("frank", "id-6", null));
+    }
+
+    private static DuoEnrollmentCheckUser user(String userName, String userId, String mobile) {
+
+        return new DuoEnrollmentCheckUser(userName, "carbon.super", "PRIMARY", userId, mobile);
+    }
+
+    private static JSONObject duoUser(String userId, String... phones) {
+
+        JSONArray phoneArray = new JSONArray();
+        for (int i = 0; i < phones.length; i += 2) {
+            phoneArray.put(new JSONObject().put(DuoAuthenticatorConstants.PhoneSync.PHONE_ID, phones[i])
+                    .put(DuoAuthenticatorConstants.DUO_NUMBER, phones[i + 1]));
+        }
+        return new JSONObject().put(DuoAuthenticatorConstants.PhoneSync.USER_ID, userId)
+                .put(DuoAuthenticatorConstants.DUO_USERNAME, userId).put(DuoAuthenticatorConstants.DUO_PHONES,
+                        phoneArray);
+    }
+
+    private static JSONArray page(List<JSONObject> users, int offset, int limit) {
+
+        JSONArray page = new JSONArray();
+        for (int i = offset; i < Math.min(users.size(), offset + limit); i++) {
+            page.put(users.get(i));
+        }
+        return page;
+    }
+
+    /**
+     * Phone writer recording its calls.
+     */
+    private static class PhoneWriter implements DuoPhoneWriter {
+
+        private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        private volatile Exception failure;
+        private volatile Write onWrite = () -> { };
+
+        @Override
+        public String createPhone(String number) throws Exception {
+
+            onWrite.run();
+            calls.add("create " + number);
+            return "phone" + number;
+        }
+
+        @Override
+        public void associatePhone(String duoUserId, String phoneId) throws Exception {
+
+            onWrite.run();
+            calls.add("associate " + duoUserId + " " + phoneId);
+        }
+
+        @Override
+        public void updatePhone(String phoneId, String number) throws Exception {
+
+            onWrite.run();
+            if (failure != null) {
+                throw failure;
+            }
+            calls.add("update " + phoneId + " " + number);
+        }
+    }
+
+    /**
+     * Action run on every write.
+     */
+    private interface Write {
+
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.event.InMemoryEventSink;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoSlowLogin;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoSlowLoginSampler;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoSpan;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoTracer;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.UUID;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Test case for the tail-based sampling of slow Duo logins.
+ */
+public class DuoSlowLoginSamplerTest {
+
+    private static final String HOST = "api-primary.duosecurity.com";
+    private static final String TENANT = "carbon.super";
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoSlowLoginSampler.getInstance().clear();
+        DuoTracer.getInstance().shutdown();
+    }
+
+    @Test(description = "Test case for retaining the timeline of a login leg slower than the threshold.")
+    public void testSlowLoginRetained() throws Exception {
+
+        DuoSlowLoginSampler sampler = DuoSlowLoginSampler.getInstance();
+        sampler.configure(true, 1, 10);
+        String contextIdentifier = UUID.randomUUID().toString();
+
+        runLeg(contextIdentifier, 5);
+
+        List<DuoSlowLogin> samples = sampler.getSamples();
+        Assert.assertEquals(samples.size(), 1);
+        DuoSlowLogin sample = samples.get(0);
+        Assert.assertEquals(sample.getLeg(), DuoAuthenticatorConstants.Tracing.SPAN_INITIATE);
+        Assert.assertEquals(sample.getTraceId(), DuoTracer.getTraceId(contextIdentifier));
+        Assert.assertEquals(sample.getHost(), HOST);
+        Assert.assertEquals(sample.getTenantDomain(), TENANT);
+        Assert.assertEquals(sample.getCacheHits(), 1);
+        Assert.assertEquals(sample.getCacheMisses(), 1);
+        Assert.assertEquals(sample.getRetries(), 1);
+        Assert.assertFalse(sample.isError());
+        Assert.assertTrue(sample.getDurationNanos() >= 5000000L);
+
+        List<DuoSlowLogin.Phase> phases = sample.getPhases();
+        Assert.assertEquals(phases.size(), 3);
+        Assert.assertEquals(phases.get(0).getName(), DuoAuthenticatorConstants.Tracing.SPAN_INITIATE);
+        Assert.assertEquals(phases.get(0).getDepth(), 0);
+        Assert.assertEquals(phases.get(1).getName(), DuoAuthenticatorConstants.Tracing.SPAN_PREAUTH);
+        Assert.assertEquals(phases.get(1).getDepth(), 1);
+        Assert.assertEquals(phases.get(2).getName(), DuoAuthenticatorConstants.Tracing.SPAN_HEALTH_CHECK);
+        Assert.assertEquals(phases.get(2).getDepth(), 1);
+        Assert.assertTrue(phases.get(2).getDurationNanos() >= 5000000L);
+        Assert.assertTrue(phases.get(2).getOffsetNanos() >= phases.get(1).getOffsetNanos());
+    }
+
+    @Test(description = "Test case for discarding the timeline of a fast login leg.")
+    public void testFastLoginDiscarded() throws Exception {
+
+        DuoSlowLoginSampler sampler = DuoSlowLoginSampler.getInstance();
+        sampler.configure(true, 10000, 10);
+
+        runLeg(UUID.randomUUID().toString(), 0);
+
+        Assert.assertTrue(sampler.getSamples().isEmpty());
+    }
+
+    @Test(description = "Test case for retaining a failed login leg, whatever its latency.")
+    public void testFailedLoginRetained() {
+
+        DuoSlowLoginSampler sampler = DuoSlowLoginSampler.getInstance();
+        sampler.configure(true, 10000, 10);
+        DuoTracer tracer = DuoTracer.getInstance();
+
+        try (DuoSpan callback = tracer.startTrace(DuoAuthenticatorConstants.Tracing.SPAN_CALLBACK,
+                UUID.randomUUID().toString(), null)) {
+            try (DuoSpan exchange = tracer.startSpan(DuoAuthenticatorConstants.Tracing.SPAN_TOKEN_EXCHANGE)) {
+                exchange.setError(new IllegalStateException("Invalid code"));
+            }
+        }
+
+        List<DuoSlowLogin> samples = sampler.getSamples();
+        Assert.assertEquals(samples.size(), 1);
+        Assert.assertTrue(samples.get(0).isError());
+        Assert.assertEquals(samples.get(0).getErrorType(), IllegalStateException.class.getName());
+        Assert.assertFalse(samples.get(0).getPhases().get(0).isError());
+        Assert.assertTrue(samples.get(0).getPhases().get(1).isError());
+    }
+
+    @Test(description = "Test case for recording the phases of a traced login leg.")
+    public void testTracedLogin() {
+
+        DuoSlowLoginSampler sampler = DuoSlowLoginSampler.getInstance();
+        sampler.configure(true, 10000, 10);
+        InMemoryEventSink<DuoSpan> sink = new InMemoryEventSink<>();
+        DuoTracer tracer = DuoTracer.getInstance();
+        tracer.configure(1, sink);
+
+        try (DuoSpan initiate = tracer.startTrace(DuoAuthenticatorConstants.Tracing.SPAN_INITIATE,
+                UUID.randomUUID().toString(), null)) {
+            Assert.assertTrue(initiate.isRecording());
+            try (DuoSpan healthCheck = tracer.startSpan(DuoAuthenticatorConstants.Tracing.SPAN_HEALTH_CHECK)) {
+                healthCheck.setAttribute(DuoAuthenticatorConstants.Tracing.ATTRIBUTE_HOST, HOST);
+                healthCheck.setError(new IllegalStateException("Duo is unavailable"));
+            }
+        }
+        tracer.shutdown();
+
+        Assert.assertEquals(sink.getEvents().size(), 2);
+        List<DuoSlowLogin> samples = sampler.getSamples();
+        Assert.assertEquals(samples.size(), 1);
+        Assert.assertEquals(samples.get(0).getHost(), HOST);
+        Assert.assertEquals(samples.get(0).getPhases().size(), 2);
+    }
+
+    @Test(description = "Test case for bounding the retained login legs, keeping the most recent ones.")
+    public void testBoundedStore() {
+
+        DuoSlowLoginSampler sampler = DuoSlowLoginSampler.getInstance();
+        sampler.configure(true, 10000, 3);
+        for (int i = 0; i < 5; i++) {
+            try (DuoSpan ignored = DuoTracer.getInstance().startTrace("leg-" + i, null, null)) {
+                ignored.setError(new IllegalStateException("Failure " + i));
+            }
+        }
+
+        List<DuoSlowLogin> samples = sampler.getSamples();
+        Assert.assertEquals(samples.size(), 3);
+        Assert.assertEquals(samples.get(0).getLeg(), "leg-4");
+        Assert.assertEquals(samples.get(2).getLeg(), "leg-2");
+        Assert.assertNull(samples.get(0).getTraceId());
+
+        sampler.configure(true, 10000, 2);
+        samples = sampler.getSamples();
+        Assert.assertEquals(samples.size(), 2);
+        Assert.assertEquals(samples.get(0).getLeg(), "leg-4");
+        Assert.assertEquals(samples.get(1).getLeg(), "leg-3");
+    }
+
+    @Test(description = "Test case for counting phases beyond the capacity of the timeline without recording them.")
+    public void testDroppedPhases() {
+
+        DuoSlowLoginSampler sampler = DuoSlowLoginSampler.getInstance();
+        sampler.configure(true, 10000, 10);
+        DuoTracer tracer = DuoTracer.getInstance();
+        int extraPhases = 5;
+        try (DuoSpan callback = tracer.startTrace(DuoAuthenticatorConstants.Tracing.SPAN_CALLBACK, null, null)) {
+            for (int i = 0; i < DuoAuthenticatorConstants.SlowLogins.MAX_PHASES + extraPhases - 1; i++) {
+                tracer.startSpan(DuoAuthenticatorConstants.Tracing.SPAN_USER_LOOKUP).close();
+            }
+            callback.setError(new IllegalStateException("Too many lookups"));
+        }
+
+        DuoSlowLogin sample = sampler.getSamples().get(0);
+        Assert.assertEquals(sample.getPhases().size(), DuoAuthenticatorConstants.SlowLogins.MAX_PHASES);
+        Assert.assertEquals(sample.getDroppedPhases(), extraPhases);
+        Assert.assertTrue(sample.getPhases().get(0).isError());
+    }
+
+    @Test(description = "Test case for recording fast login legs without allocating.")
+    public void testFastPathAllocationFree() throws Exception {
+
+        DuoSlowLoginSampler sampler = DuoSlowLoginSampler.getInstance();
+        sampler.configure(true, 10000, 10);
+        String contextIdentifier = UUID.randomUUID().toString();
+        for (int i = 0; i < 1000; i++) {
+            runLeg(contextIdentifier, 0);
+        }
+
+        long bytes = DuoAllocationProfiler.measure(1000, () -> runLeg(contextIdentifier, 0));
+
+        Assert.assertEquals(bytes, 0, "Bytes allocated per fast login leg");
+        Assert.assertTrue(sampler.getSamples().isEmpty());
+    }
+
+    @Test(description = "Test case for dumping the retained login legs over JMX.")
+    public void testJmxDump() throws Exception {
+
+        DuoSlowLoginSampler sampler = DuoSlowLoginSampler.getInstance();
+        sampler.configure(true, 1, 10);
+        String contextIdentifier = UUID.randomUUID().toString();
+        runLeg(contextIdentifier, 2);
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName(DuoAuthenticatorConstants.SlowLogins.MBEAN_NAME);
+        mBeanServer.registerMBean(sampler, objectName);
+        try {
+            // Open MBean types carry lists as arrays.
+            String[] slowLogins = (String[]) mBeanServer.getAttribute(objectName, "SlowLogins");
+            Assert.assertEquals(slowLogins.length, 1);
+            JSONObject json = new JSONObject(slowLogins[0]);
+            Assert.assertEquals(json.getString("leg"), DuoAuthenticatorConstants.Tracing.SPAN_INITIATE);
+            Assert.assertEquals(json.getString("traceId"), DuoTracer.getTraceId(contextIdentifier));
+            Assert.assertEquals(json.getString("host"), HOST);
+            Assert.assertEquals(json.getInt("retries"), 1);
+            Assert.assertFalse(json.toString().contains(contextIdentifier));
+            JSONArray phases = json.getJSONArray("phases");
+            Assert.assertEquals(phases.length(), 3);
+            Assert.assertEquals(phases.getJSONObject(2).getString("name"),
+                    DuoAuthenticatorConstants.Tracing.SPAN_HEALTH_CHECK);
+
+            mBeanServer.invoke(objectName, "clearSlowLogins", null, null);
+            Assert.assertTrue(sampler.getSamples().isEmpty());
+        } finally {
+            mBeanServer.unregisterMBean(objectName);
+        }
+    }
+
+    /**
+     * Run the phases of an initiate leg through the tracer, as the authenticator does.
+     *
+     * @param contextIdentifier context identifier of the login
+     * @param sleepMillis       time spent in the health check
+     */
+    private static void runLeg(String contextIdentifier, long sleepMillis) throws InterruptedException {
+
+        DuoSlowLoginSampler sampler = DuoSlowLoginSampler.getInstance();
+        DuoTracer tracer = DuoTracer.getInstance();
+        try (DuoSpan initiate = tracer.startTrace(DuoAuthenticatorConstants.Tracing.SPAN_INITIATE,
+                contextIdentifier, null)) {
+            initiate.setAttribute(DuoAuthenticatorConstants.Tracing.ATTRIBUTE_TENANT, TENANT);
+            try (DuoSpan ignored = tracer.startSpan(DuoAuthenticatorConstants.Tracing.SPAN_PREAUTH)) {
+                sampler.recordCacheLookup(false);
+            }
+            try (DuoSpan healthCheck = tracer.startSpan(DuoAuthenticatorConstants.Tracing.SPAN_HEALTH_CHECK)) {
+                sampler.recordRetry();
+                if (sleepMillis > 0) {
+                    Thread.sleep(sleepMillis);
+                }
+                healthCheck.setAttribute(DuoAuthenticatorConstants.Tracing.ATTRIBUTE_HOST, HOST);
+            }
+            sampler.recordCacheLookup(true);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.mockito.ArgumentCaptor;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceFactory;
+import org.osgi.service.component.ComponentContext;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.ApplicationAuthenticator;
+import org.wso2.carbon.identity.authenticator.duo.config.DuoConfigManager;
+import org.wso2.carbon.identity.authenticator.duo.enrollment.DuoEnrollmentCheckService;
+import org.wso2.carbon.identity.authenticator.duo.health.DuoHealthService;
+import org.wso2.carbon.identity.authenticator.duo.internal.DuoAuthenticatorServiceComponent;
+import org.wso2.carbon.identity.authenticator.duo.phonesync.DuoPhoneSyncService;
+import org.wso2.carbon.identity.authenticator.duo.routing.DuoProbeClientRegistry;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Startup benchmark of the bundle. The activation time and the heap retained by an activated bundle are measured and
+ * checked against a budget, and the services which are not needed by logins are checked to be created on first use.
+ */
+public class DuoStartupTest {
+
+    private static final long MAX_ACTIVATION_MILLIS = 500;
+    private static final long MAX_RETAINED_BYTES = 128 * 1024;
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoConfigManager.getInstance().clear();
+    }
+
+    @Test(description = "Test case for the activation time and the retained heap of the bundle staying within the "
+            + "budget, without starting threads or creating the services it registers.")
+    public void testActivation() throws Exception {
+
+        // Activation only locates the directories of the bundle under the Carbon home, without writing to them.
+        String previousCarbonHome = System.getProperty("carbon.home");
+        System.setProperty("carbon.home", System.getProperty("java.io.tmpdir"));
+        StartupComponent component = new StartupComponent();
+        ComponentContext componentContext = mock(ComponentContext.class);
+        BundleContext bundleContext = mock(BundleContext.class);
+        when(componentContext.getBundleContext()).thenReturn(bundleContext);
+        Set<String> threads = getDuoThreads();
+        // The platform MBean server is started by Carbon before the bundle, so it is not part of the activation.
+        ManagementFactory.getPlatformMBeanServer();
+        try {
+            long heapBefore = getUsedHeapAfterGc();
+            long start = System.nanoTime();
+            component.activate(componentContext);
+            long activationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            long retainedBytes = getUsedHeapAfterGc() - heapBefore;
+            String report = "Activation took " + activationMillis + " ms and retained " + retainedBytes + " bytes";
+
+            ArgumentCaptor<String> names = ArgumentCaptor.forClass(String.class);
+            ArgumentCaptor<Object> services = ArgumentCaptor.forClass(Object.class);
+            verify(bundleContext, times(4)).registerService(names.capture(), services.capture(),
+                    any());
+            Map<String, Object> registered = new HashMap<>();
+            List<String> registeredNames = names.getAllValues();
+            for (int i = 0; i < registeredNames.size(); i++) {
+                registered.put(registeredNames.get(i), services.getAllValues().get(i));
+            }
+            Assert.assertTrue(registered.get(ApplicationAuthenticator.class.getName())
+                    instanceof ApplicationAuthenticator);
+            assertCreatedOnFirstUse(registered.get(DuoEnrollmentCheckService.class.getName()),
+                    DuoEnrollmentCheckService.class);
+            assertCreatedOnFirstUse(registered.get(DuoPhoneSyncService.class.getName()), DuoPhoneSyncService.class);
+            assertCreatedOnFirstUse(registered.get(DuoHealthService.class.getName()), DuoHealthService.class);
+            Set<String> startedThreads = getDuoThreads();
+            startedThreads.removeAll(threads);
+            Assert.assertTrue(startedThreads.isEmpty(), "Activation started " + startedThreads);
+            Assert.assertEquals(DuoProbeClientRegistry.getInstance().size(), 0);
+            Assert.assertTrue(activationMillis <= MAX_ACTIVATION_MILLIS, report);
+            Assert.assertTrue(retainedBytes <= MAX_RETAINED_BYTES, report);
+        } finally {
+            component.deactivate(componentContext);
+            if (previousCarbonHome != null) {
+                System.setProperty("carbon.home", previousCarbonHome);
+            } else {
+                System.clearProperty("carbon.home");
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> void assertCreatedOnFirstUse(Object registered, Class<S> serviceClass) {
+
+        Assert.assertTrue(registered instanceof ServiceFactory, serviceClass.getName() + " was created eagerly");
+        ServiceFactory<S> serviceFactory = (ServiceFactory<S>) registered;
+        S service = serviceFactory.getService(null, null);
+        Assert.assertTrue(serviceClass.isInstance(service));
+        Assert.assertSame(serviceFactory.getService(null, null), service);
+    }
+
+    private static Set<String> getDuoThreads() {
+
+        Set<String> threads = new HashSet<>();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().startsWith("duo-")) {
+                threads.add(thread.getName() + "#" + thread.getId());
+            }
+        }
+        return threads;
+    }
+
+    private static long getUsedHeapAfterGc() throws InterruptedException {
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Exposes the activation and deactivation of the service component.
+     */
+    private static final class StartupComponent extends DuoAuthenticatorServiceComponent {
+
+        @Override
+        protected void activate(ComponentContext ctxt) {
+
+            super.activate(ctxt);
+        }
+
+        @Override
+        protected void deactivate(ComponentContext ctxt) {
+
+            super.deactivate(ctxt);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.event.InMemoryEventSink;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoSpan;
+import org.wso2.carbon.identity.authenticator.duo.tracing.DuoTracer;
+import org.wso2.carbon.identity.authenticator.duo.tracing.OtlpHttpSpanSink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Test case for tracing Duo logins.
+ */
+public class DuoTracerTest {
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoTracer.getInstance().shutdown();
+    }
+
+    @Test(description = "Test case for linking the initiate and callback legs of a login into one trace.")
+    public void testTraceAcrossLegs() {
+
+        InMemoryEventSink<DuoSpan> sink = new InMemoryEventSink<>();
+        DuoTracer tracer = DuoTracer.getInstance();
+        tracer.configure(1, sink);
+        String contextIdentifier = UUID.randomUUID().toString();
+
+        String initiateSpanId;
+        try (DuoSpan initiate = tracer.startTrace("duo.initiate", contextIdentifier, null)) {
+            initiateSpanId = initiate.getSpanId();
+            try (DuoSpan ignored = tracer.startSpan("duo.health_check")) {
+                Assert.assertTrue(ignored.isRecording());
+            }
+        }
+        try (DuoSpan callback = tracer.startTrace("duo.callback", contextIdentifier, initiateSpanId)) {
+            try (DuoSpan exchange = tracer.startSpan("duo.token_exchange")) {
+                exchange.setError(new IllegalStateException("Invalid code"));
+            }
+        }
+        tracer.shutdown();
+
+        List<DuoSpan> spans = sink.getEvents();
+        Assert.assertEquals(spans.size(), 4);
+        String traceId = DuoTracer.getTraceId(contextIdentifier);
+        Assert.assertEquals(traceId.length(), 32);
+        for (DuoSpan span : spans) {
+            Assert.assertEquals(span.getTraceId(), traceId);
+            Assert.assertTrue(span.getEndEpochNanos() >= span.getStartEpochNanos());
+        }
+        DuoSpan healthCheck = spans.get(0);
+        DuoSpan initiate = spans.get(1);
+        DuoSpan exchange = spans.get(2);
+        DuoSpan callback = spans.get(3);
+        Assert.assertNull(initiate.getParentSpanId());
+        Assert.assertEquals(healthCheck.getParentSpanId(), initiate.getSpanId());
+        Assert.assertEquals(callback.getParentSpanId(), initiate.getSpanId());
+        Assert.assertEquals(exchange.getParentSpanId(), callback.getSpanId());
+        Assert.assertTrue(exchange.isError());
+        Assert.assertFalse(callback.isError());
+    }
+
+    @Test(description = "Test case for restoring the current span when a nested span ends.")
+    public void testNesting() {
+
+        InMemoryEventSink<DuoSpan> sink = new InMemoryEventSink<>();
+        DuoTracer tracer = DuoTracer.getInstance();
+        tracer.configure(1, sink);
+
+        Assert.assertSame(tracer.startSpan("duo.health_check"), DuoSpan.NOOP);
+        try (DuoSpan root = tracer.startTrace("duo.initiate", UUID.randomUUID().toString(), null)) {
+            try (DuoSpan first = tracer.startSpan("duo.preauth")) {
+                Assert.assertEquals(first.getParentSpanId(), root.getSpanId());
+            }
+            try (DuoSpan second = tracer.startSpan("duo.health_check")) {
+                Assert.assertEquals(second.getParentSpanId(), root.getSpanId());
+            }
+        }
+        Assert.assertSame(tracer.startSpan("duo.health_check"), DuoSpan.NOOP);
+    }
+
+    @Test(description = "Test case for sampling logins by their trace identifier.")
+    public void testSampling() {
+
+        InMemoryEventSink<DuoSpan> sink = new InMemoryEventSink<>();
+        DuoTracer tracer = DuoTracer.getInstance();
+        tracer.configure(0, sink);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertSame(tracer.startTrace("duo.initiate", UUID.randomUUID().toString(), null), DuoSpan.NOOP);
+        }
+
+        tracer.configure(0.5, sink);
+        int sampled = 0;
+        for (int i = 0; i < 1000; i++) {
+            String contextIdentifier = UUID.randomUUID().toString();
+            DuoSpan initiate = tracer.startTrace("duo.initiate", contextIdentifier, null);
+            initiate.close();
+            DuoSpan callback = tracer.startTrace("duo.callback", contextIdentifier, null);
+            callback.close();
+            // Both legs of a login share the sampling decision.
+            Assert.assertEquals(initiate.isRecording(), callback.isRecording());
+            if (initiate.isRecording()) {
+                sampled++;
+            }
+        }
+        Assert.assertTrue(sampled > 400 && sampled < 600, "Sampled " + sampled + " of 1000 logins");
+    }
+
+    @Test(description = "Test case for exporting spans to an OTLP/HTTP collector.")
+    public void testOtlpExport() throws Exception {
+
+        List<String> requests = new CopyOnWriteArrayList<>();
+        HttpServer collector = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        collector.createContext("/v1/traces", exchange -> {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream inputStream = exchange.getRequestBody()) {
+                byte[] buffer = new byte[4096];
+                for (int read; (read = inputStream.read(buffer)) != -1; ) {
+                    body.write(buffer, 0, read);
+                }
+            }
+            requests.add(new String(body.toByteArray(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        collector.start();
+        try {
+            OtlpHttpSpanSink sink = new OtlpHttpSpanSink("http://127.0.0.1:" + collector.getAddress().getPort()
+                    + "/v1/traces");
+            DuoTracer tracer = DuoTracer.getInstance();
+            tracer.configure(1, sink);
+            try (DuoSpan span = tracer.startTrace("duo.initiate", UUID.randomUUID().toString(), null)) {
+                span.setAttribute("tenant.domain", "carbon.super");
+            }
+            tracer.shutdown();
+
+            Assert.assertEquals(requests.size(), 1);
+            JSONObject resourceSpans = new JSONObject(requests.get(0)).getJSONArray("resourceSpans")
+                    .getJSONObject(0);
+            JSONArray spans = resourceSpans.getJSONArray("scopeSpans").getJSONObject(0).getJSONArray("spans");
+            Assert.assertEquals(spans.length(), 1);
+            JSONObject span = spans.getJSONObject(0);
+            Assert.assertEquals(span.getString("name"), "duo.initiate");
+            Assert.assertEquals(span.getString("traceId").length(), 32);
+            Assert.assertEquals(span.getString("spanId").length(), 16);
+            Assert.assertEquals(span.getJSONArray("attributes").getJSONObject(0).getJSONObject("value")
+                    .getString("stringValue"), "carbon.super");
+        } finally {
+            collector.stop(0);
+        }
+    }
+
+    @Test(description = "Test case for the OTLP encoding of a failed span.")
+    public void testOtlpErrorStatus() {
+
+        InMemoryEventSink<DuoSpan> sink = new InMemoryEventSink<>();
+        DuoTracer tracer = DuoTracer.getInstance();
+        tracer.configure(1, sink);
+        try (DuoSpan span = tracer.startTrace("duo.callback", UUID.randomUUID().toString(), "0102030405060708")) {
+            span.setError(new IllegalStateException("Invalid state"));
+        }
+        tracer.shutdown();
+
+        JSONObject span = new JSONObject(OtlpHttpSpanSink.toOtlpJson(Collections.singletonList(
+                sink.getEvents().get(0)))).getJSONArray("resourceSpans").getJSONObject(0)
+                .getJSONArray("scopeSpans").getJSONObject(0).getJSONArray("spans").getJSONObject(0);
+        Assert.assertEquals(span.getString("parentSpanId"), "0102030405060708");
+        Assert.assertEquals(span.getJSONObject("status").getInt("code"), 2);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserIndex;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserIndexSnapshot;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserSyncEngine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test case for the on-disk snapshots of the Duo user index.
+ */
+public class DuoUserIndexSnapshotTest {
+
+    private Path snapshotDirectory;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+
+        snapshotDirectory = Files.createTempDirectory("duo-snapshot");
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+
+        DuoUserSyncEngine.getInstance().shutdown();
+        DuoUserSyncEngine.getInstance().configureSnapshots(false, 0);
+        DuoUserSyncEngine.getInstance().setSnapshotDirectory(null);
+        File[] files = snapshotDirectory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(snapshotDirectory);
+    }
+
+    @Test(description = "Test case for writing and reading back a snapshot.")
+    public void testRoundTrip() throws IOException {
+
+        Path file = snapshotDirectory.resolve("users.idx");
+        DuoUserIndexSnapshot.write(sampleIndex(), file);
+        DuoUserIndex index = DuoUserIndexSnapshot.read(file, 60000);
+
+        Assert.assertEquals(index.size(), 3);
+        Assert.assertEquals(index.getPhoneTableSize(), 2);
+        Assert.assertEquals(index.getPhoneNumbers("bob"), Arrays.asList("+94771234567", "+94771234568"));
+        Assert.assertEquals(index.getPhoneNumbers("carol"), Collections.emptyList());
+        Assert.assertEquals(index.countDifferences(sampleIndex()), 0);
+    }
+
+    @Test(expectedExceptions = IOException.class, description = "Test case for rejecting a corrupted snapshot.")
+    public void testCorruptedSnapshot() throws IOException {
+
+        Path file = snapshotDirectory.resolve("users.idx");
+        DuoUserIndexSnapshot.write(sampleIndex(), file);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            randomAccessFile.seek(randomAccessFile.length() - 1);
+            int lastByte = randomAccessFile.read();
+            randomAccessFile.seek(randomAccessFile.length() - 1);
+            randomAccessFile.write(lastByte ^ 0xFF);
+        }
+        DuoUserIndexSnapshot.read(file, 60000);
+    }
+
+    @Test(expectedExceptions = IOException.class, description = "Test case for rejecting a truncated snapshot.")
+    public void testTruncatedSnapshot() throws IOException {
+
+        Path file = snapshotDirectory.resolve("users.idx");
+        DuoUserIndexSnapshot.write(sampleIndex(), file);
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            randomAccessFile.setLength(randomAccessFile.length() - 6);
+        }
+        DuoUserIndexSnapshot.read(file, 60000);
+    }
+
+    @Test(expectedExceptions = IOException.class, description = "Test case for rejecting a stale snapshot.")
+    public void testStaleSnapshot() throws Exception {
+
+        Path file = snapshotDirectory.resolve("users.idx");
+        DuoUserIndexSnapshot.write(sampleIndex(), file);
+        Thread.sleep(5);
+        DuoUserIndexSnapshot.read(file, 1);
+    }
+
+    @Test(description = "Test case for a restarted sync engine serving the snapshot before synchronizing.")
+    public void testWarmRestartFromSnapshot() {
+
+        JSONArray users = new JSONArray();
+        users.put(new JSONObject().put("username", "alice")
+                .put("phones", new JSONArray().put(new JSONObject().put("number", "+94771234567"))));
+        DuoUserSyncEngine engine = DuoUserSyncEngine.getInstance();
+        engine.setSnapshotDirectory(snapshotDirectory);
+        engine.configureSnapshots(true, 3600);
+        engine.register("api-test.duosecurity.com", "DIKEY", "secret", 60, 100, (offset, limit) -> users, false);
+        engine.synchronize("api-test.duosecurity.com", "DIKEY");
+        Assert.assertEquals(snapshotDirectory.toFile().list().length, 1);
+
+        // Simulate a restart of the node.
+        engine.shutdown();
+        engine.register("api-test.duosecurity.com", "DIKEY", "secret", 60, 100, (offset, limit) -> {
+            throw new IllegalStateException("Duo should not be called before the first synchronization");
+        }, false);
+        DuoUserIndex index = engine.getIndex("api-test.duosecurity.com", "DIKEY");
+        Assert.assertNotNull(index);
+        Assert.assertEquals(index.getPhoneNumbers("alice"), Collections.singletonList("+94771234567"));
+    }
+
+    @Test(description = "Test case for a restarted sync engine delaying its first synchronization after a snapshot.")
+    public void testWarmRestartDelaysFirstSync() throws Exception {
+
+        DuoUserSyncEngine engine = DuoUserSyncEngine.getInstance();
+        engine.setSnapshotDirectory(snapshotDirectory);
+        engine.configureSnapshots(true, 3600);
+        engine.register("api-test.duosecurity.com", "DIKEY", "secret", 60, 100, (offset, limit) -> new JSONArray(),
+                false);
+        engine.synchronize("api-test.duosecurity.com", "DIKEY");
+
+        // Simulate a restart of the node, with a background synchronization every minute.
+        engine.shutdown();
+        CountDownLatch synchronizing = new CountDownLatch(1);
+        engine.register("api-test.duosecurity.com", "DIKEY", "secret", 60, 100, (offset, limit) -> {
+            synchronizing.countDown();
+            return new JSONArray();
+        }, true);
+        Assert.assertFalse(synchronizing.await(500, TimeUnit.MILLISECONDS),
+                "A node restored from a recent snapshot should not synchronize before the interval has passed.");
+
+        // Without a snapshot, the first synchronization runs straight away.
+        engine.shutdown();
+        engine.configureSnapshots(false, 0);
+        engine.register("api-test.duosecurity.com", "DIKEY", "secret", 60, 100, (offset, limit) -> {
+            synchronizing.countDown();
+            return new JSONArray();
+        }, true);
+        Assert.assertTrue(synchronizing.await(5, TimeUnit.SECONDS));
+    }
+
+    private static DuoUserIndex sampleIndex() {
+
+        return new DuoUserIndex.Builder()
+                .addUser("alice", Collections.singletonList("+94771234567"))
+                .addUser("bob", Arrays.asList("+94771234567", "+94771234568"))
+                .addUser("carol", Collections.<String>emptyList())
+                .build();
+    }
+}
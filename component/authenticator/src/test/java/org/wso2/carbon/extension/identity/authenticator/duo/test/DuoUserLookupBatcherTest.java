@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserBatchLookup;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserLookupBatcher;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Test case for batching the Admin API user lookups of concurrent logins.
+ */
+public class DuoUserLookupBatcherTest {
+
+    @Test(description = "Test case for concurrent lookups being made in one request and fanned out by username.")
+    public void testConcurrentLookupsBatched() throws Exception {
+
+        DuoUserLookupBatcher batcher = new DuoUserLookupBatcher(200, 50);
+        List<List<String>> requests = new CopyOnWriteArrayList<>();
+        DuoUserBatchLookup batchLookup = usernames -> {
+            requests.add(usernames);
+            return new JSONArray()
+                    .put(new JSONObject().put(DuoAuthenticatorConstants.DUO_USERNAME, "alice")
+                            .put(DuoAuthenticatorConstants.UserSync.ALIASES, new JSONObject().put("alias1", "a.smith")))
+                    .put(new JSONObject().put(DuoAuthenticatorConstants.DUO_USERNAME, "bob"));
+        };
+
+        Map<String, JSONArray> results = lookUpConcurrently(batcher, batchLookup,
+                "alice", "Bob", "a.smith", "carol", "alice");
+
+        Assert.assertEquals(requests.size(), 1);
+        Assert.assertEquals(new HashSet<>(requests.get(0)), new HashSet<>(Arrays.asList("alice", "Bob", "a.smith",
+                "carol")));
+        Assert.assertEquals(results.get("alice").getJSONObject(0).getString(DuoAuthenticatorConstants.DUO_USERNAME),
+                "alice");
+        // Duo matches usernames regardless of case, and lookups by username also match aliases.
+        Assert.assertEquals(results.get("Bob").getJSONObject(0).getString(DuoAuthenticatorConstants.DUO_USERNAME),
+                "bob");
+        Assert.assertEquals(results.get("a.smith").getJSONObject(0)
+                .getString(DuoAuthenticatorConstants.DUO_USERNAME), "alice");
+        Assert.assertEquals(results.get("carol").length(), 0);
+    }
+
+    @Test(description = "Test case for a full batch being looked up without waiting for the window.")
+    public void testFullBatchLookedUp() throws Exception {
+
+        DuoUserLookupBatcher batcher = new DuoUserLookupBatcher(10000, 3);
+        List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+        long start = System.currentTimeMillis();
+        lookUpConcurrently(batcher, usernames -> {
+            requests.add(usernames);
+            return new JSONArray();
+        }, "alice", "bob", "carol");
+
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+        Assert.assertEquals(requests.size(), 1);
+        Assert.assertEquals(requests.get(0).size(), 3);
+    }
+
+    @Test(description = "Test case for lookups made apart being looked up in separate requests.")
+    public void testSeparateBatches() throws Exception {
+
+        DuoUserLookupBatcher batcher = new DuoUserLookupBatcher(1, 50);
+        List<List<String>> requests = new ArrayList<>();
+        DuoUserBatchLookup batchLookup = usernames -> {
+            requests.add(usernames);
+            return new JSONArray();
+        };
+
+        batcher.lookupUser("alice", batchLookup);
+        batcher.lookupUser("bob", batchLookup);
+
+        Assert.assertEquals(requests.size(), 2);
+    }
+
+    @Test(description = "Test case for the failure of a batch request failing every lookup of the batch.")
+    public void testBatchFailure() throws Exception {
+
+        DuoUserLookupBatcher batcher = new DuoUserLookupBatcher(10000, 2);
+        List<Exception> failures = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        for (String username : new String[]{"alice", "bob"}) {
+            new Thread(() -> {
+                try {
+                    batcher.lookupUser(username, usernames -> {
+                        throw new IOException("Connection refused");
+                    });
+                } catch (Exception e) {
+                    failures.add(e);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+
+        Assert.assertEquals(failures.size(), 2);
+        for (Exception failure : failures) {
+            Assert.assertTrue(failure instanceof IOException);
+        }
+    }
+
+    private static Map<String, JSONArray> lookUpConcurrently(DuoUserLookupBatcher batcher,
+                                                             DuoUserBatchLookup batchLookup, String... usernames)
+            throws InterruptedException {
+
+        Map<String, JSONArray> results = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] logins = new Thread[usernames.length];
+        for (int i = 0; i < usernames.length; i++) {
+            String username = usernames[i];
+            logins[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    results.put(username, batcher.lookupUser(username, batchLookup));
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            logins[i].start();
+        }
+        start.countDown();
+        for (Thread login : logins) {
+            login.join();
+        }
+        return results;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+import org.wso2.carbon.identity.authenticator.duo.ratelimit.DuoRateLimiterRegistry;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserIndex;
+import org.wso2.carbon.identity.authenticator.duo.sync.DuoUserSyncEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test case for the background Duo user synchronization and its phone number index.
+ */
+public class DuoUserSyncEngineTest {
+
+    private static final String HOST = "api-test.duosecurity.com";
+    private static final String IKEY = "DIXXXXXXXXXXXXXXXXXX";
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoUserSyncEngine.getInstance().shutdown();
+        DuoRateLimiterRegistry.getInstance().clear();
+    }
+
+    @Test(description = "Test case for paging through the users and indexing their phone numbers.")
+    public void testSynchronizeBuildsIndex() {
+
+        List<JSONObject> users = new ArrayList<>();
+        users.add(user("alice", "+94 77-123 4567"));
+        users.add(user("bob", "+94771234568", "+94771234567"));
+        users.add(user("carol"));
+        users.add(user("dave", "+94771234567"));
+        AtomicInteger pages = new AtomicInteger();
+        DuoUserSyncEngine.getInstance().register(HOST, IKEY, "secret", 60, 2, (offset, limit) -> {
+            pages.incrementAndGet();
+            return page(users, offset, limit);
+        }, false);
+
+        Assert.assertNull(DuoUserSyncEngine.getInstance().getIndex(HOST, IKEY));
+        Assert.assertEquals(DuoUserSyncEngine.getInstance().synchronize(HOST, IKEY), 4);
+        Assert.assertEquals(pages.get(), 3);
+
+        DuoUserIndex index = DuoUserSyncEngine.getInstance().getIndex(HOST, IKEY);
+        Assert.assertEquals(index.size(), 4);
+        Assert.assertEquals(index.getPhoneTableSize(), 3, "Shared phone numbers should be stored once.");
+        Assert.assertEquals(index.getPhoneNumbers("alice"), Arrays.asList("+94 77-123 4567"));
+        Assert.assertTrue(index.hasPhoneNumber(index.indexOf("bob"), "+94771234567", false));
+        Assert.assertFalse(index.hasPhoneNumber(index.indexOf("alice"), "+94771234567", false),
+                "Phone numbers should match exactly unless normalization is enabled.");
+        Assert.assertTrue(index.hasPhoneNumber(index.indexOf("alice"), "+94771234567", true));
+        Assert.assertEquals(index.getPhoneCount(index.indexOf("carol")), 0);
+        Assert.assertTrue(index.indexOf("erin") < 0);
+    }
+
+    @Test(description = "Test case for paging through the users within the Admin API rate limit.")
+    public void testPagesWithinRateLimit() {
+
+        List<JSONObject> users = Arrays.asList(user("alice"), user("bob"), user("carol"));
+        List<Long> pageTimes = new ArrayList<>();
+        DuoUserSyncEngine.getInstance().register(HOST, IKEY, "secret", 60, 1, (offset, limit) -> {
+            pageTimes.add(System.nanoTime());
+            return page(users, offset, limit);
+        }, false);
+
+        Assert.assertEquals(DuoUserSyncEngine.getInstance().synchronize(HOST, IKEY), 3);
+        Assert.assertEquals(pageTimes.size(), 4);
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1)
+                / DuoAuthenticatorConstants.RateLimit.DEFAULT_ADMIN_RATE_LIMIT);
+        for (int i = 1; i < pageTimes.size(); i++) {
+            Assert.assertTrue(pageTimes.get(i) - pageTimes.get(i - 1) >= intervalNanos * 9 / 10,
+                    "The pages should be spaced out by the rate limit of the integration.");
+        }
+    }
+
+    @Test(description = "Test case for publishing a new index only when users changed.")
+    public void testDeltaDetection() {
+
+        List<JSONObject> users = new ArrayList<>();
+        users.add(user("alice", "+94771234567"));
+        DuoUserSyncEngine.getInstance().register(HOST, IKEY, "secret", 60, 100,
+                (offset, limit) -> page(users, offset, limit), false);
+
+        DuoUserSyncEngine.getInstance().synchronize(HOST, IKEY);
+        DuoUserIndex first = DuoUserSyncEngine.getInstance().getIndex(HOST, IKEY);
+        Assert.assertEquals(DuoUserSyncEngine.getInstance().synchronize(HOST, IKEY), 0);
+        Assert.assertSame(DuoUserSyncEngine.getInstance().getIndex(HOST, IKEY), first);
+
+        users.set(0, user("alice", "+94770000000"));
+        users.add(user("bob", "+94771234568"));
+        Assert.assertEquals(DuoUserSyncEngine.getInstance().synchronize(HOST, IKEY), 2);
+        DuoUserIndex second = DuoUserSyncEngine.getInstance().getIndex(HOST, IKEY);
+        Assert.assertEquals(second.getPhoneNumbers("alice"), Arrays.asList("+94770000000"));
+    }
+
+    @Test(description = "Test case for keeping the previous index when a synchronization fails.")
+    public void testFailureKeepsPreviousIndex() {
+
+        List<JSONObject> users = new ArrayList<>();
+        users.add(user("alice", "+94771234567"));
+        AtomicInteger calls = new AtomicInteger();
+        DuoUserSyncEngine.getInstance().register(HOST, IKEY, "secret", 60, 100, (offset, limit) -> {
+            if (calls.incrementAndGet() > 1) {
+                throw new IllegalStateException("Duo is unavailable");
+            }
+            return page(users, offset, limit);
+        }, false);
+
+        DuoUserSyncEngine.getInstance().synchronize(HOST, IKEY);
+        DuoUserIndex index = DuoUserSyncEngine.getInstance().getIndex(HOST, IKEY);
+        Assert.assertEquals(DuoUserSyncEngine.getInstance().synchronize(HOST, IKEY), -1);
+        Assert.assertSame(DuoUserSyncEngine.getInstance().getIndex(HOST, IKEY), index);
+    }
+
+    @Test(description = "Test case for indexing the aliases of a Duo user.")
+    public void testAliasesAreIndexed() {
+
+        JSONObject alice = user("alice", "+94771234567");
+        alice.put("aliases", new JSONObject().put("alias1", "alice@example.com"));
+        DuoUserSyncEngine.getInstance().register(HOST, IKEY, "secret", 60, 100,
+                (offset, limit) -> page(Arrays.asList(alice), offset, limit), false);
+
+        DuoUserSyncEngine.getInstance().synchronize(HOST, IKEY);
+        DuoUserIndex index = DuoUserSyncEngine.getInstance().getIndex(HOST, IKEY);
+        Assert.assertEquals(index.getPhoneNumbers("alice@example.com"), Arrays.asList("+94771234567"));
+    }
+
+    private static JSONObject user(String username, String... phoneNumbers) {
+
+        JSONArray phones = new JSONArray();
+        for (String phoneNumber : phoneNumbers) {
+            phones.put(new JSONObject().put("number", phoneNumber));
+        }
+        return new JSONObject().put("username", username).put("phones", phones);
+    }
+
+    private static JSONArray page(List<JSONObject> users, int offset, int limit) {
+
+        JSONArray page = new JSONArray();
+        for (int i = offset; i < Math.min(users.size(), offset + limit); i++) {
+            page.put(users.get(i));
+        }
+        return page;
+    }
+}
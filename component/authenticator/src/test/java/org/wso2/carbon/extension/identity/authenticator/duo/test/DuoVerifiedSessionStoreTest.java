@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.authenticator.duo.session.DuoVerifiedSession;
+import org.wso2.carbon.identity.authenticator.duo.session.DuoVerifiedSessionStore;
+
+import java.util.Collections;
+
+/**
+ * Test case for the store of recent Duo verifications backing the trusted-session window.
+ */
+public class DuoVerifiedSessionStoreTest {
+
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String HOST = "api-test.duosecurity.com";
+
+    @AfterMethod
+    public void tearDown() {
+
+        DuoVerifiedSessionStore.getInstance().clear();
+    }
+
+    @Test(description = "Test case for a verification satisfying logins within the window only.")
+    public void testTrustedSessionWindow() {
+
+        DuoVerifiedSessionStore store = DuoVerifiedSessionStore.getInstance();
+        store.configure(3600000, 100);
+        String browserSessionId = store.generateBrowserSessionId();
+        String sessionKey = DuoVerifiedSessionStore.getSessionKey(browserSessionId, "alice", "alice", HOST);
+        store.record(TENANT_DOMAIN, sessionKey, new DuoVerifiedSession(System.currentTimeMillis() - 120000,
+                Collections.singletonMap("amr", "Duo Push")));
+
+        DuoVerifiedSession session = store.get(TENANT_DOMAIN, sessionKey, 300000);
+        Assert.assertNotNull(session);
+        Assert.assertEquals(session.getUserAttributes().get("amr"), "Duo Push");
+        Assert.assertNull(store.get(TENANT_DOMAIN, sessionKey, 60000));
+        Assert.assertNull(store.get("wso2.com", sessionKey, 300000));
+    }
+
+    @Test(description = "Test case for binding a verification to the browser session, subject and Duo host.")
+    public void testSessionKeyBinding() {
+
+        DuoVerifiedSessionStore store = DuoVerifiedSessionStore.getInstance();
+        String browserSessionId = store.generateBrowserSessionId();
+        String sessionKey = DuoVerifiedSessionStore.getSessionKey(browserSessionId, "alice", "alice", HOST);
+
+        Assert.assertEquals(DuoVerifiedSessionStore.getSessionKey(browserSessionId, "alice", "alice", HOST),
+                sessionKey);
+        Assert.assertNotEquals(DuoVerifiedSessionStore.getSessionKey(store.generateBrowserSessionId(), "alice",
+                "alice", HOST), sessionKey);
+        Assert.assertNotEquals(DuoVerifiedSessionStore.getSessionKey(browserSessionId, "bob", "alice", HOST),
+                sessionKey);
+        Assert.assertNotEquals(DuoVerifiedSessionStore.getSessionKey(browserSessionId, "alice", "alice",
+                "api-other.duosecurity.com"), sessionKey);
+        Assert.assertFalse(sessionKey.contains(browserSessionId));
+    }
+
+    @Test(description = "Test case for dropping verifications when the store is reconfigured.")
+    public void testReconfiguration() {
+
+        DuoVerifiedSessionStore store = DuoVerifiedSessionStore.getInstance();
+        Assert.assertNull(store.get(TENANT_DOMAIN, "key", 300000));
+        store.configure(3600000, 100);
+        store.record(TENANT_DOMAIN, "key", new DuoVerifiedSession(System.currentTimeMillis(),
+                Collections.<String, String>emptyMap()));
+        store.configure(3600000, 100);
+        Assert.assertNotNull(store.get(TENANT_DOMAIN, "key", 300000));
+        store.configure(1800000, 100);
+        Assert.assertNull(store.get(TENANT_DOMAIN, "key", 300000));
+    }
+}
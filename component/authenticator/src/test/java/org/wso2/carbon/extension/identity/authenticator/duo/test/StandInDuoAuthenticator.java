@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import com.duosecurity.Client;
+import org.wso2.carbon.identity.application.authentication.framework.config.model.AuthenticatorConfig;
+import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
+import org.wso2.carbon.identity.application.authentication.framework.exception.AuthenticationFailedException;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticator;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Exposes the initiate and callback legs of the authenticator, and creates clients of the stand-in Duo service.
+ */
+final class StandInDuoAuthenticator extends DuoAuthenticator {
+
+    static final String RUNTIME_PARAMS = "standInRuntimeParams";
+
+    private final StandInDuoService duoService;
+    private final AuthenticatorConfig authenticatorConfig = new AuthenticatorConfig();
+    private final AtomicInteger createdClients = new AtomicInteger();
+    private final AtomicInteger resolvedRuntimeParams = new AtomicInteger();
+
+    StandInDuoAuthenticator(StandInDuoService duoService) {
+
+        this.duoService = duoService;
+    }
+
+    void initiate(HttpServletRequest request, HttpServletResponse response, AuthenticationContext context)
+            throws AuthenticationFailedException {
+
+        initiateAuthenticationRequest(request, response, context);
+    }
+
+    void callback(HttpServletRequest request, HttpServletResponse response, AuthenticationContext context)
+            throws AuthenticationFailedException {
+
+        processAuthenticationResponse(request, response, context);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Map<String, String> getRuntimeParams(AuthenticationContext context) {
+
+        resolvedRuntimeParams.incrementAndGet();
+        return (Map<String, String>) context.getProperty(RUNTIME_PARAMS);
+    }
+
+    @Override
+    protected AuthenticatorConfig getAuthenticatorConfig() {
+
+        return authenticatorConfig;
+    }
+
+    @Override
+    protected Client createDuoClient(String clientId, String clientSecret, String host, String redirectUri) {
+
+        createdClients.incrementAndGet();
+        return duoService.getClient(host);
+    }
+
+    int getCreatedClientCount() {
+
+        return createdClients.get();
+    }
+
+    int getResolvedRuntimeParamsCount() {
+
+        return resolvedRuntimeParams.get();
+    }
+}
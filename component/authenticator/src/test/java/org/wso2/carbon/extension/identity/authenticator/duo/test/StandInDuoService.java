@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.duosecurity.Client;
+import com.duosecurity.TokenValidator;
+import com.duosecurity.exception.DuoException;
+import com.duosecurity.model.AuthResult;
+import com.duosecurity.model.HealthCheckResponse;
+import com.duosecurity.model.Token;
+import org.wso2.carbon.extension.identity.helper.FederatedAuthenticatorUtil;
+import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
+import org.wso2.carbon.identity.core.ServiceURL;
+import org.wso2.carbon.identity.core.ServiceURLBuilder;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+
+/**
+ * In-process stand-in of the Duo service, which authorizes every user and signs id_tokens with the client secret.
+ * Tests using it have to prepare the framework classes mocked by {@link #mockFramework()}.
+ */
+final class StandInDuoService {
+
+    static final String CLIENT_ID = "DIXXXXXXXXXXXXXXXXXX";
+    static final String CLIENT_SECRET = "deadbeefdeadbeefdeadbeefdeadbeefdeadbeef";
+    static final String[] HOSTS = {"api-a.duosecurity.com", "api-b.duosecurity.com"};
+    static final String CALLBACK_URL = "https://localhost:9443/commonauth";
+    static final String SERVER_URL = "https://localhost:9443/";
+
+    private final Map<String, String[]> codes = new ConcurrentHashMap<>();
+    private final Map<String, String> idTokens = new ConcurrentHashMap<>();
+    private final AtomicInteger exchanged = new AtomicInteger();
+    private final AtomicInteger healthChecks = new AtomicInteger();
+    private final Map<String, Client> clients = new HashMap<>();
+
+    StandInDuoService() throws DuoException {
+
+        // The clients are created up front, as stubbing is not thread safe. They do not record their invocations.
+        for (String host : HOSTS) {
+            Client client = mock(Client.class, withSettings().stubOnly());
+            when(client.healthCheck()).thenAnswer(invocation -> {
+                healthChecks.incrementAndGet();
+                return new HealthCheckResponse();
+            });
+            when(client.generateState()).thenAnswer(invocation -> UUID.randomUUID().toString());
+            when(client.createAuthUrl(anyString(), anyString())).thenAnswer(invocation -> {
+                String duoUserId = (String) invocation.getArguments()[0];
+                return "https://" + host + "/oauth/v1/authorize?state=" + invocation.getArguments()[1]
+                        + "&duo_uname=" + duoUserId + "&code=" + authorize(host, duoUserId);
+            });
+            when(client.exchangeAuthorizationCodeFor2FAResult(anyString(), any(TokenValidator.class)))
+                    .thenAnswer(invocation -> exchange(host, (String) invocation.getArguments()[0],
+                            (TokenValidator) invocation.getArguments()[1]));
+            clients.put(host, client);
+        }
+    }
+
+    /**
+     * Mock the framework and Carbon utilities used by the initiate and callback legs.
+     *
+     * @throws Exception if the mocks could not be created
+     */
+    static void mockFramework() throws Exception {
+
+        mockStatic(FrameworkUtils.class);
+        mockStatic(IdentityUtil.class);
+        mockStatic(FederatedAuthenticatorUtil.class);
+        mockStatic(ServiceURLBuilder.class);
+        ServiceURLBuilder serviceURLBuilder = mock(ServiceURLBuilder.class, withSettings().stubOnly());
+        ServiceURL serviceURL = mock(ServiceURL.class, withSettings().stubOnly());
+        when(ServiceURLBuilder.create()).thenReturn(serviceURLBuilder);
+        when(serviceURLBuilder.addPath(any())).thenReturn(serviceURLBuilder);
+        when(serviceURLBuilder.build()).thenReturn(serviceURL);
+        when(serviceURL.getAbsolutePublicURL()).thenReturn(CALLBACK_URL);
+        when(FrameworkUtils.getQueryStringWithFrameworkContextId(any(), any(), anyString())).thenAnswer(
+                invocation -> "sessionDataKey=" + invocation.getArguments()[2]);
+        when(IdentityUtil.getServerURL(anyString(), anyBoolean(), anyBoolean())).thenAnswer(
+                invocation -> SERVER_URL + invocation.getArguments()[0]);
+    }
+
+    Client getClient(String host) {
+
+        return clients.get(host);
+    }
+
+    int getExchangedCount() {
+
+        return exchanged.get();
+    }
+
+    int getHealthCheckCount() {
+
+        return healthChecks.get();
+    }
+
+    int getPendingCodeCount() {
+
+        return codes.size();
+    }
+
+    private String authorize(String host, String duoUserId) {
+
+        String code = UUID.randomUUID().toString();
+        codes.put(code, new String[]{host, duoUserId});
+        return code;
+    }
+
+    private Token exchange(String host, String code, TokenValidator tokenValidator) throws DuoException {
+
+        String[] authorization = codes.remove(code);
+        if (authorization == null || !authorization[0].equals(host)) {
+            throw new DuoException("Invalid authorization code");
+        }
+        // The id_token of a user is signed once, so that logins repeated for a user only cost the authenticator.
+        String idToken = idTokens.computeIfAbsent(host + " " + authorization[1],
+                key -> sign(host, authorization[1]));
+        DecodedJWT decodedToken = tokenValidator.validateAndDecode(idToken);
+        Token token = new Token();
+        token.setSub(decodedToken.getSubject());
+        token.setPreferred_username(decodedToken.getClaim("preferred_username").asString());
+        token.setAud(CLIENT_ID);
+        token.setAuth_result(new AuthResult("allow", "allow", "User is authorized"));
+        exchanged.incrementAndGet();
+        return token;
+    }
+
+    private static String sign(String host, String duoUserId) {
+
+        Date now = new Date();
+        return JWT.create()
+                .withIssuer(String.format("https://%s/oauth/v1/token", host))
+                .withAudience(CLIENT_ID)
+                .withSubject(duoUserId)
+                .withClaim("preferred_username", duoUserId)
+                .withIssuedAt(now)
+                .withExpiresAt(new Date(now.getTime() + 300000))
+                .sign(Algorithm.HMAC512(CLIENT_SECRET));
+    }
+}
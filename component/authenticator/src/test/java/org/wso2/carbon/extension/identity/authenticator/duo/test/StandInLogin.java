@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2026, WSO2 LLC. (http://www.wso2.com).
+ *
+ * WSO2 LLC. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.extension.identity.authenticator.duo.test;
+
+import org.testng.Assert;
+import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
+import org.wso2.carbon.identity.application.authentication.framework.exception.AuthenticationFailedException;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.authenticator.duo.DuoAuthenticatorConstants;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * A login of a user against the stand-in Duo service, with its own context, requests and response. The requests
+ * and the response are created up front, so that a login can be driven from any thread.
+ */
+final class StandInLogin {
+
+    final int index;
+    final String contextIdentifier;
+    final String duoUserId;
+    final AuthenticationContext context = new AuthenticationContext();
+    private final HttpServletRequest request = mock(HttpServletRequest.class, withSettings().stubOnly());
+    private final HttpServletRequest callbackRequest = mock(HttpServletRequest.class, withSettings().stubOnly());
+    private final HttpServletResponse response = mock(HttpServletResponse.class, withSettings().stubOnly());
+    private volatile String redirect;
+    private volatile String state;
+    private volatile String code;
+    private volatile String presentedState;
+
+    StandInLogin(int index, String duoUserId) throws IOException {
+
+        this.index = index;
+        this.contextIdentifier = "context-" + index;
+        this.duoUserId = duoUserId;
+        Map<String, String> authenticatorProperties = new HashMap<>();
+        authenticatorProperties.put(DuoAuthenticatorConstants.CLIENT_ID, StandInDuoService.CLIENT_ID);
+        authenticatorProperties.put(DuoAuthenticatorConstants.CLIENT_SECRET, StandInDuoService.CLIENT_SECRET);
+        authenticatorProperties.put(DuoAuthenticatorConstants.HOST, String.join(",", StandInDuoService.HOSTS));
+        context.setAuthenticatorProperties(authenticatorProperties);
+        context.setContextIdentifier(contextIdentifier);
+        context.setTenantDomain("carbon.super");
+        AuthenticatedUser authenticatedUser = new AuthenticatedUser();
+        authenticatedUser.setUserName("user-" + index);
+        authenticatedUser.setAuthenticatedSubjectIdentifier("user-" + index);
+        context.setProperty(DuoAuthenticatorConstants.AUTHENTICATED_USER, authenticatedUser);
+        context.setProperty(StandInDuoAuthenticator.RUNTIME_PARAMS,
+                Collections.singletonMap(DuoAuthenticatorConstants.DUO_USER_IDENTIFIER, duoUserId));
+
+        doAnswer(invocation -> {
+            redirect = (String) invocation.getArguments()[0];
+            return null;
+        }).when(response).sendRedirect(anyString());
+        when(callbackRequest.getParameter(DuoAuthenticatorConstants.DUO_STATE)).thenAnswer(
+                invocation -> presentedState);
+        when(callbackRequest.getParameter(DuoAuthenticatorConstants.DUO_CODE)).thenAnswer(invocation -> code);
+        when(callbackRequest.getParameter(DuoAuthenticatorConstants.SESSION_DATA_KEY)).thenReturn(contextIdentifier);
+    }
+
+    StandInLogin(int index) throws IOException {
+
+        this(index, "duo-user-" + index);
+    }
+
+    /**
+     * Run the initiate leg, which redirects the user to Duo.
+     *
+     * @param authenticator the authenticator
+     * @throws AuthenticationFailedException if the leg failed
+     */
+    void initiate(StandInDuoAuthenticator authenticator) throws AuthenticationFailedException {
+
+        authenticator.initiate(request, response, context);
+        state = String.valueOf(context.getProperty(DuoAuthenticatorConstants.DUO_STATE));
+        String duoUrl = redirect;
+        if (duoUrl != null) {
+            code = getQueryParameter(duoUrl, "code");
+        }
+    }
+
+    /**
+     * Run the callback leg with the state returned by Duo.
+     *
+     * @param authenticator the authenticator
+     * @param returnedState the state presented to the callback
+     * @throws AuthenticationFailedException if the leg failed
+     */
+    void callback(StandInDuoAuthenticator authenticator, String returnedState) throws AuthenticationFailedException {
+
+        presentedState = returnedState;
+        authenticator.callback(callbackRequest, response, context);
+    }
+
+    void callback(StandInDuoAuthenticator authenticator) throws AuthenticationFailedException {
+
+        callback(authenticator, state);
+    }
+
+    /**
+     * Check that the initiate leg redirected the user to Duo at the selected host, with the state of this login.
+     */
+    void assertRedirectedToDuo() {
+
+        Assert.assertEquals(getQueryParameter(redirect, "state"), state);
+        Assert.assertEquals(getQueryParameter(redirect, "duo_uname"), duoUserId);
+        Assert.assertTrue(redirect.startsWith("https://"
+                + context.getProperty(DuoAuthenticatorConstants.Routing.SELECTED_HOST) + "/"), redirect);
+    }
+
+    /**
+     * Check that the login authenticated its own user.
+     */
+    void assertAuthenticated() {
+
+        Assert.assertEquals(context.getSubject().getAuthenticatedSubjectIdentifier(), duoUserId);
+        Assert.assertTrue(context.getSubject().getUserAttributes().containsValue(duoUserId));
+    }
+
+    String getRedirect() {
+
+        return redirect;
+    }
+
+    String getState() {
+
+        return state;
+    }
+
+    private static String getQueryParameter(String url, String name) {
+
+        for (String parameter : url.substring(url.indexOf('?') + 1).split("&")) {
+            String[] pair = parameter.split("=", 2);
+            if (pair[0].equals(name)) {
+                return pair.length > 1 ? pair[1] : "";
+            }
+        }
+        return null;
+    }
+}